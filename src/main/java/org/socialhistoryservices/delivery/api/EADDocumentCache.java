@@ -0,0 +1,144 @@
+package org.socialhistoryservices.delivery.api;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Caches the fetched and parsed EAD documents per archive (parent PID).
+ * The cache is bounded by the total estimated heap size of the parsed documents; the least recently used
+ * documents are evicted first. Cached documents are only handed out without asking the server for a
+ * limited time after they were last validated, after that they have to be revalidated.
+ * The cached documents are shared, so they should only be read.
+ */
+public class EADDocumentCache {
+    private final long maxSize;
+    private final long maxAge;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+
+    /**
+     * Creates a new EAD document cache.
+     *
+     * @param maxSize The maximum total estimated heap size in bytes of the parsed documents to keep.
+     * @param maxAge  The number of seconds a cached document may be used without revalidation.
+     */
+    public EADDocumentCache(long maxSize, long maxAge) {
+        this.maxSize = maxSize;
+        this.maxAge = maxAge * 1000;
+    }
+
+    /**
+     * Returns the cached EAD document of the given archive.
+     *
+     * @param pid The PID of the archive.
+     * @return The cached EAD document, if found.
+     */
+    public synchronized Entry get(String pid) {
+        return entries.get(pid);
+    }
+
+    /**
+     * Caches the EAD document of the given archive, evicting the least recently used documents if necessary.
+     *
+     * @param pid   The PID of the archive.
+     * @param entry The EAD document.
+     */
+    public synchronized void put(String pid, Entry entry) {
+        remove(pid);
+        if (entry.size > maxSize)
+            return;
+
+        entries.put(pid, entry);
+        size += entry.size;
+
+        Iterator<Entry> it = entries.values().iterator();
+        while (size > maxSize && it.hasNext()) {
+            size -= it.next().size;
+            it.remove();
+        }
+    }
+
+    /**
+     * Removes the cached EAD document of the given archive.
+     *
+     * @param pid The PID of the archive.
+     */
+    public synchronized void remove(String pid) {
+        Entry entry = entries.remove(pid);
+        if (entry != null)
+            size -= entry.size;
+    }
+
+    /**
+     * Whether the cached EAD document may be used without revalidation.
+     *
+     * @param entry The cached EAD document.
+     * @return True if the document was validated recently enough.
+     */
+    public boolean isFresh(Entry entry) {
+        return (System.currentTimeMillis() - entry.validated) < maxAge;
+    }
+
+    /**
+     * Represents a fetched and parsed EAD document.
+     */
+    public static class Entry {
+        private final Object document;
+        private final String url;
+        private final String eTag;
+        private final String lastModified;
+        private final long size;
+        private volatile long validated;
+
+        /**
+         * Creates a new EAD document cache entry.
+         *
+         * @param document     The parsed EAD, either the indexed EAD document or the StAX EAD model.
+         * @param url          The URL the EAD was fetched from.
+         * @param eTag         The ETag header returned with the EAD, if any.
+         * @param lastModified The Last-Modified header returned with the EAD, if any.
+         * @param size         The estimated heap size in bytes of the parsed EAD.
+         */
+        public Entry(Object document, String url, String eTag, String lastModified, long size) {
+            this.document = document;
+            this.url = url;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.size = size;
+            this.validated = System.currentTimeMillis();
+        }
+
+        public Object getDocument() {
+            return document;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * Whether the entry can be revalidated with a conditional request.
+         *
+         * @return True if the server returned an ETag or a Last-Modified header.
+         */
+        public boolean isRevalidatable() {
+            return (eTag != null) || (lastModified != null);
+        }
+
+        /**
+         * Marks the entry as validated with the server just now.
+         */
+        public void markValidated() {
+            validated = System.currentTimeMillis();
+        }
+    }
+}
@@ -1,12 +1,14 @@
 package org.socialhistoryservices.delivery.api;
 
 import java.util.*;
+import java.util.regex.Pattern;
 import javax.xml.xpath.*;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
@@ -17,51 +19,39 @@ import org.socialhistoryservices.delivery.record.entity.ArchiveHoldingInfo;
 
 public class EADMetadataRecordExtractor implements MetadataRecordExtractor {
     private static final Logger LOGGER = LoggerFactory.getLogger(EADMetadataRecordExtractor.class);
+    private static final String NS_EAD = "urn:isbn:1-931666-22-9";
+    private static final Pattern COMPONENT_NAME = Pattern.compile("c(0[1-9]|1[0-2])");
+    private static final Pattern WHITESPACE = Pattern.compile("[ \t\r\n]+");
+
+    // The estimated heap size of a DOM node, measured with Xerces on Java 11, excluding its characters
+    private static final long NODE_SIZE = 100;
 
-    private static final XPath xpath;
     private static final XPathExpression xpTitle, xpTitleItem, xpAuthor, xpPhysicalDescription, xpUnitId, xpUnitIdItem,
-            xpContainer, xpInventory, xpArchdesc, xpAccessRestrict, xpP, xpParent, xpChildren,
+            xpInventory, xpArchdesc, xpAccessRestrict, xpP, xpChildren,
             xpArchive931, xpArchiveLocation, xpArchiveMeter, xpArchiveNumbers, xpArchiveFormat, xpArchiveNote;
 
     private final String parentPid;
     private final String item;
     private final String itemSep;
 
+    private final EAD document;
     private final Node ead;
     private final Node archival;
 
     static {
         try {
-            XPathFactory factory = XPathFactory.newInstance();
-            xpath = factory.newXPath();
-            xpath.setNamespaceContext(new IISHNamespaceContext());
-
-            xpTitle = xpath.compile("normalize-space(.//ead:unittitle)");
-            xpTitleItem = xpath.compile("normalize-space(./ead:did/ead:unittitle)");
-            xpAuthor = xpath.compile("normalize-space(.//ead:origination[@label='Creator']/ead:persname)");
-            xpPhysicalDescription = xpath.compile(
+            xpTitle = XmlUtils.compile("normalize-space(.//ead:unittitle)");
+            xpTitleItem = XmlUtils.compile("normalize-space(./ead:did/ead:unittitle)");
+            xpAuthor = XmlUtils.compile("normalize-space(.//ead:origination[@label='Creator']/ead:persname)");
+            xpPhysicalDescription = XmlUtils.compile(
                     "normalize-space(.//ead:physdesc[@label='Physical Description']/ead:extent)");
-            xpUnitId = xpath.compile(".//ead:unitid");
-            xpUnitIdItem = xpath.compile("./ead:did/ead:unitid");
-            xpContainer = xpath.compile("normalize-space(.//ead:container[@type='box'])");
-            xpInventory = xpath.compile(".//ead:dsc");
-            xpArchdesc = xpath.compile(".//ead:archdesc");
-            xpAccessRestrict = xpath.compile(".//ead:accessrestrict");
-            xpP = xpath.compile("normalize-space(./ead:p[1])");
-            xpParent = xpath.compile("(" +
-                    "./ancestor::ead:c01|" +
-                    "./ancestor::ead:c02|" +
-                    "./ancestor::ead:c03|" +
-                    "./ancestor::ead:c04|" +
-                    "./ancestor::ead:c05|" +
-                    "./ancestor::ead:c06|" +
-                    "./ancestor::ead:c07|" +
-                    "./ancestor::ead:c08|" +
-                    "./ancestor::ead:c09|" +
-                    "./ancestor::ead:c10|" +
-                    "./ancestor::ead:c11|" +
-                    "./ancestor::ead:c12)[last()]");
-            xpChildren = xpath.compile("(" +
+            xpUnitId = XmlUtils.compile(".//ead:unitid");
+            xpUnitIdItem = XmlUtils.compile("./ead:did/ead:unitid");
+            xpInventory = XmlUtils.compile(".//ead:dsc");
+            xpArchdesc = XmlUtils.compile(".//ead:archdesc");
+            xpAccessRestrict = XmlUtils.compile(".//ead:accessrestrict");
+            xpP = XmlUtils.compile("normalize-space(./ead:p[1])");
+            xpChildren = XmlUtils.compile("(" +
                     "./ead:c01|" +
                     "./ead:c02|" +
                     "./ead:c03|" +
@@ -75,24 +65,25 @@ public class EADMetadataRecordExtractor implements MetadataRecordExtractor {
                     "./ead:c11|" +
                     "./ead:c12)");
 
-            xpArchive931 = XmlUtils.getXPathForMarcTag(xpath, "931");
-            xpArchiveLocation = XmlUtils.getXPathForMarcSubfield(xpath, 'a');
-            xpArchiveMeter = XmlUtils.getXPathForMarcSubfield(xpath, 'b');
-            xpArchiveNumbers = XmlUtils.getXPathForMarcSubfield(xpath, 'c');
-            xpArchiveFormat = XmlUtils.getXPathForMarcSubfield(xpath, 'e');
-            xpArchiveNote = XmlUtils.getXPathForMarcSubfield(xpath, 'f');
+            xpArchive931 = XmlUtils.getXPathForMarcTag("931");
+            xpArchiveLocation = XmlUtils.getXPathForMarcSubfield('a');
+            xpArchiveMeter = XmlUtils.getXPathForMarcSubfield('b');
+            xpArchiveNumbers = XmlUtils.getXPathForMarcSubfield('c');
+            xpArchiveFormat = XmlUtils.getXPathForMarcSubfield('e');
+            xpArchiveNote = XmlUtils.getXPathForMarcSubfield('f');
         }
         catch (XPathExpressionException ex) {
             throw new RuntimeException(ex);
         }
     }
 
-    public EADMetadataRecordExtractor(String parentPid, String item, String itemSep, Node ead, Node archival) {
+    public EADMetadataRecordExtractor(String parentPid, String item, String itemSep, EAD document, Node archival) {
         this.parentPid = parentPid;
         this.item = item;
         this.itemSep = itemSep;
 
-        this.ead = ead;
+        this.document = document;
+        this.ead = document.node;
         this.archival = archival;
     }
 
@@ -113,6 +104,13 @@ public class EADMetadataRecordExtractor implements MetadataRecordExtractor {
      */
     @Override
     public ExternalRecordInfo getRecordMetadata() {
+        // The DOM of a cached EAD document is shared, but a DOM is not safe for use by multiple threads
+        synchronized (document) {
+            return extractRecordMetadata();
+        }
+    }
+
+    private ExternalRecordInfo extractRecordMetadata() {
         ExternalRecordInfo externalInfo = new ExternalRecordInfo();
 
         String author = XmlUtils.evaluate(xpAuthor, ead);
@@ -139,7 +137,7 @@ public class EADMetadataRecordExtractor implements MetadataRecordExtractor {
         externalInfo.setPublicationStatus(ExternalRecordInfo.PublicationStatus.UNKNOWN);
         externalInfo.setRestriction(evaluateRestriction());
 
-        String container = (item != null) ? XmlUtils.evaluate(xpContainer, findItemNode()) : null;
+        String container = (item != null) ? getBoxContainer(findItemNode()) : null;
         externalInfo.setContainer(container);
 
         String physicalDescription = XmlUtils.evaluate(xpPhysicalDescription, ead);
@@ -159,6 +157,12 @@ public class EADMetadataRecordExtractor implements MetadataRecordExtractor {
      */
     @Override
     public Map<String, ExternalHoldingInfo> getHoldingMetadata() {
+        synchronized (document) {
+            return extractHoldingMetadata();
+        }
+    }
+
+    private Map<String, ExternalHoldingInfo> extractHoldingMetadata() {
         Map<String, ExternalHoldingInfo> retMap = new HashMap<>();
 
         Node itemNode = (item != null) ? findItemNode() : ead;
@@ -189,10 +193,22 @@ public class EADMetadataRecordExtractor implements MetadataRecordExtractor {
      */
     @Override
     public List<ArchiveHoldingInfo> getArchiveHoldingInfo() {
+        // Child records should look for archive holding info at their parent
+        if (item == null)
+            return getArchiveHoldingInfo(archival);
+        return new ArrayList<>();
+    }
+
+    /**
+     * Obtains archive holding info from the archival MARC record of an archive.
+     *
+     * @param archival The archival MARC record node.
+     * @return A list with the archive metadata of the archive, if found.
+     */
+    static List<ArchiveHoldingInfo> getArchiveHoldingInfo(Node archival) {
         List<ArchiveHoldingInfo> info = new ArrayList<>();
 
-        // Child records should look for archive holding info at their parent
-        if (item == null && archival != null) {
+        if (archival != null) {
             try {
                 NodeList archiveList = (NodeList) xpArchive931.evaluate(archival, XPathConstants.NODESET);
                 if (archiveList != null) {
@@ -231,56 +247,50 @@ public class EADMetadataRecordExtractor implements MetadataRecordExtractor {
         Set<MetadataRecordExtractor> recordExtractors = new HashSet<>();
 
         Node itemNode = findItemNode();
-        String container = itemNode != null ? XmlUtils.evaluate(xpContainer, itemNode) : null;
+        String container;
+        synchronized (document) {
+            container = getBoxContainer(itemNode);
+        }
 
         if (itemNode == null || container == null)
             return recordExtractors;
 
-        try {
-            NodeList containerNodes = (NodeList) xpath.evaluate(
-                    ".//ead:dsc//ead:container[@type='box'][normalize-space(text())='" + container + "']",
-                    ead, XPathConstants.NODESET);
-
-            for (int i = 0; i < containerNodes.getLength(); i++) {
-                Node parentItemsNode = (Node) xpParent.evaluate(containerNodes.item(i), XPathConstants.NODE);
-                NodeList itemNodes = (NodeList) xpUnitId.evaluate(parentItemsNode, XPathConstants.NODESET);
-
-                // An item node is only valid if is a leaf item node (has no children with items)
-                if (itemNodes.getLength() == 1) {
-                    String siblingItem = itemNodes.item(0).getTextContent().trim();
-                    if (!item.equals(siblingItem)) {
-                        EADMetadataRecordExtractor recordExtractor = new EADMetadataRecordExtractor(
-                                parentPid, siblingItem, itemSep, ead, archival);
-                        recordExtractors.add(recordExtractor);
-                    }
-                }
+        List<String> siblingItems = document.index.containers.getOrDefault(container, Collections.emptyList());
+        for (String siblingItem : siblingItems) {
+            if (!item.equals(siblingItem)) {
+                EADMetadataRecordExtractor recordExtractor = new EADMetadataRecordExtractor(
+                        parentPid, siblingItem, itemSep, document, archival);
+                recordExtractors.add(recordExtractor);
             }
         }
-        catch (XPathExpressionException ignored) {
-            LOGGER.debug("getRecordExtractorsForContainerSiblings(): Invalid XPath", ignored);
-        }
 
         return recordExtractors;
     }
 
     private Node findItemNode() {
-        try {
-            if (item == null)
-                return null;
-
-            Node itemNode = (Node) xpath.evaluate(
-                    ".//ead:dsc//ead:unitid[normalize-space(text())='" + item + "']",
-                    ead, XPathConstants.NODE);
-            Node parentNode = (Node) xpParent.evaluate(itemNode, XPathConstants.NODE);
-
-            // An item node is only valid if is a leaf item node (has no children with items)
-            if (((NodeList) xpUnitId.evaluate(parentNode, XPathConstants.NODESET)).getLength() == 1)
-                return parentNode;
+        if (item == null)
             return null;
-        }
-        catch (XPathExpressionException ex) {
+        return document.index.items.get(item);
+    }
+
+    /**
+     * Returns the normalized text of the first box container of an item, like
+     * normalize-space(.//ead:container[@type='box']) does. The DOM is walked directly instead,
+     * as XPath navigates the whole document up to the item, which is slow for large inventories.
+     */
+    private static String getBoxContainer(Node itemNode) {
+        if (itemNode == null)
             return null;
+
+        NodeList containers = ((Element) itemNode).getElementsByTagNameNS(NS_EAD, "container");
+        for (int i = 0; i < containers.getLength(); i++) {
+            Element container = (Element) containers.item(i);
+            if (container.getAttribute("type").equals("box")) {
+                String text = WHITESPACE.matcher(container.getTextContent()).replaceAll(" ").trim();
+                return text.isEmpty() ? null : text;
+            }
         }
+        return null;
     }
 
     private ExternalRecordInfo.Restriction evaluateRestriction() {
@@ -295,7 +305,8 @@ public class EADMetadataRecordExtractor implements MetadataRecordExtractor {
 
             Node itemNode = findItemNode();
             if (type.equals("part") && (itemNode != null)) {
-                accessRestrict = (Element) xpAccessRestrict.evaluate(itemNode, XPathConstants.NODE);
+                accessRestrict = (Element) ((Element) itemNode)
+                        .getElementsByTagNameNS(NS_EAD, "accessrestrict").item(0);
                 if (accessRestrict != null)
                     restriction = accessRestrict.getAttribute("type");
                 else
@@ -361,4 +372,142 @@ public class EADMetadataRecordExtractor implements MetadataRecordExtractor {
 
         return inventory;
     }
+
+    /**
+     * A parsed EAD document with the index of its inventory, which is built once when the document is parsed.
+     * The document may be cached and shared by multiple threads, so it is never modified and
+     * the extractors read the DOM while holding the lock of this object.
+     */
+    public static class EAD {
+        private final Node node;
+        private final Index index;
+        private final long estimatedSize;
+
+        /**
+         * Creates a parsed EAD document and indexes its inventory.
+         *
+         * @param node The EAD node.
+         */
+        public EAD(Node node) {
+            this.node = node;
+            this.index = new Index(node);
+            this.estimatedSize = estimateSize(node.getOwnerDocument());
+        }
+
+        /**
+         * Returns the EAD node.
+         *
+         * @return The EAD node.
+         */
+        public Node getNode() {
+            return node;
+        }
+
+        /**
+         * Returns the estimated heap size of the parsed document, which is about 9 times the size of the XML.
+         *
+         * @return The estimated size in bytes.
+         */
+        public long getEstimatedSize() {
+            return estimatedSize;
+        }
+
+        private static long estimateSize(Node parent) {
+            long size = 0;
+            for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+                size += NODE_SIZE;
+                if (node.getNodeType() == Node.ELEMENT_NODE) {
+                    NamedNodeMap attributes = node.getAttributes();
+                    for (int i = 0; i < attributes.getLength(); i++)
+                        size += NODE_SIZE + attributes.item(i).getNodeValue().length();
+                    size += estimateSize(node);
+                }
+                else if (node.getNodeValue() != null) {
+                    size += node.getNodeValue().length();
+                }
+            }
+            return size;
+        }
+    }
+
+    /**
+     * Indexes the items and box containers of the inventory of an EAD document in a single pass,
+     * so that items and their container siblings can be looked up without scanning the inventory.
+     */
+    private static class Index {
+        // The nearest component of the first inventory unitid with the given text, if it is a leaf component
+        private final Map<String, Node> items = new HashMap<>();
+
+        // The unitids of the leaf components of all inventory box containers with the given text
+        private final Map<String, List<String>> containers = new HashMap<>();
+
+        private Index(Node ead) {
+            Map<Node, Integer> unitIdCounts = new HashMap<>();
+
+            NodeList unitIds = ((Element) ead).getElementsByTagNameNS(NS_EAD, "unitid");
+            for (int i = 0; i < unitIds.getLength(); i++) {
+                Node unitId = unitIds.item(i);
+                Node component = getComponent(unitId);
+                if (component != null && isInInventory(component)) {
+                    String text = getFirstText(unitId);
+                    if (!items.containsKey(text))
+                        items.put(text, isLeaf(component, unitIdCounts) ? component : null);
+                }
+            }
+
+            NodeList containerNodes = ((Element) ead).getElementsByTagNameNS(NS_EAD, "container");
+            for (int i = 0; i < containerNodes.getLength(); i++) {
+                Element container = (Element) containerNodes.item(i);
+                Node component = getComponent(container);
+                if (container.getAttribute("type").equals("box") && component != null
+                        && isInInventory(component) && isLeaf(component, unitIdCounts)) {
+                    String siblingItem = ((Element) component).getElementsByTagNameNS(NS_EAD, "unitid")
+                            .item(0).getTextContent().trim();
+                    containers.computeIfAbsent(getFirstText(container), key -> new ArrayList<>()).add(siblingItem);
+                }
+            }
+        }
+
+        /**
+         * An item node is only valid if is a leaf item node (has no children with items).
+         */
+        private static boolean isLeaf(Node component, Map<Node, Integer> unitIdCounts) {
+            return unitIdCounts.computeIfAbsent(component,
+                    key -> ((Element) key).getElementsByTagNameNS(NS_EAD, "unitid").getLength()) == 1;
+        }
+
+        /**
+         * Returns the nearest component (c01 to c12) the given node is part of, if any.
+         */
+        private static Node getComponent(Node node) {
+            for (Node parent = node.getParentNode(); parent != null; parent = parent.getParentNode()) {
+                if (isEADElement(parent) && COMPONENT_NAME.matcher(parent.getLocalName()).matches())
+                    return parent;
+            }
+            return null;
+        }
+
+        private static boolean isInInventory(Node component) {
+            for (Node parent = component.getParentNode(); parent != null; parent = parent.getParentNode()) {
+                if (isEADElement(parent) && parent.getLocalName().equals("dsc"))
+                    return true;
+            }
+            return false;
+        }
+
+        private static boolean isEADElement(Node node) {
+            return node.getNodeType() == Node.ELEMENT_NODE && NS_EAD.equals(node.getNamespaceURI());
+        }
+
+        /**
+         * Returns the normalized first text node of the given element, like normalize-space(text()) does.
+         */
+        private static String getFirstText(Node node) {
+            for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+                if (child.getNodeType() == Node.TEXT_NODE || child.getNodeType() == Node.CDATA_SECTION_NODE)
+                    return WHITESPACE.matcher(child.getNodeValue()).replaceAll(" ").trim();
+            }
+            return "";
+        }
+    }
 }
@@ -1,62 +1,81 @@
 package org.socialhistoryservices.delivery.api;
 
 import java.net.*;
+import java.util.*;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.UnsupportedEncodingException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.xpath.*;
 
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
 
 import org.socialhistoryservices.delivery.config.DeliveryProperties;
+import org.socialhistoryservices.delivery.util.CircuitBreaker;
 
 /**
  * Represents the api.socialhistoryservices.org lookup service.
  */
 public class IISHRecordLookupService implements RecordLookupService {
     private static final Logger LOGGER = LoggerFactory.getLogger(IISHRecordLookupService.class);
-    private static final String SRW_SEARCH_PATH = "ns1:recordData/marc:record/";
 
-    private static final XPathExpression xpSearch, xpAll, xpOAI, xpSearch245aTitle, xpSearch500aTitle,
-            xpSearch600aTitle, xpSearch610aTitle, xpSearch650aTitle, xpSearch651aTitle, xpSearch245kTitle,
-            xpSearch245bSubTitle, xp856uUrl, xpSearchIdent, xpSearchMeta, xpNumberOfRecords;
+    private static final XPathExpression xpSearch, xpAll, xpOAI, xp856uUrl, xpSearchIdent, xpSearchMeta,
+            xpSearchRecordMeta, xpNumberOfRecords;
+
+    private static final DocumentBuilderFactory documentBuilderFactory;
 
     private DeliveryProperties deliveryProperties;
 
-    static {
-        XPathFactory factory = XPathFactory.newInstance();
-        XPath xpath = factory.newXPath();
-        xpath.setNamespaceContext(new IISHNamespaceContext());
+    private CloseableHttpClient httpClient;
+
+    private EADDocumentCache eadDocumentCache;
+
+    private CircuitBreaker circuitBreaker;
 
+    static {
         try {
-            xpAll = xpath.compile("/srw:searchRetrieveResponse");
-            xpOAI = xpath.compile("//oai:record");
-            xpSearch = xpath.compile("//srw:record");
-            xpSearch245aTitle = XmlUtils.getXPathForMarc(xpath, "245", 'a', SRW_SEARCH_PATH);
-            xpSearch245bSubTitle = XmlUtils.getXPathForMarc(xpath, "245", 'b', SRW_SEARCH_PATH);
-            xpSearch500aTitle = XmlUtils.getXPathForMarc(xpath, "500", 'a', SRW_SEARCH_PATH);
-            xpSearch600aTitle = XmlUtils.getXPathForMarc(xpath, "600", 'a', SRW_SEARCH_PATH);
-            xpSearch610aTitle = XmlUtils.getXPathForMarc(xpath, "610", 'a', SRW_SEARCH_PATH);
-            xpSearch650aTitle = XmlUtils.getXPathForMarc(xpath, "650", 'a', SRW_SEARCH_PATH);
-            xpSearch651aTitle = XmlUtils.getXPathForMarc(xpath, "651", 'a', SRW_SEARCH_PATH);
-            xpSearch245kTitle = XmlUtils.getXPathForMarc(xpath, "245", 'k', SRW_SEARCH_PATH);
-            xp856uUrl = XmlUtils.getXPathForMarc(xpath, "856", 'u');
-            xpSearchIdent = xpath.compile("ns1:extraRecordData/extraData:extraData/iisg:identifier");
-            xpSearchMeta = xpath.compile("//marc:record");
-            xpNumberOfRecords = xpath.compile("//ns1:numberOfRecords");
+            xpAll = XmlUtils.compile("/srw:searchRetrieveResponse");
+            xpOAI = XmlUtils.compile("//oai:record");
+            xpSearch = XmlUtils.compile("//srw:record");
+            xp856uUrl = XmlUtils.getXPathForMarc("856", 'u');
+            xpSearchIdent = XmlUtils.compile("ns1:extraRecordData/extraData:extraData/iisg:identifier");
+            xpSearchMeta = XmlUtils.compile("//marc:record");
+            xpSearchRecordMeta = XmlUtils.compile("ns1:recordData/marc:record");
+            xpNumberOfRecords = XmlUtils.compile("//ns1:numberOfRecords");
         }
         catch (XPathExpressionException ex) {
             throw new RuntimeException(ex);
         }
+
+        try {
+            documentBuilderFactory = DocumentBuilderFactory.newInstance();
+            documentBuilderFactory.setNamespaceAware(true);
+            // Cached EAD documents are read by multiple threads, so expand all nodes while parsing
+            documentBuilderFactory.setFeature("http://apache.org/xml/features/dom/defer-node-expansion", false);
+        }
+        catch (ParserConfigurationException ex) {
+            throw new RuntimeException(ex);
+        }
     }
 
     /**
@@ -68,6 +87,43 @@ public class IISHRecordLookupService implements RecordLookupService {
         deliveryProperties = p;
     }
 
+    /**
+     * Set the HTTP client used to query the API.
+     *
+     * @param httpClient The HTTP client to set.
+     */
+    public void setHttpClient(CloseableHttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
+
+    /**
+     * Set the cache of the fetched EAD documents.
+     *
+     * @param eadDocumentCache The EAD document cache to set.
+     */
+    public void setEADDocumentCache(EADDocumentCache eadDocumentCache) {
+        this.eadDocumentCache = eadDocumentCache;
+    }
+
+    /**
+     * Set the circuit breaker guarding the calls to the API.
+     *
+     * @param circuitBreaker The circuit breaker to set.
+     */
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Whether the API is currently called, which is not the case while its circuit breaker is open.
+     *
+     * @return True if the API is available.
+     */
+    @Override
+    public boolean isAvailable() {
+        return circuitBreaker.isCallPermitted();
+    }
+
     /**
      * Search for records with the specified title.
      *
@@ -104,23 +160,25 @@ public class IISHRecordLookupService implements RecordLookupService {
         for (int i = 0; i < resCount; ++i) {
             Node node = search.item(i);
 
-            String recPid, recTitle;
+            String recPid;
+            Node marc;
             try {
                 recPid = xpSearchIdent.evaluate(node);
-                recTitle = evaluateSearchTitle(node);
+                marc = (Node) xpSearchRecordMeta.evaluate(node, XPathConstants.NODE);
             }
             catch (XPathExpressionException ex) {
                 continue;
             }
 
-            String recSubTitle = "";
-            try {
-                recSubTitle = " " + xpSearch245bSubTitle.evaluate(node).trim().replaceAll("[/:]$", "");
-            }
-            catch (XPathExpressionException ignored) {
-            }
+            if (marc == null)
+                continue;
 
-            if (recTitle != null && recPid != null) {
+            // Index the datafields once, instead of evaluating every title field against the record
+            MARCDatafieldIndex index = new MARCDatafieldIndex(marc);
+            String recTitle = index.getTitle();
+            String recSubTitle = " " + index.getSubfield("245", 'b').trim().replaceAll("[/:]$", "");
+
+            if (recPid != null) {
                 // Strip trailing slashes.
                 recTitle = recTitle.trim().replaceAll("[/:]$", "");
                 if (!recTitle.isEmpty()) pc.getResults().put(recPid, recTitle + recSubTitle);
@@ -142,14 +200,73 @@ public class IISHRecordLookupService implements RecordLookupService {
 
         String[] parentPidAndItem = getParentPidAndItem(pid);
         Node node = searchByPid(parentPidAndItem[0], true);
-        Node eadNode = getEADNode(node);
+        return getRecordExtractor(pid, node);
+    }
 
-        if (eadNode != null) {
+    /**
+     * Maps multiple PIDs to record metadata extractors.
+     * The records are searched for with a single query for every batch of PIDs.
+     *
+     * @param pids The PIDs to lookup.
+     * @return A map of the PIDs found with their metadata extractors.
+     */
+    @Override
+    public Map<String, MetadataRecordExtractor> getRecordExtractorsByPids(Collection<String> pids) {
+        LOGGER.debug(String.format("getRecordExtractorsByPids(%s)", pids));
+
+        Set<String> parentPids = new LinkedHashSet<>();
+        for (String pid : pids)
+            parentPids.add(getParentPidAndItem(pid)[0]);
+
+        Map<String, Node> nodes = new HashMap<>();
+        List<String> batch = new ArrayList<>();
+        for (String parentPid : parentPids) {
+            batch.add(parentPid);
+            if (batch.size() == deliveryProperties.getRecordLookupBatchSize()) {
+                nodes.putAll(searchByPids(batch));
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty())
+            nodes.putAll(searchByPids(batch));
+
+        Map<String, MetadataRecordExtractor> extractors = new HashMap<>();
+        for (String pid : pids) {
+            Node node = nodes.get(getParentPidAndItem(pid)[0]);
+            if (node != null) {
+                try {
+                    extractors.put(pid, getRecordExtractor(pid, node));
+                }
+                catch (NoSuchPidException ex) {
+                    LOGGER.debug(String.format("getRecordExtractorsByPids(): No EAD found for %s", pid));
+                }
+            }
+        }
+        return extractors;
+    }
+
+    /**
+     * Creates the record metadata extractor of a PID.
+     *
+     * @param pid  The PID.
+     * @param node The record node of the PID (or of the parent PID in case of an item).
+     * @return The metadata extractor of the record.
+     * @throws NoSuchPidException Thrown when the EAD of the record could not be obtained.
+     */
+    private MetadataRecordExtractor getRecordExtractor(String pid, Node node) throws NoSuchPidException {
+        String[] parentPidAndItem = getParentPidAndItem(pid);
+        Object ead = getEAD(parentPidAndItem[0], node);
+
+        if (ead != null) {
             Node archivalNode = (parentPidAndItem[1] == null)
                     ? searchByPid(parentPidAndItem[0], false) : null;
 
+            if (ead instanceof StaxEADMetadataRecordExtractor.EAD)
+                return new StaxEADMetadataRecordExtractor(parentPidAndItem[0], parentPidAndItem[1],
+                        deliveryProperties.getItemSeparator(), (StaxEADMetadataRecordExtractor.EAD) ead, archivalNode);
+
             return new EADMetadataRecordExtractor(parentPidAndItem[0], parentPidAndItem[1],
-                    deliveryProperties.getItemSeparator(), eadNode, archivalNode);
+                    deliveryProperties.getItemSeparator(), (EADMetadataRecordExtractor.EAD) ead, archivalNode);
         }
 
         return new MARCMetadataRecordExtractor(pid, node);
@@ -183,12 +300,8 @@ public class IISHRecordLookupService implements RecordLookupService {
             int apiPort = deliveryProperties.getApiPort();
 
             URI uri = new URI(apiProto, null, apiDomain, apiPort, apiBase, search, null);
-            URL req = uri.toURL();
-            LOGGER.debug(String.format("doSearch(): Querying SRW API: %s", req.toString()));
-            URLConnection conn = req.openConnection();
-
-            BufferedReader rdr = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-            return (Node) xpAll.evaluate(new InputSource(rdr), XPathConstants.NODE);
+            LOGGER.debug(String.format("doSearch(): Querying SRW API: %s", uri.toString()));
+            return evaluate(uri, xpAll);
         }
         catch (IOException ex) {
             LOGGER.debug("doSearch(): API Connect Failed", ex);
@@ -247,6 +360,37 @@ public class IISHRecordLookupService implements RecordLookupService {
         return search.item(0);
     }
 
+    /**
+     * Search metadata of multiple PIDs at once.
+     *
+     * @param pids The PIDs to search for.
+     * @return A map of the PIDs found with their main record nodes.
+     */
+    private Map<String, Node> searchByPids(List<String> pids) {
+        StringJoiner q = new StringJoiner("+or+", "(", ")");
+        for (String pid : pids)
+            q.add("dc.identifier+=+\"" + URLEncoder.encode(pid, StandardCharsets.UTF_8) + "\"");
+
+        Node all = doSearch(getQuery(q.toString(), true), pids.size(), 1);
+        Map<String, Node> nodes = new HashMap<>();
+
+        try {
+            NodeList search = (NodeList) xpSearch.evaluate(all, XPathConstants.NODESET);
+            for (int i = 0; i < search.getLength(); i++) {
+                String pid = xpSearchIdent.evaluate(search.item(i));
+                Node node = (Node) xpSearchRecordMeta.evaluate(search.item(i), XPathConstants.NODE);
+                if (node != null && pids.contains(pid))
+                    nodes.putIfAbsent(pid, node);
+            }
+        }
+        catch (XPathExpressionException e) {
+            LOGGER.debug("searchByPids(): Invalid XPath", e);
+            // Handle this in case the IISH API is down.
+        }
+
+        return nodes;
+    }
+
     private String[] getParentPidAndItem(String pid) {
         String itemSeparator = deliveryProperties.getItemSeparator();
         if (pid.contains(itemSeparator)) {
@@ -258,24 +402,6 @@ public class IISHRecordLookupService implements RecordLookupService {
         return new String[]{pid, null};
     }
 
-    private String evaluateSearchTitle(Node node) throws XPathExpressionException {
-        String recTitle;
-        recTitle = xpSearch245aTitle.evaluate(node);
-        if (recTitle.isEmpty())
-            recTitle = xpSearch500aTitle.evaluate(node);
-        if (recTitle.isEmpty())
-            recTitle = xpSearch600aTitle.evaluate(node);
-        if (recTitle.isEmpty())
-            recTitle = xpSearch610aTitle.evaluate(node);
-        if (recTitle.isEmpty())
-            recTitle = xpSearch650aTitle.evaluate(node);
-        if (recTitle.isEmpty())
-            recTitle = xpSearch651aTitle.evaluate(node);
-        if (recTitle.isEmpty())
-            recTitle = xpSearch245kTitle.evaluate(node);
-        return recTitle;
-    }
-
     private String getQuery(String q, boolean metadata) {
         String query;
 
@@ -295,34 +421,168 @@ public class IISHRecordLookupService implements RecordLookupService {
         return query;
     }
 
-    private Node getEADNode(Node node) throws NoSuchPidException {
+    /**
+     * Discards the cached EAD document of the archive of the given PID.
+     *
+     * @param pid The PID.
+     */
+    @Override
+    public void invalidate(String pid) {
+        eadDocumentCache.remove(getParentPidAndItem(pid)[0]);
+    }
+
+    /**
+     * Obtains the EAD of an archive, if the record refers to one.
+     * The EAD documents are cached per archive and revalidated with a conditional request,
+     * so the EAD is not fetched and parsed again for every item of the same archive.
+     *
+     * @param pid  The PID of the archive.
+     * @param node The record node.
+     * @return The indexed EAD document or the StAX EAD model (depending on the configured EAD extractor),
+     * or null if the record does not refer to an EAD.
+     * @throws NoSuchPidException Thrown when the EAD could not be obtained.
+     */
+    private Object getEAD(String pid, Node node) throws NoSuchPidException {
+        String url = null;
         try {
-            String url = xp856uUrl.evaluate(node);
-            if (url.endsWith("?locatt=view:ead")) {
-                URL eadUrl = new URL(url);
-                LOGGER.debug(String.format("getEADNode(): Querying EAD URL: %s", eadUrl.toString()));
-                HttpURLConnection conn = (HttpURLConnection) eadUrl.openConnection();
-
-                int status = conn.getResponseCode();
-                if (status == HttpURLConnection.HTTP_MOVED_TEMP || status == HttpURLConnection.HTTP_MOVED_PERM
-                        || status == HttpURLConnection.HTTP_SEE_OTHER) {
-                    url = conn.getHeaderField("Location");
-                    URL redirectUrl = new URL(url);
-                    conn = (HttpURLConnection) redirectUrl.openConnection();
+            url = xp856uUrl.evaluate(node);
+            if (!url.endsWith("?locatt=view:ead")) {
+                eadDocumentCache.remove(pid);
+                return null;
+            }
+
+            EADDocumentCache.Entry cached = eadDocumentCache.get(pid);
+            if (cached != null && !cached.getUrl().equals(url))
+                cached = null;
+            if (cached != null && eadDocumentCache.isFresh(cached))
+                return cached.getDocument();
+
+            // Redirects (e.g. from the handle server) are followed by the HTTP client
+            HttpGet get = new HttpGet(new URI(url));
+            if (cached != null && cached.getETag() != null)
+                get.setHeader(HttpHeaders.IF_NONE_MATCH, cached.getETag());
+            if (cached != null && cached.getLastModified() != null)
+                get.setHeader(HttpHeaders.IF_MODIFIED_SINCE, cached.getLastModified());
+
+            LOGGER.debug(String.format("getEAD(): Querying EAD URL: %s", url));
+            byte[] ead;
+            Header eTag, lastModified;
+
+            CircuitBreaker.Permit permit = circuitBreaker.acquire();
+            boolean success = false;
+            try (CloseableHttpResponse response = httpClient.execute(get)) {
+                int status = response.getStatusLine().getStatusCode();
+                if (cached != null && status == HttpStatus.SC_NOT_MODIFIED) {
+                    success = true;
+                    cached.markValidated();
+                    return cached.getDocument();
                 }
+                if (status != HttpStatus.SC_OK)
+                    throw new HttpResponseException(status, response.getStatusLine().getReasonPhrase());
 
-                BufferedReader rdr = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-                return (Node) xpOAI.evaluate(new InputSource(rdr), XPathConstants.NODE);
+                ead = EntityUtils.toByteArray(response.getEntity());
+                eTag = response.getFirstHeader(HttpHeaders.ETAG);
+                lastModified = response.getFirstHeader(HttpHeaders.LAST_MODIFIED);
+                success = true;
             }
-            return null;
+            finally {
+                circuitBreaker.release(permit, success);
+            }
+
+            // Parse outside of the call, parsing errors are not failures of the API
+            Object document = parseEAD(ead);
+            if (document != null) {
+                eadDocumentCache.put(pid, new EADDocumentCache.Entry(document, url,
+                        getHeaderValue(eTag), getHeaderValue(lastModified), getEstimatedSize(document)));
+            }
+
+            return document;
+        }
+        catch (URISyntaxException ex) {
+            LOGGER.debug("getEAD(): Invalid URI syntax", ex);
+            throw new NoSuchPidException();
         }
         catch (IOException ex) {
-            LOGGER.debug("getEADNode(): API Connect Failed", ex);
+            // Serve the previously fetched EAD of the same URL, if any, while the EAD cannot be obtained
+            EADDocumentCache.Entry stale = eadDocumentCache.get(pid);
+            if (stale != null && stale.getUrl().equals(url)) {
+                LOGGER.warn(String.format("getEAD(): API Connect Failed, serving the cached EAD of %s", pid), ex);
+                return stale.getDocument();
+            }
+
+            LOGGER.debug("getEAD(): API Connect Failed", ex);
+            throw new NoSuchPidException();
+        }
+        catch (ParserConfigurationException | SAXException | XMLStreamException ex) {
+            LOGGER.debug("getEAD(): Could not parse received EAD", ex);
             throw new NoSuchPidException();
         }
         catch (XPathExpressionException ex) {
-            LOGGER.debug("getEADNode(): Invalid XPath", ex);
+            LOGGER.debug("getEAD(): Invalid XPath", ex);
             throw new NoSuchPidException();
         }
     }
+
+    /**
+     * Parses the fetched EAD with the configured EAD extractor.
+     *
+     * @param ead The fetched EAD.
+     * @return The indexed EAD document or the StAX EAD model, or null if the document contains no OAI record.
+     */
+    private Object parseEAD(byte[] ead) throws IOException, ParserConfigurationException, SAXException,
+            XMLStreamException, XPathExpressionException {
+        if (deliveryProperties.getEadExtractor().equalsIgnoreCase("stax"))
+            return StaxEADMetadataRecordExtractor.parse(new ByteArrayInputStream(ead));
+
+        Document document = documentBuilderFactory.newDocumentBuilder().parse(new ByteArrayInputStream(ead));
+        Node node = (Node) xpOAI.evaluate(document, XPathConstants.NODE);
+        return (node != null) ? new EADMetadataRecordExtractor.EAD(node) : null;
+    }
+
+    /**
+     * Returns the estimated heap size of a parsed EAD, which is what the EAD document cache is bounded by.
+     *
+     * @param document The indexed EAD document or the StAX EAD model.
+     * @return The estimated size in bytes.
+     */
+    private static long getEstimatedSize(Object document) {
+        if (document instanceof StaxEADMetadataRecordExtractor.EAD)
+            return ((StaxEADMetadataRecordExtractor.EAD) document).getEstimatedSize();
+        return ((EADMetadataRecordExtractor.EAD) document).getEstimatedSize();
+    }
+
+    private static String getHeaderValue(Header header) {
+        return (header != null) ? header.getValue() : null;
+    }
+
+    /**
+     * Fetches the XML document at the given URI and evaluates the XPath expression against it.
+     *
+     * @param uri        The URI of the XML document.
+     * @param expression The XPath expression to evaluate.
+     * @return The node found by the expression.
+     * @throws IOException              Thrown when the document could not be fetched.
+     * @throws XPathExpressionException Thrown when the document could not be parsed or evaluated.
+     */
+    private Node evaluate(URI uri, XPathExpression expression) throws IOException, XPathExpressionException {
+        HttpGet get = new HttpGet(uri);
+
+        CircuitBreaker.Permit permit = circuitBreaker.acquire();
+        boolean success = false;
+        try (CloseableHttpResponse response = httpClient.execute(get)) {
+            int status = response.getStatusLine().getStatusCode();
+            if (status != HttpStatus.SC_OK)
+                throw new HttpResponseException(status, response.getStatusLine().getReasonPhrase());
+
+            // Closing the stream consumes the remainder of the response, so the connection can be reused
+            try (InputStream is = response.getEntity().getContent()) {
+                Node node = (Node) expression.evaluate(new InputSource(is), XPathConstants.NODE);
+                success = true;
+                return node;
+            }
+        }
+        finally {
+            circuitBreaker.release(permit, success);
+        }
+    }
 }
@@ -0,0 +1,108 @@
+package org.socialhistoryservices.delivery.api;
+
+import org.w3c.dom.Node;
+
+import java.util.*;
+
+/**
+ * An index of the datafields of a MARC record, built with a single pass over the record.
+ * Maps every datafield tag to the values of its subfields per code, in document order,
+ * so that field lookups do not have to walk the record again.
+ */
+class MARCDatafieldIndex {
+    private static final String NS_MARC = "http://www.loc.gov/MARC21/slim";
+
+    private static final String[][] TITLE_FIELDS = {
+            {"245", "a"}, {"500", "a"}, {"600", "a"}, {"610", "a"}, {"650", "a"}, {"651", "a"}, {"245", "k"}
+    };
+
+    private final Map<String, Map<Character, List<String>>> subfields = new HashMap<>();
+    private String leader = "";
+
+    /**
+     * Indexes the given MARC record.
+     *
+     * @param marc The marc:record node.
+     */
+    MARCDatafieldIndex(Node marc) {
+        boolean leaderFound = false;
+        for (Node child = marc.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (isMarcElement(child, "leader") && !leaderFound) {
+                leader = child.getTextContent();
+                leaderFound = true;
+            }
+            else if (isMarcElement(child, "datafield")) {
+                Node tagAttr = child.getAttributes().getNamedItem("tag");
+                if (tagAttr == null)
+                    continue;
+
+                Map<Character, List<String>> codes =
+                        subfields.computeIfAbsent(tagAttr.getNodeValue().trim(), tag -> new HashMap<>());
+                for (Node sub = child.getFirstChild(); sub != null; sub = sub.getNextSibling()) {
+                    if (!isMarcElement(sub, "subfield"))
+                        continue;
+
+                    Node codeAttr = sub.getAttributes().getNamedItem("code");
+                    if (codeAttr != null && codeAttr.getNodeValue().length() == 1) {
+                        codes.computeIfAbsent(codeAttr.getNodeValue().charAt(0), code -> new ArrayList<>())
+                                .add(sub.getTextContent());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the leader of the record.
+     *
+     * @return The leader, or an empty string if the record has no leader.
+     */
+    String getLeader() {
+        return leader;
+    }
+
+    /**
+     * Returns the value of the first subfield with the given code of the datafields with the given tag.
+     *
+     * @param tag  The tag of the datafield.
+     * @param code The code of the subfield.
+     * @return The value, or an empty string if not found.
+     */
+    String getSubfield(String tag, char code) {
+        List<String> values = getSubfields(tag, code);
+        return values.isEmpty() ? "" : values.get(0);
+    }
+
+    /**
+     * Returns the values of all subfields with the given code of the datafields with the given tag.
+     *
+     * @param tag  The tag of the datafield.
+     * @param code The code of the subfield.
+     * @return The values in document order.
+     */
+    List<String> getSubfields(String tag, char code) {
+        Map<Character, List<String>> codes = subfields.get(tag);
+        if (codes == null)
+            return Collections.emptyList();
+        return codes.getOrDefault(code, Collections.emptyList());
+    }
+
+    /**
+     * Returns the title of the record: the first non-empty value of 245a, 500a, 600a, 610a, 650a, 651a or 245k.
+     *
+     * @return The title, or an empty string if not found.
+     */
+    String getTitle() {
+        for (String[] field : TITLE_FIELDS) {
+            String title = getSubfield(field[0], field[1].charAt(0));
+            if (!title.isEmpty())
+                return title;
+        }
+        return "";
+    }
+
+    private static boolean isMarcElement(Node node, String localName) {
+        return node.getNodeType() == Node.ELEMENT_NODE && localName.equals(node.getLocalName())
+                && NS_MARC.equals(node.getNamespaceURI());
+    }
+}
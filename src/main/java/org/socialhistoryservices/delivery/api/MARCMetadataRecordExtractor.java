@@ -1,13 +1,8 @@
 package org.socialhistoryservices.delivery.api;
 
 import java.util.*;
-import javax.xml.xpath.*;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 import org.springframework.util.StringUtils;
 
@@ -16,53 +11,12 @@ import org.socialhistoryservices.delivery.record.entity.ExternalRecordInfo;
 import org.socialhistoryservices.delivery.record.entity.ArchiveHoldingInfo;
 
 public class MARCMetadataRecordExtractor implements MetadataRecordExtractor {
-    private static final Logger LOGGER = LoggerFactory.getLogger(MARCMetadataRecordExtractor.class);
-
-    private static final XPathExpression xpAuthor, xpAltAuthor, xpAlt2Author, xpAlt3Author, xp245aTitle,
-            xp500aTitle, xp600aTitle, xp610aTitle, xp650aTitle, xp651aTitle, xp245kTitle, xp245bSubTitle, xpYear,
-            xpPhysicalDescription, xpGenres, xpShelvingLocations, xpSerialNumbers, xpSignatures, xpBarcodes,
-            xpLeader, xp540bCopyright, xp542mAccess;
-
     private final String pid;
-    private final Node marc;
-
-    static {
-        XPathFactory factory = XPathFactory.newInstance();
-        XPath xpath = factory.newXPath();
-        xpath.setNamespaceContext(new IISHNamespaceContext());
-
-        try {
-            xpAuthor = XmlUtils.getXPathForMarc(xpath, "100", 'a');
-            xpAltAuthor = XmlUtils.getXPathForMarc(xpath, "110", 'a');
-            xpAlt2Author = XmlUtils.getXPathForMarc(xpath, "700", 'a');
-            xpAlt3Author = XmlUtils.getXPathForMarc(xpath, "710", 'a');
-            xp245aTitle = XmlUtils.getXPathForMarc(xpath, "245", 'a');
-            xp500aTitle = XmlUtils.getXPathForMarc(xpath, "500", 'a');
-            xp600aTitle = XmlUtils.getXPathForMarc(xpath, "600", 'a');
-            xp610aTitle = XmlUtils.getXPathForMarc(xpath, "610", 'a');
-            xp650aTitle = XmlUtils.getXPathForMarc(xpath, "650", 'a');
-            xp651aTitle = XmlUtils.getXPathForMarc(xpath, "651", 'a');
-            xp245kTitle = XmlUtils.getXPathForMarc(xpath, "245", 'k');
-            xp245bSubTitle = XmlUtils.getXPathForMarc(xpath, "245", 'b');
-            xpYear = XmlUtils.getXPathForMarc(xpath, "260", 'c');
-            xpPhysicalDescription = XmlUtils.getXPathForMarc(xpath, "300", 'a');
-            xpGenres = XmlUtils.getXPathForMarc(xpath, "655", 'a');
-            xpShelvingLocations = XmlUtils.getXPathForMarc(xpath, "852", 'c');
-            xpSignatures = XmlUtils.getXPathForMarc(xpath, "852", 'j');
-            xpBarcodes = XmlUtils.getXPathForMarc(xpath, "852", 'p');
-            xpSerialNumbers = XmlUtils.getXPathForMarc(xpath, "866", 'a');
-            xpLeader = xpath.compile("marc:leader");
-            xp540bCopyright = XmlUtils.getXPathForMarc(xpath, "540", 'b');
-            xp542mAccess = XmlUtils.getXPathForMarc(xpath, "542", 'm');
-        }
-        catch (XPathExpressionException ex) {
-            throw new RuntimeException(ex);
-        }
-    }
+    private final MARCDatafieldIndex index;
 
     public MARCMetadataRecordExtractor(String pid, Node marc) {
         this.pid = pid;
-        this.marc = marc;
+        this.index = new MARCDatafieldIndex(marc);
     }
 
     /**
@@ -93,8 +47,8 @@ public class MARCMetadataRecordExtractor implements MetadataRecordExtractor {
         if (title != null && !title.isEmpty()) {
             // Strip trailing slashes
             title = title.trim().replaceAll("[/:]$", "");
-            String subTitle = XmlUtils.evaluate(xp245bSubTitle, marc);
-            if (subTitle != null && !subTitle.isEmpty()) {
+            String subTitle = index.getSubfield("245", 'b');
+            if (!subTitle.isEmpty()) {
                 title += " " + subTitle.trim().replaceAll("[/:]$", "");
             }
 
@@ -108,15 +62,15 @@ public class MARCMetadataRecordExtractor implements MetadataRecordExtractor {
             externalInfo.setTitle("Unknown Record");
         }
 
-        String year = XmlUtils.evaluate(xpYear, marc);
-        if (year != null && !year.isEmpty()) {
+        String year = index.getSubfield("260", 'c');
+        if (!year.isEmpty()) {
             externalInfo.setDisplayYear(MetadataRecordExtractor.stripToSize(year, 30));
         }
 
         externalInfo.setMaterialType(evaluateMaterialType());
-        externalInfo.setCopyright(XmlUtils.evaluate(xp540bCopyright, marc));
+        externalInfo.setCopyright(emptyToNull(index.getSubfield("540", 'b')));
         externalInfo.setPublicationStatus(evaluatePublicationStatus());
-        externalInfo.setPhysicalDescription(XmlUtils.evaluate(xpPhysicalDescription, marc));
+        externalInfo.setPhysicalDescription(emptyToNull(index.getSubfield("300", 'a')));
         externalInfo.setGenres(evaluateGenres());
         externalInfo.setRestriction(ExternalRecordInfo.Restriction.OPEN);
 
@@ -133,36 +87,21 @@ public class MARCMetadataRecordExtractor implements MetadataRecordExtractor {
     public Map<String, ExternalHoldingInfo> getHoldingMetadata() {
         Map<String, ExternalHoldingInfo> retMap = new HashMap<>();
 
-        try {
-            // TODO: 866 is not always available.
-            NodeList shelfNodes = (NodeList) xpShelvingLocations.evaluate(marc, XPathConstants.NODESET);
-            NodeList sigNodes = (NodeList) xpSignatures.evaluate(marc, XPathConstants.NODESET);
-            NodeList serNodes = (NodeList) xpSerialNumbers.evaluate(marc, XPathConstants.NODESET);
-            NodeList barcodes = (NodeList) xpBarcodes.evaluate(marc, XPathConstants.NODESET);
-
-            if (shelfNodes == null || sigNodes == null || serNodes == null || barcodes == null)
-                return retMap;
-
-            for (int i = 0; i < sigNodes.getLength(); i++) {
-                Node shelf = shelfNodes.item(i);
-                Node sig = sigNodes.item(i);
-                Node ser = serNodes.item(i);
-                Node barcode = barcodes.item(i);
-
-                if (sig == null) continue;
-
-                ExternalHoldingInfo eh = new ExternalHoldingInfo();
-                if (shelf != null)
-                    eh.setShelvingLocation(shelf.getTextContent());
-                if (barcode != null)
-                    eh.setBarcode(barcode.getTextContent());
-                if (ser != null)
-                    eh.setSerialNumbers(ser.getTextContent().replace(",", ", "));
-                retMap.put(sig.getTextContent(), eh);
-            }
-        }
-        catch (XPathExpressionException ignored) {
-            LOGGER.debug("getHoldingMetadata(): Invalid XPath", ignored);
+        // TODO: 866 is not always available.
+        List<String> shelves = index.getSubfields("852", 'c');
+        List<String> sigs = index.getSubfields("852", 'j');
+        List<String> sers = index.getSubfields("866", 'a');
+        List<String> barcodes = index.getSubfields("852", 'p');
+
+        for (int i = 0; i < sigs.size(); i++) {
+            ExternalHoldingInfo eh = new ExternalHoldingInfo();
+            if (i < shelves.size())
+                eh.setShelvingLocation(shelves.get(i));
+            if (i < barcodes.size())
+                eh.setBarcode(barcodes.get(i));
+            if (i < sers.size())
+                eh.setSerialNumbers(sers.get(i).replace(",", ", "));
+            retMap.put(sigs.get(i), eh);
         }
 
         return retMap;
@@ -189,14 +128,7 @@ public class MARCMetadataRecordExtractor implements MetadataRecordExtractor {
     }
 
     private ExternalRecordInfo.MaterialType evaluateMaterialType() {
-        try {
-            String leader = xpLeader.evaluate(marc);
-            String titleForm = xp245kTitle.evaluate(marc);
-            return leaderToMaterialType(leader, titleForm);
-        }
-        catch (XPathExpressionException e) {
-            return ExternalRecordInfo.MaterialType.OTHER;
-        }
+        return leaderToMaterialType(index.getLeader(), index.getSubfield("245", 'k'));
     }
 
     private ExternalRecordInfo.MaterialType leaderToMaterialType(String leader, String titleForm) {
@@ -247,52 +179,27 @@ public class MARCMetadataRecordExtractor implements MetadataRecordExtractor {
     }
 
     private String evaluateGenres() {
-        try {
-            Set<String> genres = new HashSet<>();
-            NodeList nodeList = (NodeList) xpGenres.evaluate(marc, XPathConstants.NODESET);
-            for (int i = 0; i < nodeList.getLength(); i++) {
-                String genre = nodeList.item(i).getTextContent();
-                genre = genre.toLowerCase().trim();
-                if (genre.endsWith("."))
-                    genre = genre.substring(0, genre.length() - 1).trim();
-                genres.add(genre);
-            }
-            return (!genres.isEmpty()) ? StringUtils.collectionToDelimitedString(genres, ",") : null;
-        }
-        catch (XPathExpressionException e) {
-            return null;
-        }
+        Set<String> genres = new HashSet<>();
+        for (String genre : index.getSubfields("655", 'a')) {
+            genre = genre.toLowerCase().trim();
+            if (genre.endsWith("."))
+                genre = genre.substring(0, genre.length() - 1).trim();
+            genres.add(genre);
+        }
+        return (!genres.isEmpty()) ? StringUtils.collectionToDelimitedString(genres, ",") : null;
     }
 
     private String evaluateTitle() {
-        try {
-            String title = xp245aTitle.evaluate(marc);
-
-            if (title.isEmpty())
-                title = xp500aTitle.evaluate(marc);
-            if (title.isEmpty())
-                title = xp600aTitle.evaluate(marc);
-            if (title.isEmpty())
-                title = xp610aTitle.evaluate(marc);
-            if (title.isEmpty())
-                title = xp650aTitle.evaluate(marc);
-            if (title.isEmpty())
-                title = xp651aTitle.evaluate(marc);
-            if (title.isEmpty())
-                title = xp245kTitle.evaluate(marc);
+        String title = index.getTitle();
 
-            // Strip trailing slashes
-            title = title.trim().replaceAll("[/:]$", "");
-            String subTitle = XmlUtils.evaluate(xp245bSubTitle, marc);
-            if (subTitle != null && !subTitle.isEmpty()) {
-                title += " " + subTitle.trim().replaceAll("[/:]$", "");
-            }
-
-            return title;
-        }
-        catch (XPathExpressionException e) {
-            return null;
+        // Strip trailing slashes
+        title = title.trim().replaceAll("[/:]$", "");
+        String subTitle = index.getSubfield("245", 'b');
+        if (!subTitle.isEmpty()) {
+            title += " " + subTitle.trim().replaceAll("[/:]$", "");
         }
+
+        return title;
     }
 
     /**
@@ -301,19 +208,14 @@ public class MARCMetadataRecordExtractor implements MetadataRecordExtractor {
      * @return The author found, or null if not present.
      */
     private String evaluateAuthor() {
-        try {
-            String author = xpAuthor.evaluate(marc);
-            if (author.isEmpty())
-                author = xpAltAuthor.evaluate(marc);
-            if (author.isEmpty())
-                author = xpAlt2Author.evaluate(marc);
-            if (author.isEmpty())
-                author = xpAlt3Author.evaluate(marc);
-            return author;
-        }
-        catch (XPathExpressionException ex) {
-            return null;
-        }
+        String author = index.getSubfield("100", 'a');
+        if (author.isEmpty())
+            author = index.getSubfield("110", 'a');
+        if (author.isEmpty())
+            author = index.getSubfield("700", 'a');
+        if (author.isEmpty())
+            author = index.getSubfield("710", 'a');
+        return author;
     }
 
     /**
@@ -322,27 +224,26 @@ public class MARCMetadataRecordExtractor implements MetadataRecordExtractor {
      * @return The publication status.
      */
     private ExternalRecordInfo.PublicationStatus evaluatePublicationStatus() {
-        try {
-            String status = xp542mAccess.evaluate(marc);
-
-            ExternalRecordInfo.PublicationStatus publicationStatus = ExternalRecordInfo.PublicationStatus.UNKNOWN;
-            if (status.trim().equalsIgnoreCase("irsh"))
-                publicationStatus = ExternalRecordInfo.PublicationStatus.IRSH;
-            if (status.trim().equalsIgnoreCase("open"))
-                publicationStatus = ExternalRecordInfo.PublicationStatus.OPEN;
-            if (status.trim().equalsIgnoreCase("restricted"))
-                publicationStatus = ExternalRecordInfo.PublicationStatus.RESTRICTED;
-            if (status.trim().equalsIgnoreCase("minimal"))
-                publicationStatus = ExternalRecordInfo.PublicationStatus.MINIMAL;
-            if (status.trim().equalsIgnoreCase("pictoright"))
-                publicationStatus = ExternalRecordInfo.PublicationStatus.PICTORIGHT;
-            if (status.trim().equalsIgnoreCase("closed"))
-                publicationStatus = ExternalRecordInfo.PublicationStatus.CLOSED;
-
-            return publicationStatus;
-        }
-        catch (XPathExpressionException ex) {
-            return ExternalRecordInfo.PublicationStatus.UNKNOWN;
-        }
+        String status = index.getSubfield("542", 'm');
+
+        ExternalRecordInfo.PublicationStatus publicationStatus = ExternalRecordInfo.PublicationStatus.UNKNOWN;
+        if (status.trim().equalsIgnoreCase("irsh"))
+            publicationStatus = ExternalRecordInfo.PublicationStatus.IRSH;
+        if (status.trim().equalsIgnoreCase("open"))
+            publicationStatus = ExternalRecordInfo.PublicationStatus.OPEN;
+        if (status.trim().equalsIgnoreCase("restricted"))
+            publicationStatus = ExternalRecordInfo.PublicationStatus.RESTRICTED;
+        if (status.trim().equalsIgnoreCase("minimal"))
+            publicationStatus = ExternalRecordInfo.PublicationStatus.MINIMAL;
+        if (status.trim().equalsIgnoreCase("pictoright"))
+            publicationStatus = ExternalRecordInfo.PublicationStatus.PICTORIGHT;
+        if (status.trim().equalsIgnoreCase("closed"))
+            publicationStatus = ExternalRecordInfo.PublicationStatus.CLOSED;
+
+        return publicationStatus;
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
     }
 }
@@ -0,0 +1,127 @@
+package org.socialhistoryservices.delivery.api;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import org.socialhistoryservices.delivery.record.entity.ArchiveHoldingInfo;
+import org.socialhistoryservices.delivery.record.entity.ExternalHoldingInfo;
+import org.socialhistoryservices.delivery.record.entity.ExternalRecordInfo;
+
+import java.util.*;
+
+/**
+ * A detached copy of everything a metadata record extractor extracts.
+ * Unlike the extractors backed by an XML document, a snapshot is cheap to keep in memory,
+ * is safe to share between threads and can be serialized for storage.
+ * Every call returns new instances, so the results can be attached to records safely.
+ */
+@JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY,
+        getterVisibility = JsonAutoDetect.Visibility.NONE,
+        isGetterVisibility = JsonAutoDetect.Visibility.NONE)
+public class MetadataRecordSnapshot implements MetadataRecordExtractor {
+    private String pid;
+    private ExternalRecordInfo recordMetadata;
+    private Map<String, ExternalHoldingInfo> holdingMetadata;
+    private List<ArchiveHoldingInfo> archiveHoldingInfo;
+    private Set<MetadataRecordSnapshot> siblings;
+
+    private MetadataRecordSnapshot() {
+    }
+
+    /**
+     * Creates a snapshot of the given metadata record extractor.
+     *
+     * @param recordExtractor The metadata record extractor.
+     * @return The snapshot.
+     */
+    public static MetadataRecordSnapshot of(MetadataRecordExtractor recordExtractor) {
+        if (recordExtractor instanceof MetadataRecordSnapshot)
+            return (MetadataRecordSnapshot) recordExtractor;
+
+        MetadataRecordSnapshot snapshot = copyOf(recordExtractor);
+        for (MetadataRecordExtractor sibling : recordExtractor.getRecordExtractorsForContainerSiblings())
+            snapshot.siblings.add(copyOf(sibling));
+
+        return snapshot;
+    }
+
+    /**
+     * Copies the metadata of the given metadata record extractor, without its container siblings.
+     *
+     * @param recordExtractor The metadata record extractor.
+     * @return The snapshot.
+     */
+    private static MetadataRecordSnapshot copyOf(MetadataRecordExtractor recordExtractor) {
+        MetadataRecordSnapshot snapshot = new MetadataRecordSnapshot();
+        snapshot.pid = recordExtractor.getPid();
+        snapshot.recordMetadata = recordExtractor.getRecordMetadata();
+        snapshot.holdingMetadata = recordExtractor.getHoldingMetadata();
+        snapshot.archiveHoldingInfo = recordExtractor.getArchiveHoldingInfo();
+        snapshot.siblings = new HashSet<>();
+        return snapshot;
+    }
+
+    /**
+     * Returns the PID of the record.
+     *
+     * @return The PID.
+     */
+    @Override
+    public String getPid() {
+        return pid;
+    }
+
+    /**
+     * Extracts the metadata of the record.
+     *
+     * @return The metadata of the record, if found.
+     */
+    @Override
+    public ExternalRecordInfo getRecordMetadata() {
+        ExternalRecordInfo externalInfo = new ExternalRecordInfo();
+        externalInfo.mergeWith(recordMetadata);
+        return externalInfo;
+    }
+
+    /**
+     * Get a map of holding signatures associated with this records,
+     * linking to additional holding info provided by the API.
+     *
+     * @return A map of found (signature, holding info) tuples, or an empty map if none were found.
+     */
+    @Override
+    public Map<String, ExternalHoldingInfo> getHoldingMetadata() {
+        Map<String, ExternalHoldingInfo> retMap = new HashMap<>();
+        for (Map.Entry<String, ExternalHoldingInfo> e : holdingMetadata.entrySet()) {
+            ExternalHoldingInfo eh = new ExternalHoldingInfo();
+            eh.mergeWith(e.getValue());
+            retMap.put(e.getKey(), eh);
+        }
+        return retMap;
+    }
+
+    /**
+     * Obtains archive holding info of a record.
+     *
+     * @return A list with the archive metadata of the record, if found.
+     */
+    @Override
+    public List<ArchiveHoldingInfo> getArchiveHoldingInfo() {
+        List<ArchiveHoldingInfo> info = new ArrayList<>();
+        for (ArchiveHoldingInfo other : archiveHoldingInfo) {
+            ArchiveHoldingInfo ahi = new ArchiveHoldingInfo();
+            ahi.mergeWith(other);
+            info.add(ahi);
+        }
+        return info;
+    }
+
+    /**
+     * Obtains metadata record extractors for all container siblings of the current record.
+     * These records do not only share the same parent record, but also share a common container.
+     *
+     * @return A set of metadata record extractors for the container siblings.
+     */
+    @Override
+    public Set<MetadataRecordExtractor> getRecordExtractorsForContainerSiblings() {
+        return new HashSet<>(siblings);
+    }
+}
@@ -3,10 +3,14 @@ package org.socialhistoryservices.delivery.api;
 import com.mollie.mollie.utils.Response;
 
 /**
- * Thrown when an invalid payment message was received from Mollie.
+ * Thrown when an invalid payment message was received from Mollie, or when Mollie could not be reached.
  */
 public class PaymentException extends Exception {
     public PaymentException(Response response) {
         super("Received an invalid or unsuccessful request from Mollie with status code " + response.statusCode());
     }
+
+    public PaymentException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
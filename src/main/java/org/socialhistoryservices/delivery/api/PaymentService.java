@@ -12,7 +12,10 @@ import com.mollie.mollie.models.components.SequenceType;
 import com.mollie.mollie.models.operations.CreatePaymentResponse;
 import com.mollie.mollie.models.operations.GetPaymentRequest;
 import com.mollie.mollie.models.operations.GetPaymentResponse;
+import com.mollie.mollie.utils.Response;
 import org.socialhistoryservices.delivery.reproduction.entity.Reproduction;
+import org.socialhistoryservices.delivery.util.CallNotPermittedException;
+import org.socialhistoryservices.delivery.util.CircuitBreaker;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -21,9 +24,11 @@ import java.util.stream.Collectors;
 public class PaymentService {
     private final String baseUrl;
     private final Client client;
+    private final CircuitBreaker circuitBreaker;
 
-    public PaymentService(String baseUrl, String apiKey, String profileId) {
+    public PaymentService(String baseUrl, String apiKey, String profileId, CircuitBreaker circuitBreaker) {
         this.baseUrl = baseUrl;
+        this.circuitBreaker = circuitBreaker;
         this.client = Client.builder()
                 .profileId(profileId)
                 .security(Security.builder().apiKey(apiKey).build())
@@ -57,28 +62,64 @@ public class PaymentService {
                     .build());
         }
 
-        CreatePaymentResponse response = client.payments().create().paymentRequest(PaymentRequest.builder()
-                        .description("IISH reproduction " + r.getId())
-                        .amount(getAmountFor(r.getTotalPriceWithDiscount()))
-                        .sequenceType(SequenceType.ONEOFF)
-                        .digitalGoods(true)
-                        .redirectUrl(this.baseUrl + "/reproduction/order/redirect")
-                        .cancelUrl(this.baseUrl + "/reproduction/order/cancel")
-                        .webhookUrl(this.baseUrl + "/reproduction/order/webhook")
-                        .locale(Locale.fromValue(r.getRequestLocale().toString()).orElse(Locale.EN_US))
-                        .lines(lines)
-                        .build())
-                .call();
+        PaymentRequest paymentRequest = PaymentRequest.builder()
+                .description("IISH reproduction " + r.getId())
+                .amount(getAmountFor(r.getTotalPriceWithDiscount()))
+                .sequenceType(SequenceType.ONEOFF)
+                .digitalGoods(true)
+                .redirectUrl(this.baseUrl + "/reproduction/order/redirect")
+                .cancelUrl(this.baseUrl + "/reproduction/order/cancel")
+                .webhookUrl(this.baseUrl + "/reproduction/order/webhook")
+                .locale(Locale.fromValue(r.getRequestLocale().toString()).orElse(Locale.EN_US))
+                .lines(lines)
+                .build();
 
+        CreatePaymentResponse response = call(() -> client.payments().create().paymentRequest(paymentRequest).call());
         return response.paymentResponse().orElseThrow(() -> new PaymentException(response));
     }
 
     public PaymentResponse getPaymentDetails(String paymentId) throws PaymentException {
         GetPaymentRequest paymentRequest = GetPaymentRequest.builder().paymentId(paymentId).build();
-        GetPaymentResponse response = client.payments().get().request(paymentRequest).call();
+        GetPaymentResponse response = call(() -> client.payments().get().request(paymentRequest).call());
         return response.paymentResponse().orElseThrow(() -> new PaymentException(response));
     }
 
+    /**
+     * Calls Mollie, guarded by the circuit breaker.
+     * Server errors and exceptions count as failures of Mollie.
+     *
+     * @param call The call to Mollie.
+     * @return The response of Mollie.
+     * @throws PaymentException Thrown when the call was rejected or failed.
+     */
+    private <T extends Response> T call(MollieCall<T> call) throws PaymentException {
+        CircuitBreaker.Permit permit;
+        try {
+            permit = circuitBreaker.acquire();
+        }
+        catch (CallNotPermittedException e) {
+            throw new PaymentException(e.getMessage(), e);
+        }
+
+        boolean success = false;
+        try {
+            T response = call.call();
+            success = (response.statusCode() < 500);
+            return response;
+        }
+        catch (Exception e) {
+            throw new PaymentException("Could not reach Mollie", e);
+        }
+        finally {
+            circuitBreaker.release(permit, success);
+        }
+    }
+
+    @FunctionalInterface
+    private interface MollieCall<T> {
+        T call() throws Exception;
+    }
+
     private static Amount getAmountFor(BigDecimal amount) {
         return Amount.builder()
                 .currency("EUR")
@@ -1,5 +1,6 @@
 package org.socialhistoryservices.delivery.api;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.HashMap;
 
@@ -60,4 +61,43 @@ public interface RecordLookupService {
      * @throws NoSuchPidException Thrown when the PID is not found.
      */
     MetadataRecordExtractor getRecordExtractorByPid(String pid) throws NoSuchPidException;
+
+    /**
+     * Maps multiple PIDs to record metadata extractors.
+     * Implementations should override this to lookup the PIDs in fewer calls than one per PID.
+     *
+     * @param pids The PIDs to lookup.
+     * @return A map of the PIDs found with their metadata extractors; PIDs not found are left out.
+     */
+    default Map<String, MetadataRecordExtractor> getRecordExtractorsByPids(Collection<String> pids) {
+        Map<String, MetadataRecordExtractor> extractors = new HashMap<>();
+        for (String pid : pids) {
+            try {
+                extractors.put(pid, getRecordExtractorByPid(pid));
+            }
+            catch (NoSuchPidException ignored) {
+            }
+        }
+        return extractors;
+    }
+
+    /**
+     * Discards any cached lookup result for the given PID, so that the next lookup queries the API again.
+     * Implementations without a cache do not have to do anything.
+     *
+     * @param pid The PID.
+     */
+    default void invalidate(String pid) {
+    }
+
+    /**
+     * Whether the external service is currently available, so that callers can decide to fall back
+     * to previously obtained metadata instead of waiting for a lookup that is bound to fail.
+     * Implementations that do not keep track of the availability of the service always return true.
+     *
+     * @return True if the external service is available.
+     */
+    default boolean isAvailable() {
+        return true;
+    }
 }
@@ -1,45 +1,96 @@
 package org.socialhistoryservices.delivery.api;
 
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.socialhistoryservices.delivery.util.CircuitBreaker;
 
 import org.w3c.dom.*;
 import org.xml.sax.SAXException;
 
-import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.IOException;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * Represents the Shared Object Repository (SOR) service.
+ * The metadata obtained from the SOR is cached per PID for a limited time.
+ * While the SOR is unavailable, the metadata of PIDs of which the cache expired is still served.
  */
 public class SharedObjectRepositoryService {
     private static final Logger LOGGER = LoggerFactory.getLogger(SharedObjectRepositoryService.class);
     private static final Pattern HANDLE_PID_PATTERN = Pattern.compile("^http://hdl.handle.net/10622/(.*?)\\?locatt=.*$");
 
-    private static final DocumentBuilder documentBuilder;
+    private static final DocumentBuilderFactory documentBuilderFactory;
+    private static final XMLInputFactory xmlInputFactory;
 
     static {
-        try {
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            dbf.setIgnoringComments(true);
-            documentBuilder = dbf.newDocumentBuilder();
-        }
-        catch (ParserConfigurationException e) {
-            throw new RuntimeException(e);
-        }
+        // Document builders are not thread-safe, so every parse creates its own
+        documentBuilderFactory = DocumentBuilderFactory.newInstance();
+        documentBuilderFactory.setIgnoringComments(true);
+
+        xmlInputFactory = XMLInputFactory.newInstance();
+        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
     }
 
     private final String url;
+    private final CloseableHttpClient httpClient;
+    private final CircuitBreaker circuitBreaker;
 
-    public SharedObjectRepositoryService(String url) {
+    private final long cacheTtl;
+    private final Map<String, CacheEntry> cache;
+    private final ExecutorService executor;
+
+    /**
+     * Creates the SOR service.
+     *
+     * @param url         The address of the SOR.
+     * @param httpClient  The HTTP client to query the SOR with.
+     * @param cacheSize   The maximum number of PIDs to cache the metadata of.
+     * @param cacheTtl    The number of seconds the metadata of a PID is cached.
+     * @param concurrency    The maximum number of concurrent SOR calls of a single batch lookup.
+     * @param circuitBreaker The circuit breaker guarding the calls to the SOR.
+     */
+    public SharedObjectRepositoryService(String url, CloseableHttpClient httpClient, final int cacheSize,
+                                         long cacheTtl, int concurrency, CircuitBreaker circuitBreaker) {
         this.url = url;
+        this.httpClient = httpClient;
+        this.circuitBreaker = circuitBreaker;
+        this.cacheTtl = cacheTtl * 1000;
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > cacheSize;
+            }
+        });
+
+        final AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, concurrency), runnable -> {
+            Thread thread = new Thread(runnable, "sor-lookup-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Stops the threads used for batch lookups.
+     */
+    public void close() {
+        executor.shutdownNow();
     }
 
     /**
@@ -49,21 +100,132 @@ public class SharedObjectRepositoryService {
      * @return The SOR has metadata, if found.
      */
     public SorMetadata getMetadataForPid(String pid) {
-        LOGGER.debug("getMetadataForPid() not implemented");
+        CacheEntry entry = getCacheEntry(pid);
+        if (entry != null)
+            return entry.metadata;
+
+        try {
+            SorMetadata metadata = fetchMetadataForPid(pid);
+            cache.put(pid, new CacheEntry(metadata));
+            return metadata;
+        }
+        catch (IOException ioe) {
+            // Serve the expired metadata, if any, while the SOR cannot be reached
+            CacheEntry stale = cache.get(pid);
+            if (stale != null) {
+                LOGGER.warn(String.format("getMetadataForPid(): Could not obtain metadata of %s, " +
+                        "serving the expired metadata", pid), ioe);
+                return stale.metadata;
+            }
+
+            LOGGER.error(String.format("getMetadataForPid(): Could not obtain metadata of %s", pid), ioe);
+            return null;
+        }
+        catch (SAXException | ParserConfigurationException e) {
+            LOGGER.debug(String.format("getMetadataForPid(): Could not parse received metadata of %s", pid), e);
+            return null;
+        }
+    }
+
+    /**
+     * Find out for all given PIDs if they have metadata in the SOR.
+     * The PIDs of which the metadata is not cached are looked up concurrently.
+     *
+     * @param pids The pids.
+     * @return A map with the metadata in the SOR of every pid; the metadata is null if not found.
+     */
+    public Map<String, SorMetadata> getMetadataForPids(Collection<String> pids) {
+        Map<String, SorMetadata> metadata = new HashMap<>();
+        Map<String, Future<SorMetadata>> futures = new LinkedHashMap<>();
+        for (String pid : new LinkedHashSet<>(pids)) {
+            CacheEntry entry = getCacheEntry(pid);
+            if (entry != null)
+                metadata.put(pid, entry.metadata);
+            else
+                futures.put(pid, executor.submit(() -> getMetadataForPid(pid)));
+        }
+
+        for (Map.Entry<String, Future<SorMetadata>> future : futures.entrySet()) {
+            try {
+                metadata.put(future.getKey(), future.getValue().get());
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                metadata.put(future.getKey(), null);
+            }
+            catch (ExecutionException e) {
+                LOGGER.error(String.format("getMetadataForPids(): Could not obtain metadata of %s",
+                        future.getKey()), e.getCause());
+                metadata.put(future.getKey(), null);
+            }
+        }
+        return metadata;
+    }
+
+    /**
+     * Returns the cached metadata of the given PID, if it has not expired yet.
+     *
+     * @param pid The pid.
+     * @return The cache entry, or null if not cached.
+     */
+    private CacheEntry getCacheEntry(String pid) {
+        CacheEntry entry = cache.get(pid);
+        if (entry != null && (System.currentTimeMillis() - entry.fetched) < cacheTtl)
+            return entry;
         return null;
     }
 
+    /**
+     * Obtains the metadata of the given PID from the SOR.
+     *
+     * @param pid The pid.
+     * @return The SOR metadata, or null if the SOR has no digital object with this PID.
+     * @throws IOException                  Thrown when the metadata could not be obtained.
+     * @throws SAXException                 Thrown when the metadata could not be parsed.
+     * @throws ParserConfigurationException Thrown when no parser could be created.
+     */
+    private SorMetadata fetchMetadataForPid(String pid)
+            throws IOException, SAXException, ParserConfigurationException {
+        HttpGet get = new HttpGet(url + "/metadata/" + pid + "?accept=text/xml&format=xml");
+        LOGGER.debug(String.format("getMetadataForPid(): Obtain metadata: %s", get.getURI().toString()));
+
+        Document document;
+        CircuitBreaker.Permit permit = circuitBreaker.acquire();
+        boolean success = false;
+        try (CloseableHttpResponse response = httpClient.execute(get)) {
+            int status = response.getStatusLine().getStatusCode();
+            if (status == HttpStatus.SC_NOT_FOUND) {
+                success = true;
+                return null;
+            }
+            if (status != HttpStatus.SC_OK)
+                throw new HttpResponseException(status, response.getStatusLine().getReasonPhrase());
+
+            try (InputStream is = response.getEntity().getContent()) {
+                document = documentBuilderFactory.newDocumentBuilder().parse(is);
+            }
+            success = true;
+        }
+        finally {
+            circuitBreaker.release(permit, success);
+        }
+
+        // The METS document is obtained with a call of its own
+        return getMetadataFromDocument(document, pid);
+    }
+
     /**
      * Parses the document to a SorMetadata object.
      *
      * @param document The document.
      * @param pid      The pid of the item of which we request metadata.
      * @return The metadata from the SOR.
+     * @throws IOException Thrown when the METS document could not be obtained.
      */
-    private SorMetadata getMetadataFromDocument(Document document, String pid) {
+    private SorMetadata getMetadataFromDocument(Document document, String pid) throws IOException {
         // See if there is an element with the PID and make sure it matches the PID we're requesting
         Node pidNode = getElement(document.getElementsByTagName("pid"));
-        if (!pidNode.getTextContent().equals(pid))
+        if ((pidNode == null) || !pidNode.getTextContent().equals(pid))
             return null;
 
         String contentTypeMaster = null, contentTypeLevel1 = null;
@@ -122,120 +284,63 @@ public class SharedObjectRepositoryService {
      * Obtains the METS based on the PID and obtains the files and their PIDs from the document.
      *
      * @param pid The PID of a METS document.
-     * @return A map with the uses and their file PIDS.
+     * @return A map with the uses and their file PIDS, or null if the SOR has no valid METS document.
+     * @throws IOException Thrown when the METS document could not be obtained.
      */
-    private Map<String, List<String>> getFilesMETS(String pid) {
-        try {
-            URL req = new URL(url + "/file/master/" + pid);
-
-            LOGGER.debug(String.format("getFilesMETS(): Obtain METS document: %s", req.toString()));
-            HttpURLConnection conn = (HttpURLConnection) req.openConnection();
-            Document document = documentBuilder.parse(conn.getInputStream());
-
-            return getFilesMETSFromDocument(document);
-        }
-        catch (IOException ioe) {
-            LOGGER.error("getFilesMETS(): Could not obtain METS document", ioe);
-            return null;
-        }
-        catch (SAXException saxe) {
-            LOGGER.debug("getFilesMETS(): Could not parse received METS", saxe);
-            return null;
-        }
-    }
+    private Map<String, List<String>> getFilesMETS(String pid) throws IOException {
+        HttpGet get = new HttpGet(url + "/file/master/" + pid);
+        LOGGER.debug(String.format("getFilesMETS(): Obtain METS document: %s", get.getURI().toString()));
 
-    /**
-     * Parses the METS document for the files and their PIDs.
-     *
-     * @param document The METS document.
-     * @return A map with the uses and their file PIDs.
-     */
-    private static Map<String, List<String>> getFilesMETSFromDocument(Document document) {
-        Map<String, List<String>> filePids = new HashMap<>();
-
-        Map<String, Set<String>> fptrsPerGroup = gettFptrsPerGroup(document);
-        Map<Integer, Set<String>> fptrsOrdered = getFptrsOrdered(document);
-        for (String fileGrp : fptrsPerGroup.keySet()) {
-            List<String> files = new ArrayList<>();
-
-            for (Integer order : fptrsOrdered.keySet()) {
-                Set<String> groupFptrs = fptrsPerGroup.get(fileGrp);
-                Set<String> orderedFptrs = fptrsOrdered.get(order);
-
-                for (String fptr : orderedFptrs) {
-                    if (groupFptrs.contains(fptr))
-                        files.add(getFilePidFromFptr(document, fptr));
-                }
+        CircuitBreaker.Permit permit = circuitBreaker.acquire();
+        boolean success = false;
+        try (CloseableHttpResponse response = httpClient.execute(get)) {
+            int status = response.getStatusLine().getStatusCode();
+            if (status != HttpStatus.SC_OK) {
+                success = (status < HttpStatus.SC_INTERNAL_SERVER_ERROR);
+                LOGGER.error(String.format("getFilesMETS(): Could not obtain METS document: %d %s",
+                        status, response.getStatusLine().getReasonPhrase()));
+                return null;
             }
 
-            if (!files.isEmpty())
-                filePids.put(fileGrp, files);
+            try (InputStream is = response.getEntity().getContent()) {
+                Map<String, List<String>> filePids = getFilesMETSFromStream(is);
+                success = true;
+                return filePids;
+            }
+            catch (XMLStreamException e) {
+                success = true;
+                LOGGER.debug("getFilesMETS(): Could not parse received METS", e);
+                return null;
+            }
         }
-
-        return filePids;
-    }
-
-    /**
-     * Obtains all file pointers per group in the METS.
-     *
-     * @param document The METS document.
-     * @return A map with all file pointers per group.
-     */
-    private static Map<String, Set<String>> gettFptrsPerGroup(Document document) {
-        Map<String, Set<String>> fptrsPerGroup = new TreeMap<>();
-        for (Element fileGrpElement : getElements(document.getElementsByTagName("fileGrp"))) {
-            Set<String> fptrs = new HashSet<>();
-            for (Element fptrElement : getElements(fileGrpElement.getElementsByTagName("file")))
-                fptrs.add(fptrElement.getAttribute("ID"));
-            String fileGrpId = fileGrpElement.getAttribute("USE");
-            fptrsPerGroup.put(fileGrpId, fptrs);
+        finally {
+            circuitBreaker.release(permit, success);
         }
-        return fptrsPerGroup;
     }
 
     /**
-     * Obtains all file pointers per sequence order in the METS.
+     * Reads the METS document for the files and their PIDs in a single streaming pass.
      *
-     * @param document The METS document.
-     * @return A map with all file pointers per sequence order.
+     * @param is The METS document.
+     * @return A map with the uses and their file PIDs.
+     * @throws XMLStreamException Thrown when the METS document could not be parsed.
      */
-    private static Map<Integer, Set<String>> getFptrsOrdered(Document document) {
-        Map<Integer, Set<String>> fptrsPerPage = new TreeMap<>();
-        for (Element structMapElement : getElements(document.getElementsByTagName("structMap"))) {
-            if (structMapElement.getAttribute("TYPE").equals("physical")) {
-                for (Element divElement : getElements(structMapElement.getElementsByTagName("div"))) {
-                    if (divElement.getAttribute("TYPE").equals("page")) {
-                        Set<String> fptrs = new HashSet<>();
-                        for (Element fptrElement : getElements(divElement.getElementsByTagName("fptr")))
-                            fptrs.add(fptrElement.getAttribute("FILEID"));
-                        fptrsPerPage.put(Integer.parseInt(divElement.getAttribute("ORDER")), fptrs);
-                    }
-                }
+    static Map<String, List<String>> getFilesMETSFromStream(InputStream is) throws XMLStreamException {
+        XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(is);
+        try {
+            METSReader metsReader = new METSReader();
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT)
+                    metsReader.startElement(reader);
+                else if (event == XMLStreamConstants.END_ELEMENT)
+                    metsReader.endElement();
             }
+            return metsReader.getFilePids();
         }
-        return fptrsPerPage;
-    }
-
-    /**
-     * Returns the PID for a file with the given file pointer id.
-     *
-     * @param document The METS document.
-     * @param id       The file pointer id.
-     * @return The PID.
-     */
-    private static String getFilePidFromFptr(Document document, String id) {
-        for (Element fileElement : getElements(document.getElementsByTagName("file"))) {
-            if (fileElement.getAttribute("ID").equals(id)) {
-                Element fLocatElement = getElement(fileElement.getElementsByTagName("FLocat"));
-                if (fLocatElement != null) {
-                    String url = fLocatElement.getAttribute("xlink:href");
-                    Matcher matcher = HANDLE_PID_PATTERN.matcher(url);
-                    if (matcher.find())
-                        return "10622/" + matcher.group(1);
-                }
-            }
+        finally {
+            reader.close();
         }
-        return null;
     }
 
     /**
@@ -268,4 +373,129 @@ public class SharedObjectRepositoryService {
         }
         return elements;
     }
+
+    /**
+     * Indexes a METS document while it is read: the file pointers per group, the file pointers per page
+     * and the PID of every file pointer. The elements are matched on their qualified names.
+     */
+    private static class METSReader {
+        private final Map<String, Set<String>> fptrsPerGroup = new TreeMap<>();
+        private final Map<Integer, Set<String>> fptrsOrdered = new TreeMap<>();
+        private final Map<String, String> filePids = new HashMap<>();
+        private final Deque<Frame> elements = new ArrayDeque<>();
+
+        private void startElement(XMLStreamReader reader) {
+            Frame frame = new Frame();
+            switch (getQName(reader.getPrefix(), reader.getLocalName())) {
+                case "fileGrp":
+                    frame.group = new HashSet<>();
+                    fptrsPerGroup.put(getAttribute(reader, "USE"), frame.group);
+                    break;
+                case "file":
+                    frame.fileId = getAttribute(reader, "ID");
+                    for (Frame element : elements) {
+                        if (element.group != null)
+                            element.group.add(frame.fileId);
+                    }
+                    break;
+                case "FLocat":
+                    // Only the first FLocat of a file counts
+                    for (Frame element : elements) {
+                        if (element.fileId != null && !element.fLocatFound) {
+                            element.fLocatFound = true;
+                            Matcher matcher = HANDLE_PID_PATTERN.matcher(getAttribute(reader, "xlink:href"));
+                            if (matcher.find())
+                                filePids.putIfAbsent(element.fileId, "10622/" + matcher.group(1));
+                        }
+                    }
+                    break;
+                case "structMap":
+                    frame.physical = getAttribute(reader, "TYPE").equals("physical");
+                    break;
+                case "div":
+                    if (isInPhysicalStructMap() && getAttribute(reader, "TYPE").equals("page")) {
+                        frame.page = new HashSet<>();
+                        fptrsOrdered.put(Integer.parseInt(getAttribute(reader, "ORDER")), frame.page);
+                    }
+                    break;
+                case "fptr":
+                    for (Frame element : elements) {
+                        if (element.page != null)
+                            element.page.add(getAttribute(reader, "FILEID"));
+                    }
+                    break;
+            }
+            elements.push(frame);
+        }
+
+        private void endElement() {
+            elements.pop();
+        }
+
+        private boolean isInPhysicalStructMap() {
+            for (Frame element : elements) {
+                if (element.physical)
+                    return true;
+            }
+            return false;
+        }
+
+        /**
+         * Orders the file PIDs of every group by page.
+         *
+         * @return A map with the uses and their file PIDs.
+         */
+        private Map<String, List<String>> getFilePids() {
+            Map<String, List<String>> filePidsPerGroup = new HashMap<>();
+            for (Map.Entry<String, Set<String>> groupFptrs : fptrsPerGroup.entrySet()) {
+                List<String> files = new ArrayList<>();
+                for (Set<String> orderedFptrs : fptrsOrdered.values()) {
+                    for (String fptr : orderedFptrs) {
+                        if (groupFptrs.getValue().contains(fptr))
+                            files.add(filePids.get(fptr));
+                    }
+                }
+
+                if (!files.isEmpty())
+                    filePidsPerGroup.put(groupFptrs.getKey(), files);
+            }
+            return filePidsPerGroup;
+        }
+
+        private static String getAttribute(XMLStreamReader reader, String qName) {
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                if (getQName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)).equals(qName))
+                    return reader.getAttributeValue(i);
+            }
+            return "";
+        }
+
+        private static String getQName(String prefix, String localName) {
+            return ((prefix == null) || prefix.isEmpty()) ? localName : prefix + ":" + localName;
+        }
+
+        /**
+         * An element that is currently being read.
+         */
+        private static class Frame {
+            private Set<String> group;
+            private Set<String> page;
+            private boolean physical;
+            private String fileId;
+            private boolean fLocatFound;
+        }
+    }
+
+    /**
+     * The cached metadata of a PID, which is null if the SOR has no digital object with this PID.
+     */
+    private static class CacheEntry {
+        private final SorMetadata metadata;
+        private final long fetched;
+
+        private CacheEntry(SorMetadata metadata) {
+            this.metadata = metadata;
+            this.fetched = System.currentTimeMillis();
+        }
+    }
 }
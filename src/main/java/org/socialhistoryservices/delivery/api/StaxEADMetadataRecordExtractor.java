@@ -0,0 +1,671 @@
+package org.socialhistoryservices.delivery.api;
+
+import java.io.InputStream;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.w3c.dom.Node;
+
+import org.socialhistoryservices.delivery.record.util.Inventory;
+import org.socialhistoryservices.delivery.record.entity.ExternalHoldingInfo;
+import org.socialhistoryservices.delivery.record.entity.ExternalRecordInfo;
+import org.socialhistoryservices.delivery.record.entity.ArchiveHoldingInfo;
+
+/**
+ * Extracts the metadata of an archive (item) from an EAD that was read in a single StAX pass
+ * into a compact model, instead of evaluating XPath expressions against a DOM.
+ * The extracted metadata is identical to the metadata extracted by the EADMetadataRecordExtractor.
+ */
+public class StaxEADMetadataRecordExtractor implements MetadataRecordExtractor {
+    private static final String NS_EAD = "urn:isbn:1-931666-22-9";
+    private static final String NS_OAI = "http://www.openarchives.org/OAI/2.0/";
+    private static final Pattern COMPONENT_NAME = Pattern.compile("c(0[1-9]|1[0-2])");
+    private static final Pattern WHITESPACE = Pattern.compile("[ \t\r\n]+");
+
+    // The estimated heap size of a component, including its strings and index entries but excluding their characters
+    private static final long COMPONENT_SIZE = 300;
+
+    private static final XMLInputFactory xmlInputFactory;
+
+    private final String parentPid;
+    private final String item;
+    private final String itemSep;
+
+    private final EAD ead;
+    private final Node archival;
+
+    static {
+        xmlInputFactory = XMLInputFactory.newInstance();
+        xmlInputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+
+    public StaxEADMetadataRecordExtractor(String parentPid, String item, String itemSep, EAD ead, Node archival) {
+        this.parentPid = parentPid;
+        this.item = item;
+        this.itemSep = itemSep;
+
+        this.ead = ead;
+        this.archival = archival;
+    }
+
+    /**
+     * Reads the EAD of the first OAI record in the given document.
+     *
+     * @param is The input stream of the document.
+     * @return The EAD, or null if the document contains no OAI record.
+     * @throws XMLStreamException Thrown when the document could not be parsed.
+     */
+    public static EAD parse(InputStream is) throws XMLStreamException {
+        XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(is);
+        try {
+            return new EADReader(reader).read();
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Returns the PID of the record.
+     *
+     * @return The PID.
+     */
+    @Override
+    public String getPid() {
+        return (item != null) ? parentPid + itemSep + item : parentPid;
+    }
+
+    /**
+     * Extracts the metadata of the record.
+     *
+     * @return The metadata of the record, if found.
+     */
+    @Override
+    public ExternalRecordInfo getRecordMetadata() {
+        ExternalRecordInfo externalInfo = new ExternalRecordInfo();
+
+        String author = normalize(ead.author);
+        if (author != null) {
+            externalInfo.setAuthor(MetadataRecordExtractor.stripToSize(author.trim(), 125));
+        }
+
+        String title = normalize(ead.title);
+        if (title != null) {
+            externalInfo.setTitle(MetadataRecordExtractor.stripToSize(title.trim(), 125));
+        }
+        else {
+            externalInfo.setTitle("Unknown Record");
+        }
+
+        externalInfo.setMaterialType(ExternalRecordInfo.MaterialType.ARCHIVE);
+        externalInfo.setPublicationStatus(ExternalRecordInfo.PublicationStatus.UNKNOWN);
+        externalInfo.setRestriction(evaluateRestriction());
+
+        Component itemComponent = findItemComponent();
+        String container = (itemComponent != null) ? normalize(itemComponent.boxContainer) : null;
+        externalInfo.setContainer(container);
+
+        String physicalDescription = normalize(ead.physicalDescription);
+        externalInfo.setPhysicalDescription((physicalDescription != null) ? physicalDescription.trim() : null);
+
+        externalInfo.setInventory(getInventory());
+
+        return externalInfo;
+    }
+
+    /**
+     * Get a map of holding signatures associated with this records,
+     * linking to additional holding info provided by the API.
+     *
+     * @return A map of found (signature, holding info) tuples, or an empty map if none were found.
+     */
+    @Override
+    public Map<String, ExternalHoldingInfo> getHoldingMetadata() {
+        Map<String, ExternalHoldingInfo> retMap = new HashMap<>();
+        if (item != null && findItemComponent() == null)
+            return retMap;
+
+        String barcode = (ead.unitId != null) ? ead.unitId : "";
+        if (item != null)
+            barcode = barcode.trim() + "." + item;
+
+        ExternalHoldingInfo eh = new ExternalHoldingInfo();
+        eh.setBarcode(barcode);
+
+        retMap.put((item != null) ? item : barcode, eh);
+
+        return retMap;
+    }
+
+    /**
+     * Obtains archive holding info of a record.
+     *
+     * @return A list with the archive metadata of the record, if found.
+     */
+    @Override
+    public List<ArchiveHoldingInfo> getArchiveHoldingInfo() {
+        // Child records should look for archive holding info at their parent
+        if (item == null)
+            return EADMetadataRecordExtractor.getArchiveHoldingInfo(archival);
+        return new ArrayList<>();
+    }
+
+    /**
+     * Obtains metadata record extractors for all container siblings of the current record.
+     * These records do not only share the same parent record, but also share a common container.
+     *
+     * @return A set of metadata record extractors for the container siblings.
+     */
+    @Override
+    public Set<MetadataRecordExtractor> getRecordExtractorsForContainerSiblings() {
+        Set<MetadataRecordExtractor> recordExtractors = new HashSet<>();
+
+        Component itemComponent = findItemComponent();
+        String container = (itemComponent != null) ? normalize(itemComponent.boxContainer) : null;
+
+        if (itemComponent == null || container == null)
+            return recordExtractors;
+
+        for (Component component : ead.containers.getOrDefault(container, Collections.emptyList())) {
+            // An item node is only valid if is a leaf item node (has no children with items)
+            if (component != null && component.unitIdCount == 1) {
+                String siblingItem = component.firstUnitId.trim();
+                if (!item.equals(siblingItem)) {
+                    recordExtractors.add(new StaxEADMetadataRecordExtractor(
+                            parentPid, siblingItem, itemSep, ead, archival));
+                }
+            }
+        }
+
+        return recordExtractors;
+    }
+
+    private Component findItemComponent() {
+        if (item == null)
+            return null;
+
+        // An item node is only valid if is a leaf item node (has no children with items)
+        Component component = ead.items.get(item);
+        return (component != null && component.unitIdCount == 1) ? component : null;
+    }
+
+    private ExternalRecordInfo.Restriction evaluateRestriction() {
+        // Unlike the DOM extractor, which fails on this, an EAD without access restrictions is open
+        if (ead.accessRestrictType == null)
+            return ExternalRecordInfo.Restriction.OPEN;
+
+        String restriction = normalizeSpace(ead.accessRestrictP);
+
+        String type = ead.accessRestrictType.toLowerCase();
+        if (type.equals("date"))
+            restriction = "date";
+
+        Component itemComponent = findItemComponent();
+        if (type.equals("part") && (itemComponent != null)) {
+            if (itemComponent.accessRestrictType != null)
+                restriction = itemComponent.accessRestrictType;
+            else
+                restriction = "open";
+        }
+
+        switch (restriction.trim().toLowerCase()) {
+            case "gesloten":
+            case "closed":
+                return ExternalRecordInfo.Restriction.CLOSED;
+            case "beperkt":
+            case "restricted":
+                return ExternalRecordInfo.Restriction.RESTRICTED;
+            case "date":
+                return ExternalRecordInfo.Restriction.DATE_RESTRICTED;
+            default:
+                return ExternalRecordInfo.Restriction.OPEN;
+        }
+    }
+
+    private Inventory getInventory() {
+        if (item != null || ead.inventory == null)
+            return null;
+
+        Inventory inventory = new Inventory();
+        inventory.setUnitId(emptyToNull(ead.unitId));
+        inventory.setTitle(normalize(ead.title));
+        inventory.setChildren(getInventory(ead.inventory));
+        return inventory;
+    }
+
+    private static List<Inventory> getInventory(List<Component> components) {
+        List<Inventory> children = new ArrayList<>();
+        for (Component component : components) {
+            Inventory inventory = new Inventory();
+            inventory.setUnitId(emptyToNull(component.didUnitId));
+            inventory.setTitle(normalize(component.didUnitTitle));
+            inventory.setChildren(getInventory(component.children));
+            children.add(inventory);
+        }
+        return children;
+    }
+
+    private static String emptyToNull(String value) {
+        return (value == null || value.isEmpty()) ? null : value;
+    }
+
+    private static String normalize(String value) {
+        return emptyToNull(normalizeSpace(value));
+    }
+
+    /**
+     * Implements the XPath normalize-space() function.
+     */
+    private static String normalizeSpace(String value) {
+        if (value == null)
+            return "";
+        return WHITESPACE.matcher(value).replaceAll(" ").trim();
+    }
+
+    /**
+     * The compact model of an EAD, holding only what is required to extract the metadata.
+     * All string values are kept as found in the EAD, they are normalized on extraction.
+     * Once read, the model is never modified, so it can be shared between threads.
+     */
+    public static class EAD {
+        // The first unitid, unittitle, creator and physical description in the EAD
+        private String unitId;
+        private String title;
+        private String author;
+        private String physicalDescription;
+
+        // The type and first paragraph of the first access restriction of the archive description
+        private String accessRestrictType;
+        private String accessRestrictP;
+
+        // The top level components of the inventory, if there is an inventory
+        private List<Component> inventory;
+
+        // The nearest component of the first inventory unitid with the given text
+        private final Map<String, Component> items = new HashMap<>();
+
+        // The nearest components of all inventory box containers with the given text
+        private final Map<String, List<Component>> containers = new HashMap<>();
+
+        private long estimatedSize;
+
+        /**
+         * Returns the estimated heap size of the model, which is about 2.5 times the size of the XML.
+         *
+         * @return The estimated size in bytes.
+         */
+        public long getEstimatedSize() {
+            return estimatedSize;
+        }
+
+        private static long estimateSize(List<Component> components) {
+            long size = 0;
+            if (components != null) {
+                for (Component component : components) {
+                    size += COMPONENT_SIZE + length(component.didUnitId) + length(component.didUnitTitle)
+                            + length(component.firstUnitId) + length(component.boxContainer)
+                            + length(component.accessRestrictType) + estimateSize(component.children);
+                }
+            }
+            return size;
+        }
+
+        private static long length(String value) {
+            return (value != null) ? value.length() : 0;
+        }
+    }
+
+    /**
+     * A component (c01 to c12) of the inventory of an EAD.
+     */
+    private static class Component {
+        private final List<Component> children = new ArrayList<>();
+
+        // The unitid and unittitle of the did of this component
+        private String didUnitId;
+        private String didUnitTitle;
+
+        // The number of unitids and the first unitid, box container and access restriction within this component
+        private int unitIdCount;
+        private String firstUnitId;
+        private String boxContainer;
+        private String accessRestrictType;
+        private boolean hasBoxContainer;
+    }
+
+    /**
+     * An element that is currently being read.
+     */
+    private static class Element {
+        private final String name;
+        private final String label;
+        private final Component component;
+        private boolean record, firstArchdesc, firstInventory, inventory, firstAccessRestrict, firstP;
+
+        // The consumers of the string value and of the first text node of this element, if any
+        private List<Consumer<String>> valueConsumers;
+        private StringBuilder value;
+        private List<Consumer<String>> textConsumers;
+        private StringBuilder text;
+        private boolean textComplete;
+
+        private Element(String name, String label, Component component) {
+            this.name = name;
+            this.label = label;
+            this.component = component;
+        }
+
+        private void onValue(Consumer<String> consumer) {
+            if (valueConsumers == null) {
+                valueConsumers = new ArrayList<>();
+                value = new StringBuilder();
+            }
+            valueConsumers.add(consumer);
+        }
+
+        private void onText(Consumer<String> consumer) {
+            if (textConsumers == null) {
+                textConsumers = new ArrayList<>();
+                text = new StringBuilder();
+            }
+            textConsumers.add(consumer);
+        }
+    }
+
+    /**
+     * Reads the EAD of the first OAI record in a single pass.
+     */
+    private static class EADReader {
+        private final XMLStreamReader reader;
+        private final EAD ead = new EAD();
+
+        private final Deque<Element> elements = new ArrayDeque<>();
+        private final List<Element> valueElements = new ArrayList<>();
+        private final List<Component> components = new ArrayList<>();
+
+        private boolean recordFound, inRecord, archdescFound, inArchdesc;
+        private boolean accessRestrictFound, unitIdFound, titleFound, authorFound, physicalDescriptionFound;
+        private int inventoryDepth;
+
+        private EADReader(XMLStreamReader reader) {
+            this.reader = reader;
+        }
+
+        private EAD read() throws XMLStreamException {
+            // Keep reading after the record, so that malformed documents are still rejected
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        startElement();
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        endElement();
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        characters();
+                        break;
+                    case XMLStreamConstants.COMMENT:
+                    case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                        endText();
+                        break;
+                }
+            }
+            if (!recordFound)
+                return null;
+
+            ead.estimatedSize = EAD.estimateSize(ead.inventory);
+            return ead;
+        }
+
+        private void startElement() {
+            endText();
+
+            if (!inRecord) {
+                if (!recordFound && NS_OAI.equals(reader.getNamespaceURI())
+                        && reader.getLocalName().equals("record")) {
+                    recordFound = true;
+                    inRecord = true;
+                }
+                Element element = new Element(null, null, null);
+                element.record = inRecord;
+                elements.push(element);
+                return;
+            }
+
+            Element parent = elements.peek();
+            String name = NS_EAD.equals(reader.getNamespaceURI()) ? reader.getLocalName() : null;
+            Element element = (name != null && COMPONENT_NAME.matcher(name).matches())
+                    ? startComponent(parent, name)
+                    : new Element(name, reader.getAttributeValue(null, "label"), null);
+
+            if (name != null) {
+                switch (name) {
+                    case "archdesc":
+                        startArchdesc(element);
+                        break;
+                    case "dsc":
+                        startInventory(element);
+                        break;
+                    case "accessrestrict":
+                        startAccessRestrict(element);
+                        break;
+                    case "p":
+                        startP(parent, element);
+                        break;
+                    case "unitid":
+                        startUnitId(parent, element);
+                        break;
+                    case "unittitle":
+                        startUnitTitle(parent, element);
+                        break;
+                    case "container":
+                        startContainer(element);
+                        break;
+                    case "persname":
+                        startPersname(parent, element);
+                        break;
+                    case "extent":
+                        startExtent(parent, element);
+                        break;
+                }
+            }
+
+            elements.push(element);
+            if (element.valueConsumers != null)
+                valueElements.add(element);
+        }
+
+        private void endElement() {
+            endText();
+
+            Element element = elements.pop();
+            if (element.valueConsumers != null) {
+                valueElements.remove(valueElements.size() - 1);
+                String value = element.value.toString();
+                element.valueConsumers.forEach(consumer -> consumer.accept(value));
+            }
+            if (element.textConsumers != null) {
+                String text = element.text.toString();
+                element.textConsumers.forEach(consumer -> consumer.accept(text));
+            }
+
+            if (element.component != null)
+                components.remove(components.size() - 1);
+            if (element.firstArchdesc)
+                inArchdesc = false;
+            if (element.inventory)
+                inventoryDepth--;
+            if (element.record)
+                inRecord = false;
+        }
+
+        private void characters() {
+            if (!inRecord)
+                return;
+
+            String text = reader.getText();
+            for (Element element : valueElements)
+                element.value.append(text);
+
+            Element element = elements.peek();
+            if (element != null && element.textConsumers != null && !element.textComplete)
+                element.text.append(text);
+        }
+
+        /**
+         * Ends the current text node of the current element, if there is one.
+         */
+        private void endText() {
+            Element element = elements.peek();
+            if (element != null && element.text != null && element.text.length() > 0)
+                element.textComplete = true;
+        }
+
+        private Element startComponent(Element parent, String name) {
+            Component component = new Component();
+            if (parent.component != null)
+                parent.component.children.add(component);
+            else if (parent.firstInventory)
+                ead.inventory.add(component);
+
+            components.add(component);
+            return new Element(name, null, component);
+        }
+
+        private void startArchdesc(Element element) {
+            if (!archdescFound) {
+                archdescFound = true;
+                inArchdesc = true;
+                element.firstArchdesc = true;
+            }
+        }
+
+        private void startInventory(Element element) {
+            if (ead.inventory == null) {
+                ead.inventory = new ArrayList<>();
+                element.firstInventory = true;
+            }
+            element.inventory = true;
+            inventoryDepth++;
+        }
+
+        private void startAccessRestrict(Element element) {
+            String type = reader.getAttributeValue(null, "type");
+            type = (type != null) ? type : "";
+
+            if (inArchdesc && !accessRestrictFound) {
+                accessRestrictFound = true;
+                ead.accessRestrictType = type;
+                element.firstAccessRestrict = true;
+            }
+
+            for (Component component : components) {
+                if (component.accessRestrictType == null)
+                    component.accessRestrictType = type;
+            }
+        }
+
+        private void startP(Element parent, Element element) {
+            if (parent.firstAccessRestrict && !parent.firstP) {
+                parent.firstP = true;
+                element.onValue(value -> ead.accessRestrictP = value);
+            }
+        }
+
+        private void startUnitId(Element parent, Element element) {
+            if (!unitIdFound) {
+                unitIdFound = true;
+                element.onValue(value -> ead.unitId = value);
+            }
+
+            for (Component component : components) {
+                component.unitIdCount++;
+                if (component.unitIdCount == 1)
+                    element.onValue(value -> component.firstUnitId = value);
+            }
+
+            Component didComponent = getDidComponent(parent);
+            if (didComponent != null && didComponent.didUnitId == null) {
+                didComponent.didUnitId = "";
+                element.onValue(value -> didComponent.didUnitId = value);
+            }
+
+            if (inventoryDepth > 0) {
+                Component nearest = getNearestComponent();
+                element.onText(text -> ead.items.putIfAbsent(normalizeSpace(text), nearest));
+            }
+        }
+
+        private void startUnitTitle(Element parent, Element element) {
+            if (!titleFound) {
+                titleFound = true;
+                element.onValue(value -> ead.title = value);
+            }
+
+            Component didComponent = getDidComponent(parent);
+            if (didComponent != null && didComponent.didUnitTitle == null) {
+                didComponent.didUnitTitle = "";
+                element.onValue(value -> didComponent.didUnitTitle = value);
+            }
+        }
+
+        private void startContainer(Element element) {
+            if (!"box".equals(reader.getAttributeValue(null, "type")))
+                return;
+
+            for (Component component : components) {
+                if (!component.hasBoxContainer) {
+                    component.hasBoxContainer = true;
+                    element.onValue(value -> component.boxContainer = value);
+                }
+            }
+
+            if (inventoryDepth > 0) {
+                Component nearest = getNearestComponent();
+                element.onText(text -> ead.containers
+                        .computeIfAbsent(normalizeSpace(text), key -> new ArrayList<>())
+                        .add(nearest));
+            }
+        }
+
+        private void startPersname(Element parent, Element element) {
+            if (!authorFound && "origination".equals(parent.name) && "Creator".equals(parent.label)) {
+                authorFound = true;
+                element.onValue(value -> ead.author = value);
+            }
+        }
+
+        private void startExtent(Element parent, Element element) {
+            if (!physicalDescriptionFound && "physdesc".equals(parent.name)
+                    && "Physical Description".equals(parent.label)) {
+                physicalDescriptionFound = true;
+                element.onValue(value -> ead.physicalDescription = value);
+            }
+        }
+
+        /**
+         * Returns the component of which the given element is the did, if it is.
+         */
+        private Component getDidComponent(Element parent) {
+            if (!"did".equals(parent.name))
+                return null;
+
+            Iterator<Element> it = elements.iterator();
+            it.next();
+            Element grandParent = it.hasNext() ? it.next() : null;
+            return (grandParent != null) ? grandParent.component : null;
+        }
+
+        private Component getNearestComponent() {
+            return components.isEmpty() ? null : components.get(components.size() - 1);
+        }
+    }
+}
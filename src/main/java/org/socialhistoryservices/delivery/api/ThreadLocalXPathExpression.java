@@ -0,0 +1,77 @@
+package org.socialhistoryservices.delivery.api;
+
+import org.xml.sax.InputSource;
+
+import javax.xml.namespace.QName;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+
+/**
+ * A compiled XPath expression that can be shared by multiple threads.
+ * Compiled XPath expressions are not thread-safe, so every thread evaluates its own compiled copy,
+ * which is compiled on first use by that thread and reused afterwards.
+ * The expressions are compiled with the namespaces of the IISHNamespaceContext.
+ */
+class ThreadLocalXPathExpression implements XPathExpression {
+    private static final ThreadLocal<XPath> xpath = ThreadLocal.withInitial(() -> {
+        XPath xpath = XPathFactory.newInstance().newXPath();
+        xpath.setNamespaceContext(new IISHNamespaceContext());
+        return xpath;
+    });
+
+    private final String expression;
+    private final ThreadLocal<XPathExpression> compiled = new ThreadLocal<>();
+
+    /**
+     * Compiles the expression for the current thread, so that invalid expressions are reported immediately.
+     *
+     * @param expression The XPath expression.
+     * @throws XPathExpressionException Thrown when the expression is invalid.
+     */
+    ThreadLocalXPathExpression(String expression) throws XPathExpressionException {
+        this.expression = expression;
+        compiled.set(xpath.get().compile(expression));
+    }
+
+    @Override
+    public Object evaluate(Object item, QName returnType) throws XPathExpressionException {
+        return get().evaluate(item, returnType);
+    }
+
+    @Override
+    public String evaluate(Object item) throws XPathExpressionException {
+        return get().evaluate(item);
+    }
+
+    @Override
+    public Object evaluate(InputSource source, QName returnType) throws XPathExpressionException {
+        return get().evaluate(source, returnType);
+    }
+
+    @Override
+    public String evaluate(InputSource source) throws XPathExpressionException {
+        return get().evaluate(source);
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    /**
+     * Returns the compiled expression of the current thread, compiling it on first use.
+     *
+     * @return The compiled expression.
+     * @throws XPathExpressionException Thrown when the expression is invalid.
+     */
+    private XPathExpression get() throws XPathExpressionException {
+        XPathExpression expression = compiled.get();
+        if (expression == null) {
+            expression = xpath.get().compile(this.expression);
+            compiled.set(expression);
+        }
+        return expression;
+    }
+}
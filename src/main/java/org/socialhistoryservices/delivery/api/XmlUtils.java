@@ -2,27 +2,37 @@ package org.socialhistoryservices.delivery.api;
 
 import org.w3c.dom.Node;
 
-import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
 
 public class XmlUtils {
-    public static XPathExpression getXPathForMarc(XPath xpath, String tag, char code) throws XPathExpressionException {
-        return getXPathForMarc(xpath, tag, code, "");
+    /**
+     * Compiles an XPath expression that can be evaluated by multiple threads at the same time.
+     *
+     * @param expression The XPath expression, using the prefixes of the IISHNamespaceContext.
+     * @return The compiled expression.
+     * @throws XPathExpressionException Thrown when the expression is invalid.
+     */
+    public static XPathExpression compile(String expression) throws XPathExpressionException {
+        return new ThreadLocalXPathExpression(expression);
     }
 
-    public static XPathExpression getXPathForMarc(XPath xpath, String tag, char code, String searchPath)
+    public static XPathExpression getXPathForMarc(String tag, char code) throws XPathExpressionException {
+        return getXPathForMarc(tag, code, "");
+    }
+
+    public static XPathExpression getXPathForMarc(String tag, char code, String searchPath)
         throws XPathExpressionException {
-        return xpath.compile(
+        return compile(
             searchPath + "marc:datafield[@tag=" + tag + "]/marc:subfield[@code=\"" + code + "\"]");
     }
 
-    public static XPathExpression getXPathForMarcTag(XPath xpath, String tag) throws XPathExpressionException {
-        return xpath.compile("marc:datafield[@tag=" + tag + "]");
+    public static XPathExpression getXPathForMarcTag(String tag) throws XPathExpressionException {
+        return compile("marc:datafield[@tag=" + tag + "]");
     }
 
-    public static XPathExpression getXPathForMarcSubfield(XPath xpath, char code) throws XPathExpressionException {
-        return xpath.compile("marc:subfield[@code=\"" + code + "\"]");
+    public static XPathExpression getXPathForMarcSubfield(char code) throws XPathExpressionException {
+        return compile("marc:subfield[@code=\"" + code + "\"]");
     }
 
     public static String evaluate(XPathExpression expression, Node node) {
@@ -18,6 +18,24 @@ public class DeliveryProperties {
     private String timezone = "Europe/Amsterdam";
     private String dateFormat = "yyyy-MM-dd";
     private int externalInfoMinDaysCache = 30;
+    private int externalInfoRefreshThreads = 2;
+    private int externalInfoRefreshQueueSize = 100;
+    private boolean recordRefreshEnabled = true;
+    private int recordRefreshConcurrency = 2;
+    private int recordRefreshRate = 2;
+    private int recordRefreshPageSize = 100;
+    private int recordRefreshMaxMinutes = 240;
+    private long statisticsRollupRefreshDelay = 60000;
+    private int recordLookupCacheSize = 1000;
+    private int recordLookupBatchSize = 20;
+    private int titleSearchCacheSize = 100;
+    private int titleSearchCacheTtl = 300;
+    // Bounds how long a node serves reference data that was changed on another node
+    private int referenceDataCacheTtl = 60;
+    // Bounds the estimated heap size of the parsed EAD documents, which is 2.5 (StAX) to 9 (DOM) times the XML size
+    private long eadCacheMaxSize = 64 * 1024 * 1024;
+    private int eadCacheMaxAge = 60;
+    private String eadExtractor = "dom";
     private String holdingSeparator = "^";
     private String itemSeparator = ".";
     private String ldapManagerDn = "cn=admin,dc=socialhistoryservices,dc=org";
@@ -44,6 +62,7 @@ public class DeliveryProperties {
     private int reproductionBtwPercentage = 21;
     private String requestAutoPrintStartTime = "9:00";
     private String requestLatestTime = "15:00";
+    private int requestCountLimit = 10000;
     private int requestMaxPageLen = 100;
     private int requestPageLen = 20;
     private int requestPageStepSize = 10;
@@ -55,10 +74,26 @@ public class DeliveryProperties {
     private String printerReadingRoom = "delivery-reading-room";
     private String sorAccessToken = "bla";
     private String sorAddress = "http://disseminate.objectrepository.org";
+    private int sorCacheSize = 1000;
+    private int sorCacheTtl = 3600;
+    private int sorConcurrency = 4;
     private String timeFormat = "HH:mm:ss";
     private String urlSearch = "search-acc.socialhistory.org";
     private String urlSelf = "http://localhost:8080";
     private int recordPageLen = 20;
+    private int httpConnectTimeout = 5000;
+    private int httpConnectionRequestTimeout = 5000;
+    private int httpSocketTimeout = 30000;
+    private int httpMaxConnections = 50;
+    private int httpMaxConnectionsPerRoute = 20;
+    private int circuitBreakerWindowSize = 20;
+    private int circuitBreakerMinimumCalls = 10;
+    private int circuitBreakerFailureRate = 50;
+    private int circuitBreakerOpenDuration = 30;
+    private int circuitBreakerMaxWait = 500;
+    private int recordLookupMaxConcurrentCalls = 20;
+    private int sorMaxConcurrentCalls = 20;
+    private int paymentMaxConcurrentCalls = 10;
     private String profile = "white";
     private String gitClosestTagName = "";
     private String gitCommitId = "";
@@ -171,6 +206,134 @@ public class DeliveryProperties {
         this.externalInfoMinDaysCache = externalInfoMinDaysCache;
     }
 
+    public int getExternalInfoRefreshThreads() {
+        return externalInfoRefreshThreads;
+    }
+
+    public void setExternalInfoRefreshThreads(int externalInfoRefreshThreads) {
+        this.externalInfoRefreshThreads = externalInfoRefreshThreads;
+    }
+
+    public int getExternalInfoRefreshQueueSize() {
+        return externalInfoRefreshQueueSize;
+    }
+
+    public void setExternalInfoRefreshQueueSize(int externalInfoRefreshQueueSize) {
+        this.externalInfoRefreshQueueSize = externalInfoRefreshQueueSize;
+    }
+
+    public boolean isRecordRefreshEnabled() {
+        return recordRefreshEnabled;
+    }
+
+    public void setRecordRefreshEnabled(boolean recordRefreshEnabled) {
+        this.recordRefreshEnabled = recordRefreshEnabled;
+    }
+
+    public int getRecordRefreshConcurrency() {
+        return recordRefreshConcurrency;
+    }
+
+    public void setRecordRefreshConcurrency(int recordRefreshConcurrency) {
+        this.recordRefreshConcurrency = recordRefreshConcurrency;
+    }
+
+    public int getRecordRefreshRate() {
+        return recordRefreshRate;
+    }
+
+    public void setRecordRefreshRate(int recordRefreshRate) {
+        this.recordRefreshRate = recordRefreshRate;
+    }
+
+    public int getRecordRefreshPageSize() {
+        return recordRefreshPageSize;
+    }
+
+    public void setRecordRefreshPageSize(int recordRefreshPageSize) {
+        this.recordRefreshPageSize = recordRefreshPageSize;
+    }
+
+    public int getRecordRefreshMaxMinutes() {
+        return recordRefreshMaxMinutes;
+    }
+
+    public void setRecordRefreshMaxMinutes(int recordRefreshMaxMinutes) {
+        this.recordRefreshMaxMinutes = recordRefreshMaxMinutes;
+    }
+
+    public long getStatisticsRollupRefreshDelay() {
+        return statisticsRollupRefreshDelay;
+    }
+
+    public void setStatisticsRollupRefreshDelay(long statisticsRollupRefreshDelay) {
+        this.statisticsRollupRefreshDelay = statisticsRollupRefreshDelay;
+    }
+
+    public int getRecordLookupCacheSize() {
+        return recordLookupCacheSize;
+    }
+
+    public void setRecordLookupCacheSize(int recordLookupCacheSize) {
+        this.recordLookupCacheSize = recordLookupCacheSize;
+    }
+
+    public int getRecordLookupBatchSize() {
+        return recordLookupBatchSize;
+    }
+
+    public void setRecordLookupBatchSize(int recordLookupBatchSize) {
+        this.recordLookupBatchSize = recordLookupBatchSize;
+    }
+
+    public int getTitleSearchCacheSize() {
+        return titleSearchCacheSize;
+    }
+
+    public void setTitleSearchCacheSize(int titleSearchCacheSize) {
+        this.titleSearchCacheSize = titleSearchCacheSize;
+    }
+
+    public int getTitleSearchCacheTtl() {
+        return titleSearchCacheTtl;
+    }
+
+    public void setTitleSearchCacheTtl(int titleSearchCacheTtl) {
+        this.titleSearchCacheTtl = titleSearchCacheTtl;
+    }
+
+    public int getReferenceDataCacheTtl() {
+        return referenceDataCacheTtl;
+    }
+
+    public void setReferenceDataCacheTtl(int referenceDataCacheTtl) {
+        this.referenceDataCacheTtl = referenceDataCacheTtl;
+    }
+
+    public long getEadCacheMaxSize() {
+        return eadCacheMaxSize;
+    }
+
+    public void setEadCacheMaxSize(long eadCacheMaxSize) {
+        this.eadCacheMaxSize = eadCacheMaxSize;
+    }
+
+    public int getEadCacheMaxAge() {
+        return eadCacheMaxAge;
+    }
+
+    public void setEadCacheMaxAge(int eadCacheMaxAge) {
+        this.eadCacheMaxAge = eadCacheMaxAge;
+    }
+
+    public String getEadExtractor() {
+        return eadExtractor;
+    }
+
+    public void setEadExtractor(String eadExtractor) {
+        this.eadExtractor = eadExtractor;
+    }
+
     public String getHoldingSeparator() {
         return holdingSeparator;
     }
@@ -371,6 +534,14 @@ public class DeliveryProperties {
         this.requestLatestTime = requestLatestTime;
     }
 
+    public int getRequestCountLimit() {
+        return requestCountLimit;
+    }
+
+    public void setRequestCountLimit(int requestCountLimit) {
+        this.requestCountLimit = requestCountLimit;
+    }
+
     public int getRequestMaxPageLen() {
         return requestMaxPageLen;
     }
@@ -451,6 +622,30 @@ public class DeliveryProperties {
         this.sorAddress = sorAddress;
     }
 
+    public int getSorCacheSize() {
+        return sorCacheSize;
+    }
+
+    public void setSorCacheSize(int sorCacheSize) {
+        this.sorCacheSize = sorCacheSize;
+    }
+
+    public int getSorCacheTtl() {
+        return sorCacheTtl;
+    }
+
+    public void setSorCacheTtl(int sorCacheTtl) {
+        this.sorCacheTtl = sorCacheTtl;
+    }
+
+    public int getSorConcurrency() {
+        return sorConcurrency;
+    }
+
+    public void setSorConcurrency(int sorConcurrency) {
+        this.sorConcurrency = sorConcurrency;
+    }
+
     public String getTimeFormat() {
         return timeFormat;
     }
@@ -483,6 +678,110 @@ public class DeliveryProperties {
         this.recordPageLen = recordPageLen;
     }
 
+    public int getHttpConnectTimeout() {
+        return httpConnectTimeout;
+    }
+
+    public void setHttpConnectTimeout(int httpConnectTimeout) {
+        this.httpConnectTimeout = httpConnectTimeout;
+    }
+
+    public int getHttpConnectionRequestTimeout() {
+        return httpConnectionRequestTimeout;
+    }
+
+    public void setHttpConnectionRequestTimeout(int httpConnectionRequestTimeout) {
+        this.httpConnectionRequestTimeout = httpConnectionRequestTimeout;
+    }
+
+    public int getHttpSocketTimeout() {
+        return httpSocketTimeout;
+    }
+
+    public void setHttpSocketTimeout(int httpSocketTimeout) {
+        this.httpSocketTimeout = httpSocketTimeout;
+    }
+
+    public int getHttpMaxConnections() {
+        return httpMaxConnections;
+    }
+
+    public void setHttpMaxConnections(int httpMaxConnections) {
+        this.httpMaxConnections = httpMaxConnections;
+    }
+
+    public int getHttpMaxConnectionsPerRoute() {
+        return httpMaxConnectionsPerRoute;
+    }
+
+    public void setHttpMaxConnectionsPerRoute(int httpMaxConnectionsPerRoute) {
+        this.httpMaxConnectionsPerRoute = httpMaxConnectionsPerRoute;
+    }
+
+    public int getCircuitBreakerWindowSize() {
+        return circuitBreakerWindowSize;
+    }
+
+    public void setCircuitBreakerWindowSize(int circuitBreakerWindowSize) {
+        this.circuitBreakerWindowSize = circuitBreakerWindowSize;
+    }
+
+    public int getCircuitBreakerMinimumCalls() {
+        return circuitBreakerMinimumCalls;
+    }
+
+    public void setCircuitBreakerMinimumCalls(int circuitBreakerMinimumCalls) {
+        this.circuitBreakerMinimumCalls = circuitBreakerMinimumCalls;
+    }
+
+    public int getCircuitBreakerFailureRate() {
+        return circuitBreakerFailureRate;
+    }
+
+    public void setCircuitBreakerFailureRate(int circuitBreakerFailureRate) {
+        this.circuitBreakerFailureRate = circuitBreakerFailureRate;
+    }
+
+    public int getCircuitBreakerOpenDuration() {
+        return circuitBreakerOpenDuration;
+    }
+
+    public void setCircuitBreakerOpenDuration(int circuitBreakerOpenDuration) {
+        this.circuitBreakerOpenDuration = circuitBreakerOpenDuration;
+    }
+
+    public int getCircuitBreakerMaxWait() {
+        return circuitBreakerMaxWait;
+    }
+
+    public void setCircuitBreakerMaxWait(int circuitBreakerMaxWait) {
+        this.circuitBreakerMaxWait = circuitBreakerMaxWait;
+    }
+
+    public int getRecordLookupMaxConcurrentCalls() {
+        return recordLookupMaxConcurrentCalls;
+    }
+
+    public void setRecordLookupMaxConcurrentCalls(int recordLookupMaxConcurrentCalls) {
+        this.recordLookupMaxConcurrentCalls = recordLookupMaxConcurrentCalls;
+    }
+
+    public int getSorMaxConcurrentCalls() {
+        return sorMaxConcurrentCalls;
+    }
+
+    public void setSorMaxConcurrentCalls(int sorMaxConcurrentCalls) {
+        this.sorMaxConcurrentCalls = sorMaxConcurrentCalls;
+    }
+
+    public int getPaymentMaxConcurrentCalls() {
+        return paymentMaxConcurrentCalls;
+    }
+
+    public void setPaymentMaxConcurrentCalls(int paymentMaxConcurrentCalls) {
+        this.paymentMaxConcurrentCalls = paymentMaxConcurrentCalls;
+    }
+
     public String getProfile() {
         return profile;
     }
@@ -1,19 +1,39 @@
 package org.socialhistoryservices.delivery.config;
 
 import org.socialhistoryservices.delivery.util.RequestContextToViewInterceptor;
+import org.socialhistoryservices.delivery.api.EADDocumentCache;
 import org.socialhistoryservices.delivery.api.IISHRecordLookupService;
 import org.socialhistoryservices.delivery.api.PaymentService;
 import org.socialhistoryservices.delivery.api.SharedObjectRepositoryService;
 import org.socialhistoryservices.delivery.user.controller.SecurityToViewInterceptor;
+import org.socialhistoryservices.delivery.reproduction.entity.ReproductionCustomNote;
+import org.socialhistoryservices.delivery.reproduction.entity.ReproductionStandardOption;
+import org.socialhistoryservices.delivery.reservation.entity.ReservationDateException;
+import org.socialhistoryservices.delivery.user.entity.Group;
+import org.socialhistoryservices.delivery.util.CircuitBreaker;
+import org.socialhistoryservices.delivery.util.ReferenceDataCache;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.PathMatchConfigurer;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import org.springframework.web.util.UrlPathHelper;
 
+import javax.net.ssl.HttpsURLConnection;
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 @EnableConfigurationProperties(DeliveryProperties.class)
 public class RootContextConfiguration implements WebMvcConfigurer {
@@ -33,10 +53,52 @@ public class RootContextConfiguration implements WebMvcConfigurer {
         registry.addInterceptor(reqIntercept());
     }
 
+    /**
+     * The shared HTTP client used for all outbound calls to the external services.
+     * Connections are pooled and kept alive, every request is bounded by the configured timeouts
+     * and gzip/deflate compressed responses are negotiated and decompressed transparently.
+     * The SSL socket factory is taken from HttpsURLConnection, so that it honors the trust settings
+     * made by the ConfigConfiguration.
+     *
+     * @return The shared HTTP client.
+     */
+    @Bean(destroyMethod = "close")
+    @DependsOn("configConfiguration")
+    public CloseableHttpClient httpClient() {
+        Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", new SSLConnectionSocketFactory(
+                        HttpsURLConnection.getDefaultSSLSocketFactory(),
+                        SSLConnectionSocketFactory.getDefaultHostnameVerifier()))
+                .build();
+
+        PoolingHttpClientConnectionManager connectionManager =
+                new PoolingHttpClientConnectionManager(socketFactoryRegistry);
+        connectionManager.setMaxTotal(deliveryProperties.getHttpMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(deliveryProperties.getHttpMaxConnectionsPerRoute());
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(deliveryProperties.getHttpConnectTimeout())
+                .setConnectionRequestTimeout(deliveryProperties.getHttpConnectionRequestTimeout())
+                .setSocketTimeout(deliveryProperties.getHttpSocketTimeout())
+                .build();
+
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictExpiredConnections()
+                .evictIdleConnections(60, TimeUnit.SECONDS)
+                .build();
+    }
+
     @Bean
     public IISHRecordLookupService myLookupService() {
         IISHRecordLookupService iishRecordLookupService = new IISHRecordLookupService();
         iishRecordLookupService.setDeliveryProperties(deliveryProperties);
+        iishRecordLookupService.setHttpClient(httpClient());
+        iishRecordLookupService.setEADDocumentCache(new EADDocumentCache(
+                deliveryProperties.getEadCacheMaxSize(), deliveryProperties.getEadCacheMaxAge()));
+        iishRecordLookupService.setCircuitBreaker(recordLookupCircuitBreaker());
         return iishRecordLookupService;
     }
 
@@ -45,12 +107,85 @@ public class RootContextConfiguration implements WebMvcConfigurer {
         return new PaymentService(
                 deliveryProperties.getUrlSelf(),
                 deliveryProperties.getMollieApiKey(),
-                deliveryProperties.getMollieProfile());
+                deliveryProperties.getMollieProfile(),
+                paymentCircuitBreaker());
     }
 
-    @Bean
+    @Bean(destroyMethod = "close")
     public SharedObjectRepositoryService sharedObjectRepositoryService() {
-        return new SharedObjectRepositoryService(deliveryProperties.getSorAddress());
+        return new SharedObjectRepositoryService(deliveryProperties.getSorAddress(), httpClient(),
+                deliveryProperties.getSorCacheSize(), deliveryProperties.getSorCacheTtl(),
+                deliveryProperties.getSorConcurrency(), sorCircuitBreaker());
+    }
+
+    /**
+     * The circuit breaker guarding the calls to the record metadata API.
+     *
+     * @return The circuit breaker.
+     */
+    @Bean
+    public CircuitBreaker recordLookupCircuitBreaker() {
+        return createCircuitBreaker("Record metadata API", deliveryProperties.getRecordLookupMaxConcurrentCalls());
+    }
+
+    /**
+     * The circuit breaker guarding the calls to the Shared Object Repository.
+     *
+     * @return The circuit breaker.
+     */
+    @Bean
+    public CircuitBreaker sorCircuitBreaker() {
+        return createCircuitBreaker("Shared Object Repository", deliveryProperties.getSorMaxConcurrentCalls());
+    }
+
+    /**
+     * The circuit breaker guarding the calls to Mollie.
+     *
+     * @return The circuit breaker.
+     */
+    @Bean
+    public CircuitBreaker paymentCircuitBreaker() {
+        return createCircuitBreaker("Mollie", deliveryProperties.getPaymentMaxConcurrentCalls());
+    }
+
+    /**
+     * The cache of the standard reproduction options.
+     *
+     * @return The cache.
+     */
+    @Bean
+    public ReferenceDataCache<ReproductionStandardOption> standardOptionCache() {
+        return new ReferenceDataCache<>("Reproduction standard options", deliveryProperties.getReferenceDataCacheTtl());
+    }
+
+    /**
+     * The cache of the reproduction custom notes.
+     *
+     * @return The cache.
+     */
+    @Bean
+    public ReferenceDataCache<ReproductionCustomNote> customNoteCache() {
+        return new ReferenceDataCache<>("Reproduction custom notes", deliveryProperties.getReferenceDataCacheTtl());
+    }
+
+    /**
+     * The cache of the reservation date exceptions.
+     *
+     * @return The cache.
+     */
+    @Bean
+    public ReferenceDataCache<ReservationDateException> dateExceptionCache() {
+        return new ReferenceDataCache<>("Reservation date exceptions", deliveryProperties.getReferenceDataCacheTtl());
+    }
+
+    /**
+     * The cache of the user groups.
+     *
+     * @return The cache.
+     */
+    @Bean
+    public ReferenceDataCache<Group> groupCache() {
+        return new ReferenceDataCache<>("User groups", deliveryProperties.getReferenceDataCacheTtl());
     }
 
     @Bean
@@ -62,4 +197,14 @@ public class RootContextConfiguration implements WebMvcConfigurer {
     public RequestContextToViewInterceptor reqIntercept() {
         return new RequestContextToViewInterceptor(deliveryProperties);
     }
+
+    private CircuitBreaker createCircuitBreaker(String name, int maxConcurrentCalls) {
+        return new CircuitBreaker(name,
+                deliveryProperties.getCircuitBreakerWindowSize(),
+                deliveryProperties.getCircuitBreakerMinimumCalls(),
+                deliveryProperties.getCircuitBreakerFailureRate(),
+                deliveryProperties.getCircuitBreakerOpenDuration(),
+                maxConcurrentCalls,
+                deliveryProperties.getCircuitBreakerMaxWait());
+    }
 }
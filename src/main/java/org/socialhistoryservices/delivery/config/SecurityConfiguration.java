@@ -3,10 +3,12 @@ package org.socialhistoryservices.delivery.config;
 import com.octo.captcha.service.image.ImageCaptchaService;
 import org.socialhistoryservices.delivery.user.dao.GroupDAO;
 import org.socialhistoryservices.delivery.user.dao.UserDAO;
+import org.socialhistoryservices.delivery.user.entity.Group;
 import org.socialhistoryservices.delivery.user.service.AuthoritiesPopulator;
 import org.socialhistoryservices.delivery.user.service.UserServiceImpl;
 import org.socialhistoryservices.delivery.util.CaptchaEngine;
 import org.socialhistoryservices.delivery.util.DefaultImageCaptchaService;
+import org.socialhistoryservices.delivery.util.ReferenceDataCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
@@ -29,6 +31,7 @@ import org.springframework.security.web.firewall.DefaultHttpFirewall;
 public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
     @Autowired private GroupDAO groupDAO;
     @Autowired private UserDAO userDAO;
+    @Autowired private ReferenceDataCache<Group> groupCache;
     @Autowired private Environment env;
     @Autowired private DeliveryProperties deliveryProperties;
 
@@ -76,6 +79,7 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
         UserServiceImpl userService = new UserServiceImpl();
         userService.setUserDAO(userDAO);
         userService.setGroupDAO(groupDAO);
+        userService.setGroupCache(groupCache);
         return userService;
     }
 
@@ -0,0 +1,51 @@
+package org.socialhistoryservices.delivery.home;
+
+import org.socialhistoryservices.delivery.record.service.CachedRecordLookupService;
+import org.socialhistoryservices.delivery.record.service.RecordRefreshJob;
+import org.socialhistoryservices.delivery.util.CircuitBreaker;
+import org.socialhistoryservices.delivery.util.ReferenceDataCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import java.util.List;
+
+/**
+ * Controller of the status page, which shows the state of the external services and the caches.
+ */
+@Controller
+public class StatusController {
+    @Autowired
+    private List<CircuitBreaker> circuitBreakers;
+
+    @Autowired
+    private CachedRecordLookupService cachedRecordLookupService;
+
+    @Autowired
+    private List<ReferenceDataCache<?>> referenceDataCaches;
+
+    @Autowired
+    private RecordRefreshJob recordRefreshJob;
+
+    /**
+     * Show the state of the circuit breakers of the external services, the hit rates of the caches
+     * and the progress of the refresh of the external record info.
+     *
+     * @param model The model.
+     * @return The view to resolve.
+     */
+    @RequestMapping(value = "/status", method = RequestMethod.GET)
+    @PreAuthorize("hasRole('ROLE_USER_MODIFY')")
+    public String status(Model model) {
+        model.addAttribute("circuitBreakers", circuitBreakers);
+        model.addAttribute("recordLookup", cachedRecordLookupService);
+        model.addAttribute("referenceDataCaches", referenceDataCaches);
+        model.addAttribute("recordRefresh", recordRefreshJob);
+        model.addAttribute("recordRefreshState", recordRefreshJob.getJobState());
+        model.addAttribute("recordRefreshRemaining", recordRefreshJob.getRemaining());
+        return "status";
+    }
+}
@@ -0,0 +1,38 @@
+package org.socialhistoryservices.delivery.job.dao;
+
+import org.socialhistoryservices.delivery.job.entity.JobState;
+
+/**
+ * Interface representing the Data Access Object of the JobState.
+ */
+public interface JobStateDAO {
+    /**
+     * Lock the state of the given job until the current transaction completes,
+     * so that the job is not leased by two nodes at the same time.
+     *
+     * @param name The name of the job.
+     */
+    void lock(String name);
+
+    /**
+     * Retrieve the JobState of the given job.
+     *
+     * @param name The name of the job.
+     * @return The JobState, or null if the job never ran.
+     */
+    JobState getByName(String name);
+
+    /**
+     * Add a JobState to the database.
+     *
+     * @param obj JobState to add.
+     */
+    void add(JobState obj);
+
+    /**
+     * Save changes to a JobState in the database.
+     *
+     * @param obj JobState to save.
+     */
+    void save(JobState obj);
+}
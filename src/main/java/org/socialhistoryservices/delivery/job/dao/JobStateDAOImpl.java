@@ -0,0 +1,67 @@
+package org.socialhistoryservices.delivery.job.dao;
+
+import org.socialhistoryservices.delivery.job.entity.JobState;
+import org.socialhistoryservices.delivery.util.TransactionLocks;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * Represents the Data Access Object of a JobState.
+ */
+@Repository
+public class JobStateDAOImpl implements JobStateDAO {
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionLocks transactionLocks;
+
+    /**
+     * Set the entity manager to use in this DAO, internal.
+     *
+     * @param entityManager The manager.
+     */
+    @PersistenceContext
+    private void setEntityManager(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Lock the state of the given job until the current transaction completes, on all application nodes.
+     *
+     * @param name The name of the job.
+     */
+    public void lock(String name) {
+        transactionLocks.lock("jobs", name);
+    }
+
+    /**
+     * Retrieve the JobState of the given job.
+     *
+     * @param name The name of the job.
+     * @return The JobState, or null if the job never ran.
+     */
+    public JobState getByName(String name) {
+        return entityManager.find(JobState.class, name);
+    }
+
+    /**
+     * Add a JobState to the database.
+     *
+     * @param obj JobState to add.
+     */
+    public void add(JobState obj) {
+        entityManager.persist(obj);
+    }
+
+    /**
+     * Save changes to a JobState in the database.
+     *
+     * @param obj JobState to save.
+     */
+    public void save(JobState obj) {
+        entityManager.merge(obj);
+    }
+}
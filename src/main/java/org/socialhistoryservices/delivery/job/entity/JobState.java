@@ -0,0 +1,146 @@
+package org.socialhistoryservices.delivery.job.entity;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * Represents the persisted state of a scheduled job, shared by all application nodes:
+ * the lease of the node running the job and the position to resume the job from.
+ */
+@Entity
+@Table(name = "job_states")
+public class JobState {
+    /**
+     * The name of the job.
+     */
+    @Id
+    @Column(name = "name", length = 50)
+    private String name;
+
+    /**
+     * Get the name of the job.
+     *
+     * @return The name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Set the name of the job.
+     *
+     * @param name The name.
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * The position to resume the job from, like the id of the last processed entity.
+     */
+    @Column(name = "position", nullable = false)
+    private int position;
+
+    /**
+     * Get the position to resume the job from.
+     *
+     * @return The position, or 0 to start from the beginning.
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Set the position to resume the job from.
+     *
+     * @param position The position, or 0 to start from the beginning.
+     */
+    public void setPosition(int position) {
+        this.position = position;
+    }
+
+    /**
+     * The date and time the current or last run started.
+     */
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "run_started")
+    private Date runStarted;
+
+    /**
+     * Get the date and time the current or last run started.
+     *
+     * @return The start of the run, or null if the job has not run yet.
+     */
+    public Date getRunStarted() {
+        return runStarted;
+    }
+
+    /**
+     * Set the date and time the current or last run started.
+     *
+     * @param runStarted The start of the run.
+     */
+    public void setRunStarted(Date runStarted) {
+        this.runStarted = runStarted;
+    }
+
+    /**
+     * The date and time the last run finished.
+     */
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "run_finished")
+    private Date runFinished;
+
+    /**
+     * Get the date and time the last run finished.
+     *
+     * @return The end of the last run, or null if the job is running or never finished a run.
+     */
+    public Date getRunFinished() {
+        return runFinished;
+    }
+
+    /**
+     * Set the date and time the last run finished.
+     *
+     * @param runFinished The end of the last run.
+     */
+    public void setRunFinished(Date runFinished) {
+        this.runFinished = runFinished;
+    }
+
+    /**
+     * The date and time until which the job is leased by the node running it.
+     */
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "leased_until")
+    private Date leasedUntil;
+
+    /**
+     * Get the date and time until which the job is leased by the node running it.
+     *
+     * @return The end of the lease, or null if the job is not running.
+     */
+    public Date getLeasedUntil() {
+        return leasedUntil;
+    }
+
+    /**
+     * Set the date and time until which the job is leased by the node running it.
+     *
+     * @param leasedUntil The end of the lease, or null if the job is not running.
+     */
+    public void setLeasedUntil(Date leasedUntil) {
+        this.leasedUntil = leasedUntil;
+    }
+
+    /**
+     * Whether the job is leased by a node at the given time.
+     *
+     * @param now The date and time to check.
+     * @return True if the job is leased.
+     */
+    public boolean isLeased(Date now) {
+        return leasedUntil != null && leasedUntil.after(now);
+    }
+}
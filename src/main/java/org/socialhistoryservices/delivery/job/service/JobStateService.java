@@ -0,0 +1,53 @@
+package org.socialhistoryservices.delivery.job.service;
+
+import org.socialhistoryservices.delivery.job.entity.JobState;
+
+/**
+ * Interface representing the service of the job package.
+ */
+public interface JobStateService {
+    /**
+     * Retrieve the JobState of the given job.
+     *
+     * @param name The name of the job.
+     * @return The JobState, or null if the job never ran.
+     */
+    JobState getJobState(String name);
+
+    /**
+     * Start a run of the given job by leasing it for this node, unless another node holds the lease.
+     *
+     * @param name         The name of the job.
+     * @param leaseMinutes The number of minutes after which the lease expires, should this node fail to finish.
+     * @return The JobState with the position to resume from, or null if the job is leased by another node.
+     */
+    JobState startRun(String name, int leaseMinutes);
+
+    /**
+     * Start a run of the given job by leasing it for this node, unless another node holds the lease
+     * or the last run finished less than the given interval ago.
+     *
+     * @param name            The name of the job.
+     * @param leaseMinutes    The number of minutes after which the lease expires, should this node fail to finish.
+     * @param intervalMinutes The minimum number of minutes between the end of the last run and the next run.
+     * @return The JobState with the position to resume from, or null if the job is leased by another node
+     * or is not due yet.
+     */
+    JobState startRunIfDue(String name, int leaseMinutes, int intervalMinutes);
+
+    /**
+     * Save the position of a running job, so that the next run resumes from it should this run fail.
+     *
+     * @param name     The name of the job.
+     * @param position The position to resume from.
+     */
+    void savePosition(String name, int position);
+
+    /**
+     * Finish the run of the given job and release its lease.
+     *
+     * @param name     The name of the job.
+     * @param position The position to resume the next run from.
+     */
+    void finishRun(String name, int position);
+}
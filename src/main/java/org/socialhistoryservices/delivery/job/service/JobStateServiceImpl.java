@@ -0,0 +1,102 @@
+package org.socialhistoryservices.delivery.job.service;
+
+import org.socialhistoryservices.delivery.job.dao.JobStateDAO;
+import org.socialhistoryservices.delivery.job.entity.JobState;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+
+/**
+ * Represents the service of the job package.
+ * A scheduled job runs on all application nodes; the lease makes sure only one node runs it at a time.
+ */
+@Service
+@Transactional
+public class JobStateServiceImpl implements JobStateService {
+    @Autowired
+    private JobStateDAO jobStateDAO;
+
+    /**
+     * Retrieve the JobState of the given job.
+     *
+     * @param name The name of the job.
+     * @return The JobState, or null if the job never ran.
+     */
+    public JobState getJobState(String name) {
+        return jobStateDAO.getByName(name);
+    }
+
+    /**
+     * Start a run of the given job by leasing it for this node, unless another node holds the lease.
+     *
+     * @param name         The name of the job.
+     * @param leaseMinutes The number of minutes after which the lease expires, should this node fail to finish.
+     * @return The JobState with the position to resume from, or null if the job is leased by another node.
+     */
+    public JobState startRun(String name, int leaseMinutes) {
+        return startRunIfDue(name, leaseMinutes, 0);
+    }
+
+    /**
+     * Start a run of the given job by leasing it for this node, unless another node holds the lease
+     * or the last run finished less than the given interval ago.
+     *
+     * @param name            The name of the job.
+     * @param leaseMinutes    The number of minutes after which the lease expires, should this node fail to finish.
+     * @param intervalMinutes The minimum number of minutes between the end of the last run and the next run.
+     * @return The JobState with the position to resume from, or null if the job is leased by another node
+     * or is not due yet.
+     */
+    public JobState startRunIfDue(String name, int leaseMinutes, int intervalMinutes) {
+        jobStateDAO.lock(name);
+
+        Date now = new Date();
+        JobState jobState = jobStateDAO.getByName(name);
+        if (jobState == null) {
+            jobState = new JobState();
+            jobState.setName(name);
+            jobStateDAO.add(jobState);
+        }
+        else if (jobState.isLeased(now)) {
+            return null;
+        }
+        else if ((jobState.getRunFinished() != null) &&
+                (now.getTime() - jobState.getRunFinished().getTime() < intervalMinutes * 60000L)) {
+            return null;
+        }
+
+        jobState.setRunStarted(now);
+        jobState.setRunFinished(null);
+        jobState.setLeasedUntil(new Date(now.getTime() + leaseMinutes * 60000L));
+        return jobState;
+    }
+
+    /**
+     * Save the position of a running job, so that the next run resumes from it should this run fail.
+     *
+     * @param name     The name of the job.
+     * @param position The position to resume from.
+     */
+    public void savePosition(String name, int position) {
+        JobState jobState = jobStateDAO.getByName(name);
+        if (jobState != null)
+            jobState.setPosition(position);
+    }
+
+    /**
+     * Finish the run of the given job and release its lease.
+     *
+     * @param name     The name of the job.
+     * @param position The position to resume the next run from.
+     */
+    public void finishRun(String name, int position) {
+        JobState jobState = jobStateDAO.getByName(name);
+        if (jobState != null) {
+            jobState.setPosition(position);
+            jobState.setRunFinished(new Date());
+            jobState.setLeasedUntil(null);
+        }
+    }
+}
@@ -47,24 +47,23 @@ public class RecordController extends ErrorHandlingController {
         List<Record> recs = new ArrayList<>();
         Map<String, List<Record>> reservedChilds = new HashMap<>();
 
+        // Issue #139: Make sure that when A enters, B has to wait for the same records,
+        // and will detect the insert into the database by A when entering
+        records.prefetchRecordsByPid(Arrays.asList(pids));
         for (String pid : pids) {
-            // Issue #139: Make sure that when A enters, B has to wait,
-            // and will detect the insert into the database by B when entering
-            synchronized (this) {
-                Record rec = null;
-                try {
-                    rec = records.getRecordByPidAndCreate(pid);
-                }
-                catch (NoSuchPidException e) {
-                    // Pass, catch if no of the requested PIDs are available below.
-                }
+            Record rec = null;
+            try {
+                rec = records.getRecordByPidAndCreate(pid);
+            }
+            catch (NoSuchPidException e) {
+                // Pass, catch if no of the requested PIDs are available below.
+            }
 
-                if (rec != null) {
-                    recs.add(rec);
+            if (rec != null) {
+                recs.add(rec);
 
-                    List<Record> reserved = records.getReservedChildRecords(rec);
-                    reservedChilds.put(rec.getPid(), reserved);
-                }
+                List<Record> reserved = records.getReservedChildRecords(rec);
+                reservedChilds.put(rec.getPid(), reserved);
             }
         }
 
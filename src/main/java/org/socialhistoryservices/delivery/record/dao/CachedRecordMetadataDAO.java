@@ -0,0 +1,77 @@
+package org.socialhistoryservices.delivery.record.dao;
+
+import org.socialhistoryservices.delivery.record.entity.CachedRecordMetadata;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Interface representing the Data Access Object of the CachedRecordMetadata.
+ */
+public interface CachedRecordMetadataDAO {
+    /**
+     * Add a CachedRecordMetadata to the database.
+     *
+     * @param obj CachedRecordMetadata to add.
+     */
+    void add(CachedRecordMetadata obj);
+
+    /**
+     * Save changes to a CachedRecordMetadata in the database.
+     *
+     * @param obj CachedRecordMetadata to save.
+     */
+    void save(CachedRecordMetadata obj);
+
+    /**
+     * Add or replace the CachedRecordMetadata of the given PID in the database.
+     * Concurrent puts of the same PID do not conflict, the last put wins.
+     *
+     * @param pid      The PID.
+     * @param metadata The serialized metadata.
+     * @param fetched  The date and time the metadata was fetched.
+     */
+    void put(String pid, String metadata, Date fetched);
+
+    /**
+     * Get the CachedRecordMetadata of the given PIDs with a single query.
+     *
+     * @param pids The PIDs.
+     * @return A map of the PIDs found with their CachedRecordMetadata.
+     */
+    Map<String, CachedRecordMetadata> getByPids(Collection<String> pids);
+
+    /**
+     * Remove all CachedRecordMetadata of the given PID from the database.
+     *
+     * @param pid The PID.
+     * @return The number of removed CachedRecordMetadata.
+     */
+    int removeByPid(String pid);
+
+    /**
+     * Remove all CachedRecordMetadata fetched before the given date from the database.
+     *
+     * @param date The date.
+     * @return The number of removed CachedRecordMetadata.
+     */
+    int removeFetchedBefore(Date date);
+
+    /**
+     * Get a criteria builder for querying CachedRecordMetadata.
+     *
+     * @return the CriteriaBuilder.
+     */
+    CriteriaBuilder getCriteriaBuilder();
+
+    /**
+     * Get a single CachedRecordMetadata matching a built query.
+     *
+     * @param query The query to match by.
+     * @return The matching CachedRecordMetadata.
+     */
+    CachedRecordMetadata get(CriteriaQuery<CachedRecordMetadata> query);
+}
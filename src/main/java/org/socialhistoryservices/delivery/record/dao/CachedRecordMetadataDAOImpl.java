@@ -0,0 +1,162 @@
+package org.socialhistoryservices.delivery.record.dao;
+
+import org.socialhistoryservices.delivery.record.entity.CachedRecordMetadata;
+import org.socialhistoryservices.delivery.record.entity.CachedRecordMetadata_;
+import org.socialhistoryservices.delivery.util.TransactionLocks;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.*;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaDelete;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Represents the Data Access Object of a CachedRecordMetadata.
+ */
+@Repository
+public class CachedRecordMetadataDAOImpl implements CachedRecordMetadataDAO {
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionLocks transactionLocks;
+
+    /**
+     * Set the entity manager to use in this DAO, internal.
+     *
+     * @param entityManager The manager.
+     */
+    @PersistenceContext
+    private void setEntityManager(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Add a CachedRecordMetadata to the database.
+     *
+     * @param obj CachedRecordMetadata to add.
+     */
+    public void add(CachedRecordMetadata obj) {
+        entityManager.persist(obj);
+    }
+
+    /**
+     * Save changes to a CachedRecordMetadata in the database.
+     *
+     * @param obj CachedRecordMetadata to save.
+     */
+    public void save(CachedRecordMetadata obj) {
+        entityManager.merge(obj);
+    }
+
+    /**
+     * Add or replace the CachedRecordMetadata of the given PID in the database.
+     * Concurrent puts of the same PID do not conflict, the last put wins.
+     *
+     * @param pid      The PID.
+     * @param metadata The serialized metadata.
+     * @param fetched  The date and time the metadata was fetched.
+     */
+    public void put(String pid, String metadata, Date fetched) {
+        // Other databases do not merge atomically: two transactions may both not find the PID and insert it,
+        // so concurrent puts of the same PID on this node wait for each other to complete
+        if (!transactionLocks.isPostgreSQL())
+            transactionLocks.lock("cached_record_metadata", pid);
+
+        String sql = transactionLocks.isPostgreSQL()
+                ? "INSERT INTO cached_record_metadata (id, pid, metadata, fetched) " +
+                "VALUES (nextval('hibernate_sequence'), :pid, :metadata, :fetched) " +
+                "ON CONFLICT (pid) DO UPDATE SET metadata = EXCLUDED.metadata, fetched = EXCLUDED.fetched"
+                : "MERGE INTO cached_record_metadata AS c " +
+                "USING (VALUES (CAST(:pid AS VARCHAR), CAST(:metadata AS VARCHAR), CAST(:fetched AS TIMESTAMP))) " +
+                "AS n (pid, metadata, fetched) ON c.pid = n.pid " +
+                "WHEN MATCHED THEN UPDATE SET metadata = n.metadata, fetched = n.fetched " +
+                "WHEN NOT MATCHED THEN INSERT (id, pid, metadata, fetched) " +
+                "VALUES (NEXT VALUE FOR hibernate_sequence, n.pid, n.metadata, n.fetched)";
+
+        entityManager.createNativeQuery(sql)
+                .setParameter("pid", pid)
+                .setParameter("metadata", metadata)
+                .setParameter("fetched", fetched, TemporalType.TIMESTAMP)
+                .executeUpdate();
+    }
+
+    /**
+     * Get the CachedRecordMetadata of the given PIDs with a single query.
+     *
+     * @param pids The PIDs.
+     * @return A map of the PIDs found with their CachedRecordMetadata.
+     */
+    public Map<String, CachedRecordMetadata> getByPids(Collection<String> pids) {
+        Map<String, CachedRecordMetadata> cached = new HashMap<>();
+        if (pids.isEmpty())
+            return cached;
+
+        CriteriaBuilder cb = getCriteriaBuilder();
+        CriteriaQuery<CachedRecordMetadata> query = cb.createQuery(CachedRecordMetadata.class);
+        Root<CachedRecordMetadata> root = query.from(CachedRecordMetadata.class);
+        query.select(root).where(root.get(CachedRecordMetadata_.pid).in(pids));
+        for (CachedRecordMetadata metadata : entityManager.createQuery(query).getResultList())
+            cached.put(metadata.getPid(), metadata);
+        return cached;
+    }
+
+    /**
+     * Remove all CachedRecordMetadata of the given PID from the database.
+     *
+     * @param pid The PID.
+     * @return The number of removed CachedRecordMetadata.
+     */
+    public int removeByPid(String pid) {
+        CriteriaBuilder cb = getCriteriaBuilder();
+        CriteriaDelete<CachedRecordMetadata> delete = cb.createCriteriaDelete(CachedRecordMetadata.class);
+        Root<CachedRecordMetadata> root = delete.from(CachedRecordMetadata.class);
+        delete.where(cb.equal(root.get(CachedRecordMetadata_.pid), pid));
+        return entityManager.createQuery(delete).executeUpdate();
+    }
+
+    /**
+     * Remove all CachedRecordMetadata fetched before the given date from the database.
+     *
+     * @param date The date.
+     * @return The number of removed CachedRecordMetadata.
+     */
+    public int removeFetchedBefore(Date date) {
+        CriteriaBuilder cb = getCriteriaBuilder();
+        CriteriaDelete<CachedRecordMetadata> delete = cb.createCriteriaDelete(CachedRecordMetadata.class);
+        Root<CachedRecordMetadata> root = delete.from(CachedRecordMetadata.class);
+        delete.where(cb.lessThan(root.get(CachedRecordMetadata_.fetched), date));
+        return entityManager.createQuery(delete).executeUpdate();
+    }
+
+    /**
+     * Get a criteria builder for querying CachedRecordMetadata.
+     *
+     * @return the CriteriaBuilder.
+     */
+    public CriteriaBuilder getCriteriaBuilder() {
+        return entityManager.getCriteriaBuilder();
+    }
+
+    /**
+     * Get a single CachedRecordMetadata matching a built query.
+     *
+     * @param query The query to match by.
+     * @return The matching CachedRecordMetadata.
+     */
+    public CachedRecordMetadata get(CriteriaQuery<CachedRecordMetadata> query) {
+        try {
+            TypedQuery<CachedRecordMetadata> q = entityManager.createQuery(query);
+            q.setMaxResults(1);
+            return q.getSingleResult();
+        }
+        catch (NoResultException ex) {
+            return null;
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package org.socialhistoryservices.delivery.record.dao;
 
 import org.socialhistoryservices.delivery.record.entity.Holding;
+import org.socialhistoryservices.delivery.record.entity.Record;
 
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -69,5 +71,17 @@ public interface HoldingDAO {
      * @return The matching Holding.
      */
     Holding get(CriteriaQuery<Holding> query);
+
+    /**
+     * Update the status of all Holdings of the records with the given parent and container with a single update.
+     * The Holdings already loaded in the persistence context are updated as well.
+     *
+     * @param parent    The parent record.
+     * @param container The container.
+     * @param excluded  The records of which the Holdings are not updated.
+     * @param status    The new status.
+     * @return The number of Holdings updated in the database.
+     */
+    int updateStatusOfContainer(Record parent, String container, Collection<Record> excluded, Holding.Status status);
 }
 
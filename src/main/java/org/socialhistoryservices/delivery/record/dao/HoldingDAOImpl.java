@@ -1,13 +1,17 @@
 package org.socialhistoryservices.delivery.record.dao;
 
-import org.socialhistoryservices.delivery.record.entity.ExternalHoldingInfo;
-import org.socialhistoryservices.delivery.record.entity.Holding;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.socialhistoryservices.delivery.record.entity.*;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.*;
-import javax.persistence.criteria.CriteriaBuilder;
-import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.*;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 /**
  * Represents the Data Access Object of the Holding data associated with a record.
@@ -118,4 +122,58 @@ public class HoldingDAOImpl implements HoldingDAO {
             return null;
         }
     }
+
+    /**
+     * Update the status of all Holdings of the records with the given parent and container with a single update.
+     * The Holdings already loaded in the persistence context are updated as well.
+     *
+     * @param parent    The parent record.
+     * @param container The container.
+     * @param excluded  The records of which the Holdings are not updated.
+     * @param status    The new status.
+     * @return The number of Holdings updated in the database.
+     */
+    public int updateStatusOfContainer(Record parent, String container, Collection<Record> excluded,
+                                       Holding.Status status) {
+        CriteriaBuilder cb = getCriteriaBuilder();
+        CriteriaUpdate<Holding> update = cb.createCriteriaUpdate(Holding.class);
+        Root<Holding> hRoot = update.from(Holding.class);
+
+        Subquery<Integer> siblings = update.subquery(Integer.class);
+        Root<Record> recRoot = siblings.from(Record.class);
+        Join<Record, ExternalRecordInfo> eriRoot = recRoot.join(Record_.externalInfo);
+
+        Predicate where = cb.and(
+                cb.equal(recRoot.get(Record_.parent), parent),
+                cb.equal(eriRoot.get(ExternalRecordInfo_.container), container)
+        );
+        if (!excluded.isEmpty()) {
+            where = cb.and(where, cb.not(recRoot.get(Record_.id).in(
+                    excluded.stream().map(Record::getId).collect(Collectors.toSet()))));
+        }
+        siblings.select(recRoot.get(Record_.id)).where(where);
+
+        update.set(hRoot.get(Holding_.status), status);
+        update.where(
+                hRoot.get(Holding_.record).get(Record_.id).in(siblings),
+                cb.notEqual(hRoot.get(Holding_.status), status)
+        );
+
+        // Hibernate flushes the pending changes to the holdings before the update is executed
+        int updated = entityManager.createQuery(update).executeUpdate();
+
+        // The bulk update bypasses the persistence context, so bring the loaded Holdings in line
+        for (Map.Entry<Object, EntityEntry> entry : entityManager.unwrap(SessionImplementor.class)
+                .getPersistenceContextInternal().reentrantSafeEntityEntries()) {
+            if (entry.getKey() instanceof Holding) {
+                Holding holding = (Holding) entry.getKey();
+                Record record = holding.getRecord();
+                if ((record != null) && (record.getParent() == parent) && !excluded.contains(record)
+                        && Objects.equals(record.getExternalInfo().getContainer(), container))
+                    holding.setStatus(status);
+            }
+        }
+
+        return updated;
+    }
 }
@@ -4,7 +4,9 @@ import org.socialhistoryservices.delivery.record.entity.Record;
 
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Interface representing the Data Access Object of the Record.
@@ -31,6 +33,14 @@ public interface RecordDAO {
      */
     void removeExternalInfo(Record obj);
 
+    /**
+     * Locks the given PID until the current transaction completes.
+     * The lock is shared by all application nodes using the same database.
+     *
+     * @param pid The PID to lock.
+     */
+    void lockPid(String pid);
+
     /**
      * Save changes to a Record in the database.
      *
@@ -70,6 +80,26 @@ public interface RecordDAO {
      */
     List<Record> listIterable(int offset, int maxResults);
 
+    /**
+     * List the PIDs of the cataloged Records of which the external info was last updated before the given date,
+     * using keyset pagination on the id.
+     *
+     * @param lastId     The id of the last Record of the previous page, or 0 for the first page.
+     * @param expiration The date before which the external info has expired.
+     * @param maxResults The max number of records to fetch.
+     * @return The PIDs of the Records by their id, ordered by id.
+     */
+    Map<Integer, String> listExpiredAfter(int lastId, Date expiration, int maxResults);
+
+    /**
+     * Count the cataloged Records of which the external info was last updated before the given date.
+     *
+     * @param lastId     Only count the Records after the Record with this id, or 0 to count all.
+     * @param expiration The date before which the external info has expired.
+     * @return The number of Records.
+     */
+    long countExpiredAfter(int lastId, Date expiration);
+
     /**
      * Get a single Record matching a built query.
      *
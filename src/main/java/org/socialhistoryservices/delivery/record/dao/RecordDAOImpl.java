@@ -3,13 +3,19 @@ package org.socialhistoryservices.delivery.record.dao;
 import org.socialhistoryservices.delivery.record.entity.ExternalRecordInfo;
 import org.socialhistoryservices.delivery.record.entity.Record;
 import org.socialhistoryservices.delivery.record.entity.Record_;
+import org.socialhistoryservices.delivery.util.TransactionLocks;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.*;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Represents the Data Access Object of a Record.
@@ -18,6 +24,9 @@ import java.util.List;
 public class RecordDAOImpl implements RecordDAO {
     private EntityManager entityManager;
 
+    @Autowired
+    private TransactionLocks transactionLocks;
+
     /**
      * Set the entity manager to use in this DAO, internal.
      *
@@ -66,6 +75,16 @@ public class RecordDAOImpl implements RecordDAO {
         }
     }
 
+    /**
+     * Locks the given PID until the current transaction completes, on all application nodes.
+     *
+     * @param pid The PID to lock.
+     */
+    public void lockPid(String pid) {
+        transactionLocks.lock("records", pid);
+    }
+
+
     /**
      * Save changes to a Record in the database.
      *
@@ -126,6 +145,68 @@ public class RecordDAOImpl implements RecordDAO {
                 .getResultList();
     }
 
+    /**
+     * List the PIDs of the cataloged Records of which the external info was last updated before the given date,
+     * using keyset pagination on the id. Only the id and PID are selected, the Records are not loaded.
+     *
+     * @param lastId     The id of the last Record of the previous page, or 0 for the first page.
+     * @param expiration The date before which the external info has expired.
+     * @param maxResults The max number of records to fetch.
+     * @return The PIDs of the Records by their id, ordered by id.
+     */
+    public Map<Integer, String> listExpiredAfter(int lastId, Date expiration, int maxResults) {
+        CriteriaBuilder cb = getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+
+        Root<Record> rRoot = query.from(Record.class);
+        query.multiselect(rRoot.get(Record_.id).alias("id"), rRoot.get(Record_.pid).alias("pid"));
+        query.where(getExpiredAfter(cb, rRoot, lastId, expiration));
+        query.orderBy(cb.asc(rRoot.get(Record_.id)));
+
+        Map<Integer, String> pids = new LinkedHashMap<>();
+        for (Tuple tuple : entityManager.createQuery(query).setMaxResults(maxResults).getResultList())
+            pids.put(tuple.get("id", Integer.class), tuple.get("pid", String.class));
+        return pids;
+    }
+
+    /**
+     * Count the cataloged Records of which the external info was last updated before the given date.
+     *
+     * @param lastId     Only count the Records after the Record with this id, or 0 to count all.
+     * @param expiration The date before which the external info has expired.
+     * @return The number of Records.
+     */
+    public long countExpiredAfter(int lastId, Date expiration) {
+        CriteriaBuilder cb = getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+
+        Root<Record> rRoot = query.from(Record.class);
+        query.select(cb.count(rRoot));
+        query.where(getExpiredAfter(cb, rRoot, lastId, expiration));
+
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    /**
+     * The restriction to the cataloged Records after the given id with expired external info.
+     *
+     * @param cb         The criteria builder.
+     * @param rRoot      The Record root.
+     * @param lastId     The id of the last Record to skip.
+     * @param expiration The date before which the external info has expired.
+     * @return The restriction.
+     */
+    private Predicate getExpiredAfter(CriteriaBuilder cb, Root<Record> rRoot, int lastId, Date expiration) {
+        return cb.and(
+                cb.greaterThan(rRoot.get(Record_.id), lastId),
+                cb.isTrue(rRoot.get(Record_.cataloged)),
+                cb.or(
+                        cb.isNull(rRoot.get(Record_.externalInfoUpdated)),
+                        cb.lessThan(rRoot.get(Record_.externalInfoUpdated), expiration)
+                )
+        );
+    }
+
     /**
      * Get a single Record matching a built query.
      *
@@ -0,0 +1,108 @@
+package org.socialhistoryservices.delivery.record.entity;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import java.util.Date;
+
+/**
+ * Represents the persisted result of a record metadata lookup in the external API.
+ * This information is cached, cannot be relied upon to be persistent.
+ */
+@Entity
+@Table(name = "cached_record_metadata",
+        uniqueConstraints = {@UniqueConstraint(columnNames = "pid", name = "cached_record_metadata_pid_key")},
+        indexes = {@Index(columnList = "fetched", name = "cached_record_metadata_fetched_idx")})
+public class CachedRecordMetadata {
+    /**
+     * The id.
+     */
+    @Id
+    @GeneratedValue
+    @Column(name = "id")
+    private int id;
+
+    /**
+     * Get the id.
+     *
+     * @return the id.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * The PID of the record.
+     */
+    @NotNull
+    @Column(name = "pid", nullable = false)
+    private String pid;
+
+    /**
+     * Get the PID of the record.
+     *
+     * @return The PID.
+     */
+    public String getPid() {
+        return pid;
+    }
+
+    /**
+     * Set the PID of the record.
+     *
+     * @param pid The PID.
+     */
+    public void setPid(String pid) {
+        this.pid = pid;
+    }
+
+    /**
+     * The serialized metadata of the record.
+     */
+    @NotNull
+    @Column(name = "metadata", nullable = false, columnDefinition = "TEXT")
+    private String metadata;
+
+    /**
+     * Get the serialized metadata of the record.
+     *
+     * @return The serialized metadata.
+     */
+    public String getMetadata() {
+        return metadata;
+    }
+
+    /**
+     * Set the serialized metadata of the record.
+     *
+     * @param metadata The serialized metadata.
+     */
+    public void setMetadata(String metadata) {
+        this.metadata = metadata;
+    }
+
+    /**
+     * The date and time the metadata was fetched from the external API.
+     */
+    @NotNull
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "fetched", nullable = false)
+    private Date fetched;
+
+    /**
+     * Get the date and time the metadata was fetched from the external API.
+     *
+     * @return The date and time of fetching.
+     */
+    public Date getFetched() {
+        return fetched;
+    }
+
+    /**
+     * Set the date and time the metadata was fetched from the external API.
+     *
+     * @param fetched The date and time of fetching.
+     */
+    public void setFetched(Date fetched) {
+        this.fetched = fetched;
+    }
+}
@@ -2,6 +2,7 @@ package org.socialhistoryservices.delivery.record.entity;
 
 import org.apache.commons.collections.functors.InstantiateFactory;
 import org.apache.commons.collections.list.LazyList;
+import org.hibernate.annotations.BatchSize;
 import org.socialhistoryservices.delivery.reproduction.util.Copies;
 import org.socialhistoryservices.delivery.reproduction.util.Pages;
 
@@ -326,6 +327,7 @@ public class Record {
      */
     @NotNull
     @OrderBy
+    @BatchSize(size = 100)
     @OneToMany(mappedBy = "record", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Holding> holdings;
 
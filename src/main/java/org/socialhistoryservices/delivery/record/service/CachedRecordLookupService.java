@@ -0,0 +1,566 @@
+package org.socialhistoryservices.delivery.record.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.socialhistoryservices.delivery.api.MetadataRecordExtractor;
+import org.socialhistoryservices.delivery.api.MetadataRecordSnapshot;
+import org.socialhistoryservices.delivery.api.NoSuchPidException;
+import org.socialhistoryservices.delivery.api.RecordLookupService;
+import org.socialhistoryservices.delivery.config.DeliveryProperties;
+import org.socialhistoryservices.delivery.record.dao.CachedRecordMetadataDAO;
+import org.socialhistoryservices.delivery.record.entity.CachedRecordMetadata;
+import org.socialhistoryservices.delivery.record.entity.CachedRecordMetadata_;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the record metadata lookups of the external API, in memory and in the database.
+ * The in-memory tier holds the most recently used lookups, the database tier all lookups.
+ * Lookups expire after the same number of days the external info of records is cached.
+ * While the external API is unavailable, expired lookups are served instead.
+ * Title searches are cached for a short while per page, and the next page of a search is fetched
+ * in the background, so that paging through the results does not wait for the external API.
+ * <p>
+ * The reads and writes of the database cache join the transaction of the caller, or run in a short transaction
+ * of their own if there is none. The record service and controllers call this service within their transaction,
+ * so they keep its database connection, and any record lock taken in it, while the external API is queried.
+ */
+@Service
+@Primary
+public class CachedRecordLookupService implements RecordLookupService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CachedRecordLookupService.class);
+
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    @Autowired
+    @Qualifier("myLookupService")
+    private RecordLookupService lookup;
+
+    @Autowired
+    private CachedRecordMetadataDAO cachedRecordMetadataDAO;
+
+    @Autowired
+    private DeliveryProperties deliveryProperties;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong databaseHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+
+    private Map<String, MemoryCacheEntry> memoryCache;
+    private Map<String, TitleSearchEntry> titleSearchCache;
+    private ThreadPoolExecutor prefetchExecutor;
+
+    /**
+     * Search for records with the specified title.
+     *
+     * @param title The title to search for.
+     * @return A map of {pid,title} key-value pairs. (Maximum size defined by implementing service).
+     */
+    @Override
+    public PageChunk getRecordsByTitle(String title, int resultCountPerChunk, int resultStart) {
+        if (title == null)
+            return lookup.getRecordsByTitle(null, resultCountPerChunk, resultStart);
+
+        PageChunk pc = getTitleSearchPage(title, resultCountPerChunk, resultStart);
+
+        // Fetch the next page while the current page is being read
+        int nextStart = resultStart + resultCountPerChunk;
+        if (nextStart <= pc.getTotalResultCount())
+            prefetchTitleSearchPage(title, resultCountPerChunk, nextStart);
+
+        return pc;
+    }
+
+    /**
+     * Maps a PID to a record metadata extractor.
+     * First the in-memory cache is consulted, then the database and only then the external API.
+     *
+     * @param pid The PID to lookup.
+     * @return The metadata extractor of the record, if found.
+     * @throws NoSuchPidException Thrown when the PID is not found.
+     */
+    @Override
+    public MetadataRecordExtractor getRecordExtractorByPid(String pid) throws NoSuchPidException {
+        Date expiration = getExpirationDate();
+
+        MemoryCacheEntry entry = getMemoryCache().get(pid);
+        if (entry != null && entry.fetched.after(expiration)) {
+            memoryHits.incrementAndGet();
+            return entry.snapshot;
+        }
+
+        CachedRecordMetadata cached = getCachedRecordMetadata(pid);
+        if (cached != null && cached.getFetched().after(expiration)) {
+            MetadataRecordSnapshot snapshot = deserialize(cached);
+            if (snapshot != null) {
+                databaseHits.incrementAndGet();
+                getMemoryCache().put(pid, new MemoryCacheEntry(snapshot, cached.getFetched()));
+                return snapshot;
+            }
+        }
+
+        if (cached != null && !lookup.isAvailable()) {
+            MetadataRecordSnapshot stale = getStaleSnapshot(cached);
+            if (stale != null)
+                return stale;
+        }
+
+        misses.incrementAndGet();
+        MetadataRecordSnapshot snapshot;
+        try {
+            snapshot = MetadataRecordSnapshot.of(lookup.getRecordExtractorByPid(pid));
+        }
+        catch (NoSuchPidException e) {
+            // The lookup may have failed because the API became unavailable
+            MetadataRecordSnapshot stale = (cached != null && !lookup.isAvailable()) ? getStaleSnapshot(cached) : null;
+            if (stale == null)
+                throw e;
+            return stale;
+        }
+        store(pid, snapshot);
+
+        LOGGER.debug(String.format("getRecordExtractorByPid(): Cache miss for %s (memory hits: %d, " +
+                "database hits: %d, misses: %d)", pid, memoryHits.get(), databaseHits.get(), misses.get()));
+
+        return snapshot;
+    }
+
+    /**
+     * Maps multiple PIDs to record metadata extractors.
+     * The PIDs not in the in-memory cache are read from the database with a single query,
+     * and the PIDs not found in either are looked up with a single batch lookup.
+     *
+     * @param pids The PIDs to lookup.
+     * @return A map of the PIDs found with their metadata extractors.
+     */
+    @Override
+    public Map<String, MetadataRecordExtractor> getRecordExtractorsByPids(Collection<String> pids) {
+        Date expiration = getExpirationDate();
+        Map<String, MetadataRecordExtractor> extractors = new HashMap<>();
+        Map<String, CachedRecordMetadata> expired = new HashMap<>();
+
+        Set<String> notInMemory = new LinkedHashSet<>();
+        for (String pid : new LinkedHashSet<>(pids)) {
+            MemoryCacheEntry entry = getMemoryCache().get(pid);
+            if (entry != null && entry.fetched.after(expiration)) {
+                memoryHits.incrementAndGet();
+                extractors.put(pid, entry.snapshot);
+            }
+            else {
+                notInMemory.add(pid);
+            }
+        }
+
+        Map<String, CachedRecordMetadata> inDatabase = notInMemory.isEmpty() ? Collections.emptyMap() :
+                transactionTemplate.execute(status -> cachedRecordMetadataDAO.getByPids(notInMemory));
+        for (String pid : notInMemory) {
+            CachedRecordMetadata cached = inDatabase.get(pid);
+            if (cached != null && cached.getFetched().after(expiration)) {
+                MetadataRecordSnapshot snapshot = deserialize(cached);
+                if (snapshot != null) {
+                    databaseHits.incrementAndGet();
+                    getMemoryCache().put(pid, new MemoryCacheEntry(snapshot, cached.getFetched()));
+                    extractors.put(pid, snapshot);
+                    continue;
+                }
+            }
+
+            if (cached != null && !lookup.isAvailable()) {
+                MetadataRecordSnapshot stale = getStaleSnapshot(cached);
+                if (stale != null) {
+                    extractors.put(pid, stale);
+                    continue;
+                }
+            }
+
+            misses.incrementAndGet();
+            expired.put(pid, cached);
+        }
+
+        if (!expired.isEmpty()) {
+            Map<String, MetadataRecordExtractor> found = lookup.getRecordExtractorsByPids(expired.keySet());
+            for (Map.Entry<String, MetadataRecordExtractor> extractor : found.entrySet()) {
+                MetadataRecordSnapshot snapshot = MetadataRecordSnapshot.of(extractor.getValue());
+                store(extractor.getKey(), snapshot);
+                extractors.put(extractor.getKey(), snapshot);
+            }
+
+            // The lookup may have failed because the API became unavailable
+            if (found.size() < expired.size() && !lookup.isAvailable()) {
+                for (Map.Entry<String, CachedRecordMetadata> cached : expired.entrySet()) {
+                    if (!found.containsKey(cached.getKey()) && cached.getValue() != null) {
+                        MetadataRecordSnapshot stale = getStaleSnapshot(cached.getValue());
+                        if (stale != null)
+                            extractors.put(cached.getKey(), stale);
+                    }
+                }
+            }
+
+            LOGGER.debug(String.format("getRecordExtractorsByPids(): Cache misses for %s, found %d " +
+                    "(memory hits: %d, database hits: %d, misses: %d)", expired.keySet(), found.size(),
+                    memoryHits.get(), databaseHits.get(), misses.get()));
+        }
+
+        return extractors;
+    }
+
+    /**
+     * Returns a page of a title search, from the cache if the page was searched for or prefetched recently.
+     * Concurrent requests for the same page share a single search.
+     *
+     * @param title               The title to search for.
+     * @param resultCountPerChunk The number of results per page.
+     * @param resultStart         The result number to start the page with.
+     * @return The page of results.
+     */
+    private PageChunk getTitleSearchPage(String title, int resultCountPerChunk, int resultStart) {
+        String key = getTitleSearchKey(title, resultCountPerChunk, resultStart);
+        Map<String, TitleSearchEntry> cache = getTitleSearchCache();
+
+        TitleSearchEntry entry;
+        boolean search = false;
+        synchronized (cache) {
+            entry = cache.get(key);
+            if (entry != null && entry.isExpired(deliveryProperties.getTitleSearchCacheTtl()) &&
+                    entry.isCompletedNormally() && !lookup.isAvailable()) {
+                // Serve the expired page while the API is unavailable, rather than failing the search
+                staleHits.incrementAndGet();
+                return entry.page.join();
+            }
+            if (entry == null || entry.isExpired(deliveryProperties.getTitleSearchCacheTtl())) {
+                entry = new TitleSearchEntry();
+                cache.put(key, entry);
+                search = true;
+            }
+        }
+
+        if (search) {
+            try {
+                PageChunk pc = lookup.getRecordsByTitle(title, resultCountPerChunk, resultStart);
+                // Do not cache searches without results, the API may have been unavailable
+                if (pc.getTotalResultCount() == 0)
+                    cache.remove(key, entry);
+                entry.page.complete(pc);
+            }
+            catch (RuntimeException e) {
+                cache.remove(key, entry);
+                entry.page.completeExceptionally(e);
+            }
+        }
+
+        try {
+            return entry.page.join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    /**
+     * Searches for a page of a title search in the background, unless the page is already cached.
+     * The prefetch is skipped if too many prefetches are waiting already.
+     *
+     * @param title               The title to search for.
+     * @param resultCountPerChunk The number of results per page.
+     * @param resultStart         The result number to start the page with.
+     */
+    private void prefetchTitleSearchPage(String title, int resultCountPerChunk, int resultStart) {
+        TitleSearchEntry entry = getTitleSearchCache().get(getTitleSearchKey(title, resultCountPerChunk, resultStart));
+        if (entry != null && !entry.isExpired(deliveryProperties.getTitleSearchCacheTtl()))
+            return;
+
+        try {
+            getPrefetchExecutor().execute(() -> {
+                try {
+                    getTitleSearchPage(title, resultCountPerChunk, resultStart);
+                }
+                catch (RuntimeException e) {
+                    LOGGER.debug(String.format("prefetchTitleSearchPage(): Could not prefetch %s from %d",
+                            title, resultStart), e);
+                }
+            });
+        }
+        catch (RejectedExecutionException e) {
+            LOGGER.debug(String.format("prefetchTitleSearchPage(): Prefetch queue is full, skipping %s from %d",
+                    title, resultStart));
+        }
+    }
+
+    /**
+     * Stops prefetching title searches.
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (prefetchExecutor != null)
+            prefetchExecutor.shutdownNow();
+    }
+
+    /**
+     * Discards any cached lookup result for the given PID, so that the next lookup queries the API again.
+     *
+     * @param pid The PID.
+     */
+    @Override
+    public void invalidate(String pid) {
+        getMemoryCache().remove(pid);
+        transactionTemplate.execute(status -> cachedRecordMetadataDAO.removeByPid(pid));
+        lookup.invalidate(pid);
+    }
+
+    /**
+     * Whether the external API is currently available.
+     *
+     * @return True if the external API is available.
+     */
+    @Override
+    public boolean isAvailable() {
+        return lookup.isAvailable();
+    }
+
+    /**
+     * Returns the number of lookups served from the in-memory cache.
+     *
+     * @return The number of in-memory cache hits.
+     */
+    public long getMemoryHits() {
+        return memoryHits.get();
+    }
+
+    /**
+     * Returns the number of lookups served from the database cache.
+     *
+     * @return The number of database cache hits.
+     */
+    public long getDatabaseHits() {
+        return databaseHits.get();
+    }
+
+    /**
+     * Returns the number of lookups that had to query the external API.
+     *
+     * @return The number of cache misses.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of expired lookups served while the external API was unavailable.
+     *
+     * @return The number of stale cache hits.
+     */
+    public long getStaleHits() {
+        return staleHits.get();
+    }
+
+    /**
+     * Scheduled task to remove all expired lookups from the database cache.
+     */
+    @Scheduled(cron = "0 30 0 * * *")
+    public void removeExpiredLookups() {
+        LOGGER.info("Start run: remove expired record metadata lookups");
+        Integer removed = transactionTemplate.execute(status ->
+                cachedRecordMetadataDAO.removeFetchedBefore(getExpirationDate()));
+        LOGGER.info(String.format("Finish run: removed %d expired record metadata lookups", removed));
+    }
+
+    /**
+     * Stores the snapshot of a lookup in both the database and the in-memory cache.
+     *
+     * A lookup stored concurrently by another thread or application node is replaced.
+     *
+     * @param pid      The PID.
+     * @param snapshot The snapshot of the lookup.
+     */
+    private void store(String pid, MetadataRecordSnapshot snapshot) {
+        try {
+            String metadata = objectMapper.writeValueAsString(snapshot);
+            Date fetched = new Date();
+            transactionTemplate.executeWithoutResult(status -> cachedRecordMetadataDAO.put(pid, metadata, fetched));
+            getMemoryCache().put(pid, new MemoryCacheEntry(snapshot, fetched));
+        }
+        catch (JsonProcessingException e) {
+            LOGGER.warn(String.format("store(): Could not serialize the metadata of %s", pid), e);
+        }
+    }
+
+    /**
+     * Deserializes the snapshot of a cached lookup.
+     *
+     * @param cached The cached lookup.
+     * @return The snapshot, or null if it could not be deserialized.
+     */
+    private MetadataRecordSnapshot deserialize(CachedRecordMetadata cached) {
+        try {
+            return objectMapper.readValue(cached.getMetadata(), MetadataRecordSnapshot.class);
+        }
+        catch (JsonProcessingException e) {
+            LOGGER.warn(String.format("deserialize(): Could not deserialize the metadata of %s",
+                    cached.getPid()), e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the snapshot of an expired lookup, to serve while the external API is unavailable.
+     *
+     * @param cached The expired lookup.
+     * @return The snapshot, or null if it could not be deserialized.
+     */
+    private MetadataRecordSnapshot getStaleSnapshot(CachedRecordMetadata cached) {
+        MetadataRecordSnapshot snapshot = deserialize(cached);
+        if (snapshot != null) {
+            staleHits.incrementAndGet();
+            LOGGER.debug(String.format("getStaleSnapshot(): API unavailable, serving the expired lookup of %s",
+                    cached.getPid()));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns the cached lookup of the given PID from the database.
+     *
+     * @param pid The PID.
+     * @return The cached lookup, if found.
+     */
+    private CachedRecordMetadata getCachedRecordMetadata(String pid) {
+        CriteriaBuilder builder = cachedRecordMetadataDAO.getCriteriaBuilder();
+        CriteriaQuery<CachedRecordMetadata> query = builder.createQuery(CachedRecordMetadata.class);
+        Root<CachedRecordMetadata> root = query.from(CachedRecordMetadata.class);
+        query.select(root);
+        query.where(builder.equal(root.get(CachedRecordMetadata_.pid), pid));
+        return transactionTemplate.execute(status -> cachedRecordMetadataDAO.get(query));
+    }
+
+    /**
+     * Returns the date before which cached lookups are expired.
+     *
+     * @return The expiration date.
+     */
+    private Date getExpirationDate() {
+        Calendar calendar = GregorianCalendar.getInstance();
+        calendar.add(Calendar.DAY_OF_YEAR, -deliveryProperties.getExternalInfoMinDaysCache());
+        return calendar.getTime();
+    }
+
+    /**
+     * Returns the in-memory cache, a map limited in size which evicts the least recently used lookups.
+     *
+     * @return The in-memory cache.
+     */
+    private synchronized Map<String, MemoryCacheEntry> getMemoryCache() {
+        if (memoryCache == null) {
+            final int maxSize = deliveryProperties.getRecordLookupCacheSize();
+            memoryCache = Collections.synchronizedMap(new LinkedHashMap<String, MemoryCacheEntry>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, MemoryCacheEntry> eldest) {
+                    return size() > maxSize;
+                }
+            });
+        }
+        return memoryCache;
+    }
+
+    /**
+     * Returns the cache key of a page of a title search; titles differing only in case or whitespace share a key.
+     *
+     * @param title               The title to search for.
+     * @param resultCountPerChunk The number of results per page.
+     * @param resultStart         The result number to start the page with.
+     * @return The cache key.
+     */
+    private static String getTitleSearchKey(String title, int resultCountPerChunk, int resultStart) {
+        String normalized = title.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        return resultCountPerChunk + ":" + resultStart + ":" + normalized;
+    }
+
+    /**
+     * Returns the cache of title searches, a map limited in size which evicts the least recently used pages.
+     *
+     * @return The cache of title searches.
+     */
+    private synchronized Map<String, TitleSearchEntry> getTitleSearchCache() {
+        if (titleSearchCache == null) {
+            final int maxSize = deliveryProperties.getTitleSearchCacheSize();
+            titleSearchCache = Collections.synchronizedMap(
+                    new LinkedHashMap<String, TitleSearchEntry>(16, 0.75f, true) {
+                        @Override
+                        protected boolean removeEldestEntry(Map.Entry<String, TitleSearchEntry> eldest) {
+                            return size() > maxSize;
+                        }
+                    });
+        }
+        return titleSearchCache;
+    }
+
+    /**
+     * Returns the executor prefetching title searches, a single thread with a small queue.
+     *
+     * @return The executor.
+     */
+    private synchronized ThreadPoolExecutor getPrefetchExecutor() {
+        if (prefetchExecutor == null) {
+            final AtomicInteger count = new AtomicInteger();
+            prefetchExecutor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(10), runnable -> {
+                Thread thread = new Thread(runnable, "title-search-prefetcher-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            prefetchExecutor.allowCoreThreadTimeOut(true);
+        }
+        return prefetchExecutor;
+    }
+
+    /**
+     * A page of a title search in the cache; the page is completed once the search finishes.
+     */
+    private static class TitleSearchEntry {
+        private final CompletableFuture<PageChunk> page = new CompletableFuture<>();
+        private final long created = System.currentTimeMillis();
+
+        private boolean isExpired(int ttl) {
+            return (System.currentTimeMillis() - created) >= ttl * 1000L;
+        }
+
+        private boolean isCompletedNormally() {
+            return page.isDone() && !page.isCompletedExceptionally();
+        }
+    }
+
+    /**
+     * A lookup in the in-memory cache.
+     */
+    private static class MemoryCacheEntry {
+        private final MetadataRecordSnapshot snapshot;
+        private final Date fetched;
+
+        private MemoryCacheEntry(MetadataRecordSnapshot snapshot, Date fetched) {
+            this.snapshot = snapshot;
+            this.fetched = fetched;
+        }
+    }
+}
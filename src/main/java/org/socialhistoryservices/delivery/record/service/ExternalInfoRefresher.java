@@ -0,0 +1,100 @@
+package org.socialhistoryservices.delivery.record.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.socialhistoryservices.delivery.config.DeliveryProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Refreshes the external info of records in the background, so that requests for records with expired
+ * external info can be served from the database immediately.
+ * Only one refresh per PID is queued or running at a time; refreshes that do not fit in the queue are dropped
+ * and will be scheduled again by the next request for the record.
+ */
+@Service
+public class ExternalInfoRefresher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExternalInfoRefresher.class);
+
+    @Autowired
+    private RecordService records;
+
+    @Autowired
+    private DeliveryProperties deliveryProperties;
+
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    private ThreadPoolExecutor executor;
+
+    /**
+     * Schedules a refresh of the external info of the record with the given PID,
+     * unless a refresh of this record is already pending.
+     *
+     * @param pid The PID of the record.
+     */
+    public void refresh(String pid) {
+        if (!pending.add(pid))
+            return;
+
+        try {
+            getExecutor().execute(() -> {
+                try {
+                    records.refreshRecordByPid(pid);
+                }
+                catch (Exception e) {
+                    LOGGER.warn(String.format("refresh(): Could not refresh the external info of %s", pid), e);
+                }
+                finally {
+                    pending.remove(pid);
+                }
+            });
+        }
+        catch (RejectedExecutionException e) {
+            pending.remove(pid);
+            LOGGER.debug(String.format("refresh(): Refresh queue is full, skipping the refresh of %s", pid));
+        }
+    }
+
+    /**
+     * Returns the number of refreshes queued or running.
+     *
+     * @return The number of pending refreshes.
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Stops refreshing records; refreshes still in the queue are dropped.
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (executor != null)
+            executor.shutdownNow();
+    }
+
+    /**
+     * Returns the executor, a bounded thread pool with a bounded queue.
+     *
+     * @return The executor.
+     */
+    private synchronized ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            final AtomicInteger count = new AtomicInteger();
+            int threads = deliveryProperties.getExternalInfoRefreshThreads();
+            executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(deliveryProperties.getExternalInfoRefreshQueueSize()), runnable -> {
+                Thread thread = new Thread(runnable, "external-info-refresher-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+}
@@ -0,0 +1,312 @@
+package org.socialhistoryservices.delivery.record.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.socialhistoryservices.delivery.config.DeliveryProperties;
+import org.socialhistoryservices.delivery.job.entity.JobState;
+import org.socialhistoryservices.delivery.job.service.JobStateService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Refreshes the expired external info of all cataloged records, so that the catalogue stays fresh
+ * without refreshing records on the request path.
+ * The records are walked by id; each page is read and each record is refreshed in its own transaction.
+ * A run that exceeds its maximum duration stops, and the next run resumes after the last refreshed record.
+ * The position is saved once all refreshes of a page have finished and the run is leased, so that only one node
+ * runs the job
+ * and a run that failed halfway is resumed by the next run on any node.
+ * A run takes hours, so it runs on a thread of its own instead of the thread shared by all scheduled tasks.
+ */
+@Service
+public class RecordRefreshJob {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RecordRefreshJob.class);
+
+    /**
+     * The name of the job in the job states.
+     */
+    public static final String JOB_NAME = "record_refresh";
+
+    // The lease outlasts the maximum duration of a run, which also waits for the last refreshes to finish
+    private static final int LEASE_MARGIN_MINUTES = 5;
+
+    @Autowired
+    private RecordService records;
+
+    @Autowired
+    private JobStateService jobStates;
+
+    @Autowired
+    private DeliveryProperties deliveryProperties;
+
+    private final AtomicLong refreshed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong runRefreshed = new AtomicLong();
+
+    private ThreadPoolExecutor runExecutor;
+
+    private volatile int lastId;
+    private volatile boolean running;
+    private volatile Date runStarted;
+    private volatile Date runFinished;
+
+    /**
+     * Scheduled task to refresh the expired external info of all cataloged records.
+     * Starts the run in the background and returns, so the other scheduled tasks keep running.
+     */
+    @Scheduled(cron = "0 0 2 * * *")
+    public void refreshExpiredRecords() {
+        if (!deliveryProperties.isRecordRefreshEnabled())
+            return;
+
+        synchronized (this) {
+            if (running)
+                return;
+            running = true;
+        }
+
+        try {
+            getRunExecutor().execute(this::run);
+        }
+        catch (RejectedExecutionException e) {
+            running = false;
+            LOGGER.warn("refreshExpiredRecords(): Could not start the run", e);
+        }
+    }
+
+    /**
+     * Stops the current run.
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (runExecutor != null)
+            runExecutor.shutdownNow();
+    }
+
+    /**
+     * Lease the job and refresh the expired external info, unless another node is running the job.
+     */
+    private void run() {
+        try {
+            JobState jobState = jobStates.startRun(JOB_NAME,
+                    deliveryProperties.getRecordRefreshMaxMinutes() + LEASE_MARGIN_MINUTES);
+            if (jobState == null) {
+                LOGGER.info("Skip run: the external record info is refreshed by another node");
+                return;
+            }
+
+            lastId = jobState.getPosition();
+            refresh();
+        }
+        finally {
+            running = false;
+        }
+    }
+
+    /**
+     * Refresh the expired external info of the records after the last refreshed record,
+     * until all are refreshed or the maximum duration of a run is exceeded.
+     */
+    private void refresh() {
+        LOGGER.info(String.format("Start run: refresh expired external record info after record %d", lastId));
+        runStarted = new Date();
+        runFinished = null;
+        runRefreshed.set(0);
+
+        int concurrency = Math.max(1, deliveryProperties.getRecordRefreshConcurrency());
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        Semaphore permits = new Semaphore(concurrency);
+
+        long interval = 1000L / Math.max(1, deliveryProperties.getRecordRefreshRate());
+        long deadline = runStarted.getTime() + deliveryProperties.getRecordRefreshMaxMinutes() * 60000L;
+
+        try {
+            Map<Integer, String> page = records.listExpiredAfter(lastId, deliveryProperties.getRecordRefreshPageSize());
+            while (!page.isEmpty() && System.currentTimeMillis() < deadline) {
+                int pageLastId = lastId;
+                for (Map.Entry<Integer, String> record : page.entrySet()) {
+                    // Limit the number of refreshes running at the same time and the number of refreshes per second
+                    permits.acquire();
+                    Thread.sleep(interval);
+
+                    String pid = record.getValue();
+                    executor.execute(() -> {
+                        try {
+                            records.refreshRecordByPid(pid);
+                            refreshed.incrementAndGet();
+                            runRefreshed.incrementAndGet();
+                        }
+                        catch (Exception e) {
+                            failed.incrementAndGet();
+                            LOGGER.warn(String.format("refreshExpiredRecords(): Could not refresh %s", pid), e);
+                        }
+                        finally {
+                            permits.release();
+                        }
+                    });
+
+                    pageLastId = record.getKey();
+                }
+
+                // Wait for the refreshes of the page to finish, so the records still being refreshed by this node
+                // are not skipped when it stops or loses the lease before they are done
+                permits.acquire(concurrency);
+                permits.release(concurrency);
+
+                lastId = pageLastId;
+                jobStates.savePosition(JOB_NAME, lastId);
+                LOGGER.debug(String.format("refreshExpiredRecords(): Refreshed up to record %d " +
+                        "(refreshed: %d, failed: %d, %.2f records/s)", lastId, refreshed.get(), failed.get(),
+                        getThroughput()));
+                page = records.listExpiredAfter(lastId, deliveryProperties.getRecordRefreshPageSize());
+            }
+
+            // Start from the beginning again next time, unless this run stopped halfway
+            if (page.isEmpty())
+                lastId = 0;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            runFinished = new Date();
+            try {
+                jobStates.finishRun(JOB_NAME, lastId);
+            }
+            catch (RuntimeException e) {
+                LOGGER.error("refreshExpiredRecords(): Could not save the position of the run", e);
+            }
+            LOGGER.info(String.format("Finish run: refreshed %d records with expired external info " +
+                    "(%.2f records/s), resume after record %d", runRefreshed.get(), getThroughput(), lastId));
+        }
+    }
+
+    /**
+     * Returns the executor of the runs, which has a single thread that only exists during a run.
+     *
+     * @return The executor.
+     */
+    private synchronized ThreadPoolExecutor getRunExecutor() {
+        if (runExecutor == null) {
+            runExecutor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "record-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+            runExecutor.allowCoreThreadTimeOut(true);
+        }
+        return runExecutor;
+    }
+
+    /**
+     * Returns the total number of records refreshed by this job.
+     *
+     * @return The number of refreshed records.
+     */
+    public long getRefreshed() {
+        return refreshed.get();
+    }
+
+    /**
+     * Returns the number of records refreshed by the current or last run on this node.
+     *
+     * @return The number of refreshed records.
+     */
+    public long getRunRefreshed() {
+        return runRefreshed.get();
+    }
+
+    /**
+     * Returns the total number of records this job failed to refresh.
+     *
+     * @return The number of failed refreshes.
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Returns the id of the last record of which the refresh finished; the next page starts after this record.
+     *
+     * @return The id of the last record, or 0 if the next run starts from the beginning.
+     */
+    public int getLastId() {
+        return lastId;
+    }
+
+    /**
+     * Returns the number of records with expired external info that are left to refresh in the current pass
+     * over the records, which may take multiple runs.
+     *
+     * @return The number of records left to refresh.
+     */
+    public long getRemaining() {
+        JobState jobState = jobStates.getJobState(JOB_NAME);
+        return records.countExpiredAfter((jobState != null) ? jobState.getPosition() : 0);
+    }
+
+    /**
+     * Returns the persisted state of the job, shared by all nodes.
+     *
+     * @return The state of the job, or null if the job never ran.
+     */
+    public JobState getJobState() {
+        return jobStates.getJobState(JOB_NAME);
+    }
+
+    /**
+     * Whether the job is currently running on this node.
+     *
+     * @return True if the job is running.
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Returns when the current or last run started.
+     *
+     * @return The start of the run, or null if the job has not run yet.
+     */
+    public Date getRunStarted() {
+        return runStarted;
+    }
+
+    /**
+     * Returns when the last run finished.
+     *
+     * @return The end of the last run, or null if the job is running or has not run yet.
+     */
+    public Date getRunFinished() {
+        return runFinished;
+    }
+
+    /**
+     * Returns the number of records refreshed per second during the current or last run.
+     *
+     * @return The throughput of the run.
+     */
+    public double getThroughput() {
+        if (runStarted == null)
+            return 0;
+
+        long end = (runFinished != null) ? runFinished.getTime() : System.currentTimeMillis();
+        long seconds = Math.max(1, (end - runStarted.getTime()) / 1000);
+        return (double) runRefreshed.get() / seconds;
+    }
+}
@@ -7,7 +7,9 @@ import org.springframework.validation.BindingResult;
 
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Interface representing the service of the Record package.
@@ -59,6 +61,8 @@ public interface RecordService {
 
     /**
      * Retrieve the Record matching the given pid and create if it does not exists.
+     * If the external info of an existing Record has expired, the Record is returned as is
+     * while its external info is refreshed in the background.
      *
      * @param pid Pid of the Record to retrieve.
      * @return The Record matching the pid. Null if none exist.
@@ -66,6 +70,22 @@ public interface RecordService {
      */
     Record getRecordByPidAndCreate(String pid) throws NoSuchPidException;
 
+    /**
+     * Refresh the external info of the Record matching the given pid, if it has expired.
+     *
+     * @param pid Pid of the Record to refresh.
+     */
+    void refreshRecordByPid(String pid);
+
+    /**
+     * Looks up the external info of all given PIDs that have to be created or refreshed with a batch lookup.
+     * The lookups are cached, so a following getRecordByPidAndCreate for these PIDs does not query the API again.
+     * These records are locked until the current transaction completes.
+     *
+     * @param pids The PIDs of the Records to retrieve next.
+     */
+    void prefetchRecordsByPid(Collection<String> pids);
+
     /**
      * Get a criteria builder for querying Records.
      *
@@ -90,6 +110,23 @@ public interface RecordService {
      */
     List<Record> listIterable(int offset, int maxResults);
 
+    /**
+     * List the PIDs of the cataloged Records with expired external info, using keyset pagination on the id.
+     *
+     * @param lastId     The id of the last Record of the previous page, or 0 for the first page.
+     * @param maxResults The max number of records to fetch.
+     * @return The PIDs of the Records by their id, ordered by id.
+     */
+    Map<Integer, String> listExpiredAfter(int lastId, int maxResults);
+
+    /**
+     * Count the cataloged Records with expired external info.
+     *
+     * @param lastId Only count the Records after the Record with this id, or 0 to count all.
+     * @return The number of Records.
+     */
+    long countExpiredAfter(int lastId);
+
     /**
      * Get a single Record matching a built query.
      *
@@ -129,6 +166,14 @@ public interface RecordService {
      */
     void updateHoldingStatus(Holding holding, Holding.Status status);
 
+    /**
+     * Updates the status of the given holdings and of the holdings of their siblings in the same container.
+     *
+     * @param holdings The holdings.
+     * @param status   The new status.
+     */
+    void updateHoldingStatus(Collection<Holding> holdings, Holding.Status status);
+
     /**
      * Edit records.
      *
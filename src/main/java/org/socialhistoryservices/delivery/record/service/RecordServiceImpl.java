@@ -37,6 +37,9 @@ public class RecordServiceImpl implements RecordService {
     @Autowired
     private RecordLookupService lookup;
 
+    @Autowired
+    private ExternalInfoRefresher externalInfoRefresher;
+
     /**
      * Add a Record to the database.
      *
@@ -103,6 +106,8 @@ public class RecordServiceImpl implements RecordService {
 
     /**
      * Retrieve the Record matching the given pid and create if it does not exists.
+     * If the external info of an existing Record has expired, the Record is returned as is
+     * while its external info is refreshed in the background.
      *
      * @param pid Pid of the Record to retrieve.
      * @return The Record matching the pid. Null if none exist.
@@ -110,17 +115,129 @@ public class RecordServiceImpl implements RecordService {
      */
     public Record getRecordByPidAndCreate(String pid) throws NoSuchPidException {
         Record record = getRecordByPid(pid);
+        if (record == null) {
+            // Another request, possibly on another node, may be creating the same records
+            lockRecordsByPid(Collections.singleton(pid));
+            record = getRecordByPid(pid);
+        }
+
         if (record == null) {
             record = createRecordByPid(pid);
             addRecord(record);
             return record;
         }
 
-        if (record.isCataloged() && updateExternalInfo(record, false)) {
+        if (record.isCataloged() && isRefreshRequired(record))
+            externalInfoRefresher.refresh(pid);
+
+        return record;
+    }
+
+    /**
+     * Refresh the external info of the Record matching the given pid, if it has expired.
+     *
+     * @param pid Pid of the Record to refresh.
+     */
+    public void refreshRecordByPid(String pid) {
+        lockRecordsByPid(Collections.singleton(pid));
+
+        Record record = getRecordByPid(pid);
+        if (record != null && record.isCataloged() && updateExternalInfo(record, false)) {
             saveRecord(record);
         }
+    }
 
-        return record;
+    /**
+     * Looks up the external info of all given PIDs that have to be created or refreshed with a batch lookup.
+     * The lookups are cached, so a following getRecordByPidAndCreate for these PIDs does not query the API again.
+     * These records are locked until the current transaction completes.
+     *
+     * @param pids The PIDs of the Records to retrieve next.
+     */
+    public void prefetchRecordsByPid(Collection<String> pids) {
+        Set<String> lookupPids = new LinkedHashSet<>();
+        String itemSeparator = deliveryProperties.getItemSeparator();
+        for (String pid : pids) {
+            // Existing records with expired external info are refreshed in the background
+            if (getRecordByPid(pid) != null)
+                continue;
+
+            lookupPids.add(pid);
+            if (pid.contains(itemSeparator)) {
+                String parentPid = pid.substring(0, pid.indexOf(itemSeparator));
+                if (needsLookup(parentPid))
+                    lookupPids.add(parentPid);
+            }
+        }
+
+        // Lock all records at once, rather than one by one in the order requested, to prevent deadlocks
+        lockRecordsByPid(lookupPids);
+
+        if (lookupPids.size() > 1)
+            lookup.getRecordExtractorsByPids(lookupPids);
+    }
+
+    /**
+     * Locks the Records with the given pids until the current transaction completes,
+     * so that concurrent requests (possibly on other nodes) do not create the same Records twice.
+     * Items are locked by their parent pid, as the creation of an item also creates its parent and siblings.
+     *
+     * @param pids The pids of the Records to lock.
+     */
+    private void lockRecordsByPid(Collection<String> pids) {
+        // Always lock in the same order, to prevent deadlocks between requests for multiple records
+        SortedSet<String> keys = new TreeSet<>();
+        String itemSeparator = deliveryProperties.getItemSeparator();
+        for (String pid : pids)
+            keys.add(pid.contains(itemSeparator) ? pid.substring(0, pid.indexOf(itemSeparator)) : pid);
+
+        for (String key : keys)
+            recordDAO.lockPid(key);
+    }
+
+    /**
+     * Whether the external info of the given record, or of its parent, has to be refreshed.
+     *
+     * @param record The record.
+     * @return True if the external info of the record or its parent has expired.
+     */
+    private boolean isRefreshRequired(Record record) {
+        return isExternalInfoExpired(record) ||
+                ((record.getParent() != null) && isExternalInfoExpired(record.getParent()));
+    }
+
+    /**
+     * Whether a lookup is required to retrieve the parent Record with the given pid when creating an item.
+     *
+     * @param pid Pid of the parent Record.
+     * @return True if the Record does not exist yet or when its external info has expired.
+     */
+    private boolean needsLookup(String pid) {
+        Record record = getRecordByPid(pid);
+        return (record == null) || isExternalInfoExpired(record);
+    }
+
+    /**
+     * Whether the external info of the given record has expired.
+     *
+     * @param record The record.
+     * @return True if the external info has to be updated.
+     */
+    private boolean isExternalInfoExpired(Record record) {
+        Date lastUpdated = record.getExternalInfoUpdated();
+        return (lastUpdated == null) || !lastUpdated.after(getExpirationDate());
+    }
+
+    /**
+     * Returns the date on or before which the external info of records has expired.
+     *
+     * @return The expiration date.
+     */
+    private Date getExpirationDate() {
+        int days = deliveryProperties.getExternalInfoMinDaysCache();
+        Calendar calendar = GregorianCalendar.getInstance();
+        calendar.add(Calendar.DAY_OF_YEAR, -days);
+        return calendar.getTime();
     }
 
     /**
@@ -153,6 +270,27 @@ public class RecordServiceImpl implements RecordService {
         return recordDAO.listIterable(offset, maxResults);
     }
 
+    /**
+     * List the PIDs of the cataloged Records with expired external info, using keyset pagination on the id.
+     *
+     * @param lastId     The id of the last Record of the previous page, or 0 for the first page.
+     * @param maxResults The max number of records to fetch.
+     * @return The PIDs of the Records by their id, ordered by id.
+     */
+    public Map<Integer, String> listExpiredAfter(int lastId, int maxResults) {
+        return recordDAO.listExpiredAfter(lastId, getExpirationDate(), maxResults);
+    }
+
+    /**
+     * Count the cataloged Records with expired external info.
+     *
+     * @param lastId Only count the Records after the Record with this id, or 0 to count all.
+     * @return The number of Records.
+     */
+    public long countExpiredAfter(int lastId) {
+        return recordDAO.countExpiredAfter(lastId, getExpirationDate());
+    }
+
     /**
      * Get a single Record matching a built query.
      *
@@ -199,14 +337,35 @@ public class RecordServiceImpl implements RecordService {
      * @param status  The new status.
      */
     public void updateHoldingStatus(Holding holding, Holding.Status status) {
-        holding.setStatus(status);
+        updateHoldingStatus(Collections.singletonList(holding), status);
+    }
 
-        List<Record> siblings = getSiblings(holding.getRecord(), true);
-        for (Record sibling : siblings) {
-            for (Holding siblingHolding : sibling.getHoldings()) {
-                siblingHolding.setStatus(status);
+    /**
+     * Updates the status of the given holdings and of the holdings of their siblings in the same container.
+     * The holdings in each container are updated with a single update, instead of loading all siblings.
+     *
+     * @param holdings The holdings.
+     * @param status   The new status.
+     */
+    public void updateHoldingStatus(Collection<Holding> holdings, Holding.Status status) {
+        Map<Record, Map<String, Set<Record>>> containers = new HashMap<>();
+        for (Holding holding : holdings) {
+            holding.setStatus(status);
+
+            Record record = holding.getRecord();
+            String container = record.getExternalInfo().getContainer();
+            if ((record.getParent() != null) && (container != null)) {
+                containers.computeIfAbsent(record.getParent(), parent -> new HashMap<>())
+                        .computeIfAbsent(container, c -> new HashSet<>())
+                        .add(record);
             }
         }
+
+        containers.forEach((parent, recordsByContainer) -> recordsByContainer.forEach((container, records) -> {
+            // The other holdings of a record are only updated as a sibling of another record in the container
+            Set<Record> excluded = (records.size() == 1) ? records : Collections.emptySet();
+            holdingDAO.updateStatusOfContainer(parent, container, excluded, status);
+        }));
     }
 
     /**
@@ -221,6 +380,7 @@ public class RecordServiceImpl implements RecordService {
      */
     public void createOrEdit(Record newRecord, Record oldRecord, BindingResult result) throws NoSuchParentException {
         String pid = newRecord.getPid();
+        lockRecordsByPid(Collections.singleton(pid));
 
         String itemSeparator = deliveryProperties.getItemSeparator();
         if (pid.contains(itemSeparator)) {
@@ -284,16 +444,13 @@ public class RecordServiceImpl implements RecordService {
     public boolean updateExternalInfo(Record record, boolean hardRefresh) {
         try {
             // Do we need to update the external info?
-            int days = deliveryProperties.getExternalInfoMinDaysCache();
-            Calendar calendar = GregorianCalendar.getInstance();
-            calendar.add(Calendar.DAY_OF_YEAR, -days);
-
-            Date lastUpdated = record.getExternalInfoUpdated();
-            if (!hardRefresh && (lastUpdated != null) && lastUpdated.after(calendar.getTime()))
+            if (!hardRefresh && !isExternalInfoExpired(record))
                 return (record.getParent() != null) && updateExternalInfo(record.getParent(), false);
 
             // We need to update the external info
             String pid = record.getPid();
+            if (hardRefresh)
+                lookup.invalidate(pid);
             MetadataRecordExtractor recordExtractor = lookup.getRecordExtractorByPid(pid);
 
             updateRecord(record, recordExtractor);
@@ -349,7 +506,7 @@ public class RecordServiceImpl implements RecordService {
      * @param siblingExtractors The metadata extractors for the sibling records.
      */
     private void createOrUpdateSiblings(Record r, Set<MetadataRecordExtractor> siblingExtractors) {
-        List<Record> siblings = getSiblings(r, false);
+        List<Record> siblings = getSiblings(r);
         for (MetadataRecordExtractor siblingExtractor : siblingExtractors) {
             Optional<Record> record = siblings.stream()
                     .filter(sr -> sr.getPid().equals(siblingExtractor.getPid())).findFirst();
@@ -481,30 +638,20 @@ public class RecordServiceImpl implements RecordService {
     }
 
     /*
-     * Get all sibling records (with the same container).
+     * Get all sibling records.
      *
      * @param record The record.
-     * @param sameContainer If the sibling records should have the same container.
-     * @return A list of all sibling records (with the same container).
+     * @return A list of all sibling records.
      */
-    private List<Record> getSiblings(Record record, boolean sameContainer) {
+    private List<Record> getSiblings(Record record) {
         CriteriaBuilder builder = getRecordCriteriaBuilder();
         CriteriaQuery<Record> query = builder.createQuery(Record.class);
         Root<Record> recRoot = query.from(Record.class);
-        Join<Record, ExternalRecordInfo> eriRoot = recRoot.join(Record_.externalInfo);
-
-        Predicate where = sameContainer ?
-                builder.and(
-                        builder.equal(recRoot.get(Record_.parent), record.getParent()),
-                        builder.isNotNull(eriRoot.get(ExternalRecordInfo_.container)),
-                        builder.equal(eriRoot.get(ExternalRecordInfo_.container),
-                                record.getExternalInfo().getContainer()),
-                        builder.notEqual(recRoot.get(Record_.id), record.getId())
-                ) :
-                builder.and(
-                        builder.equal(recRoot.get(Record_.parent), record.getParent()),
-                        builder.notEqual(recRoot.get(Record_.id), record.getId())
-                );
+
+        Predicate where = builder.and(
+                builder.equal(recRoot.get(Record_.parent), record.getParent()),
+                builder.notEqual(recRoot.get(Record_.id), record.getId())
+        );
 
         query.select(recRoot);
         query.where(where);
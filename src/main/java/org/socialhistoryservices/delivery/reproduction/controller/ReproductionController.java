@@ -204,15 +204,24 @@ public class ReproductionController extends AbstractRequestController {
 
         ReproductionSearch search = new ReproductionSearch(cb, p);
         CriteriaQuery<HoldingReproduction> cq = search.list();
-        CriteriaQuery<Long> cqCount = search.count();
 
-        // Fetch result set
+        // Fetch result set, with a cursor the list already starts after the previous page
+        int maxResults = getMaxResults(p);
         List<HoldingReproduction> holdingReproductions =
-                reproductions.listHoldingReproductions(cq, getFirstResult(p), getMaxResults(p));
+                reproductions.listHoldingReproductions(cq, search.hasCursor() ? 0 : getFirstResult(p), maxResults);
         model.addAttribute("holdingReproductions", holdingReproductions);
 
-        long holdingReproductionsSize = reproductions.countHoldingReproductions(cqCount);
-        model.addAttribute("holdingReproductionsSize", holdingReproductionsSize);
+        if (!holdingReproductions.isEmpty() && (holdingReproductions.size() == maxResults))
+            model.addAttribute("nextPageCursor", search.getCursor(holdingReproductions.get(maxResults - 1)));
+
+        // Only count the results up to a limit, if there is one
+        int countLimit = getCountLimit(p);
+        long holdingReproductionsSize = (countLimit > 0)
+                ? reproductions.countHoldingReproductions(search.countLimited(), countLimit + 1)
+                : reproductions.countHoldingReproductions(search.count());
+        boolean holdingReproductionsSizeCapped = (countLimit > 0) && (holdingReproductionsSize > countLimit);
+        model.addAttribute("holdingReproductionsSize", holdingReproductionsSizeCapped ? countLimit : holdingReproductionsSize);
+        model.addAttribute("holdingReproductionsSizeCapped", holdingReproductionsSizeCapped);
 
         // Fetch holding active request information
         Set<Holding> holdings = getHoldings(holdingReproductions);
@@ -530,6 +539,13 @@ public class ReproductionController extends AbstractRequestController {
                 new HashMap<>();
         List<ReproductionStandardOption> standardOptions = reproductions.getAllReproductionStandardOptions();
 
+        List<Holding> holdingsToLookup = new ArrayList<>();
+        for (Holding holding : holdings) {
+            if (!holding.allowOnlyCustomReproduction())
+                holdingsToLookup.add(holding);
+        }
+        reproductions.prefetchSorMetadata(holdingsToLookup);
+
         for (Holding holding : holdings) {
             List<ReproductionStandardOption> standardOptionsForHolding = new ArrayList<>();
             if (!holding.allowOnlyCustomReproduction()) {
@@ -561,6 +577,13 @@ public class ReproductionController extends AbstractRequestController {
         Map<String, List<ReproductionStandardOption>> unavailableStandardOptions =
                 new HashMap<>();
 
+        List<Holding> holdingsToLookup = new ArrayList<>();
+        for (Holding holding : holdings) {
+            if (holding.getStatus() != Holding.Status.AVAILABLE)
+                holdingsToLookup.add(holding);
+        }
+        reproductions.prefetchSorMetadata(holdingsToLookup);
+
         for (Holding holding : holdings) {
             List<ReproductionStandardOption> unavailableForHolding = new ArrayList<>();
             if (holding.getStatus() != Holding.Status.AVAILABLE) {
@@ -862,7 +885,11 @@ public class ReproductionController extends AbstractRequestController {
         }
 
         // Everything is fine, refresh the order
-        reproductions.refreshOrder(order);
+        // If Mollie could not be reached, have Mollie call the webhook again later
+        if (reproductions.refreshOrder(order) == null) {
+            LOGGER.warn("/reproduction/order/webhook : Could not refresh the order with payment id {}", id);
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
 
         // If the order is paid, update the reproduction status
         if (order.getPayed() == Order.ORDER_PAYED) {
@@ -71,6 +71,17 @@ public class HoldingReproductionDAOImpl implements HoldingReproductionDAO {
         return entityManager.createQuery(q).getSingleResult();
     }
 
+    /**
+     * Count the HoldingReproductions matching a built query, up to the given limit.
+     *
+     * @param q     The criteria query to execute, selecting the ids.
+     * @param limit The maximum number of results to count.
+     * @return The number of counted results, at most the limit.
+     */
+    public long count(CriteriaQuery<Object> q, int limit) {
+        return entityManager.createQuery(q).setMaxResults(limit).getResultList().size();
+    }
+
     /**
      * Retrieve the HoldingReproduction matching the given ID.
      *
@@ -31,6 +31,13 @@ public interface ReproductionCustomNoteDAO {
      */
     void save(ReproductionCustomNote obj);
 
+    /**
+     * Detach a ReproductionCustomNote from the persistence context, so that it can be cached.
+     *
+     * @param obj ReproductionCustomNote to detach.
+     */
+    void detach(ReproductionCustomNote obj);
+
     /**
      * Retrieve the ReproductionCustomNote matching the given Id.
      *
@@ -60,6 +60,15 @@ public class ReproductionCustomNoteDAOImpl implements ReproductionCustomNoteDAO
         entityManager.merge(obj);
     }
 
+    /**
+     * Detach a ReproductionCustomNote from the persistence context, so that it can be cached.
+     *
+     * @param obj ReproductionCustomNote to detach.
+     */
+    public void detach(ReproductionCustomNote obj) {
+        entityManager.detach(obj);
+    }
+
     /**
      * Retrieve the ReproductionCustomNote matching the given Id.
      *
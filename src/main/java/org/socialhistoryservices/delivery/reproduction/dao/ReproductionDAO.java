@@ -6,7 +6,9 @@ import org.socialhistoryservices.delivery.reproduction.entity.Reproduction;
 import javax.persistence.Tuple;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Interface representing the Data Access object of a reproduction.
@@ -80,6 +82,14 @@ public interface ReproductionDAO {
      */
     Reproduction getActiveFor(Holding h);
 
+    /**
+     * Get the active reproductions relating to the given holdings.
+     *
+     * @param holdingIds The ids of the holdings to find a reproduction for.
+     * @return The active reproduction per holding id, holdings without an active reproduction are left out.
+     */
+    Map<Integer, Reproduction> getActiveFor(Collection<Integer> holdingIds);
+
     /**
      * Check whether there are any reproductions made on the holding.
      *
@@ -10,7 +10,10 @@ import org.springframework.stereotype.Repository;
 
 import javax.persistence.*;
 import javax.persistence.criteria.*;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Represents the Data Access object of a reproduction.
@@ -149,6 +152,38 @@ public class ReproductionDAOImpl implements ReproductionDAO {
         }
     }
 
+    /**
+     * Get the active reproductions relating to the given holdings.
+     *
+     * @param holdingIds The ids of the holdings to find a reproduction for.
+     * @return The active reproduction per holding id, holdings without an active reproduction are left out.
+     */
+    public Map<Integer, Reproduction> getActiveFor(Collection<Integer> holdingIds) {
+        Map<Integer, Reproduction> activeReproductions = new HashMap<>();
+        if (holdingIds.isEmpty())
+            return activeReproductions;
+
+        CriteriaBuilder cb = getCriteriaBuilder();
+        CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+        Root<Reproduction> rRoot = cq.from(Reproduction.class);
+
+        Join<Reproduction, HoldingReproduction> hrRoot = rRoot.join(Reproduction_.holdingReproductions);
+        Join<HoldingReproduction, Holding> hRoot = hrRoot.join(HoldingReproduction_.holding);
+        cq.multiselect(hRoot.get(Holding_.id).alias("holdingId"), rRoot.alias("reproduction"));
+
+        Expression<Boolean> where = hRoot.get(Holding_.id).in(holdingIds);
+        where = cb.and(where, cb.equal(hrRoot.get(HoldingReproduction_.completed), false));
+
+        cq.where(where);
+        cq.orderBy(cb.asc(rRoot.get(Reproduction_.creationDate)));
+
+        // The reproduction with the earliest creation date is the active reproduction of the holding
+        for (Tuple tuple : entityManager.createQuery(cq).getResultList())
+            activeReproductions.putIfAbsent(tuple.get("holdingId", Integer.class),
+                    tuple.get("reproduction", Reproduction.class));
+        return activeReproductions;
+    }
+
     /**
      * Check whether there are any reproductions made on the holding.
      *
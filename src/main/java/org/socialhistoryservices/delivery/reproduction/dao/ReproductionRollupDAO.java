@@ -0,0 +1,32 @@
+package org.socialhistoryservices.delivery.reproduction.dao;
+
+import java.util.Date;
+
+/**
+ * Interface representing the Data Access Object of the reproduction statistics rollups.
+ */
+public interface ReproductionRollupDAO {
+    /**
+     * Lock the reproduction rollups until the current transaction completes,
+     * so that the rollups of a day are not recomputed by two transactions at the same time.
+     */
+    void lock();
+
+    /**
+     * Remove the reproduction rollups of the given day from the database.
+     *
+     * @param day The day, or null to remove the rollups of all days.
+     * @return The number of removed rollups.
+     */
+    int remove(Date day);
+
+    /**
+     * Compute the reproduction rollups of the given day from the reproductions and add them to the database.
+     * The material rollups are computed by the date of the reproduction,
+     * the payment rollups by the date the payment was accepted.
+     *
+     * @param day The day, or null to compute the rollups of all days.
+     * @return The number of added rollups.
+     */
+    int add(Date day);
+}
@@ -0,0 +1,115 @@
+package org.socialhistoryservices.delivery.reproduction.dao;
+
+import org.socialhistoryservices.delivery.reproduction.entity.Reproduction;
+import org.socialhistoryservices.delivery.reproduction.entity.ReproductionMaterialRollup;
+import org.socialhistoryservices.delivery.reproduction.entity.ReproductionMaterialRollup_;
+import org.socialhistoryservices.delivery.reproduction.entity.ReproductionPaymentRollup;
+import org.socialhistoryservices.delivery.reproduction.entity.ReproductionPaymentRollup_;
+import org.socialhistoryservices.delivery.util.TransactionLocks;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.TemporalType;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaDelete;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.SingularAttribute;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Represents the Data Access Object of the reproduction statistics rollups.
+ * The rollups are computed with a single INSERT ... SELECT per rollup table,
+ * so the reproductions are aggregated by the database and never loaded.
+ */
+@Repository
+public class ReproductionRollupDAOImpl implements ReproductionRollupDAO {
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionLocks transactionLocks;
+
+    /**
+     * Set the entity manager to use in this DAO, internal.
+     *
+     * @param entityManager The manager.
+     */
+    @PersistenceContext
+    private void setEntityManager(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Lock the reproduction rollups until the current transaction completes, on all application nodes.
+     */
+    public void lock() {
+        transactionLocks.lock("reproduction_rollups");
+    }
+
+    /**
+     * Remove the reproduction rollups of the given day from the database.
+     *
+     * @param day The day, or null to remove the rollups of all days.
+     * @return The number of removed rollups.
+     */
+    public int remove(Date day) {
+        return remove(ReproductionMaterialRollup.class, ReproductionMaterialRollup_.day, day) +
+                remove(ReproductionPaymentRollup.class, ReproductionPaymentRollup_.day, day);
+    }
+
+    /**
+     * Compute the reproduction rollups of the given day from the reproductions and add them to the database.
+     *
+     * @param day The day, or null to compute the rollups of all days.
+     * @return The number of added rollups.
+     */
+    public int add(Date day) {
+        Query materials = entityManager.createQuery(
+                "insert into ReproductionMaterialRollup (day, materialType, numberOfRequests)" +
+                " select rep.date, eri.materialType, count(eri.materialType)" +
+                " from HoldingReproduction hr join hr.reproduction rep join hr.holding h" +
+                " join h.record r join r.externalInfo eri" +
+                ((day != null) ? " where rep.date = :day" : "") +
+                " group by rep.date, eri.materialType");
+
+        // Only active or completed reproductions count as paid
+        Query payments = entityManager.createQuery(
+                "insert into ReproductionPaymentRollup" +
+                " (day, btwPercentage, totalItems, sumTotalAmount, sumDiscount, sumBtwPrice)" +
+                " select rep.datePaymentAccepted, hr.btwPercentage, count(hr)," +
+                " sum(hr.price * hr.numberOfPages), sum(hr.discount), sum(hr.btwPrice)" +
+                " from HoldingReproduction hr join hr.reproduction rep" +
+                " where rep.status in (:statuses)" +
+                ((day != null) ? " and rep.datePaymentAccepted = :day" : " and rep.datePaymentAccepted is not null") +
+                " group by rep.datePaymentAccepted, hr.btwPercentage");
+        payments.setParameter("statuses", Arrays.asList(
+                Reproduction.Status.ACTIVE, Reproduction.Status.COMPLETED, Reproduction.Status.DELIVERED));
+
+        if (day != null) {
+            materials.setParameter("day", day, TemporalType.DATE);
+            payments.setParameter("day", day, TemporalType.DATE);
+        }
+
+        return materials.executeUpdate() + payments.executeUpdate();
+    }
+
+    /**
+     * Remove the rollups of the given type and day from the database.
+     *
+     * @param clazz The rollup class.
+     * @param dayAttribute The day attribute of the rollup.
+     * @param day The day, or null to remove the rollups of all days.
+     * @return The number of removed rollups.
+     */
+    private <T> int remove(Class<T> clazz, SingularAttribute<T, Date> dayAttribute, Date day) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaDelete<T> delete = cb.createCriteriaDelete(clazz);
+        Root<T> root = delete.from(clazz);
+        if (day != null)
+            delete.where(cb.equal(root.get(dayAttribute), day));
+        return entityManager.createQuery(delete).executeUpdate();
+    }
+}
@@ -31,6 +31,13 @@ public interface ReproductionStandardOptionDAO {
      */
     void save(ReproductionStandardOption obj);
 
+    /**
+     * Detach a ReproductionStandardOption from the persistence context, so that it can be cached.
+     *
+     * @param obj ReproductionStandardOption to detach.
+     */
+    void detach(ReproductionStandardOption obj);
+
     /**
      * Retrieve the ReproductionStandardOption matching the given Id.
      *
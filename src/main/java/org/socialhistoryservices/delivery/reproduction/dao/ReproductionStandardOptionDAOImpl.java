@@ -59,6 +59,15 @@ public class ReproductionStandardOptionDAOImpl implements ReproductionStandardOp
         entityManager.merge(obj);
     }
 
+    /**
+     * Detach a ReproductionStandardOption from the persistence context, so that it can be cached.
+     *
+     * @param obj ReproductionStandardOption to detach.
+     */
+    public void detach(ReproductionStandardOption obj) {
+        entityManager.detach(obj);
+    }
+
     /**
      * Retrieve the ReproductionStandardOption matching the given Id.
      *
@@ -0,0 +1,79 @@
+package org.socialhistoryservices.delivery.reproduction.entity;
+
+import org.socialhistoryservices.delivery.record.entity.ExternalRecordInfo;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * The number of holdings requested for reproduction per material type on a single day.
+ * The rollups are maintained by the StatisticsRollupService and read by the material statistics.
+ */
+@Entity
+@Table(name = "reproduction_material_rollups", indexes = {
+        @Index(columnList = "request_date", name = "reproduction_material_rollups_date_idx")})
+public class ReproductionMaterialRollup {
+    /**
+     * The rollup's id.
+     */
+    @Id
+    @GeneratedValue
+    @Column(name = "id")
+    private int id;
+
+    /**
+     * The day of the reproductions.
+     */
+    @Temporal(TemporalType.DATE)
+    @Column(name = "request_date", nullable = false)
+    private Date day;
+
+    /**
+     * The material type of the requested holdings.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "material_type", nullable = false)
+    private ExternalRecordInfo.MaterialType materialType;
+
+    /**
+     * The number of requested holdings.
+     */
+    @Column(name = "number_of_requests", nullable = false)
+    private long numberOfRequests;
+
+    /**
+     * Get the rollup's id.
+     *
+     * @return The rollup's id.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Get the day of the reproductions.
+     *
+     * @return The day.
+     */
+    public Date getDay() {
+        return day;
+    }
+
+    /**
+     * Get the material type of the requested holdings.
+     *
+     * @return The material type.
+     */
+    public ExternalRecordInfo.MaterialType getMaterialType() {
+        return materialType;
+    }
+
+    /**
+     * Get the number of requested holdings.
+     *
+     * @return The number of requested holdings.
+     */
+    public long getNumberOfRequests() {
+        return numberOfRequests;
+    }
+}
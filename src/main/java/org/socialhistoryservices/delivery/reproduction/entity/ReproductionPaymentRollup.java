@@ -0,0 +1,122 @@
+package org.socialhistoryservices.delivery.reproduction.entity;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * The paid amounts of the reproduced holdings per BTW percentage on a single day of payment.
+ * The rollups are maintained by the StatisticsRollupService and read by the payment statistics.
+ */
+@Entity
+@Table(name = "reproduction_payment_rollups", indexes = {
+        @Index(columnList = "request_date", name = "reproduction_payment_rollups_date_idx")})
+public class ReproductionPaymentRollup {
+    /**
+     * The rollup's id.
+     */
+    @Id
+    @GeneratedValue
+    @Column(name = "id")
+    private int id;
+
+    /**
+     * The day the payments were accepted.
+     */
+    @Temporal(TemporalType.DATE)
+    @Column(name = "request_date", nullable = false)
+    private Date day;
+
+    /**
+     * The BTW percentage.
+     */
+    @Column(name = "btw_percentage")
+    private Integer btwPercentage;
+
+    /**
+     * The number of paid holdings.
+     */
+    @Column(name = "total_items", nullable = false)
+    private long totalItems;
+
+    /**
+     * The sum of the prices of the paid holdings.
+     */
+    @Column(name = "sum_total_amount")
+    private BigDecimal sumTotalAmount;
+
+    /**
+     * The sum of the discounts of the paid holdings.
+     */
+    @Column(name = "sum_discount")
+    private BigDecimal sumDiscount;
+
+    /**
+     * The sum of the BTW of the paid holdings.
+     */
+    @Column(name = "sum_btw_price")
+    private BigDecimal sumBtwPrice;
+
+    /**
+     * Get the rollup's id.
+     *
+     * @return The rollup's id.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Get the day the payments were accepted.
+     *
+     * @return The day.
+     */
+    public Date getDay() {
+        return day;
+    }
+
+    /**
+     * Get the BTW percentage.
+     *
+     * @return The BTW percentage.
+     */
+    public Integer getBtwPercentage() {
+        return btwPercentage;
+    }
+
+    /**
+     * Get the number of paid holdings.
+     *
+     * @return The number of paid holdings.
+     */
+    public long getTotalItems() {
+        return totalItems;
+    }
+
+    /**
+     * Get the sum of the prices of the paid holdings.
+     *
+     * @return The sum of the prices.
+     */
+    public BigDecimal getSumTotalAmount() {
+        return sumTotalAmount;
+    }
+
+    /**
+     * Get the sum of the discounts of the paid holdings.
+     *
+     * @return The sum of the discounts.
+     */
+    public BigDecimal getSumDiscount() {
+        return sumDiscount;
+    }
+
+    /**
+     * Get the sum of the BTW of the paid holdings.
+     *
+     * @return The sum of the BTW.
+     */
+    public BigDecimal getSumBtwPrice() {
+        return sumBtwPrice;
+    }
+}
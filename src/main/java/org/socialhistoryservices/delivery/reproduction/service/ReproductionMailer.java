@@ -183,12 +183,17 @@ public class ReproductionMailer extends RequestMailer {
         String sorAccessToken = deliveryProperties.getSorAccessToken();
         Map<String, List<String>> urlsForHolding = new HashMap<>();
 
+        Set<String> pids = new HashSet<>();
+        for (HoldingReproduction hr : hrs)
+            pids.add(hr.getHolding().determinePid());
+        Map<String, SorMetadata> sorMetadataForPids = sorService.getMetadataForPids(pids);
+
         for (HoldingReproduction hr : hrs) {
             List<String> urls = new ArrayList<>();
             Holding holding = hr.getHolding();
 
             // Obtain the metadata from the SOR
-            SorMetadata sorMetadata = sorService.getMetadataForPid(holding.determinePid());
+            SorMetadata sorMetadata = sorMetadataForPids.get(holding.determinePid());
             ReproductionStandardOption.Level level = hr.getStandardOption().getLevel();
 
             // Determine the URLs based on their material type and content
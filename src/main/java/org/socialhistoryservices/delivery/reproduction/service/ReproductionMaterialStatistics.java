@@ -1,10 +1,8 @@
 package org.socialhistoryservices.delivery.reproduction.service;
 
-import org.socialhistoryservices.delivery.record.entity.*;
-import org.socialhistoryservices.delivery.reproduction.entity.HoldingReproduction;
-import org.socialhistoryservices.delivery.reproduction.entity.HoldingReproduction_;
-import org.socialhistoryservices.delivery.reproduction.entity.Reproduction;
-import org.socialhistoryservices.delivery.reproduction.entity.Reproduction_;
+import org.socialhistoryservices.delivery.record.entity.ExternalRecordInfo;
+import org.socialhistoryservices.delivery.reproduction.entity.ReproductionMaterialRollup;
+import org.socialhistoryservices.delivery.reproduction.entity.ReproductionMaterialRollup_;
 import org.socialhistoryservices.delivery.request.service.TupleRequestSearch;
 
 import javax.persistence.criteria.*;
@@ -12,9 +10,9 @@ import java.util.Date;
 import java.util.Map;
 
 /**
- * Reproduction statistics helper class.
+ * Reproduction statistics helper class, reading from the daily material rollups.
  */
-public class ReproductionMaterialStatistics extends TupleRequestSearch<HoldingReproduction> {
+public class ReproductionMaterialStatistics extends TupleRequestSearch<ReproductionMaterialRollup> {
     /**
      * Creates a new reproduction search helper.
      *
@@ -22,34 +20,27 @@ public class ReproductionMaterialStatistics extends TupleRequestSearch<HoldingRe
      * @param p  The parameters from the user.
      */
     public ReproductionMaterialStatistics(CriteriaBuilder cb, Map<String, String[]> p) {
-        super(HoldingReproduction.class, cb, p);
+        super(ReproductionMaterialRollup.class, cb, p);
     }
 
     /**
      * Build the query.
      *
-     * @param hrRoot The root entity.
-     * @param cq     The query to build upon.
+     * @param rRoot The root entity.
+     * @param cq    The query to build upon.
      */
     @Override
-    protected void build(Root<HoldingReproduction> hrRoot, CriteriaQuery<?> cq) {
-        // Join all required tables
-        Join<HoldingReproduction, Reproduction> repRoot = hrRoot.join(HoldingReproduction_.reproduction);
-        Join<HoldingReproduction, Holding> hRoot = hrRoot.join(HoldingReproduction_.holding);
-        Join<Holding, Record> rRoot = hRoot.join(Holding_.record);
-        Join<Record, ExternalRecordInfo> eriRoot = rRoot.join(Record_.externalInfo);
-
+    protected void build(Root<ReproductionMaterialRollup> rRoot, CriteriaQuery<?> cq) {
         // Count the materials
-        Expression<Date> reproductionDate = repRoot.get(Reproduction_.date);
-        Expression<ExternalRecordInfo.MaterialType> materialType =
-                eriRoot.get(ExternalRecordInfo_.materialType);
-        Expression<Long> numberOfRequests = cb.count(materialType);
+        Expression<Date> reproductionDate = rRoot.get(ReproductionMaterialRollup_.day);
+        Expression<ExternalRecordInfo.MaterialType> materialType = rRoot.get(ReproductionMaterialRollup_.materialType);
+        Expression<Long> numberOfRequests = cb.sum(rRoot.get(ReproductionMaterialRollup_.numberOfRequests));
 
         Predicate datePredicate = getDatePredicate(reproductionDate, true);
 
         cq.multiselect(materialType.alias("material"), numberOfRequests.alias("noRequests"));
         cq.where(datePredicate);
-        cq.groupBy(eriRoot.get(ExternalRecordInfo_.materialType));
+        cq.groupBy(materialType);
         cq.orderBy(cb.desc(numberOfRequests));
     }
 }
@@ -1,9 +1,7 @@
 package org.socialhistoryservices.delivery.reproduction.service;
 
-import org.socialhistoryservices.delivery.reproduction.entity.HoldingReproduction;
-import org.socialhistoryservices.delivery.reproduction.entity.HoldingReproduction_;
-import org.socialhistoryservices.delivery.reproduction.entity.Reproduction;
-import org.socialhistoryservices.delivery.reproduction.entity.Reproduction_;
+import org.socialhistoryservices.delivery.reproduction.entity.ReproductionPaymentRollup;
+import org.socialhistoryservices.delivery.reproduction.entity.ReproductionPaymentRollup_;
 import org.socialhistoryservices.delivery.request.service.TupleRequestSearch;
 
 import javax.persistence.criteria.*;
@@ -12,9 +10,10 @@ import java.util.Date;
 import java.util.Map;
 
 /**
- * Reproduction statistics helper class.
+ * Reproduction statistics helper class, reading from the daily payment rollups.
+ * The rollups only contain the active or completed reproductions.
  */
-public class ReproductionPaymentStatistics extends TupleRequestSearch<HoldingReproduction> {
+public class ReproductionPaymentStatistics extends TupleRequestSearch<ReproductionPaymentRollup> {
     /**
      * Creates a new reproduction search helper.
      *
@@ -22,44 +21,27 @@ public class ReproductionPaymentStatistics extends TupleRequestSearch<HoldingRep
      * @param p  The parameters from the user.
      */
     public ReproductionPaymentStatistics(CriteriaBuilder cb, Map<String, String[]> p) {
-        super(HoldingReproduction.class, cb, p);
+        super(ReproductionPaymentRollup.class, cb, p);
     }
 
     /**
      * Build the query.
      *
-     * @param hrRoot The root entity.
-     * @param cq     The query to build upon.
+     * @param rRoot The root entity.
+     * @param cq    The query to build upon.
      */
     @Override
-    protected void build(Root<HoldingReproduction> hrRoot, CriteriaQuery<?> cq) {
-        // Join all required tables
-        Join<HoldingReproduction, Reproduction> repRoot = hrRoot.join(HoldingReproduction_.reproduction);
-
+    protected void build(Root<ReproductionPaymentRollup> rRoot, CriteriaQuery<?> cq) {
         // Within the selected date range
-        Expression<Date> reproductionDate = repRoot.get(Reproduction_.datePaymentAccepted);
+        Expression<Date> reproductionDate = rRoot.get(ReproductionPaymentRollup_.day);
         Predicate datePredicate = getDatePredicate(reproductionDate, true);
 
-        // And only active or completed reproductions
-        Expression<Reproduction.Status> status = repRoot.get(Reproduction_.status);
-        Expression<Boolean> statusExpr = cb.in(status)
-                .value(Reproduction.Status.ACTIVE)
-                .value(Reproduction.Status.COMPLETED)
-                .value(Reproduction.Status.DELIVERED);
-
         // Count the amounts
-        Expression<BigDecimal> amount = hrRoot.get(HoldingReproduction_.price);
-        Expression<Integer> numberOfPages = hrRoot.get(HoldingReproduction_.numberOfPages);
-        Expression<BigDecimal> discount = hrRoot.get(HoldingReproduction_.discount);
-        Expression<BigDecimal> btwPrice = hrRoot.get(HoldingReproduction_.btwPrice);
-        Expression<Integer> btwPercentage = hrRoot.get(HoldingReproduction_.btwPercentage);
-
-        Expression<Number> totalAmount = cb.prod(amount, numberOfPages);
-
-        Expression<Long> totalItems = cb.count(hrRoot);
-        Expression<Number> sumTotalAmount = cb.sum(totalAmount);
-        Expression<BigDecimal> sumDiscount = cb.sum(discount);
-        Expression<BigDecimal> sumBtwPrice = cb.sum(btwPrice);
+        Expression<Integer> btwPercentage = rRoot.get(ReproductionPaymentRollup_.btwPercentage);
+        Expression<Long> totalItems = cb.sum(rRoot.get(ReproductionPaymentRollup_.totalItems));
+        Expression<BigDecimal> sumTotalAmount = cb.sum(rRoot.get(ReproductionPaymentRollup_.sumTotalAmount));
+        Expression<BigDecimal> sumDiscount = cb.sum(rRoot.get(ReproductionPaymentRollup_.sumDiscount));
+        Expression<BigDecimal> sumBtwPrice = cb.sum(rRoot.get(ReproductionPaymentRollup_.sumBtwPrice));
 
         cq.multiselect(
                 totalItems.alias("totalItems"),
@@ -68,7 +50,7 @@ public class ReproductionPaymentStatistics extends TupleRequestSearch<HoldingRep
                 sumDiscount.alias("sumDiscount"),
                 sumBtwPrice.alias("sumBtwPrice")
         );
-        cq.where(cb.and(statusExpr, datePredicate));
+        cq.where(datePredicate);
         cq.groupBy(btwPercentage);
     }
 }
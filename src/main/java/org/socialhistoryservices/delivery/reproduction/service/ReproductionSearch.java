@@ -34,7 +34,8 @@ public class ReproductionSearch extends ListRequestSearch<HoldingReproduction> {
      */
     @Override
     protected void build(Root<HoldingReproduction> hrRoot, CriteriaQuery<?> cq, boolean isCount) {
-        Join<HoldingReproduction, Reproduction> rRoot = hrRoot.join(HoldingReproduction_.reproduction);
+        Join<HoldingReproduction, Reproduction> rRoot =
+                joinOrFetch(hrRoot, HoldingReproduction_.reproduction, JoinType.INNER, isCount);
 
         // Expression to be the where clause of the query
         Expression<Boolean> where = null;
@@ -45,16 +46,20 @@ public class ReproductionSearch extends ListRequestSearch<HoldingReproduction> {
         where = addEmailFilter(rRoot, where);
         where = addStatusFilter(rRoot, where);
         where = addPrintedFilter(hrRoot, where);
-        where = addSearchFilter(hrRoot, rRoot, where);
+        where = addSearchFilter(hrRoot, rRoot, cq, where);
 
         // Set the where clause
         if (where != null)
             cq.where(where);
 
-        Join<HoldingReproduction, Holding> hRoot = hrRoot.join(HoldingReproduction_.holding);
+        Join<HoldingReproduction, Holding> hRoot =
+                joinOrFetch(hrRoot, HoldingReproduction_.holding, JoinType.INNER, isCount);
 
-        if (!isCount)
+        if (!isCount) {
+            hrRoot.fetch(HoldingReproduction_.standardOption, JoinType.LEFT);
+            fetchRecord(hRoot);
             cq.orderBy(parseSortFilter(hrRoot, rRoot, hRoot));
+        }
     }
 
     /**
@@ -157,27 +162,27 @@ public class ReproductionSearch extends ListRequestSearch<HoldingReproduction> {
      *
      * @param hrRoot The holding reproduction root.
      * @param rRoot  The reproduction root.
+     * @param cq     The query to build upon.
      * @param where  The already present where clause or null if none present.
      * @return The (updated) where clause, or null if the filter did not exist.
      */
     private Expression<Boolean> addSearchFilter(Root<HoldingReproduction> hrRoot,
                                                 Join<HoldingReproduction, Reproduction> rRoot,
-                                                Expression<Boolean> where) {
+                                                CriteriaQuery<?> cq, Expression<Boolean> where) {
         if (p.containsKey("search") && !p.get("search")[0].trim().equals("")) {
-            String search = p.get("search")[0].trim().toLowerCase();
+            String search = "%" + p.get("search")[0].trim().toLowerCase() + "%";
 
-            Join<HoldingReproduction, Holding> hRoot = hrRoot.join(HoldingReproduction_.holding);
-            Join<Holding, Record> recRoot = hRoot.join(Holding_.record);
-            Join<Record, ExternalRecordInfo> eRoot = recRoot.join(Record_.externalInfo);
-            Join<Record, Record> prRoot = recRoot.join(Record_.parent, JoinType.LEFT);
-            Join<Record, Holding> phRoot = prRoot.join(Record_.holdings, JoinType.LEFT);
+            Subquery<Integer> customers = cq.subquery(Integer.class);
+            Root<Reproduction> cRoot = customers.from(Reproduction.class);
+            customers.select(cRoot.get(Reproduction_.id));
+            customers.where(cb.or(
+                    cb.like(cb.lower(cRoot.get(Reproduction_.customerName)), search),
+                    cb.like(cb.lower(cRoot.get(Reproduction_.customerEmail)), search)
+            ));
 
             Expression<Boolean> exSearch = cb.or(
-                    cb.like(cb.lower(eRoot.get(ExternalRecordInfo_.title)), "%" + search + "%"),
-                    cb.like(cb.lower(rRoot.get(Reproduction_.customerName)), "%" + search + "%"),
-                    cb.like(cb.lower(rRoot.get(Reproduction_.customerEmail)), "%" + search + "%"),
-                    cb.like(cb.lower(hRoot.get(Holding_.signature)), "%" + search + "%"),
-                    cb.like(cb.lower(phRoot.get(Holding_.signature)), "%" + search + "%")
+                    rRoot.get(Reproduction_.id).in(customers),
+                    getHoldingSearchPredicate(cq, hrRoot.get(HoldingReproduction_.holding).get(Holding_.id), search)
             );
 
             where = (where != null) ? cb.and(where, exSearch) : exSearch;
@@ -185,6 +190,44 @@ public class ReproductionSearch extends ListRequestSearch<HoldingReproduction> {
         return where;
     }
 
+    /**
+     * Returns the value of the column the results are sorted on for the given holding reproduction.
+     *
+     * @param hr The holding reproduction.
+     * @return The value.
+     */
+    @Override
+    protected Object getSortValue(HoldingReproduction hr) {
+        String sort = p.containsKey("sort") ? p.get("sort")[0] : "";
+        switch (sort) {
+            case "customerName":
+                return hr.getReproduction().getCustomerName();
+            case "customerEmail":
+                return hr.getReproduction().getCustomerEmail();
+            case "status":
+                return hr.getReproduction().getStatus();
+            case "printed":
+                return hr.isPrinted();
+            case "signature":
+                return hr.getHolding().getSignature();
+            case "holdingStatus":
+                return hr.getHolding().getStatus();
+            default:
+                return hr.getReproduction().getCreationDate();
+        }
+    }
+
+    /**
+     * Returns the id of the given holding reproduction.
+     *
+     * @param hr The holding reproduction.
+     * @return The id.
+     */
+    @Override
+    protected Integer getId(HoldingReproduction hr) {
+        return hr.getId();
+    }
+
     /**
      * Parse the sort and sort_dir filters into an Order to be used in a query.
      *
@@ -12,6 +12,7 @@ import javax.persistence.Tuple;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import java.awt.print.PrinterException;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -109,8 +110,18 @@ public interface ReproductionService {
      */
     long countHoldingReproductions(CriteriaQuery<Long> q);
 
+    /**
+     * Count the HoldingReproductions matching a built query, up to the given limit.
+     *
+     * @param q     The criteria query to execute, selecting the ids.
+     * @param limit The maximum number of results to count.
+     * @return A count of matching HoldingReproductions, at most the limit.
+     */
+    long countHoldingReproductions(CriteriaQuery<Object> q, int limit);
+
     /**
      * Returns all standard options for reproductions.
+     * The options are cached and shared, so they must not be changed.
      *
      * @return A list with all standard options for reproductions.
      */
@@ -118,6 +129,7 @@ public interface ReproductionService {
 
     /**
      * Returns all custom notes for reproductions.
+     * The custom notes are cached and shared, so they must not be changed.
      *
      * @return A list with all custom notes for reproductions.
      */
@@ -182,6 +194,14 @@ public interface ReproductionService {
      */
     boolean hasOrderDetails(Reproduction reproduction);
 
+    /**
+     * Obtains the SOR metadata of all given holdings at once,
+     * so that the following SOR lookups for these holdings are served from the cache.
+     *
+     * @param holdings The holdings.
+     */
+    void prefetchSorMetadata(Collection<Holding> holdings);
+
     /**
      * Returns standard options for the given holding which are NOT available in the SOR.
      *
@@ -323,4 +343,12 @@ public interface ReproductionService {
      * @return The active reproduction, or null if no active reproduction exists.
      */
     Reproduction getActiveFor(Holding h);
+
+    /**
+     * Returns the active reproductions with which the given holdings are associated.
+     *
+     * @param holdings The holdings to get the active reproductions of.
+     * @return The active reproduction per holding id, holdings without an active reproduction are left out.
+     */
+    Map<Integer, Reproduction> getActiveFor(Collection<Holding> holdings);
 }
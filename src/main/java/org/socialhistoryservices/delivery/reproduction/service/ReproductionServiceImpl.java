@@ -22,6 +22,8 @@ import org.socialhistoryservices.delivery.request.service.AbstractRequestService
 import org.socialhistoryservices.delivery.request.service.ClosedException;
 import org.socialhistoryservices.delivery.request.service.NoHoldingsException;
 import org.socialhistoryservices.delivery.request.service.RequestPrintable;
+import org.socialhistoryservices.delivery.request.service.StatisticsRollupJob;
+import org.socialhistoryservices.delivery.util.ReferenceDataCache;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.mail.MailException;
@@ -42,6 +44,7 @@ import java.awt.print.PrinterException;
 import java.math.BigDecimal;
 import java.text.DateFormat;
 import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * Represents the service of the reproduction package.
@@ -60,12 +63,21 @@ public class ReproductionServiceImpl extends AbstractRequestService implements R
     @Autowired
     private HoldingReproductionDAO holdingReproductionDAO;
 
+    @Autowired
+    private StatisticsRollupJob statisticsRollups;
+
     @Autowired
     private ReproductionStandardOptionDAO reproductionStandardOptionDAO;
 
     @Autowired
     private ReproductionCustomNoteDAO reproductionCustomNoteDAO;
 
+    @Autowired
+    private ReferenceDataCache<ReproductionStandardOption> standardOptionCache;
+
+    @Autowired
+    private ReferenceDataCache<ReproductionCustomNote> customNoteCache;
+
     @Autowired
     private PaymentService paymentService;
 
@@ -92,6 +104,7 @@ public class ReproductionServiceImpl extends AbstractRequestService implements R
 
         // Add to the database
         reproductionDAO.add(obj);
+        statisticsRollups.reproductionChanged(obj.getDate(), obj.getDatePaymentAccepted());
     }
 
     /**
@@ -105,6 +118,7 @@ public class ReproductionServiceImpl extends AbstractRequestService implements R
         // to the reproduction when setting them to available.
         changeHoldingStatus(reproduction, Holding.Status.AVAILABLE);
         reproductionDAO.remove(reproduction);
+        statisticsRollups.reproductionChanged(reproduction.getDate(), reproduction.getDatePaymentAccepted());
     }
 
     /**
@@ -124,6 +138,7 @@ public class ReproductionServiceImpl extends AbstractRequestService implements R
      * @param obj Reproduction to save.
      */
     public Reproduction saveReproduction(Reproduction obj) {
+        statisticsRollups.reproductionChanged(obj.getDate(), obj.getDatePaymentAccepted());
         return reproductionDAO.save(obj);
     }
 
@@ -133,18 +148,21 @@ public class ReproductionServiceImpl extends AbstractRequestService implements R
      * @param standardOptions The standard reproduction options.
      */
     private void addOrUpdateStandardOptions(ReproductionStandardOptions standardOptions) {
+        // Update the options loaded from the database, never the cached options
+        Map<Integer, ReproductionStandardOption> currentOptions = new HashMap<>();
+        for (ReproductionStandardOption option : reproductionStandardOptionDAO.listAll()) {
+            currentOptions.put(option.getId(), option);
+        }
+
         for (ReproductionStandardOption option1 : standardOptions.getOptions()) {
-            boolean has = false;
-            for (ReproductionStandardOption option2 : getAllReproductionStandardOptions()) {
-                if (option1.getId() == option2.getId()) {
-                    option2.mergeWith(option1);
-                    reproductionStandardOptionDAO.save(option2);
-                    has = true;
-                }
+            ReproductionStandardOption option2 = currentOptions.get(option1.getId());
+            if (option2 != null) {
+                option2.mergeWith(option1);
+                reproductionStandardOptionDAO.save(option2);
             }
-
-            if (!has)
+            else {
                 reproductionStandardOptionDAO.add(option1);
+            }
         }
 
         for (ReproductionCustomNote customNote : standardOptions.getCustomNotes()) {
@@ -153,6 +171,9 @@ public class ReproductionServiceImpl extends AbstractRequestService implements R
             else
                 reproductionCustomNoteDAO.add(customNote);
         }
+
+        standardOptionCache.invalidate();
+        customNoteCache.invalidate();
     }
 
     /**
@@ -249,21 +270,40 @@ public class ReproductionServiceImpl extends AbstractRequestService implements R
     }
 
     /**
-     * Returns all standard options for reproductions.
+     * Count the HoldingReproductions matching a built query, up to the given limit.
+     *
+     * @param q     The criteria query to execute, selecting the ids.
+     * @param limit The maximum number of results to count.
+     * @return A count of matching HoldingReproductions, at most the limit.
+     */
+    public long countHoldingReproductions(CriteriaQuery<Object> q, int limit) {
+        return holdingReproductionDAO.count(q, limit);
+    }
+
+    /**
+     * Returns all standard options for reproductions, from the cache.
      *
      * @return A list with all standard options for reproductions.
      */
     public List<ReproductionStandardOption> getAllReproductionStandardOptions() {
-        return reproductionStandardOptionDAO.listAll();
+        return standardOptionCache.get(() -> {
+            List<ReproductionStandardOption> options = reproductionStandardOptionDAO.listAll();
+            options.forEach(reproductionStandardOptionDAO::detach);
+            return options;
+        });
     }
 
     /**
-     * Returns all custom notes for reproductions.
+     * Returns all custom notes for reproductions, from the cache.
      *
      * @return A list with all custom notes for reproductions.
      */
     public List<ReproductionCustomNote> getAllReproductionCustomNotes() {
-        return reproductionCustomNoteDAO.listAll();
+        return customNoteCache.get(() -> {
+            List<ReproductionCustomNote> customNotes = reproductionCustomNoteDAO.listAll();
+            customNotes.forEach(reproductionCustomNoteDAO::detach);
+            return customNotes;
+        });
     }
 
     /**
@@ -353,9 +393,8 @@ public class ReproductionServiceImpl extends AbstractRequestService implements R
         reproduction.setComment(other.getComment());
 
         if (other.getHoldingReproductions() == null) {
-            for (HoldingReproduction hr : reproduction.getHoldingReproductions()) {
-                records.updateHoldingStatus(hr.getHolding(), Holding.Status.AVAILABLE);
-            }
+            records.updateHoldingStatus(reproduction.getHoldingReproductions().stream()
+                    .map(HoldingReproduction::getHolding).collect(Collectors.toList()), Holding.Status.AVAILABLE);
             reproduction.setHoldingReproductions(new ArrayList<>());
         }
         else {
@@ -403,6 +442,9 @@ public class ReproductionServiceImpl extends AbstractRequestService implements R
                 break;
         }
 
+        // The payment statistics depend on the status and the date the payment was accepted
+        statisticsRollups.reproductionChanged(reproduction.getDate(), reproduction.getDatePaymentAccepted());
+
         // Update the holdings of the reproduction
         if (completed) {
             for (HoldingReproduction hr : reproduction.getHoldingReproductions()) {
@@ -541,6 +583,13 @@ public class ReproductionServiceImpl extends AbstractRequestService implements R
         // Only check for availability on new reproduction requests
         if (oldReproduction == null) {
             // Determine for all the item whether it is already available in the SOR
+            List<Holding> holdingsWithStandardOption = new ArrayList<>();
+            for (HoldingReproduction hr : newReproduction.getHoldingReproductions()) {
+                if (hr.getStandardOption() != null)
+                    holdingsWithStandardOption.add(hr.getHolding());
+            }
+            prefetchSorMetadata(holdingsWithStandardOption);
+
             for (HoldingReproduction hr : newReproduction.getHoldingReproductions()) {
                 hr.setInSor(isHoldingReproductionInSor(hr));
             }
@@ -588,6 +637,9 @@ public class ReproductionServiceImpl extends AbstractRequestService implements R
                     addReproduction(newReproduction);
                 }
                 else {
+                    // The statistics of the original dates change as well if the dates are moved
+                    statisticsRollups.reproductionChanged(
+                            oldReproduction.getDate(), oldReproduction.getDatePaymentAccepted());
                     merge(oldReproduction, newReproduction);
                     saveReproduction(oldReproduction);
                 }
@@ -686,6 +738,19 @@ public class ReproductionServiceImpl extends AbstractRequestService implements R
         }
     }
 
+    /**
+     * Obtains the SOR metadata of all given holdings at once,
+     * so that the following SOR lookups for these holdings are served from the cache.
+     *
+     * @param holdings The holdings.
+     */
+    public void prefetchSorMetadata(Collection<Holding> holdings) {
+        Set<String> pids = new HashSet<>();
+        for (Holding holding : holdings)
+            pids.add(holding.determinePid());
+        sorService.getMetadataForPids(pids);
+    }
+
     /**
      * Returns standard options for the given holding which are NOT available in the SOR.
      *
@@ -1195,4 +1260,14 @@ public class ReproductionServiceImpl extends AbstractRequestService implements R
     public Reproduction getActiveFor(Holding h) {
         return reproductionDAO.getActiveFor(h);
     }
+
+    /**
+     * Returns the active reproductions with which the given holdings are associated.
+     *
+     * @param holdings The holdings to get the active reproductions of.
+     * @return The active reproduction per holding id, holdings without an active reproduction are left out.
+     */
+    public Map<Integer, Reproduction> getActiveFor(Collection<Holding> holdings) {
+        return reproductionDAO.getActiveFor(holdings.stream().map(Holding::getId).collect(Collectors.toSet()));
+    }
 }
@@ -104,6 +104,12 @@ public abstract class AbstractRequestController extends ErrorHandlingController
         try {
             List<Holding> holdings = new ArrayList<>();
             String[] tuples = getPidsFromURL(path);
+
+            List<String> pids = new ArrayList<>();
+            for (String tuple : tuples)
+                pids.add(tuple.split(Pattern.quote(deliveryProperties.getHoldingSeparator()))[0]);
+            records.prefetchRecordsByPid(pids);
+
             for (String tuple : tuples) {
                 String[] elements = tuple.split(Pattern.quote(deliveryProperties.getHoldingSeparator()));
                 Record r = records.getRecordByPidAndCreate(elements[0]);
@@ -252,6 +258,20 @@ public abstract class AbstractRequestController extends ErrorHandlingController
         return maxResults * page;
     }
 
+    /**
+     * Determine up to which number the results of a list are counted:
+     * the configured limit, but at least up to the end of the requested page.
+     *
+     * @param p The parameter map to search the page filters in.
+     * @return The number up to which the results are counted, or 0 if all results should be counted.
+     */
+    protected int getCountLimit(Map<String, String[]> p) {
+        int countLimit = deliveryProperties.getRequestCountLimit();
+        if (countLimit <= 0)
+            return 0;
+        return Math.max(countLimit, getFirstResult(p) + getMaxResults(p));
+    }
+
     /**
      * Parse the page length filter into a max results integer.
      *
@@ -373,13 +393,8 @@ public abstract class AbstractRequestController extends ErrorHandlingController
      */
     protected Map<String, Request> getHoldingActiveRequests(Collection<Holding> holdings) {
         Map<String, Request> holdingActiveRequests = new HashMap<>();
-        for (Holding holding : holdings) {
-            if (!holdingActiveRequests.containsKey(holding.toString())) {
-                Request request = requests.getActiveFor(holding);
-                if (request != null)
-                    holdingActiveRequests.put(holding.toString(), request);
-            }
-        }
+        requests.getActiveFor(holdings).forEach((holdingId, request) ->
+                holdingActiveRequests.put(String.valueOf(holdingId), request));
         return holdingActiveRequests;
     }
 
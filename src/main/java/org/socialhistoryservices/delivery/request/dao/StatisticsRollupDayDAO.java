@@ -0,0 +1,35 @@
+package org.socialhistoryservices.delivery.request.dao;
+
+import org.socialhistoryservices.delivery.request.entity.StatisticsRollupDay;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Interface representing the Data Access Object of the days of which the statistics rollups have to be recomputed.
+ */
+public interface StatisticsRollupDayDAO {
+    /**
+     * Add a StatisticsRollupDay to the database.
+     *
+     * @param obj StatisticsRollupDay to add.
+     */
+    void add(StatisticsRollupDay obj);
+
+    /**
+     * List the distinct days of which the rollups of the given type have to be recomputed.
+     *
+     * @param type The type of the rollups.
+     * @return The days, in order.
+     */
+    List<Date> listDays(StatisticsRollupDay.Type type);
+
+    /**
+     * Remove the given day of the given type from the database.
+     *
+     * @param type The type of the rollups.
+     * @param day  The day, or null to remove all days.
+     * @return The number of removed days.
+     */
+    int remove(StatisticsRollupDay.Type type, Date day);
+}
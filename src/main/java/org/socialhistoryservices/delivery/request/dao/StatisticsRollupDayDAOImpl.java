@@ -0,0 +1,76 @@
+package org.socialhistoryservices.delivery.request.dao;
+
+import org.socialhistoryservices.delivery.request.entity.StatisticsRollupDay;
+import org.socialhistoryservices.delivery.request.entity.StatisticsRollupDay_;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaDelete;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Represents the Data Access Object of the days of which the statistics rollups have to be recomputed.
+ */
+@Repository
+public class StatisticsRollupDayDAOImpl implements StatisticsRollupDayDAO {
+    private EntityManager entityManager;
+
+    /**
+     * Set the entity manager to use in this DAO, internal.
+     *
+     * @param entityManager The manager.
+     */
+    @PersistenceContext
+    private void setEntityManager(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Add a StatisticsRollupDay to the database.
+     *
+     * @param obj StatisticsRollupDay to add.
+     */
+    public void add(StatisticsRollupDay obj) {
+        entityManager.persist(obj);
+    }
+
+    /**
+     * List the distinct days of which the rollups of the given type have to be recomputed.
+     *
+     * @param type The type of the rollups.
+     * @return The days, in order.
+     */
+    public List<Date> listDays(StatisticsRollupDay.Type type) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Date> cq = cb.createQuery(Date.class);
+        Root<StatisticsRollupDay> root = cq.from(StatisticsRollupDay.class);
+        cq.select(root.get(StatisticsRollupDay_.day)).distinct(true);
+        cq.where(cb.equal(root.get(StatisticsRollupDay_.type), type));
+        cq.orderBy(cb.asc(root.get(StatisticsRollupDay_.day)));
+        return entityManager.createQuery(cq).getResultList();
+    }
+
+    /**
+     * Remove the given day of the given type from the database.
+     *
+     * @param type The type of the rollups.
+     * @param day  The day, or null to remove all days.
+     * @return The number of removed days.
+     */
+    public int remove(StatisticsRollupDay.Type type, Date day) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaDelete<StatisticsRollupDay> delete = cb.createCriteriaDelete(StatisticsRollupDay.class);
+        Root<StatisticsRollupDay> root = delete.from(StatisticsRollupDay.class);
+        Predicate where = cb.equal(root.get(StatisticsRollupDay_.type), type);
+        if (day != null)
+            where = cb.and(where, cb.equal(root.get(StatisticsRollupDay_.day), day));
+        delete.where(where);
+        return entityManager.createQuery(delete).executeUpdate();
+    }
+}
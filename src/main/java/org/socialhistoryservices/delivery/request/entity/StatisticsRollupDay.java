@@ -0,0 +1,90 @@
+package org.socialhistoryservices.delivery.request.entity;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * A day of which the statistics rollups have to be recomputed, because requests of that day changed.
+ * The day is added in the same transaction as the change of the requests, so it is never lost,
+ * and removed in the same transaction that recomputes the rollups of the day.
+ * A day can be added more than once.
+ */
+@Entity
+@Table(name = "statistics_rollup_days")
+public class StatisticsRollupDay {
+
+    /**
+     * The rollups of a day.
+     */
+    public enum Type {
+        RESERVATION,
+        REPRODUCTION
+    }
+
+    /**
+     * The id.
+     */
+    @Id
+    @GeneratedValue
+    @Column(name = "id")
+    private int id;
+
+    /**
+     * Get the id.
+     *
+     * @return The id.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * The rollups to recompute.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false, length = 20)
+    private Type type;
+
+    /**
+     * Get the rollups to recompute.
+     *
+     * @return The type of the rollups.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Set the rollups to recompute.
+     *
+     * @param type The type of the rollups.
+     */
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    /**
+     * The day to recompute.
+     */
+    @Temporal(TemporalType.DATE)
+    @Column(name = "request_date", nullable = false)
+    private Date day;
+
+    /**
+     * Get the day to recompute.
+     *
+     * @return The day.
+     */
+    public Date getDay() {
+        return day;
+    }
+
+    /**
+     * Set the day to recompute.
+     *
+     * @param day The day.
+     */
+    public void setDay(Date day) {
+        this.day = day;
+    }
+}
@@ -145,11 +145,14 @@ public abstract class AbstractRequestService implements RequestService {
      * @param status  Status to change holdings to.
      */
     protected void changeHoldingStatus(Request request, Holding.Status status) {
+        List<Holding> holdings = new ArrayList<>();
         for (HoldingRequest hr : request.getHoldingRequests()) {
-            Holding h = hr.getHolding();
-            if (requests.getActiveFor(h) == request)
-                records.updateHoldingStatus(h, status);
+            holdings.add(hr.getHolding());
         }
+
+        Map<Integer, Request> activeRequests = requests.getActiveFor(holdings);
+        holdings.removeIf(h -> activeRequests.get(h.getId()) != request);
+        records.updateHoldingStatus(holdings, status);
     }
 
     /**
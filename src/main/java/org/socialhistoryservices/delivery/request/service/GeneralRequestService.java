@@ -3,6 +3,9 @@ package org.socialhistoryservices.delivery.request.service;
 import org.socialhistoryservices.delivery.record.entity.Holding;
 import org.socialhistoryservices.delivery.request.entity.Request;
 
+import java.util.Collection;
+import java.util.Map;
+
 /**
  * Interface representing the service of the RequestService package.
  */
@@ -14,4 +17,12 @@ public interface GeneralRequestService {
      * @return The active request, null if none exist.
      */
     Request getActiveFor(Holding holding);
+
+    /**
+     * Get the active requests relating to the given holdings.
+     *
+     * @param holdings Holdings to find a request for.
+     * @return The active request per holding id, holdings without an active request are left out.
+     */
+    Map<Integer, Request> getActiveFor(Collection<Holding> holdings);
 }
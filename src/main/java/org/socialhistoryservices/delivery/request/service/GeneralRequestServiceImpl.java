@@ -6,6 +6,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -35,4 +38,22 @@ public class GeneralRequestServiceImpl implements GeneralRequestService {
         }
         return activeRequest;
     }
+
+    /**
+     * Get the active requests relating to the given holdings.
+     *
+     * @param holdings Holdings to find a request for.
+     * @return The active request per holding id, holdings without an active request are left out.
+     */
+    public Map<Integer, Request> getActiveFor(Collection<Holding> holdings) {
+        Map<Integer, Request> activeRequests = new HashMap<>();
+        for (RequestService requestService : requests) {
+            // The request with the earliest creation date is always the actual active request
+            requestService.getActiveFor(holdings).forEach((holdingId, request) ->
+                    activeRequests.merge(holdingId, request, (activeRequest, otherRequest) ->
+                            activeRequest.getCreationDate().after(otherRequest.getCreationDate())
+                                    ? otherRequest : activeRequest));
+        }
+        return activeRequests;
+    }
 }
@@ -1,12 +1,20 @@
 package org.socialhistoryservices.delivery.request.service;
 
-import javax.persistence.criteria.CriteriaBuilder;
-import javax.persistence.criteria.CriteriaQuery;
-import javax.persistence.criteria.Root;
+import org.socialhistoryservices.delivery.record.entity.*;
+import org.socialhistoryservices.delivery.util.InvalidRequestException;
+
+import javax.persistence.criteria.*;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.SingularAttribute;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Request search helper class for list queries, with support for paging.
+ * Besides offset paging, the list can seek to the results after a cursor (the 'after' parameter),
+ * which holds the value of the sort column and the id of the last result of the previous page.
  *
  * @param <R> The request entity.
  */
@@ -24,6 +32,8 @@ public abstract class ListRequestSearch<R> extends RequestSearch<R> {
 
     /**
      * Create a query that will list the search results.
+     * The results are ordered on the id after the sort column, so that every result has a fixed position.
+     * If a cursor is given, only the results after the cursor are listed.
      *
      * @return A query for the persistence layer.
      */
@@ -32,6 +42,21 @@ public abstract class ListRequestSearch<R> extends RequestSearch<R> {
         Root<R> hrRoot = cq.from(clazz);
         cq.select(hrRoot);
         build(hrRoot, cq, false);
+
+        if (!cq.getOrderList().isEmpty()) {
+            Order sortOrder = cq.getOrderList().get(0);
+            Path<?> id = getIdPath(hrRoot);
+
+            List<Order> orders = new ArrayList<>(cq.getOrderList());
+            orders.add(sortOrder.isAscending() ? cb.asc(id) : cb.desc(id));
+            cq.orderBy(orders);
+
+            if (hasCursor()) {
+                Predicate after = getCursorPredicate(sortOrder, id);
+                cq.where((cq.getRestriction() != null) ? cb.and(cq.getRestriction(), after) : after);
+            }
+        }
+
         return cq;
     }
 
@@ -48,6 +73,193 @@ public abstract class ListRequestSearch<R> extends RequestSearch<R> {
         return cq;
     }
 
+    /**
+     * Create a query that will list the ids of all the search results,
+     * so that the results can be counted up to a limit instead of counting all of them.
+     *
+     * @return A query for the persistence layer.
+     */
+    public CriteriaQuery<Object> countLimited() {
+        CriteriaQuery<Object> cq = cb.createQuery();
+        Root<R> hrRoot = cq.from(clazz);
+        cq.select(getIdPath(hrRoot));
+        build(hrRoot, cq, true);
+        return cq;
+    }
+
+    /**
+     * Whether the list should seek to the results after a cursor, rather than skip to an offset.
+     *
+     * @return Whether a cursor is given.
+     */
+    public boolean hasCursor() {
+        return p.containsKey("after") && !p.get("after")[0].trim().isEmpty();
+    }
+
+    /**
+     * Returns the cursor pointing to the results after the given result.
+     *
+     * @param result The last result of a page.
+     * @return The cursor, or null if the list does not support cursors.
+     */
+    public String getCursor(R result) {
+        Object value = getSortValue(result);
+        if (value == null)
+            return null;
+
+        if (value instanceof Date)
+            value = ((Date) value).getTime();
+        else if (value instanceof Enum)
+            value = ((Enum<?>) value).name();
+        return value + ":" + getId(result);
+    }
+
+    /**
+     * Returns the value of the column the results are sorted on for the given result.
+     *
+     * @param result The result.
+     * @return The value, or null if the list does not support cursors.
+     */
+    protected Object getSortValue(R result) {
+        return null;
+    }
+
+    /**
+     * Returns the id of the given result.
+     *
+     * @param result The result.
+     * @return The id, or null if the list does not support cursors.
+     */
+    protected Integer getId(R result) {
+        return null;
+    }
+
+    /**
+     * Join the given association. List queries fetch the association with the same join,
+     * so that the list view does not need a separate select per row; count queries cannot fetch.
+     *
+     * @param from      The entity to join from.
+     * @param attribute The association to join.
+     * @param joinType  The type of join.
+     * @param isCount   Whether the query is a count or not.
+     * @param <X>       The entity joined from.
+     * @param <Y>       The entity joined.
+     * @return The join.
+     */
+    @SuppressWarnings("unchecked")
+    protected <X, Y> Join<X, Y> joinOrFetch(From<?, X> from, SingularAttribute<? super X, Y> attribute,
+                                            JoinType joinType, boolean isCount) {
+        if (isCount)
+            return from.join(attribute, joinType);
+        return (Join<X, Y>) from.fetch(attribute, joinType);
+    }
+
+    /**
+     * Fetch the record of the given holding, together with its external info and parent,
+     * as shown by the list views.
+     *
+     * @param hRoot The holding join.
+     */
+    protected void fetchRecord(Join<?, Holding> hRoot) {
+        hRoot.fetch(Holding_.externalInfo, JoinType.LEFT);
+        Fetch<Holding, Record> rFetch = hRoot.fetch(Holding_.record);
+        rFetch.fetch(Record_.externalInfo, JoinType.LEFT);
+        Fetch<Record, Record> prFetch = rFetch.fetch(Record_.parent, JoinType.LEFT);
+        prFetch.fetch(Record_.externalInfo, JoinType.LEFT);
+    }
+
+    /**
+     * Obtain a predicate matching the holdings of which the signature, the title of the record
+     * or the signature of the parent record contains the given search pattern.
+     * Every field is matched in its own subquery, so that the database can use the index on that field.
+     *
+     * @param cq        The query to build upon.
+     * @param holdingId The id of the holding to match.
+     * @param search    The lower case search pattern.
+     * @return The predicate.
+     */
+    protected Predicate getHoldingSearchPredicate(CriteriaQuery<?> cq, Path<Integer> holdingId, String search) {
+        Subquery<Integer> signatures = cq.subquery(Integer.class);
+        Root<Holding> hRoot = signatures.from(Holding.class);
+        signatures.select(hRoot.get(Holding_.id));
+        signatures.where(cb.like(cb.lower(hRoot.get(Holding_.signature)), search));
+
+        Subquery<Integer> titles = cq.subquery(Integer.class);
+        Root<Holding> thRoot = titles.from(Holding.class);
+        Join<Holding, Record> rRoot = thRoot.join(Holding_.record);
+        Join<Record, ExternalRecordInfo> eRoot = rRoot.join(Record_.externalInfo);
+        titles.select(thRoot.get(Holding_.id));
+        titles.where(cb.like(cb.lower(eRoot.get(ExternalRecordInfo_.title)), search));
+
+        Subquery<Integer> parentSignatures = cq.subquery(Integer.class);
+        Root<Holding> chRoot = parentSignatures.from(Holding.class);
+        Join<Holding, Record> crRoot = chRoot.join(Holding_.record);
+        Join<Record, Record> prRoot = crRoot.join(Record_.parent);
+        Join<Record, Holding> phRoot = prRoot.join(Record_.holdings);
+        parentSignatures.select(chRoot.get(Holding_.id));
+        parentSignatures.where(cb.like(cb.lower(phRoot.get(Holding_.signature)), search));
+
+        return cb.or(holdingId.in(signatures), holdingId.in(titles), holdingId.in(parentSignatures));
+    }
+
+    /**
+     * Parse the cursor into a predicate that only matches the results after the cursor.
+     *
+     * @param sortOrder The order on the sort column.
+     * @param id        The id of the root entity.
+     * @return The predicate.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Predicate getCursorPredicate(Order sortOrder, Path<?> id) {
+        String cursor = p.get("after")[0].trim();
+        int separator = cursor.lastIndexOf(':');
+        try {
+            Expression sort = sortOrder.getExpression();
+            Comparable value = parseSortValue(sort.getJavaType(), cursor.substring(0, Math.max(separator, 0)));
+            Integer lastId = Integer.valueOf(cursor.substring(separator + 1));
+
+            Path<Integer> idPath = (Path<Integer>) id;
+            if (sortOrder.isAscending()) {
+                return cb.or(cb.greaterThan(sort, value),
+                        cb.and(cb.equal(sort, value), cb.greaterThan(idPath, lastId)));
+            }
+            return cb.or(cb.lessThan(sort, value),
+                    cb.and(cb.equal(sort, value), cb.lessThan(idPath, lastId)));
+        }
+        catch (IllegalArgumentException ex) {
+            throw new InvalidRequestException("Invalid cursor: " + cursor);
+        }
+    }
+
+    /**
+     * Parse the value of the sort column from a cursor.
+     *
+     * @param type  The type of the sort column.
+     * @param value The value from the cursor.
+     * @return The parsed value.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparable<?> parseSortValue(Class<?> type, String value) {
+        if (Date.class.isAssignableFrom(type))
+            return new Date(Long.parseLong(value));
+        if (type == Boolean.class || type == boolean.class)
+            return Boolean.valueOf(value);
+        if (type.isEnum())
+            return Enum.valueOf((Class<Enum>) type, value);
+        return value;
+    }
+
+    /**
+     * Returns the id of the root entity.
+     *
+     * @param hrRoot The root entity.
+     * @return The id.
+     */
+    private Path<?> getIdPath(Root<R> hrRoot) {
+        EntityType<R> model = hrRoot.getModel();
+        return hrRoot.get(model.getId(model.getIdType().getJavaType()));
+    }
+
     /**
      * Build the query.
      *
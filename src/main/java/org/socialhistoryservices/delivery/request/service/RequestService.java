@@ -3,6 +3,9 @@ package org.socialhistoryservices.delivery.request.service;
 import org.socialhistoryservices.delivery.record.entity.Holding;
 import org.socialhistoryservices.delivery.request.entity.Request;
 
+import java.util.Collection;
+import java.util.Map;
+
 /**
  * Represents the service of the request package to be used by the implementing services.
  */
@@ -14,4 +17,12 @@ public interface RequestService {
      * @return The active request, or null if no active request exists.
      */
     Request getActiveFor(Holding holding);
+
+    /**
+     * Returns the active requests with which the given holdings are associated.
+     *
+     * @param holdings The holdings to get the active requests of.
+     * @return The active request per holding id, holdings without an active request are left out.
+     */
+    Map<Integer, ? extends Request> getActiveFor(Collection<Holding> holdings);
 }
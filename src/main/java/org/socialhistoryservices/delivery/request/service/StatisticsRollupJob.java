@@ -0,0 +1,155 @@
+package org.socialhistoryservices.delivery.request.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.socialhistoryservices.delivery.job.entity.JobState;
+import org.socialhistoryservices.delivery.job.service.JobStateService;
+import org.socialhistoryservices.delivery.request.entity.StatisticsRollupDay;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the daily statistics rollups up to date.
+ * The request services report the days of the requests they change; the days are queued in the database
+ * as part of the change and the rollups of the queued days are recomputed every minute by any node.
+ * Every night the rollups of all days are rebuilt, which also picks up the changes that were never reported,
+ * like a changed material type or title of a record. The rebuild is leased to a single node and skipped if the
+ * last rebuild is recent; after startup, the rollups are only rebuilt if the last rebuild is not recent.
+ */
+@Service
+public class StatisticsRollupJob {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StatisticsRollupJob.class);
+
+    public static final String JOB_NAME = "statistics_rollup";
+    private static final int LEASE_MINUTES = 60;
+    private static final int REBUILD_INTERVAL_MINUTES = 20 * 60;
+
+    @Autowired
+    private StatisticsRollupService statisticsRollups;
+
+    @Autowired
+    private JobStateService jobStates;
+
+    private volatile boolean started;
+
+    /**
+     * Report the days of a changed reservation, as part of the current transaction.
+     *
+     * @param days The days, null days are ignored.
+     */
+    public void reservationChanged(Date... days) {
+        statisticsRollups.queueDays(StatisticsRollupDay.Type.RESERVATION, toDays(days));
+    }
+
+    /**
+     * Report the days of a changed reproduction, as part of the current transaction.
+     *
+     * @param days The days, null days are ignored.
+     */
+    public void reproductionChanged(Date... days) {
+        statisticsRollups.queueDays(StatisticsRollupDay.Type.REPRODUCTION, toDays(days));
+    }
+
+    /**
+     * Scheduled task to recompute the rollups of the queued days, by default every minute starting a minute
+     * after startup.
+     */
+    @Scheduled(fixedDelayString = "${delivery.statisticsRollupRefreshDelay:60000}",
+            initialDelayString = "${delivery.statisticsRollupRefreshDelay:60000}")
+    public void refreshChangedDays() {
+        if (!started) {
+            started = true;
+            rebuildRollups();
+        }
+
+        try {
+            refresh(StatisticsRollupDay.Type.RESERVATION, statisticsRollups::refreshReservationRollups);
+            refresh(StatisticsRollupDay.Type.REPRODUCTION, statisticsRollups::refreshReproductionRollups);
+        }
+        catch (Exception e) {
+            LOGGER.warn("Failed to list the days of which the statistics rollups have to be refreshed", e);
+        }
+    }
+
+    /**
+     * Scheduled task to rebuild the rollups of all days, unless another node is rebuilding them
+     * or they were rebuilt recently.
+     */
+    @Scheduled(cron = "0 0 4 * * *")
+    public void rebuildRollups() {
+        try {
+            JobState jobState = jobStates.startRunIfDue(JOB_NAME, LEASE_MINUTES, REBUILD_INTERVAL_MINUTES);
+            if (jobState == null) {
+                LOGGER.info("Skip run: the statistics rollups are rebuilt by another node or were rebuilt recently");
+                return;
+            }
+        }
+        catch (Exception e) {
+            LOGGER.error("Failed to lease the rebuild of the statistics rollups", e);
+            return;
+        }
+
+        // A failed rebuild keeps its lease until it expires, after which the next node to start or the next night
+        // tries again; in the meantime the queued days are still refreshed
+        LOGGER.info("Start run: rebuild the statistics rollups");
+        try {
+            statisticsRollups.rebuildRollups();
+            jobStates.finishRun(JOB_NAME, 0);
+            LOGGER.info("Finished run: rebuild the statistics rollups");
+        }
+        catch (Exception e) {
+            LOGGER.error("Failed to rebuild the statistics rollups", e);
+        }
+    }
+
+    /**
+     * Recompute the rollups of the queued days, each day in its own transaction.
+     * A day that fails stays queued.
+     *
+     * @param type    The type of the rollups.
+     * @param refresh The recomputation of the rollups of a day.
+     */
+    private void refresh(StatisticsRollupDay.Type type, Consumer<Date> refresh) {
+        for (Date day : statisticsRollups.listQueuedDays(type)) {
+            try {
+                refresh.accept(day);
+            }
+            catch (Exception e) {
+                LOGGER.warn(String.format("Failed to refresh the %s statistics rollups of %s", type, day), e);
+            }
+        }
+    }
+
+    /**
+     * Returns the distinct days of the given dates in the default time zone.
+     *
+     * @param dates The dates, null dates are ignored.
+     * @return The days.
+     */
+    private static Set<Date> toDays(Date... dates) {
+        Set<Date> days = new TreeSet<>();
+        for (Date date : dates) {
+            if (date != null)
+                days.add(java.sql.Date.valueOf(toLocalDate(date)));
+        }
+        return days;
+    }
+
+    /**
+     * Returns the day of the given date in the default time zone.
+     *
+     * @param date The date.
+     * @return The day.
+     */
+    private static LocalDate toLocalDate(Date date) {
+        if (date instanceof java.sql.Date)
+            return ((java.sql.Date) date).toLocalDate();
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+}
@@ -0,0 +1,47 @@
+package org.socialhistoryservices.delivery.request.service;
+
+import org.socialhistoryservices.delivery.request.entity.StatisticsRollupDay;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Interface representing the service maintaining the daily rollups read by the statistics of the requests.
+ */
+public interface StatisticsRollupService {
+    /**
+     * Queue the given days for the recomputation of their rollups, as part of the current transaction.
+     *
+     * @param type The type of the rollups.
+     * @param days The days.
+     */
+    void queueDays(StatisticsRollupDay.Type type, Collection<Date> days);
+
+    /**
+     * List the queued days of which the rollups of the given type have to be recomputed.
+     *
+     * @param type The type of the rollups.
+     * @return The days, in order.
+     */
+    List<Date> listQueuedDays(StatisticsRollupDay.Type type);
+
+    /**
+     * Recompute the reservation rollups of the given day, if it is still queued.
+     *
+     * @param day The day.
+     */
+    void refreshReservationRollups(Date day);
+
+    /**
+     * Recompute the reproduction rollups of the given day, if it is still queued.
+     *
+     * @param day The day.
+     */
+    void refreshReproductionRollups(Date day);
+
+    /**
+     * Recompute the rollups of all days.
+     */
+    void rebuildRollups();
+}
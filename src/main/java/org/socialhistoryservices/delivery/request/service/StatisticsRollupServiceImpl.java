@@ -0,0 +1,102 @@
+package org.socialhistoryservices.delivery.request.service;
+
+import org.socialhistoryservices.delivery.reproduction.dao.ReproductionRollupDAO;
+import org.socialhistoryservices.delivery.request.dao.StatisticsRollupDayDAO;
+import org.socialhistoryservices.delivery.request.entity.StatisticsRollupDay;
+import org.socialhistoryservices.delivery.reservation.dao.ReservationRollupDAO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Represents the service maintaining the daily rollups read by the statistics of the requests.
+ * The rollups of a day are replaced as a whole in a single transaction,
+ * so the statistics never see a partially recomputed day.
+ * <p>
+ * The queued day is removed before the rollups are recomputed: a change committed after the removal
+ * queues the day again, a change committed before it is seen by the recomputation.
+ */
+@Service
+@Transactional
+public class StatisticsRollupServiceImpl implements StatisticsRollupService {
+    @Autowired
+    private ReservationRollupDAO reservationRollupDAO;
+
+    @Autowired
+    private ReproductionRollupDAO reproductionRollupDAO;
+
+    @Autowired
+    private StatisticsRollupDayDAO statisticsRollupDayDAO;
+
+    /**
+     * Queue the given days for the recomputation of their rollups, as part of the current transaction.
+     *
+     * @param type The type of the rollups.
+     * @param days The days.
+     */
+    public void queueDays(StatisticsRollupDay.Type type, Collection<Date> days) {
+        for (Date day : days) {
+            StatisticsRollupDay rollupDay = new StatisticsRollupDay();
+            rollupDay.setType(type);
+            rollupDay.setDay(day);
+            statisticsRollupDayDAO.add(rollupDay);
+        }
+    }
+
+    /**
+     * List the queued days of which the rollups of the given type have to be recomputed.
+     *
+     * @param type The type of the rollups.
+     * @return The days, in order.
+     */
+    public List<Date> listQueuedDays(StatisticsRollupDay.Type type) {
+        return statisticsRollupDayDAO.listDays(type);
+    }
+
+    /**
+     * Recompute the reservation rollups of the given day, if it is still queued.
+     *
+     * @param day The day.
+     */
+    public void refreshReservationRollups(Date day) {
+        reservationRollupDAO.lock();
+        if (statisticsRollupDayDAO.remove(StatisticsRollupDay.Type.RESERVATION, day) == 0)
+            return;
+
+        reservationRollupDAO.remove(day);
+        reservationRollupDAO.add(day);
+    }
+
+    /**
+     * Recompute the reproduction rollups of the given day, if it is still queued.
+     *
+     * @param day The day.
+     */
+    public void refreshReproductionRollups(Date day) {
+        reproductionRollupDAO.lock();
+        if (statisticsRollupDayDAO.remove(StatisticsRollupDay.Type.REPRODUCTION, day) == 0)
+            return;
+
+        reproductionRollupDAO.remove(day);
+        reproductionRollupDAO.add(day);
+    }
+
+    /**
+     * Recompute the rollups of all days.
+     */
+    public void rebuildRollups() {
+        reservationRollupDAO.lock();
+        statisticsRollupDayDAO.remove(StatisticsRollupDay.Type.RESERVATION, null);
+        reservationRollupDAO.remove(null);
+        reservationRollupDAO.add(null);
+
+        reproductionRollupDAO.lock();
+        statisticsRollupDayDAO.remove(StatisticsRollupDay.Type.REPRODUCTION, null);
+        reproductionRollupDAO.remove(null);
+        reproductionRollupDAO.add(null);
+    }
+}
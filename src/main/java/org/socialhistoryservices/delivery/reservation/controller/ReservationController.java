@@ -98,15 +98,24 @@ public class ReservationController extends AbstractRequestController {
 
         ReservationSearch search = new ReservationSearch(cb, p);
         CriteriaQuery<HoldingReservation> cq = search.list();
-        CriteriaQuery<Long> cqCount = search.count();
 
-        // Fetch result set
+        // Fetch result set, with a cursor the list already starts after the previous page
+        int maxResults = getMaxResults(p);
         List<HoldingReservation> holdingReservations =
-                reservations.listHoldingReservations(cq, getFirstResult(p), getMaxResults(p));
+                reservations.listHoldingReservations(cq, search.hasCursor() ? 0 : getFirstResult(p), maxResults);
         model.addAttribute("holdingReservations", holdingReservations);
 
-        long holdingReservationsSize = reservations.countHoldingReservations(cqCount);
-        model.addAttribute("holdingReservationsSize", holdingReservationsSize);
+        if (!holdingReservations.isEmpty() && (holdingReservations.size() == maxResults))
+            model.addAttribute("nextPageCursor", search.getCursor(holdingReservations.get(maxResults - 1)));
+
+        // Only count the results up to a limit, if there is one
+        int countLimit = getCountLimit(p);
+        long holdingReservationsSize = (countLimit > 0)
+                ? reservations.countHoldingReservations(search.countLimited(), countLimit + 1)
+                : reservations.countHoldingReservations(search.count());
+        boolean holdingReservationsSizeCapped = (countLimit > 0) && (holdingReservationsSize > countLimit);
+        model.addAttribute("holdingReservationsSize", holdingReservationsSizeCapped ? countLimit : holdingReservationsSize);
+        model.addAttribute("holdingReservationsSizeCapped", holdingReservationsSizeCapped);
 
         // Fetch holding active request information
         Set<Holding> holdings = getHoldings(holdingReservations);
@@ -739,17 +748,16 @@ public class ReservationController extends AbstractRequestController {
         CriteriaQuery<Tuple> signatuesCq = signatureStatistics.tuple();
         List<Tuple> signatureTuples = reservations.listTuples(signatuesCq);
 
-        Map<String, RecordCount> parentSignaturesMap = signatureTuples.stream().collect(Collectors.toMap(
-                t -> (t.get("parentSignature") != null) ? t.get("parentSignature").toString() : t.get("signature").toString(),
-                t -> new RecordCount(
-                        (t.get("parentTitle") != null) ? t.get("parentTitle").toString() : t.get("title").toString(),
-                        Long.valueOf(t.get("numberOfRequests").toString())
-                ),
-                (num1, num2) -> new RecordCount(num1.title, num1.count + num2.count)
-        )).entrySet().stream().sorted((c1, c2) -> {
-            int compared = c1.getValue().count.compareTo(c2.getValue().count) * -1;
-            return (compared == 0) ? c1.getKey().compareToIgnoreCase(c2.getKey()) : compared;
-        }).collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (v1, v2) -> v1, LinkedHashMap::new));
+        CriteriaBuilder cbParentSignature = reservations.getHoldingReservationCriteriaBuilder();
+        ReservationParentSignatureStatistics parentSignatureStatistics =
+                new ReservationParentSignatureStatistics(cbParentSignature, p);
+        CriteriaQuery<Tuple> parentSignaturesCq = parentSignatureStatistics.tuple();
+
+        Map<String, RecordCount> parentSignaturesMap = new LinkedHashMap<>();
+        for (Tuple t : reservations.listTuples(parentSignaturesCq)) {
+            parentSignaturesMap.put(t.get("parentSignature").toString(), new RecordCount(
+                    t.get("parentTitle").toString(), Long.valueOf(t.get("numberOfRequests").toString())));
+        }
 
         model.addAttribute("materialTuples", reservations.listTuples(materialsCq));
         model.addAttribute("parentSignaturesMap", parentSignaturesMap);
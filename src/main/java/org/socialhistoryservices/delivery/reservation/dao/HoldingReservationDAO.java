@@ -43,6 +43,15 @@ public interface HoldingReservationDAO {
      */
     long count(CriteriaQuery<Long> q);
 
+    /**
+     * Count the HoldingReservations matching a built query, up to the given limit.
+     *
+     * @param q     The criteria query to execute, selecting the ids.
+     * @param limit The maximum number of results to count.
+     * @return The number of counted results, at most the limit.
+     */
+    long count(CriteriaQuery<Object> q, int limit);
+
     /**
      * Retrieve the HoldingReservation matching the given ID.
      *
@@ -71,6 +71,17 @@ public class HoldingReservationDAOImpl implements HoldingReservationDAO {
         return entityManager.createQuery(q).getSingleResult();
     }
 
+    /**
+     * Count the HoldingReservations matching a built query, up to the given limit.
+     *
+     * @param q     The criteria query to execute, selecting the ids.
+     * @param limit The maximum number of results to count.
+     * @return The number of counted results, at most the limit.
+     */
+    public long count(CriteriaQuery<Object> q, int limit) {
+        return entityManager.createQuery(q).setMaxResults(limit).getResultList().size();
+    }
+
     /**
      * Retrieve the HoldingReservation matching the given ID.
      *
@@ -7,7 +7,10 @@ import org.socialhistoryservices.delivery.reservation.entity.Reservation;
 import javax.persistence.Tuple;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Interface representing the Data Access bject of a reservation.
@@ -82,10 +85,19 @@ public interface ReservationDAO {
     Reservation getActiveFor(Holding h);
 
     /**
-     * Check whether the given record is linked to a pending reservation based on the container.
+     * Get the active reservations relating to the given holdings.
      *
-     * @param record The record to check on.
-     * @return Whether the given record is linked to a pending reservation based on the container.
+     * @param holdingIds The ids of the holdings to find a reservation for.
+     * @return The active reservation per holding id, holdings without an active reservation are left out.
      */
-    boolean hasPendingReservation(Record record);
+    Map<Integer, Reservation> getActiveFor(Collection<Integer> holdingIds);
+
+    /**
+     * Find out which of the containers of the given records are linked to a pending reservation.
+     *
+     * @param records The records to check on, with a parent and a container.
+     * @return The containers with a pending reservation per parent record id,
+     * parents without a pending reservation are left out.
+     */
+    Map<Integer, Set<String>> getContainersWithPendingReservations(Collection<Record> records);
 }
@@ -9,7 +9,8 @@ import org.springframework.stereotype.Repository;
 
 import javax.persistence.*;
 import javax.persistence.criteria.*;
-import java.util.List;
+import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * Represents the Data Access bject of a reservation.
@@ -148,36 +149,81 @@ public class ReservationDAOImpl implements ReservationDAO {
     }
 
     /**
-     * Check whether the given record is linked to a pending reservation based on the container.
+     * Get the active reservations relating to the given holdings.
      *
-     * @param record The record to check on.
-     * @return Whether the given record is linked to a pending reservation based on the container.
+     * @param holdingIds The ids of the holdings to find a reservation for.
+     * @return The active reservation per holding id, holdings without an active reservation are left out.
      */
-    public boolean hasPendingReservation(Record record) {
+    public Map<Integer, Reservation> getActiveFor(Collection<Integer> holdingIds) {
+        Map<Integer, Reservation> activeReservations = new HashMap<>();
+        if (holdingIds.isEmpty())
+            return activeReservations;
+
         CriteriaBuilder cb = getCriteriaBuilder();
-        CriteriaQuery<Reservation> cq = cb.createQuery(Reservation.class);
+        CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+        Root<Reservation> resRoot = cq.from(Reservation.class);
+
+        Join<Reservation, HoldingReservation> hrRoot = resRoot.join(Reservation_.holdingReservations);
+        Join<HoldingReservation, Holding> hRoot = hrRoot.join(HoldingReservation_.holding);
+        cq.multiselect(hRoot.get(Holding_.id).alias("holdingId"), resRoot.alias("reservation"));
+
+        cq.where(cb.and(
+                hRoot.get(Holding_.id).in(holdingIds),
+                cb.equal(hrRoot.get(HoldingReservation_.completed), false)
+        ));
+        cq.orderBy(cb.asc(resRoot.get(Reservation_.creationDate)));
+
+        // The reservation with the earliest creation date is the active reservation of the holding
+        for (Tuple tuple : entityManager.createQuery(cq).getResultList())
+            activeReservations.putIfAbsent(tuple.get("holdingId", Integer.class),
+                    tuple.get("reservation", Reservation.class));
+        return activeReservations;
+    }
+
+    /**
+     * Find out which of the containers of the given records are linked to a pending reservation.
+     *
+     * @param records The records to check on, with a parent and a container.
+     * @return The containers with a pending reservation per parent record id,
+     * parents without a pending reservation are left out.
+     */
+    public Map<Integer, Set<String>> getContainersWithPendingReservations(Collection<Record> records) {
+        Map<Integer, Set<String>> requested = new HashMap<>();
+        for (Record record : records) {
+            requested.computeIfAbsent(record.getParent().getId(), id -> new HashSet<>())
+                    .add(record.getExternalInfo().getContainer());
+        }
+
+        Map<Integer, Set<String>> pending = new HashMap<>();
+        if (requested.isEmpty())
+            return pending;
+
+        CriteriaBuilder cb = getCriteriaBuilder();
+        CriteriaQuery<Tuple> cq = cb.createTupleQuery();
         Root<Reservation> resRoot = cq.from(Reservation.class);
-        cq.select(resRoot);
 
         Join<Reservation, HoldingReservation> hrRoot = resRoot.join(Reservation_.holdingReservations);
         Join<HoldingReservation, Holding> hRoot = hrRoot.join(HoldingReservation_.holding);
         Join<Holding, Record> rRoot = hRoot.join(Holding_.record);
         Join<Record, ExternalRecordInfo> eriRoot = rRoot.join(Record_.externalInfo);
 
+        Path<Integer> parentId = rRoot.get(Record_.parent).get(Record_.id);
+        Path<String> container = eriRoot.get(ExternalRecordInfo_.container);
+        cq.multiselect(parentId.alias("parentId"), container.alias("container")).distinct(true);
+
+        // Only the requested (parent, container) pairs are returned, the other combinations are filtered out below
         cq.where(cb.and(
                 cb.equal(resRoot.get(Reservation_.status), Reservation.Status.PENDING),
-                cb.equal(rRoot.get(Record_.parent), record.getParent()),
-                cb.isNotNull(eriRoot.get(ExternalRecordInfo_.container)),
-                cb.equal(eriRoot.get(ExternalRecordInfo_.container), record.getExternalInfo().getContainer())
+                parentId.in(requested.keySet()),
+                container.in(requested.values().stream().flatMap(Set::stream).collect(Collectors.toSet()))
         ));
 
-        try {
-            TypedQuery<Reservation> q = entityManager.createQuery(cq);
-            q.setMaxResults(1);
-            return q.getSingleResult() != null;
-        }
-        catch (NoResultException ex) {
-            return false;
+        for (Tuple tuple : entityManager.createQuery(cq).getResultList()) {
+            Integer parent = tuple.get("parentId", Integer.class);
+            String pendingContainer = tuple.get("container", String.class);
+            if (requested.get(parent).contains(pendingContainer))
+                pending.computeIfAbsent(parent, id -> new HashSet<>()).add(pendingContainer);
         }
+        return pending;
     }
 }
@@ -28,6 +28,13 @@ public interface ReservationDateExceptionDAO {
      */
     void save(ReservationDateException obj);
 
+    /**
+     * Detach a ReservationDateException from the persistence context, so that it can be cached.
+     *
+     * @param obj ReservationDateException to detach.
+     */
+    void detach(ReservationDateException obj);
+
     /**
      * List all ReservationDateExceptions matching a built query.
      *
@@ -56,6 +56,15 @@ public class ReservationDateExceptionDAOImpl implements ReservationDateException
         entityManager.merge(obj);
     }
 
+    /**
+     * Detach a ReservationDateException from the persistence context, so that it can be cached.
+     *
+     * @param obj ReservationDateException to detach.
+     */
+    public void detach(ReservationDateException obj) {
+        entityManager.detach(obj);
+    }
+
     /**
      * List all ReservationDateExceptions matching a built query.
      *
@@ -0,0 +1,30 @@
+package org.socialhistoryservices.delivery.reservation.dao;
+
+import java.util.Date;
+
+/**
+ * Interface representing the Data Access Object of the reservation statistics rollups.
+ */
+public interface ReservationRollupDAO {
+    /**
+     * Lock the reservation rollups until the current transaction completes,
+     * so that the rollups of a day are not recomputed by two transactions at the same time.
+     */
+    void lock();
+
+    /**
+     * Remove the reservation rollups of the given day from the database.
+     *
+     * @param day The day, or null to remove the rollups of all days.
+     * @return The number of removed rollups.
+     */
+    int remove(Date day);
+
+    /**
+     * Compute the reservation rollups of the given day from the reservations and add them to the database.
+     *
+     * @param day The day, or null to compute the rollups of all days.
+     * @return The number of added rollups.
+     */
+    int add(Date day);
+}
@@ -0,0 +1,113 @@
+package org.socialhistoryservices.delivery.reservation.dao;
+
+import org.socialhistoryservices.delivery.reservation.entity.ReservationMaterialRollup;
+import org.socialhistoryservices.delivery.reservation.entity.ReservationMaterialRollup_;
+import org.socialhistoryservices.delivery.reservation.entity.ReservationSignatureRollup;
+import org.socialhistoryservices.delivery.reservation.entity.ReservationSignatureRollup_;
+import org.socialhistoryservices.delivery.util.TransactionLocks;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.TemporalType;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaDelete;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.SingularAttribute;
+import java.util.Date;
+
+/**
+ * Represents the Data Access Object of the reservation statistics rollups.
+ * The rollups are computed with a single INSERT ... SELECT per rollup table,
+ * so the reservations are aggregated by the database and never loaded.
+ */
+@Repository
+public class ReservationRollupDAOImpl implements ReservationRollupDAO {
+    private static final String FROM_HOLDING_RESERVATIONS =
+            " from HoldingReservation hr join hr.reservation res join hr.holding h" +
+            " join h.record r join r.externalInfo eri";
+
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionLocks transactionLocks;
+
+    /**
+     * Set the entity manager to use in this DAO, internal.
+     *
+     * @param entityManager The manager.
+     */
+    @PersistenceContext
+    private void setEntityManager(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Lock the reservation rollups until the current transaction completes, on all application nodes.
+     */
+    public void lock() {
+        transactionLocks.lock("reservation_rollups");
+    }
+
+    /**
+     * Remove the reservation rollups of the given day from the database.
+     *
+     * @param day The day, or null to remove the rollups of all days.
+     * @return The number of removed rollups.
+     */
+    public int remove(Date day) {
+        return remove(ReservationMaterialRollup.class, ReservationMaterialRollup_.day, day) +
+                remove(ReservationSignatureRollup.class, ReservationSignatureRollup_.day, day);
+    }
+
+    /**
+     * Compute the reservation rollups of the given day from the reservations and add them to the database.
+     *
+     * @param day The day, or null to compute the rollups of all days.
+     * @return The number of added rollups.
+     */
+    public int add(Date day) {
+        String where = (day != null) ? " where res.date = :day" : "";
+
+        Query materials = entityManager.createQuery(
+                "insert into ReservationMaterialRollup (day, materialType, numberOfRequests)" +
+                " select res.date, eri.materialType, count(eri.materialType)" +
+                FROM_HOLDING_RESERVATIONS + where +
+                " group by res.date, eri.materialType");
+
+        Query signatures = entityManager.createQuery(
+                "insert into ReservationSignatureRollup" +
+                " (day, materialType, parentSignature, signature, parentTitle, title, numberOfRequests)" +
+                " select res.date, eri.materialType, ph.signature, h.signature, peri.title, eri.title," +
+                " count(h.signature)" +
+                FROM_HOLDING_RESERVATIONS +
+                " left join r.parent pr left join pr.holdings ph left join pr.externalInfo peri" + where +
+                " group by res.date, eri.materialType, ph.signature, h.signature, peri.title, eri.title");
+
+        if (day != null) {
+            materials.setParameter("day", day, TemporalType.DATE);
+            signatures.setParameter("day", day, TemporalType.DATE);
+        }
+
+        return materials.executeUpdate() + signatures.executeUpdate();
+    }
+
+    /**
+     * Remove the rollups of the given type and day from the database.
+     *
+     * @param clazz The rollup class.
+     * @param dayAttribute The day attribute of the rollup.
+     * @param day The day, or null to remove the rollups of all days.
+     * @return The number of removed rollups.
+     */
+    private <T> int remove(Class<T> clazz, SingularAttribute<T, Date> dayAttribute, Date day) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaDelete<T> delete = cb.createCriteriaDelete(clazz);
+        Root<T> root = delete.from(clazz);
+        if (day != null)
+            delete.where(cb.equal(root.get(dayAttribute), day));
+        return entityManager.createQuery(delete).executeUpdate();
+    }
+}
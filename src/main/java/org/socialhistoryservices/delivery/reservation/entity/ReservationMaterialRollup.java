@@ -0,0 +1,79 @@
+package org.socialhistoryservices.delivery.reservation.entity;
+
+import org.socialhistoryservices.delivery.record.entity.ExternalRecordInfo;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * The number of reserved holdings per material type on a single day.
+ * The rollups are maintained by the StatisticsRollupService and read by the material statistics.
+ */
+@Entity
+@Table(name = "reservation_material_rollups", indexes = {
+        @Index(columnList = "request_date", name = "reservation_material_rollups_date_idx")})
+public class ReservationMaterialRollup {
+    /**
+     * The rollup's id.
+     */
+    @Id
+    @GeneratedValue
+    @Column(name = "id")
+    private int id;
+
+    /**
+     * The day of the reservations.
+     */
+    @Temporal(TemporalType.DATE)
+    @Column(name = "request_date", nullable = false)
+    private Date day;
+
+    /**
+     * The material type of the reserved holdings.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "material_type", nullable = false)
+    private ExternalRecordInfo.MaterialType materialType;
+
+    /**
+     * The number of reserved holdings.
+     */
+    @Column(name = "number_of_requests", nullable = false)
+    private long numberOfRequests;
+
+    /**
+     * Get the rollup's id.
+     *
+     * @return The rollup's id.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Get the day of the reservations.
+     *
+     * @return The day.
+     */
+    public Date getDay() {
+        return day;
+    }
+
+    /**
+     * Get the material type of the reserved holdings.
+     *
+     * @return The material type.
+     */
+    public ExternalRecordInfo.MaterialType getMaterialType() {
+        return materialType;
+    }
+
+    /**
+     * Get the number of reserved holdings.
+     *
+     * @return The number of reserved holdings.
+     */
+    public long getNumberOfRequests() {
+        return numberOfRequests;
+    }
+}
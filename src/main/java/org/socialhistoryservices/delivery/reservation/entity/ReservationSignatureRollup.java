@@ -0,0 +1,139 @@
+package org.socialhistoryservices.delivery.reservation.entity;
+
+import org.socialhistoryservices.delivery.record.entity.ExternalRecordInfo;
+
+import javax.persistence.*;
+import java.util.Date;
+
+/**
+ * The number of reservations of a single signature on a single day.
+ * The rollups are maintained by the StatisticsRollupService and read by the signature statistics.
+ */
+@Entity
+@Table(name = "reservation_signature_rollups", indexes = {
+        @Index(columnList = "request_date", name = "reservation_signature_rollups_date_idx")})
+public class ReservationSignatureRollup {
+    /**
+     * The rollup's id.
+     */
+    @Id
+    @GeneratedValue
+    @Column(name = "id")
+    private int id;
+
+    /**
+     * The day of the reservations.
+     */
+    @Temporal(TemporalType.DATE)
+    @Column(name = "request_date", nullable = false)
+    private Date day;
+
+    /**
+     * The material type of the reserved holding.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "material_type", nullable = false)
+    private ExternalRecordInfo.MaterialType materialType;
+
+    /**
+     * The signature of a holding of the parent record, if any.
+     */
+    @Column(name = "parent_signature")
+    private String parentSignature;
+
+    /**
+     * The signature of the reserved holding.
+     */
+    @Column(name = "signature", nullable = false)
+    private String signature;
+
+    /**
+     * The title of the parent record, if any.
+     */
+    @Column(name = "parent_title")
+    private String parentTitle;
+
+    /**
+     * The title of the record of the reserved holding.
+     */
+    @Column(name = "title", nullable = false)
+    private String title;
+
+    /**
+     * The number of reservations.
+     */
+    @Column(name = "number_of_requests", nullable = false)
+    private long numberOfRequests;
+
+    /**
+     * Get the rollup's id.
+     *
+     * @return The rollup's id.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Get the day of the reservations.
+     *
+     * @return The day.
+     */
+    public Date getDay() {
+        return day;
+    }
+
+    /**
+     * Get the material type of the reserved holding.
+     *
+     * @return The material type.
+     */
+    public ExternalRecordInfo.MaterialType getMaterialType() {
+        return materialType;
+    }
+
+    /**
+     * Get the signature of a holding of the parent record.
+     *
+     * @return The parent signature, or null if the record has no parent.
+     */
+    public String getParentSignature() {
+        return parentSignature;
+    }
+
+    /**
+     * Get the signature of the reserved holding.
+     *
+     * @return The signature.
+     */
+    public String getSignature() {
+        return signature;
+    }
+
+    /**
+     * Get the title of the parent record.
+     *
+     * @return The parent title, or null if the record has no parent.
+     */
+    public String getParentTitle() {
+        return parentTitle;
+    }
+
+    /**
+     * Get the title of the record of the reserved holding.
+     *
+     * @return The title.
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Get the number of reservations.
+     *
+     * @return The number of reservations.
+     */
+    public long getNumberOfRequests() {
+        return numberOfRequests;
+    }
+}
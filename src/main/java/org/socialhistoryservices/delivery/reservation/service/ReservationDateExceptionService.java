@@ -64,9 +64,10 @@ public interface ReservationDateExceptionService {
     List<Calendar> getExceptionDates();
 
     /**
-     * Get all the ReservationDateExceptions from the database.
+     * Get all the ReservationDateExceptions.
+     * The ReservationDateExceptions are cached and shared, so they must not be changed.
      *
-     * @return all ReservationDateExceptions from the database.
+     * @return all ReservationDateExceptions.
      */
     List<ReservationDateException> getReservationDateExceptions();
 
@@ -2,6 +2,7 @@ package org.socialhistoryservices.delivery.reservation.service;
 
 import org.socialhistoryservices.delivery.reservation.dao.ReservationDateExceptionDAO;
 import org.socialhistoryservices.delivery.reservation.entity.ReservationDateException;
+import org.socialhistoryservices.delivery.util.ReferenceDataCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.MessageSource;
 import org.springframework.context.i18n.LocaleContextHolder;
@@ -27,6 +28,9 @@ public class ReservationDateExceptionServiceImpl implements ReservationDateExcep
     @Autowired
     protected MessageSource messageSource;
 
+    @Autowired
+    private ReferenceDataCache<ReservationDateException> dateExceptionCache;
+
     /**
      * Add a ReservationDateException to the database.
      *
@@ -34,6 +38,7 @@ public class ReservationDateExceptionServiceImpl implements ReservationDateExcep
      */
     public void addReservationDateException(ReservationDateException obj) {
         reservationDateExceptionDAO.add(obj);
+        dateExceptionCache.invalidate();
     }
 
     /**
@@ -43,6 +48,7 @@ public class ReservationDateExceptionServiceImpl implements ReservationDateExcep
      */
     public void removeReservationDateException(ReservationDateException obj) {
         reservationDateExceptionDAO.remove(obj);
+        dateExceptionCache.invalidate();
     }
 
     /**
@@ -106,16 +112,21 @@ public class ReservationDateExceptionServiceImpl implements ReservationDateExcep
     }
 
     /**
-     * Get all the ReservationDateExceptions from the database.
+     * Get all the ReservationDateExceptions, from the cache.
      *
-     * @return all ReservationDateExceptions from the database.
+     * @return all ReservationDateExceptions.
      */
     public List<ReservationDateException> getReservationDateExceptions() {
-        CriteriaBuilder builder = getReservationDateExceptionCriteriaBuilder();
-        CriteriaQuery<ReservationDateException> query = builder.createQuery(ReservationDateException.class);
-        Root<ReservationDateException> root = query.from(ReservationDateException.class);
-        query.select(root);
-        return listReservationDateExceptions(query);
+        return dateExceptionCache.get(() -> {
+            CriteriaBuilder builder = getReservationDateExceptionCriteriaBuilder();
+            CriteriaQuery<ReservationDateException> query = builder.createQuery(ReservationDateException.class);
+            Root<ReservationDateException> root = query.from(ReservationDateException.class);
+            query.select(root);
+
+            List<ReservationDateException> dateExceptions = listReservationDateExceptions(query);
+            dateExceptions.forEach(reservationDateExceptionDAO::detach);
+            return dateExceptions;
+        });
     }
 
     /**
@@ -1,20 +1,18 @@
 package org.socialhistoryservices.delivery.reservation.service;
 
-import org.socialhistoryservices.delivery.record.entity.*;
+import org.socialhistoryservices.delivery.record.entity.ExternalRecordInfo;
 import org.socialhistoryservices.delivery.request.service.TupleRequestSearch;
-import org.socialhistoryservices.delivery.reservation.entity.HoldingReservation;
-import org.socialhistoryservices.delivery.reservation.entity.HoldingReservation_;
-import org.socialhistoryservices.delivery.reservation.entity.Reservation;
-import org.socialhistoryservices.delivery.reservation.entity.Reservation_;
+import org.socialhistoryservices.delivery.reservation.entity.ReservationMaterialRollup;
+import org.socialhistoryservices.delivery.reservation.entity.ReservationMaterialRollup_;
 
 import javax.persistence.criteria.*;
 import java.util.Date;
 import java.util.Map;
 
 /**
- * Reservation material statistics helper class.
+ * Reservation material statistics helper class, reading from the daily material rollups.
  */
-public class ReservationMaterialStatistics extends TupleRequestSearch<HoldingReservation> {
+public class ReservationMaterialStatistics extends TupleRequestSearch<ReservationMaterialRollup> {
     /**
      * Creates a new reservation search helper.
      *
@@ -22,33 +20,27 @@ public class ReservationMaterialStatistics extends TupleRequestSearch<HoldingRes
      * @param p  The parameters from the user.
      */
     public ReservationMaterialStatistics(CriteriaBuilder cb, Map<String, String[]> p) {
-        super(HoldingReservation.class, cb, p);
+        super(ReservationMaterialRollup.class, cb, p);
     }
 
     /**
      * Build the query.
      *
-     * @param hrRoot The root entity.
-     * @param cq     The query to build upon.
+     * @param rRoot The root entity.
+     * @param cq    The query to build upon.
      */
     @Override
-    protected void build(Root<HoldingReservation> hrRoot, CriteriaQuery<?> cq) {
-        Join<HoldingReservation, Reservation> resRoot = hrRoot.join(HoldingReservation_.reservation);
-        Join<HoldingReservation, Holding> hRoot = hrRoot.join(HoldingReservation_.holding);
-        Join<Holding, Record> rRoot = hRoot.join(Holding_.record);
-        Join<Record, ExternalRecordInfo> eriRoot = rRoot.join(Record_.externalInfo);
-
-        Expression<Date> reservationDate = resRoot.get(Reservation_.date);
-        Expression<ExternalRecordInfo.MaterialType> materialType =
-                eriRoot.get(ExternalRecordInfo_.materialType);
-        Expression<Long> numberOfRequests = cb.count(materialType);
+    protected void build(Root<ReservationMaterialRollup> rRoot, CriteriaQuery<?> cq) {
+        Expression<Date> reservationDate = rRoot.get(ReservationMaterialRollup_.day);
+        Expression<ExternalRecordInfo.MaterialType> materialType = rRoot.get(ReservationMaterialRollup_.materialType);
+        Expression<Long> numberOfRequests = cb.sum(rRoot.get(ReservationMaterialRollup_.numberOfRequests));
 
         Predicate datePredicate = getDatePredicate(reservationDate, true);
         Predicate materialPredicate = getMaterialPredicate(materialType);
 
         cq.multiselect(materialType.alias("material"), numberOfRequests.alias("noRequests"));
         cq.where((materialPredicate != null) ? cb.and(datePredicate, materialPredicate) : datePredicate);
-        cq.groupBy(eriRoot.get(ExternalRecordInfo_.materialType));
+        cq.groupBy(materialType);
         cq.orderBy(cb.desc(numberOfRequests));
     }
 }
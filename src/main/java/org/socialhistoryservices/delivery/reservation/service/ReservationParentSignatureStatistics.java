@@ -0,0 +1,55 @@
+package org.socialhistoryservices.delivery.reservation.service;
+
+import org.socialhistoryservices.delivery.record.entity.ExternalRecordInfo;
+import org.socialhistoryservices.delivery.request.service.TupleRequestSearch;
+import org.socialhistoryservices.delivery.reservation.entity.ReservationSignatureRollup;
+import org.socialhistoryservices.delivery.reservation.entity.ReservationSignatureRollup_;
+
+import javax.persistence.criteria.*;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Reservation parent signature statistics helper class, reading from the daily signature rollups.
+ * Counts the reservations per signature of the parent record, or per signature for records without a parent.
+ */
+public class ReservationParentSignatureStatistics extends TupleRequestSearch<ReservationSignatureRollup> {
+    /**
+     * Creates a new reservation parent signature statistics search helper.
+     *
+     * @param cb The criteria builder.
+     * @param p  The parameters from the user.
+     */
+    public ReservationParentSignatureStatistics(CriteriaBuilder cb, Map<String, String[]> p) {
+        super(ReservationSignatureRollup.class, cb, p);
+    }
+
+    /**
+     * Build the query.
+     *
+     * @param rRoot The root entity.
+     * @param cq    The query to build upon.
+     */
+    @Override
+    protected void build(Root<ReservationSignatureRollup> rRoot, CriteriaQuery<?> cq) {
+        Expression<Date> reservationDate = rRoot.get(ReservationSignatureRollup_.day);
+        Expression<String> parentSignature = cb.coalesce(
+                rRoot.get(ReservationSignatureRollup_.parentSignature), rRoot.get(ReservationSignatureRollup_.signature));
+        Expression<String> parentTitle = cb.least(cb.coalesce(
+                rRoot.get(ReservationSignatureRollup_.parentTitle), rRoot.get(ReservationSignatureRollup_.title)));
+        Expression<ExternalRecordInfo.MaterialType> materialType = rRoot.get(ReservationSignatureRollup_.materialType);
+        Expression<Long> numberOfRequests = cb.sum(rRoot.get(ReservationSignatureRollup_.numberOfRequests));
+
+        Predicate datePredicate = getDatePredicate(reservationDate, true);
+        Predicate materialPredicate = getMaterialPredicate(materialType);
+
+        cq.multiselect(
+                parentSignature.alias("parentSignature"),
+                parentTitle.alias("parentTitle"),
+                numberOfRequests.alias("numberOfRequests")
+        );
+        cq.where((materialPredicate != null) ? cb.and(datePredicate, materialPredicate) : datePredicate);
+        cq.groupBy(parentSignature);
+        cq.orderBy(cb.desc(numberOfRequests), cb.asc(parentSignature));
+    }
+}
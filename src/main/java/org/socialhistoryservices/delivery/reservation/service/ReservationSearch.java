@@ -34,7 +34,8 @@ public class ReservationSearch extends ListRequestSearch<HoldingReservation> {
      */
     @Override
     protected void build(Root<HoldingReservation> hrRoot, CriteriaQuery<?> cq, boolean isCount) {
-        Join<HoldingReservation, Reservation> resRoot = hrRoot.join(HoldingReservation_.reservation);
+        Join<HoldingReservation, Reservation> resRoot =
+                joinOrFetch(hrRoot, HoldingReservation_.reservation, JoinType.INNER, isCount);
 
         // Expression to be the where clause of the query
         Expression<Boolean> where = null;
@@ -45,20 +46,58 @@ public class ReservationSearch extends ListRequestSearch<HoldingReservation> {
         where = addEmailFilter(resRoot, where);
         where = addStatusFilter(resRoot, where);
         where = addPrintedFilter(hrRoot, where);
-        where = addSearchFilter(hrRoot, resRoot, where);
+        where = addSearchFilter(hrRoot, resRoot, cq, where);
 
         // Set the where clause
         if (where != null) {
             cq.where(where);
         }
 
-        Join<HoldingReservation, Holding> hRoot = hrRoot.join(HoldingReservation_.holding);
+        Join<HoldingReservation, Holding> hRoot =
+                joinOrFetch(hrRoot, HoldingReservation_.holding, JoinType.INNER, isCount);
 
         if (!isCount) {
+            fetchRecord(hRoot);
             cq.orderBy(parseSortFilter(hrRoot, resRoot, hRoot));
         }
     }
 
+    /**
+     * Returns the value of the column the results are sorted on for the given holding reservation.
+     *
+     * @param hr The holding reservation.
+     * @return The value.
+     */
+    @Override
+    protected Object getSortValue(HoldingReservation hr) {
+        String sort = p.containsKey("sort") ? p.get("sort")[0] : "";
+        switch (sort) {
+            case "visitorName":
+                return hr.getReservation().getVisitorName();
+            case "status":
+                return hr.getReservation().getStatus();
+            case "printed":
+                return hr.isPrinted();
+            case "signature":
+                return hr.getHolding().getSignature();
+            case "holdingStatus":
+                return hr.getHolding().getStatus();
+            default:
+                return hr.getReservation().getDate();
+        }
+    }
+
+    /**
+     * Returns the id of the given holding reservation.
+     *
+     * @param hr The holding reservation.
+     * @return The id.
+     */
+    @Override
+    protected Integer getId(HoldingReservation hr) {
+        return hr.getId();
+    }
+
     /**
      * Parse the sort and sort_dir filters into an Order to be used in a query.
      *
@@ -107,28 +146,27 @@ public class ReservationSearch extends ListRequestSearch<HoldingReservation> {
      *
      * @param hrRoot  The holding reservation root.
      * @param resRoot The reservation root.
+     * @param cq      The query to build upon.
      * @param where   The already present where clause or null if none present.
      * @return The (updated) where clause, or null if the filter did not exist.
      */
     private Expression<Boolean> addSearchFilter(Root<HoldingReservation> hrRoot,
                                                 Join<HoldingReservation, Reservation> resRoot,
-                                                Expression<Boolean> where) {
+                                                CriteriaQuery<?> cq, Expression<Boolean> where) {
         if (p.containsKey("search") && !p.get("search")[0].trim().equals("")) {
-            String search = p.get("search")[0].trim().toLowerCase();
+            String search = "%" + p.get("search")[0].trim().toLowerCase() + "%";
+
+            Subquery<Integer> visitors = cq.subquery(Integer.class);
+            Root<Reservation> vRoot = visitors.from(Reservation.class);
+            visitors.select(vRoot.get(Reservation_.id));
+            visitors.where(cb.or(
+                    cb.like(cb.lower(vRoot.get(Reservation_.visitorName)), search),
+                    cb.like(cb.lower(vRoot.get(Reservation_.visitorEmail)), search)
+            ));
 
-            Join<HoldingReservation, Holding> hRoot = hrRoot.join(HoldingReservation_.holding);
-            Join<Holding, Record> rRoot = hRoot.join(Holding_.record);
-            Join<Record, ExternalRecordInfo> eRoot = rRoot.join(Record_.externalInfo);
-            Join<Record, Record> prRoot = rRoot.join(Record_.parent, JoinType.LEFT);
-            Join<Record, Holding> phRoot = prRoot.join(Record_.holdings, JoinType.LEFT);
             Expression<Boolean> exSearch = cb.or(
-                    cb.like(cb.lower(eRoot.get(ExternalRecordInfo_.title)), "%" + search + "%"),
-                    cb.like(cb.lower(resRoot.get(Reservation_
-                            .visitorName)), "%" + search + "%"),
-                    cb.like(cb.lower(resRoot.get(Reservation_
-                            .visitorEmail)), "%" + search + "%"),
-                    cb.like(cb.lower(hRoot.get(Holding_.signature)), "%" + search + "%"),
-                    cb.like(cb.lower(phRoot.get(Holding_.signature)), "%" + search + "%")
+                    resRoot.get(Reservation_.id).in(visitors),
+                    getHoldingSearchPredicate(cq, hrRoot.get(HoldingReservation_.holding).get(Holding_.id), search)
             );
             where = where != null ? cb.and(where, exSearch) : exSearch;
         }
@@ -12,8 +12,10 @@ import javax.persistence.Tuple;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import java.awt.print.PrinterException;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Interface representing the service of the reservation package.
@@ -105,6 +107,15 @@ public interface ReservationService {
      */
     long countHoldingReservations(CriteriaQuery<Long> q);
 
+    /**
+     * Count the HoldingReservations matching a built query, up to the given limit.
+     *
+     * @param q     The criteria query to execute, selecting the ids.
+     * @param limit The maximum number of results to count.
+     * @return A count of matching HoldingReservations, at most the limit.
+     */
+    long countHoldingReservations(CriteriaQuery<Object> q, int limit);
+
     /**
      * Get a single Reservation matching a built query.
      *
@@ -207,4 +218,12 @@ public interface ReservationService {
      * @return The active reservation, or null if no active reservation exists.
      */
     Reservation getActiveFor(Holding holding);
+
+    /**
+     * Returns the active reservations with which the given holdings are associated.
+     *
+     * @param holdings The holdings to get the active reservations of.
+     * @return The active reservation per holding id, holdings without an active reservation are left out.
+     */
+    Map<Integer, Reservation> getActiveFor(Collection<Holding> holdings);
 }
@@ -31,6 +31,7 @@ import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * Represents the service of the reservation package.
@@ -49,6 +50,9 @@ public class ReservationServiceImpl extends AbstractRequestService implements Re
     @Autowired
     private ReservationDateExceptionService dateExceptionService;
 
+    @Autowired
+    private StatisticsRollupJob statisticsRollups;
+
     @Autowired
     private BeanFactory bf;
 
@@ -66,6 +70,7 @@ public class ReservationServiceImpl extends AbstractRequestService implements Re
 
         // Add to the database
         reservationDAO.add(obj);
+        statisticsRollups.reservationChanged(obj.getDate());
     }
 
     /**
@@ -82,6 +87,7 @@ public class ReservationServiceImpl extends AbstractRequestService implements Re
             changeHoldingStatus(obj, Holding.Status.AVAILABLE);
         }
         reservationDAO.remove(obj);
+        statisticsRollups.reservationChanged(obj.getDate());
     }
 
     /**
@@ -102,6 +108,7 @@ public class ReservationServiceImpl extends AbstractRequestService implements Re
      * @param obj Reservation to save.
      */
     public Reservation saveReservation(Reservation obj) {
+        statisticsRollups.reservationChanged(obj.getDate());
         return reservationDAO.save(obj);
     }
 
@@ -186,6 +193,17 @@ public class ReservationServiceImpl extends AbstractRequestService implements Re
         return holdingReservationDAO.count(q);
     }
 
+    /**
+     * Count the HoldingReservations matching a built query, up to the given limit.
+     *
+     * @param q     The criteria query to execute, selecting the ids.
+     * @param limit The maximum number of results to count.
+     * @return A count of matching HoldingReservations, at most the limit.
+     */
+    public long countHoldingReservations(CriteriaQuery<Object> q, int limit) {
+        return holdingReservationDAO.count(q, limit);
+    }
+
     /**
      * Get a single Reservation matching a built query.
      *
@@ -263,9 +281,8 @@ public class ReservationServiceImpl extends AbstractRequestService implements Re
         reservation.setComment(other.getComment());
 
         if (other.getHoldingReservations() == null) {
-            for (HoldingReservation hr : reservation.getHoldingReservations()) {
-                records.updateHoldingStatus(hr.getHolding(), Holding.Status.AVAILABLE);
-            }
+            records.updateHoldingStatus(reservation.getHoldingReservations().stream()
+                    .map(HoldingReservation::getHolding).collect(Collectors.toList()), Holding.Status.AVAILABLE);
             reservation.setHoldingReservations(new ArrayList<>());
         }
         else {
@@ -305,14 +322,16 @@ public class ReservationServiceImpl extends AbstractRequestService implements Re
                 break;
         }
 
+        List<Holding> holdings = new ArrayList<>();
         for (HoldingReservation hr : reservation.getHoldingReservations()) {
             if (!hr.isCompleted()) {
                 if (status == Reservation.Status.COMPLETED)
                     hr.setCompleted(true);
 
-                records.updateHoldingStatus(hr.getHolding(), hStatus);
+                holdings.add(hr.getHolding());
             }
         }
+        records.updateHoldingStatus(holdings, hStatus);
 
         updateHoldingStatusForPendingReservations(reservation);
     }
@@ -327,16 +346,22 @@ public class ReservationServiceImpl extends AbstractRequestService implements Re
             return;
         }
 
+        List<Holding> holdings = new ArrayList<>();
         for (HoldingReservation hr : reservation.getHoldingReservations()) {
             Holding holding = hr.getHolding();
-            if (holding.getStatus() == Holding.Status.AVAILABLE) {
-                Record record = holding.getRecord();
-                if (record.getParent() != null && record.getExternalInfo().getContainer() != null
-                        && reservationDAO.hasPendingReservation(record)) {
-                    records.updateHoldingStatus(holding, Holding.Status.RESERVED);
-                }
+            Record record = holding.getRecord();
+            if (holding.getStatus() == Holding.Status.AVAILABLE
+                    && record.getParent() != null && record.getExternalInfo().getContainer() != null) {
+                holdings.add(holding);
             }
         }
+
+        // Check all containers at once and reserve the holdings in the containers with a pending reservation
+        Map<Integer, Set<String>> pending = reservationDAO.getContainersWithPendingReservations(
+                holdings.stream().map(Holding::getRecord).collect(Collectors.toList()));
+        holdings.removeIf(holding -> !pending.getOrDefault(holding.getRecord().getParent().getId(),
+                Collections.emptySet()).contains(holding.getRecord().getExternalInfo().getContainer()));
+        records.updateHoldingStatus(holdings, Holding.Status.RESERVED);
     }
 
     /**
@@ -466,6 +491,8 @@ public class ReservationServiceImpl extends AbstractRequestService implements Re
                 addReservation(newRes);
             }
             else {
+                // The statistics of the original date change as well if the date is moved
+                statisticsRollups.reservationChanged(oldRes.getDate());
                 merge(oldRes, newRes);
                 saveReservation(oldRes);
             }
@@ -560,4 +587,14 @@ public class ReservationServiceImpl extends AbstractRequestService implements Re
     public Reservation getActiveFor(Holding holding) {
         return reservationDAO.getActiveFor(holding);
     }
+
+    /**
+     * Returns the active reservations with which the given holdings are associated.
+     *
+     * @param holdings The holdings to get the active reservations of.
+     * @return The active reservation per holding id, holdings without an active reservation are left out.
+     */
+    public Map<Integer, Reservation> getActiveFor(Collection<Holding> holdings) {
+        return reservationDAO.getActiveFor(holdings.stream().map(Holding::getId).collect(Collectors.toSet()));
+    }
 }
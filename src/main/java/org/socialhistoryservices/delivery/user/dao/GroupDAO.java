@@ -31,6 +31,13 @@ public interface GroupDAO {
      */
     void save(Group obj);
 
+    /**
+     * Detach a Group from the persistence context, so that it can be cached.
+     *
+     * @param obj Group to detach.
+     */
+    void detach(Group obj);
+
     /**
      * Retrieve the Group matching the given Id.
      *
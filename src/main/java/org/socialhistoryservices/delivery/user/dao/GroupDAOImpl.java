@@ -57,6 +57,15 @@ public class GroupDAOImpl implements GroupDAO {
         entityManager.merge(obj);
     }
 
+    /**
+     * Detach a Group from the persistence context, so that it can be cached.
+     *
+     * @param obj Group to detach.
+     */
+    public void detach(Group obj) {
+        entityManager.detach(obj);
+    }
+
     /**
      * Retrieve the Group matching the given Id.
      *
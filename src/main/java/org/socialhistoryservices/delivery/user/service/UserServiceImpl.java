@@ -5,6 +5,7 @@ import org.socialhistoryservices.delivery.user.dao.UserDAO;
 import org.socialhistoryservices.delivery.user.entity.Group;
 import org.socialhistoryservices.delivery.user.entity.User;
 import org.socialhistoryservices.delivery.user.entity.User_;
+import org.socialhistoryservices.delivery.util.ReferenceDataCache;
 import org.springframework.dao.DataAccessException;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -33,6 +34,11 @@ public class UserServiceImpl implements UserService, UserDetailsService {
      */
     private GroupDAO groupDAO;
 
+    /**
+     * group cache, do not autowire unless userServiceDetails bean removed
+     */
+    private ReferenceDataCache<Group> groupCache;
+
     /**
      * Add a User to the database.
      *
@@ -155,6 +161,7 @@ public class UserServiceImpl implements UserService, UserDetailsService {
      */
     public void addGroup(Group obj) {
         groupDAO.add(obj);
+        groupCache.invalidate();
     }
 
     /**
@@ -164,6 +171,7 @@ public class UserServiceImpl implements UserService, UserDetailsService {
      */
     public void removeGroup(Group obj) {
         groupDAO.remove(obj);
+        groupCache.invalidate();
     }
 
     /**
@@ -173,6 +181,7 @@ public class UserServiceImpl implements UserService, UserDetailsService {
      */
     public void saveGroup(Group obj) {
         groupDAO.save(obj);
+        groupCache.invalidate();
     }
 
     /**
@@ -205,18 +214,22 @@ public class UserServiceImpl implements UserService, UserDetailsService {
     }
 
     /**
-     * List all Groups matching a built query.
+     * List all Groups, from the cache.
      *
-     * @return A list of matching Groups.
+     * @return A list of all Groups.
      */
     public List<Group> listGroups() {
-        CriteriaBuilder builder = getGroupCriteriaBuilder();
+        return groupCache.get(() -> {
+            CriteriaBuilder builder = getGroupCriteriaBuilder();
 
-        CriteriaQuery<Group> query = builder.createQuery(Group.class);
-        Root<Group> root = query.from(Group.class);
-        query.select(root);
+            CriteriaQuery<Group> query = builder.createQuery(Group.class);
+            Root<Group> root = query.from(Group.class);
+            query.select(root);
 
-        return groupDAO.list(query);
+            List<Group> groups = groupDAO.list(query);
+            groups.forEach(groupDAO::detach);
+            return groups;
+        });
     }
 
     /**
@@ -248,4 +261,14 @@ public class UserServiceImpl implements UserService, UserDetailsService {
     public void setGroupDAO(GroupDAO groupDAO) {
         this.groupDAO = groupDAO;
     }
+
+    /**
+     * Set group cache (autowiring does not work because UserService bean is
+     * defined in xml).
+     *
+     * @param groupCache The group cache to set.
+     */
+    public void setGroupCache(ReferenceDataCache<Group> groupCache) {
+        this.groupCache = groupCache;
+    }
 }
@@ -0,0 +1,15 @@
+package org.socialhistoryservices.delivery.util;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a call to an external service is rejected by its circuit breaker.
+ * Extends IOException, so that callers treat a rejected call like a call that could not connect.
+ */
+public class CallNotPermittedException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public CallNotPermittedException(String message) {
+        super(message);
+    }
+}
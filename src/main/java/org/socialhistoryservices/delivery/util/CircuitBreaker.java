@@ -0,0 +1,321 @@
+package org.socialhistoryservices.delivery.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Date;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Guards the calls to an external service with a circuit breaker and a bulkhead.
+ * The bulkhead limits the number of concurrent calls; a call that cannot obtain a permit in time is rejected.
+ * The circuit breaker keeps track of the outcome of the most recent calls; when the failure rate reaches
+ * the threshold, the breaker opens and rejects all calls for a while. After that, a single trial call is
+ * let through: when it succeeds the breaker closes again, otherwise it stays open for another while.
+ * <p>
+ * Every call has to obtain a permit first and has to release it with its outcome afterwards:
+ * <pre>
+ * CircuitBreaker.Permit permit = circuitBreaker.acquire();
+ * boolean success = false;
+ * try {
+ *     ...
+ *     success = true;
+ * }
+ * finally {
+ *     circuitBreaker.release(permit, success);
+ * }
+ * </pre>
+ */
+public class CircuitBreaker {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    /**
+     * The state of a circuit breaker.
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureRateThreshold;
+    private final int minimumCalls;
+    private final long openDuration;
+    private final int maxConcurrentCalls;
+    private final long maxWait;
+
+    private final Semaphore permits;
+    private final boolean[] outcomes;
+    private int nrOfCalls;
+    private int nrOfFailures;
+    private int next;
+
+    private State state = State.CLOSED;
+    private long generation;
+    private long openedAt;
+    private boolean trialCall;
+
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Creates a circuit breaker.
+     *
+     * @param name                 The name of the guarded service.
+     * @param windowSize           The number of most recent calls to compute the failure rate over.
+     * @param minimumCalls         The minimum number of calls before the failure rate is computed.
+     * @param failureRateThreshold The failure rate (in percent) at which the breaker opens.
+     * @param openDuration         The number of seconds the breaker stays open.
+     * @param maxConcurrentCalls   The maximum number of concurrent calls.
+     * @param maxWait              The maximum number of milliseconds to wait for a permit.
+     */
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, int failureRateThreshold,
+                          long openDuration, int maxConcurrentCalls, long maxWait) {
+        this.name = name;
+        this.outcomes = new boolean[Math.max(1, windowSize)];
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, outcomes.length));
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDuration = openDuration * 1000;
+        this.maxConcurrentCalls = Math.max(1, maxConcurrentCalls);
+        this.maxWait = maxWait;
+        this.permits = new Semaphore(this.maxConcurrentCalls, true);
+    }
+
+    /**
+     * Obtains a permit for a call, waiting a limited time if the maximum number of concurrent calls is reached.
+     *
+     * @return The permit, to release with the outcome of the call.
+     * @throws CallNotPermittedException Thrown when the breaker is open or no permit was obtained in time.
+     */
+    public Permit acquire() throws CallNotPermittedException {
+        Permit permit;
+        synchronized (this) {
+            if (state == State.OPEN) {
+                if (System.currentTimeMillis() - openedAt < openDuration)
+                    reject("the circuit breaker is open");
+                transitionTo(State.HALF_OPEN);
+            }
+
+            if (state == State.HALF_OPEN) {
+                if (trialCall)
+                    reject("a trial call is in progress");
+                trialCall = true;
+            }
+            permit = new Permit(generation, state == State.HALF_OPEN);
+        }
+
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWait, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+
+        if (!acquired) {
+            synchronized (this) {
+                if (isCurrentTrial(permit))
+                    trialCall = false;
+            }
+            reject("the maximum number of concurrent calls is reached");
+        }
+        return permit;
+    }
+
+    /**
+     * Releases the permit of a call and records its outcome.
+     * Only the outcome of the trial call decides whether a half open breaker closes or opens again.
+     * The outcomes of calls that were let through before the breaker last changed state are not recorded.
+     *
+     * @param permit  The permit obtained for the call.
+     * @param success Whether the call succeeded.
+     */
+    public void release(Permit permit, boolean success) {
+        permits.release();
+
+        if (success)
+            succeeded.incrementAndGet();
+        else
+            failed.incrementAndGet();
+
+        synchronized (this) {
+            if (permit.trial) {
+                if (isCurrentTrial(permit)) {
+                    trialCall = false;
+                    if (success) {
+                        transitionTo(State.CLOSED);
+                    }
+                    else {
+                        openedAt = System.currentTimeMillis();
+                        transitionTo(State.OPEN);
+                    }
+                }
+                return;
+            }
+
+            if (state != State.CLOSED || permit.generation != generation)
+                return;
+
+            if (nrOfCalls == outcomes.length) {
+                if (!outcomes[next])
+                    nrOfFailures--;
+            }
+            else {
+                nrOfCalls++;
+            }
+
+            outcomes[next] = success;
+            if (!success)
+                nrOfFailures++;
+            next = (next + 1) % outcomes.length;
+
+            if (state == State.CLOSED && nrOfCalls >= minimumCalls && getFailureRate() >= failureRateThreshold) {
+                openedAt = System.currentTimeMillis();
+                transitionTo(State.OPEN);
+            }
+        }
+    }
+
+    /**
+     * Whether calls are currently let through, which is the case unless the breaker is open.
+     *
+     * @return True if calls are let through.
+     */
+    public synchronized boolean isCallPermitted() {
+        return state != State.OPEN || System.currentTimeMillis() - openedAt >= openDuration;
+    }
+
+    /**
+     * Returns the name of the guarded service.
+     *
+     * @return The name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the state of the breaker.
+     *
+     * @return The state.
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Returns when the breaker last opened.
+     *
+     * @return The date the breaker last opened, or null if it never opened.
+     */
+    public synchronized Date getOpenedAt() {
+        return (openedAt > 0) ? new Date(openedAt) : null;
+    }
+
+    /**
+     * Returns the failure rate over the most recent calls.
+     *
+     * @return The failure rate in percent.
+     */
+    public synchronized int getFailureRate() {
+        return (nrOfCalls > 0) ? (nrOfFailures * 100) / nrOfCalls : 0;
+    }
+
+    /**
+     * Returns the number of calls in progress.
+     *
+     * @return The number of active calls.
+     */
+    public int getActiveCalls() {
+        return maxConcurrentCalls - permits.availablePermits();
+    }
+
+    /**
+     * Returns the maximum number of concurrent calls.
+     *
+     * @return The maximum number of concurrent calls.
+     */
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    /**
+     * Returns the total number of calls that succeeded.
+     *
+     * @return The number of succeeded calls.
+     */
+    public long getSucceeded() {
+        return succeeded.get();
+    }
+
+    /**
+     * Returns the total number of calls that failed.
+     *
+     * @return The number of failed calls.
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Returns the total number of calls that were rejected.
+     *
+     * @return The number of rejected calls.
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Whether the permit is of the trial call of the current half open state.
+     *
+     * @param permit The permit.
+     * @return True if the permit is of the current trial call.
+     */
+    private boolean isCurrentTrial(Permit permit) {
+        return permit.trial && state == State.HALF_OPEN && permit.generation == generation;
+    }
+
+    /**
+     * Changes the state of the breaker; the recorded outcomes are cleared on every change.
+     *
+     * @param newState The new state.
+     */
+    private void transitionTo(State newState) {
+        LOGGER.warn(String.format("Circuit breaker of %s changed from %s to %s (failure rate: %d%%)",
+                name, state, newState, getFailureRate()));
+
+        state = newState;
+        generation++;
+        nrOfCalls = 0;
+        nrOfFailures = 0;
+        next = 0;
+    }
+
+    /**
+     * Rejects a call.
+     *
+     * @param reason The reason the call is rejected.
+     * @throws CallNotPermittedException Always thrown.
+     */
+    private void reject(String reason) throws CallNotPermittedException {
+        rejected.incrementAndGet();
+        throw new CallNotPermittedException(String.format("Call to %s rejected: %s", name, reason));
+    }
+
+    /**
+     * A permit for a single call, which remembers the state of the breaker in which it was obtained.
+     */
+    public static final class Permit {
+        private final long generation;
+        private final boolean trial;
+
+        private Permit(long generation, boolean trial) {
+            this.generation = generation;
+            this.trial = trial;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.socialhistoryservices.delivery.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A lock per key: threads locking the same key wait for each other, threads locking different keys do not.
+ * Locks are only kept for as long as they are held or waited for.
+ */
+public class KeyedLock {
+    private final ConcurrentMap<String, Entry> locks = new ConcurrentHashMap<>();
+
+    /**
+     * Acquires the lock of the given key, waiting for other threads holding the same key.
+     *
+     * @param key The key to lock.
+     */
+    public void lock(String key) {
+        Entry entry = locks.compute(key, (k, e) -> {
+            if (e == null)
+                e = new Entry();
+            e.users++;
+            return e;
+        });
+        entry.lock.lock();
+    }
+
+    /**
+     * Releases the lock of the given key, which must be held by the current thread.
+     *
+     * @param key The key to unlock.
+     */
+    public void unlock(String key) {
+        Entry entry = locks.get(key);
+        if (entry == null || !entry.lock.isHeldByCurrentThread())
+            throw new IllegalMonitorStateException("The lock of " + key + " is not held by the current thread");
+
+        entry.lock.unlock();
+        locks.computeIfPresent(key, (k, e) -> (--e.users == 0) ? null : e);
+    }
+
+    /**
+     * The lock of a key, with the number of threads holding or waiting for it.
+     * The number of users is only modified while computing the map entry of the key.
+     */
+    private static class Entry {
+        private final ReentrantLock lock = new ReentrantLock();
+        private int users;
+    }
+}
@@ -0,0 +1,194 @@
+package org.socialhistoryservices.delivery.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Caches all entities of a type with rarely changing reference data, like the standard reproduction options.
+ * The entities are loaded once and served from memory until the cache is invalidated by a change
+ * or until they expire. Invalidation only reaches the cache of this node: the changes made on another node
+ * are picked up once the cached entities expire, so the time to live bounds how long they are served stale.
+ * <p>
+ * The cached entities are detached and shared by all threads, so they must be treated as read-only:
+ * changes have to be made to entities loaded from the database, after which the cache is invalidated:
+ * <pre>
+ * dao.save(entity);
+ * cache.invalidate();
+ * </pre>
+ */
+public class ReferenceDataCache<T> {
+    private final String name;
+    private final int ttl;
+
+    private volatile List<T> entities;
+    private long loadedAt;
+    private long generation;
+
+    private long hits;
+    private long misses;
+    private long invalidations;
+
+    /**
+     * Creates a reference data cache.
+     *
+     * @param name The name of the cached reference data.
+     * @param ttl  The number of seconds the entities are served from memory after they were loaded.
+     */
+    public ReferenceDataCache(String name, int ttl) {
+        this.name = name;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Returns the cached entities, loading them first if they are not cached or expired.
+     *
+     * @param loader Loads all entities from the database.
+     * @return An unmodifiable list with all entities.
+     */
+    public List<T> get(Supplier<List<T>> loader) {
+        // A transaction with uncommitted changes has to see its own changes
+        if (isInvalidatedByCurrentTransaction())
+            return Collections.unmodifiableList(new ArrayList<>(loader.get()));
+
+        long loadGeneration;
+        long loadStarted = System.currentTimeMillis();
+        synchronized (this) {
+            List<T> cached = entities;
+            if (cached != null && !isExpired(loadStarted)) {
+                hits++;
+                return cached;
+            }
+            misses++;
+            loadGeneration = generation;
+        }
+
+        List<T> loaded = Collections.unmodifiableList(new ArrayList<>(loader.get()));
+        synchronized (this) {
+            // Do not cache entities that were loaded while the cache was invalidated
+            if (generation == loadGeneration && !isInvalidatedByCurrentTransaction()) {
+                entities = loaded;
+                // Expire from the start of the load, as a change on another node may have been committed during it
+                loadedAt = loadStarted;
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Invalidates the cache, both immediately and once the current transaction completes,
+     * so that the entities cached by another thread during the transaction are not served after the commit.
+     */
+    public void invalidate() {
+        synchronized (this) {
+            invalidations++;
+        }
+        clear();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive() && !isInvalidatedByCurrentTransaction()) {
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ReferenceDataCache.this);
+                    clear();
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the name of the cached reference data.
+     *
+     * @return The name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of seconds the entities are served from memory after they were loaded.
+     *
+     * @return The time to live in seconds.
+     */
+    public int getTtl() {
+        return ttl;
+    }
+
+    /**
+     * Returns whether the entities are cached and not expired.
+     *
+     * @return True if the entities are cached.
+     */
+    public synchronized boolean isCached() {
+        return entities != null && !isExpired(System.currentTimeMillis());
+    }
+
+    /**
+     * Returns the number of lookups served from memory.
+     *
+     * @return The number of hits.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups that loaded the entities from the database.
+     *
+     * @return The number of misses.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of times the cache was invalidated.
+     *
+     * @return The number of invalidations.
+     */
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * Returns the percentage of lookups served from memory.
+     *
+     * @return The hit rate in percent.
+     */
+    public synchronized int getHitRate() {
+        long lookups = hits + misses;
+        return (lookups > 0) ? (int) ((hits * 100) / lookups) : 0;
+    }
+
+    /**
+     * Removes the cached entities.
+     */
+    private synchronized void clear() {
+        entities = null;
+        generation++;
+    }
+
+    /**
+     * Whether the cached entities are expired.
+     *
+     * @param now The current time in milliseconds.
+     * @return True if the cached entities were loaded longer than the time to live ago.
+     */
+    private boolean isExpired(long now) {
+        return (now - loadedAt) >= ttl * 1000L;
+    }
+
+    /**
+     * Whether the current transaction invalidated this cache; its uncommitted changes must not be cached.
+     *
+     * @return True if the current transaction invalidated this cache.
+     */
+    private boolean isInvalidatedByCurrentTransaction() {
+        return TransactionSynchronizationManager.hasResource(this);
+    }
+}
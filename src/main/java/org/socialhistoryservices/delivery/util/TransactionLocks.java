@@ -0,0 +1,94 @@
+package org.socialhistoryservices.delivery.util;
+
+import org.hibernate.Session;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * Locks that are held until the current transaction completes.
+ * On PostgreSQL these are transaction-level advisory locks, which are shared by all application nodes.
+ * Other databases (H2 is only used for development on a single node) fall back to locks within this JVM.
+ */
+@Component
+public class TransactionLocks {
+    private EntityManager entityManager;
+
+    private final KeyedLock locks = new KeyedLock();
+    private volatile Boolean postgreSQL;
+
+    /**
+     * Set the entity manager to use, internal.
+     *
+     * @param entityManager The manager.
+     */
+    @PersistenceContext
+    private void setEntityManager(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Lock the given name until the current transaction completes.
+     *
+     * @param name The name to lock.
+     */
+    public void lock(String name) {
+        if (isPostgreSQL()) {
+            entityManager.createNativeQuery(
+                    "SELECT count(*) FROM (SELECT pg_advisory_xact_lock(hashtext(:name))) AS l")
+                    .setParameter("name", name)
+                    .getSingleResult();
+            return;
+        }
+        lockInJVM(name);
+    }
+
+    /**
+     * Lock the given key within the given namespace until the current transaction completes.
+     *
+     * @param namespace The namespace of the key, like the table it locks rows of.
+     * @param key       The key to lock.
+     */
+    public void lock(String namespace, String key) {
+        if (isPostgreSQL()) {
+            entityManager.createNativeQuery(
+                    "SELECT count(*) FROM (SELECT pg_advisory_xact_lock(hashtext(:namespace), hashtext(:key))) AS l")
+                    .setParameter("namespace", namespace)
+                    .setParameter("key", key)
+                    .getSingleResult();
+            return;
+        }
+        lockInJVM(namespace + '\0' + key);
+    }
+
+    /**
+     * Whether the database is PostgreSQL.
+     *
+     * @return True if the database is PostgreSQL.
+     */
+    public boolean isPostgreSQL() {
+        if (postgreSQL == null) {
+            postgreSQL = entityManager.unwrap(Session.class).doReturningWork(connection ->
+                    connection.getMetaData().getDatabaseProductName().equals("PostgreSQL"));
+        }
+        return postgreSQL;
+    }
+
+    /**
+     * Lock the given key within this JVM until the current transaction completes.
+     *
+     * @param key The key to lock.
+     */
+    private void lockInJVM(String key) {
+        locks.lock(key);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                locks.unlock(key);
+            }
+        });
+    }
+}
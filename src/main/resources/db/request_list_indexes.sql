@@ -0,0 +1,40 @@
+--
+-- Indexes for the paging, counting and searching of the reservation and reproduction lists
+-- and for the statistics, on the existing request tables.
+--
+-- Run once on PostgreSQL, after deploying the version that introduced them and outside of a transaction:
+--
+--     psql -d delivery -f request_list_indexes.sql
+--
+-- All indexes are built concurrently, so the tables can still be written to in the meantime.
+-- The script can be run again; existing indexes are skipped.
+--
+
+--
+-- Sorting and keyset paging on the date columns
+--
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS reservations_date_idx ON reservations (date);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS reproductions_creation_date_idx ON reproductions (creation_date);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS reproductions_date_idx ON reproductions (date);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS reproductions_date_payment_accepted_idx ON reproductions (date_payment_accepted);
+
+--
+-- The search filters match with LIKE '%term%' on the lower case value of these columns,
+-- which can only be answered from an index with the trigram operator class of pg_trgm
+--
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS external_record_info_title_trgm_idx
+    ON external_record_info USING gin (lower(title) gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS holdings_signature_trgm_idx
+    ON holdings USING gin (lower(signature) gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS reservations_visitorname_trgm_idx
+    ON reservations USING gin (lower(visitorname) gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS reservations_visitoremail_trgm_idx
+    ON reservations USING gin (lower(visitoremail) gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS reproductions_customername_trgm_idx
+    ON reproductions USING gin (lower(customername) gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS reproductions_customeremail_trgm_idx
+    ON reproductions USING gin (lower(customeremail) gin_trgm_ops);
@@ -164,6 +164,12 @@
             ${_("userList.title", "User Management")}
           </a>
         </li>
+
+        <li>
+          <a href="${rc.contextPath}/status">
+            ${_("status.title", "Status of external services")}
+          </a>
+        </li>
       </#if>
 
       <#if _sec.ifAllGranted("ROLE_DATE_EXCEPTION_VIEW")>
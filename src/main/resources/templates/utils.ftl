@@ -41,25 +41,28 @@
     <#local dir = "asc"/>
   </#if>
 
-  <a href="<@paramUrl {"sort":column, "sort_dir" : dir}/>" ${attributes}>
+  <a href="<@paramUrl {"sort":column, "sort_dir" : dir, "after" : ""}/>" ${attributes}>
     <#nested>
   </a>
 </#macro>
 
-<#macro pageLinks totalSize noItemsPerPage pageNumber>
+<#-- If capped, there are more results than totalSize; the cursor points to the results after this page -->
+<#macro pageLinks totalSize noItemsPerPage pageNumber capped=false cursor="">
   <#assign noPages = (totalSize/noItemsPerPage?number)?ceiling/>
 
   <div class="pageLinks">
     <#if pageNumber?number &gt; 1>
-      <a href="<@paramUrl {"page": 1} />" class="pageLinks">&lt;&lt;</a>
-      <a href="<@paramUrl {"page": (pageNumber?number-1)?c} />" class="pageLinks">&lt;</a>
+      <a href="<@paramUrl {"page": 1, "after": ""} />" class="pageLinks">&lt;&lt;</a>
+      <a href="<@paramUrl {"page": (pageNumber?number-1)?c, "after": ""} />" class="pageLinks">&lt;</a>
     </#if>
 
-    ${_("pageListHolder.page", "Page")} ${pageNumber?number} / ${noPages}
+    ${_("pageListHolder.page", "Page")} ${pageNumber?number} / ${noPages}<#if capped>+</#if>
 
-    <#if pageNumber?number &lt; noPages>
-      <a href="<@paramUrl {"page": (pageNumber?number+1)?c} />" class="pageLinks">&gt;</a>
-      <a href="<@paramUrl {"page": noPages?c} />" class="pageLinks">&gt;&gt;</a>
+    <#if pageNumber?number &lt; noPages || capped>
+      <a href="<@paramUrl {"page": (pageNumber?number+1)?c, "after": cursor} />" class="pageLinks">&gt;</a>
+      <#if !capped>
+        <a href="<@paramUrl {"page": noPages?c, "after": ""} />" class="pageLinks">&gt;&gt;</a>
+      </#if>
     </#if>
   </div>
 </#macro>
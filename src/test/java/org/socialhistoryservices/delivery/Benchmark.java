@@ -0,0 +1,220 @@
+package org.socialhistoryservices.delivery;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures the time taken by an operation for the benchmarks: the tests tagged with {@link #TAG}.
+ * The benchmarks are excluded from the build, run them with:
+ * <pre>
+ * mvn test -Dgroups=benchmark -DexcludedGroups=
+ * </pre>
+ */
+public final class Benchmark {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Benchmark.class);
+
+    /**
+     * The JUnit tag of the benchmarks.
+     */
+    public static final String TAG = "benchmark";
+
+    // Consumes the results of the operations, so the JIT compiler can not skip the operations
+    private static volatile int sink;
+
+    private Benchmark() {
+    }
+
+    /**
+     * An operation to measure.
+     */
+    @FunctionalInterface
+    public interface Operation {
+        /**
+         * Runs the operation.
+         *
+         * @param i The number of the run.
+         * @return The result of the operation.
+         * @throws Exception Thrown when the operation fails.
+         */
+        Object run(int i) throws Exception;
+    }
+
+    /**
+     * Measures the average time of an operation, after warming up with the same number of runs.
+     *
+     * @param name       The name of the operation.
+     * @param iterations The number of runs to measure.
+     * @param operation  The operation.
+     * @return The average time of a run in nanoseconds.
+     * @throws Exception Thrown when the operation fails.
+     */
+    public static double measure(String name, int iterations, Operation operation) throws Exception {
+        run(iterations, operation);
+        long start = System.nanoTime();
+        run(iterations, operation);
+        double nanos = (double) (System.nanoTime() - start) / iterations;
+
+        LOGGER.info(String.format("%s: %,.0f ns/op (%,d ops)", name, nanos, iterations));
+        return nanos;
+    }
+
+    /**
+     * Measures the throughput of an operation run by multiple threads at the same time,
+     * after warming up with the same number of runs.
+     *
+     * @param name       The name of the operation.
+     * @param threads    The number of threads.
+     * @param iterations The number of runs to measure per thread.
+     * @param operation  The operation.
+     * @return The number of runs per second of all threads together.
+     * @throws Exception Thrown when the operation fails.
+     */
+    public static double measureConcurrently(String name, int threads, int iterations, Operation operation)
+            throws Exception {
+        runConcurrently(threads, iterations, operation);
+        long nanos = runConcurrently(threads, iterations, operation);
+        double throughput = (double) threads * iterations * TimeUnit.SECONDS.toNanos(1) / nanos;
+
+        LOGGER.info(String.format("%s: %,.0f ops/s (%d threads, %,d ops per thread)",
+                name, throughput, threads, iterations));
+        return throughput;
+    }
+
+    /**
+     * Measures the latency percentiles and the throughput of an operation run by multiple threads at the same time,
+     * after warming up with the same number of runs. Unlike the other measurements, every run is timed separately,
+     * which is only meaningful for operations that take at least some microseconds, like HTTP requests.
+     *
+     * @param name       The name of the operation.
+     * @param threads    The number of threads.
+     * @param iterations The number of runs to measure per thread.
+     * @param operation  The operation.
+     * @return The latencies and the throughput.
+     * @throws Exception Thrown when the operation fails.
+     */
+    public static Latencies measureLatencies(String name, int threads, int iterations, Operation operation)
+            throws Exception {
+        long[] warmUp = new long[threads * iterations];
+        runConcurrently(threads, iterations, timed(warmUp, iterations, operation));
+
+        long[] latencies = new long[threads * iterations];
+        long nanos = runConcurrently(threads, iterations, timed(latencies, iterations, operation));
+        Arrays.sort(latencies);
+
+        Latencies result = new Latencies(percentile(latencies, 50), percentile(latencies, 99),
+                (double) latencies.length * TimeUnit.SECONDS.toNanos(1) / nanos);
+        LOGGER.info(String.format("%s: p50 %,.1f ms, p99 %,.1f ms, %,.1f ops/s (%d threads, %,d ops per thread)",
+                name, result.getP50() / 1e6, result.getP99() / 1e6, result.getThroughput(), threads, iterations));
+        return result;
+    }
+
+    /**
+     * The latency percentiles and the throughput of an operation.
+     */
+    public static final class Latencies {
+        private final long p50;
+        private final long p99;
+        private final double throughput;
+
+        private Latencies(long p50, long p99, double throughput) {
+            this.p50 = p50;
+            this.p99 = p99;
+            this.throughput = throughput;
+        }
+
+        /**
+         * Returns the median latency.
+         *
+         * @return The median latency in nanoseconds.
+         */
+        public long getP50() {
+            return p50;
+        }
+
+        /**
+         * Returns the 99th percentile of the latency.
+         *
+         * @return The 99th percentile in nanoseconds.
+         */
+        public long getP99() {
+            return p99;
+        }
+
+        /**
+         * Returns the throughput of all threads together.
+         *
+         * @return The number of runs per second.
+         */
+        public double getThroughput() {
+            return throughput;
+        }
+    }
+
+    /**
+     * Wraps an operation so that the time of every run is stored; every thread writes to its own part of the array.
+     */
+    private static Operation timed(long[] latencies, int iterations, Operation operation) {
+        AtomicInteger threadNumbers = new AtomicInteger();
+        ThreadLocal<Integer> offset = ThreadLocal.withInitial(() -> threadNumbers.getAndIncrement() * iterations);
+        return i -> {
+            long start = System.nanoTime();
+            Object result = operation.run(i);
+            latencies[offset.get() + i] = System.nanoTime() - start;
+            return result;
+        };
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    private static void run(int iterations, Operation operation) throws Exception {
+        int result = 0;
+        for (int i = 0; i < iterations; i++)
+            result += hash(operation.run(i));
+        sink = result;
+    }
+
+    private static long runConcurrently(int threads, int iterations, Operation operation) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CyclicBarrier barrier = new CyclicBarrier(threads + 1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    barrier.await();
+                    run(iterations, operation);
+                    barrier.await();
+                    return null;
+                }));
+            }
+
+            barrier.await();
+            long start = System.nanoTime();
+            barrier.await();
+            long nanos = System.nanoTime() - start;
+
+            for (Future<?> future : futures)
+                future.get();
+            return nanos;
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static int hash(Object result) {
+        return (result != null) ? result.hashCode() : 0;
+    }
+}
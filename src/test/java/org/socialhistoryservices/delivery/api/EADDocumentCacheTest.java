@@ -0,0 +1,50 @@
+package org.socialhistoryservices.delivery.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the EADDocumentCache.
+ */
+public class EADDocumentCacheTest {
+
+    /**
+     * The least recently used documents are evicted once the total size exceeds the maximum size.
+     */
+    @Test
+    public void evictsTheLeastRecentlyUsedDocuments() {
+        EADDocumentCache cache = new EADDocumentCache(100, 60);
+        cache.put("a", entry(40));
+        cache.put("b", entry(40));
+        assertNotNull(cache.get("a"));
+
+        cache.put("c", entry(40));
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+
+        cache.put("d", entry(101));
+        assertNull(cache.get("d"));
+    }
+
+    /**
+     * The parsed documents are weighted by their estimated heap size, rather than by the size of the XML.
+     */
+    @Test
+    public void estimatesTheHeapSizeOfTheParsedDocuments() throws Exception {
+        byte[] document = EADFixtures.generate(2000, 25);
+
+        long dom = EADFixtures.parseDOM(new ByteArrayInputStream(document)).getEstimatedSize();
+        assertTrue(dom > 6 * document.length && dom < 12 * document.length, "DOM estimate " + dom);
+
+        long stax = EADFixtures.parseStAX(new ByteArrayInputStream(document)).getEstimatedSize();
+        assertTrue(stax > 2 * document.length && stax < 4 * document.length, "StAX estimate " + stax);
+    }
+
+    private static EADDocumentCache.Entry entry(long size) {
+        return new EADDocumentCache.Entry(new Object(), "http://localhost/ead", null, null, size);
+    }
+}
@@ -0,0 +1,114 @@
+package org.socialhistoryservices.delivery.api;
+
+import org.w3c.dom.Node;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.xpath.XPathConstants;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses and generates EAD documents for the tests and benchmarks of the EAD extractors.
+ */
+final class EADFixtures {
+    private static final int ITEMS_PER_SERIES = 100;
+
+    private EADFixtures() {
+    }
+
+    /**
+     * Parses an EAD document, as returned by the OAI-PMH API, for the EADMetadataRecordExtractor.
+     *
+     * @param is The EAD document.
+     * @return The indexed EAD document.
+     * @throws Exception Thrown when the document could not be parsed.
+     */
+    static EADMetadataRecordExtractor.EAD parseDOM(InputStream is) throws Exception {
+        DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+        documentBuilderFactory.setNamespaceAware(true);
+        documentBuilderFactory.setFeature("http://apache.org/xml/features/dom/defer-node-expansion", false);
+
+        Node record = (Node) XmlUtils.compile("//oai:record")
+                .evaluate(documentBuilderFactory.newDocumentBuilder().parse(is), XPathConstants.NODE);
+        return new EADMetadataRecordExtractor.EAD(record);
+    }
+
+    /**
+     * Parses an EAD document, as returned by the OAI-PMH API, for the StaxEADMetadataRecordExtractor.
+     *
+     * @param is The EAD document.
+     * @return The StAX EAD model.
+     * @throws Exception Thrown when the document could not be parsed.
+     */
+    static StaxEADMetadataRecordExtractor.EAD parseStAX(InputStream is) throws Exception {
+        return StaxEADMetadataRecordExtractor.parse(is);
+    }
+
+    /**
+     * Parses an EAD fixture from the test resources of this package.
+     *
+     * @param name The name of the fixture.
+     * @return The indexed EAD document.
+     * @throws Exception Thrown when the fixture could not be parsed.
+     */
+    static EADMetadataRecordExtractor.EAD parseDOM(String name) throws Exception {
+        try (InputStream is = EADFixtures.class.getResourceAsStream(name)) {
+            return parseDOM(is);
+        }
+    }
+
+    /**
+     * Parses an EAD fixture from the test resources of this package.
+     *
+     * @param name The name of the fixture.
+     * @return The StAX EAD model.
+     * @throws Exception Thrown when the fixture could not be parsed.
+     */
+    static StaxEADMetadataRecordExtractor.EAD parseStAX(String name) throws Exception {
+        try (InputStream is = EADFixtures.class.getResourceAsStream(name)) {
+            return parseStAX(is);
+        }
+    }
+
+    /**
+     * Generates an EAD document, as returned by the OAI-PMH API, with an inventory of series of items.
+     * The items are numbered from 1 and are stored in boxes, numbered from 1 as well.
+     *
+     * @param items        The number of items.
+     * @param itemsPerBox  The number of items per box.
+     * @return The EAD document.
+     */
+    static byte[] generate(int items, int itemsPerBox) {
+        StringBuilder sb = new StringBuilder()
+                .append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<OAI-PMH xmlns=\"http://www.openarchives.org/OAI/2.0/\"><GetRecord><record><metadata>\n")
+                .append("<ead xmlns=\"urn:isbn:1-931666-22-9\"><archdesc level=\"fonds\">\n")
+                .append("<did><unittitle>Generated archive</unittitle><unitid>ARCH00001</unitid>")
+                .append("<origination label=\"Creator\"><persname>Doe, John</persname></origination>")
+                .append("<physdesc label=\"Physical Description\"><extent>")
+                .append(items / 100).append(" m</extent></physdesc></did>\n")
+                .append("<descgrp><accessrestrict type=\"part\"><p>Partly closed</p></accessrestrict></descgrp>\n")
+                .append("<dsc>\n");
+
+        for (int item = 1; item <= items; item++) {
+            if (item % ITEMS_PER_SERIES == 1)
+                sb.append("<c01 level=\"series\"><did><unittitle>Series ")
+                        .append(item / ITEMS_PER_SERIES + 1).append("</unittitle></did>\n");
+
+            sb.append("<c02 level=\"file\"><did><unitid>").append(item).append("</unitid>")
+                    .append("<unittitle>File ").append(item).append("</unittitle>")
+                    .append("<container type=\"box\">").append((item - 1) / itemsPerBox + 1).append("</container>")
+                    .append("</did>");
+            if (item % 10 == 0)
+                sb.append("<accessrestrict type=\"closed\"/>");
+            sb.append("</c02>\n");
+
+            if (item % ITEMS_PER_SERIES == 0 || item == items)
+                sb.append("</c01>\n");
+        }
+
+        sb.append("</dsc></archdesc></ead>\n</metadata></record></GetRecord></OAI-PMH>\n");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
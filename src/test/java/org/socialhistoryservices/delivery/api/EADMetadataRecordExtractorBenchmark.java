@@ -0,0 +1,112 @@
+package org.socialhistoryservices.delivery.api;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.socialhistoryservices.delivery.Benchmark;
+import org.w3c.dom.Node;
+
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+
+/**
+ * Benchmarks the lookup of items in the index of a large EAD document against the XPath lookup it replaced.
+ */
+@Tag(Benchmark.TAG)
+public class EADMetadataRecordExtractorBenchmark {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EADMetadataRecordExtractorBenchmark.class);
+    private static final String PARENT_PID = "10622/ARCH00001";
+    private static final int ITEMS = 5000;
+
+    private static byte[] document;
+    private static EADMetadataRecordExtractor.EAD ead;
+    private static Node node;
+
+    @BeforeAll
+    public static void parse() throws Exception {
+        document = EADFixtures.generate(ITEMS, 25);
+        ead = EADFixtures.parseDOM(new ByteArrayInputStream(document));
+        node = EADFixtures.parseDOM(new ByteArrayInputStream(document)).getNode();
+    }
+
+    /**
+     * Parsing and indexing the document, which happens once for every fetched document.
+     */
+    @Test
+    public void parse5000Components() throws Exception {
+        Benchmark.measure("Parse and index an EAD with " + ITEMS + " components", 20,
+                i -> EADFixtures.parseDOM(new ByteArrayInputStream(document)));
+    }
+
+    /**
+     * Compares the estimated heap size of the parsed documents, which the EAD document cache is bounded by,
+     * with the heap size they actually take.
+     */
+    @Test
+    public void estimatedSize() throws Exception {
+        Object[] documents = new Object[10];
+        long used = getUsedHeap();
+        for (int i = 0; i < documents.length; i++)
+            documents[i] = EADFixtures.parseDOM(new ByteArrayInputStream(document));
+        long dom = (getUsedHeap() - used) / documents.length;
+
+        Arrays.fill(documents, null);
+        used = getUsedHeap();
+        for (int i = 0; i < documents.length; i++)
+            documents[i] = EADFixtures.parseStAX(new ByteArrayInputStream(document));
+        long stax = (getUsedHeap() - used) / documents.length;
+
+        LOGGER.info(String.format("XML of %,d bytes, DOM takes %,d bytes (estimated %,d), StAX takes %,d bytes " +
+                "(estimated %,d)", document.length, dom, ead.getEstimatedSize(), stax,
+                ((StaxEADMetadataRecordExtractor.EAD) documents[0]).getEstimatedSize()));
+    }
+
+    /**
+     * Looking up an item and its container siblings in the index.
+     */
+    @Test
+    public void lookupItemInIndex() throws Exception {
+        Benchmark.measure("Look up an item and its container siblings in the index", 2000, i -> {
+            EADMetadataRecordExtractor extractor = new EADMetadataRecordExtractor(
+                    PARENT_PID, String.valueOf(i % ITEMS + 1), ".", ead, null);
+            return extractor.getRecordExtractorsForContainerSiblings().size();
+        });
+
+        Benchmark.measureConcurrently("Look up an item and its container siblings in the index", 4, 2000, i -> {
+            EADMetadataRecordExtractor extractor = new EADMetadataRecordExtractor(
+                    PARENT_PID, String.valueOf(i % ITEMS + 1), ".", ead, null);
+            return extractor.getRecordExtractorsForContainerSiblings().size();
+        });
+    }
+
+    private static long getUsedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Looking up an item and its container siblings with XPath, as done before the index,
+     * by scanning all unitids and box containers of the inventory.
+     */
+    @Test
+    public void lookupItemWithXPath() throws Exception {
+        Benchmark.measure("Look up an item and its container siblings with XPath", 20, i -> {
+            String item = String.valueOf(i * 37 % ITEMS + 1);
+            XPathExpression xpItem = XmlUtils.compile(
+                    ".//ead:dsc//ead:unitid[normalize-space(text())='" + item + "']/../..");
+            Node itemNode = (Node) xpItem.evaluate(node, XPathConstants.NODE);
+            String container = XmlUtils.compile("normalize-space(.//ead:container[@type='box'])").evaluate(itemNode);
+            XPathExpression xpSiblings = XmlUtils.compile(
+                    ".//ead:dsc//ead:container[@type='box'][normalize-space(text())='" + container + "']");
+            return xpSiblings.evaluate(node, XPathConstants.NODESET);
+        });
+    }
+}
@@ -0,0 +1,91 @@
+package org.socialhistoryservices.delivery.api;
+
+import org.junit.jupiter.api.Test;
+import org.socialhistoryservices.delivery.record.entity.ExternalRecordInfo;
+
+import java.io.ByteArrayInputStream;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the EADMetadataRecordExtractor.
+ */
+public class EADMetadataRecordExtractorTest {
+    private static final String PARENT_PID = "10622/ARCH00001";
+
+    /**
+     * Items and their container siblings are looked up in the index of the document.
+     */
+    @Test
+    public void findsItemsAndContainerSiblings() throws Exception {
+        EADMetadataRecordExtractor.EAD ead = EADFixtures.parseDOM(new ByteArrayInputStream(
+                EADFixtures.generate(250, 20)));
+
+        EADMetadataRecordExtractor extractor = new EADMetadataRecordExtractor(PARENT_PID, "30", ".", ead, null);
+        ExternalRecordInfo info = extractor.getRecordMetadata();
+        assertEquals("Generated archive", info.getTitle());
+        assertEquals("2", info.getContainer());
+        assertEquals(ExternalRecordInfo.Restriction.CLOSED, info.getRestriction());
+        assertEquals(Collections.singleton("30"), extractor.getHoldingMetadata().keySet());
+        assertEquals(19, extractor.getRecordExtractorsForContainerSiblings().size());
+
+        EADMetadataRecordExtractor unknown = new EADMetadataRecordExtractor(PARENT_PID, "251", ".", ead, null);
+        assertNull(unknown.getRecordMetadata().getContainer());
+        assertTrue(unknown.getHoldingMetadata().isEmpty());
+        assertTrue(unknown.getRecordExtractorsForContainerSiblings().isEmpty());
+    }
+
+    /**
+     * A cached document is shared by the extractors of all threads,
+     * which extract the same metadata as when they extract the metadata one by one.
+     */
+    @Test
+    public void extractsFromASharedDocumentConcurrently() throws Exception {
+        EADMetadataRecordExtractor.EAD ead = EADFixtures.parseDOM(new ByteArrayInputStream(
+                EADFixtures.generate(1000, 25)));
+
+        List<String> items = new ArrayList<>();
+        items.add(null);
+        for (int item = 1; item <= 1000; item += 7)
+            items.add(String.valueOf(item));
+
+        Map<String, String> expected = new HashMap<>();
+        for (String item : items)
+            expected.put(item, extract(ead, item));
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CyclicBarrier barrier = new CyclicBarrier(threads);
+            List<Future<Map<String, String>>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                List<String> shuffled = new ArrayList<>(items);
+                Collections.shuffle(shuffled, new Random(t));
+                futures.add(executor.submit(() -> {
+                    barrier.await();
+                    Map<String, String> extracted = new HashMap<>();
+                    for (String item : shuffled)
+                        extracted.put(item, extract(ead, item));
+                    return extracted;
+                }));
+            }
+
+            for (Future<Map<String, String>> future : futures)
+                assertEquals(expected, future.get(1, TimeUnit.MINUTES));
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        // The document itself is never changed by the extractors
+        assertEquals(expected.get(null), extract(EADFixtures.parseDOM(new ByteArrayInputStream(
+                EADFixtures.generate(1000, 25))), null));
+    }
+
+    private static String extract(EADMetadataRecordExtractor.EAD ead, String item) {
+        return StaxEADMetadataRecordExtractorTest.describe(
+                new EADMetadataRecordExtractor(PARENT_PID, item, ".", ead, null));
+    }
+}
@@ -0,0 +1,89 @@
+package org.socialhistoryservices.delivery.api;
+
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.xpath.XPathConstants;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the MARCDatafieldIndex.
+ */
+public class MARCDatafieldIndexTest {
+    private static final String[] TAGS = {"100", "110", "245", "260", "300", "500", "540", "542", "600", "610",
+            "650", "651", "655", "700", "710", "852", "866"};
+    private static final char[] CODES = {'a', 'b', 'c', 'j', 'k', 'm', 'p'};
+
+    /**
+     * The subfields are indexed per tag and code in document order, ignoring other namespaces.
+     */
+    @Test
+    public void indexesTheSubfieldsInDocumentOrder() throws Exception {
+        MARCDatafieldIndex index = new MARCDatafieldIndex(MARCFixtures.parse(
+                "<marc:record xmlns:marc=\"http://www.loc.gov/MARC21/slim\" xmlns:x=\"urn:x\">" +
+                "<marc:leader>00000nam a2200000 a 4500</marc:leader>" +
+                "<marc:leader>second</marc:leader>" +
+                "<marc:datafield tag=\"852\"><marc:subfield code=\"j\">N 1</marc:subfield>" +
+                "<marc:subfield code=\"j\">N 2</marc:subfield></marc:datafield>" +
+                "<x:datafield tag=\"852\"><x:subfield code=\"j\">other</x:subfield></x:datafield>" +
+                "<marc:datafield tag=\"852\"><marc:subfield code=\"j\">N 3</marc:subfield>" +
+                "<marc:subfield code=\"ab\">invalid</marc:subfield></marc:datafield>" +
+                "<marc:datafield><marc:subfield code=\"j\">no tag</marc:subfield></marc:datafield>" +
+                "</marc:record>"));
+
+        assertEquals("00000nam a2200000 a 4500", index.getLeader());
+        assertEquals(Arrays.asList("N 1", "N 2", "N 3"), index.getSubfields("852", 'j'));
+        assertEquals("N 1", index.getSubfield("852", 'j'));
+        assertEquals(Collections.emptyList(), index.getSubfields("852", 'a'));
+        assertEquals("", index.getSubfield("245", 'a'));
+        assertEquals("", index.getTitle());
+    }
+
+    /**
+     * The title falls back to 500a, 600a, 610a, 650a, 651a and 245k, in that order, when 245a is empty.
+     */
+    @Test
+    public void fallsBackToTheAlternativeTitles() throws Exception {
+        assertEquals("Main", title("<f t=\"651\" c=\"a\">Place</f><f t=\"245\" c=\"a\">Main</f>"));
+        assertEquals("Note", title("<f t=\"245\" c=\"a\"></f><f t=\"650\" c=\"a\">Subject</f><f t=\"500\" c=\"a\">Note</f>"));
+        assertEquals("Subject", title("<f t=\"245\" c=\"k\">Form</f><f t=\"650\" c=\"a\">Subject</f>"));
+        assertEquals("Form", title("<f t=\"245\" c=\"k\">Form</f>"));
+    }
+
+    /**
+     * The index returns the same values as the XPath expressions it replaced, for generated records.
+     */
+    @Test
+    public void matchesTheXPathLookups() throws Exception {
+        for (int seed = 0; seed < 500; seed++) {
+            Node marc = MARCFixtures.parse(MARCFixtures.generate(seed));
+            MARCDatafieldIndex index = new MARCDatafieldIndex(marc);
+
+            assertEquals(XmlUtils.compile("marc:leader").evaluate(marc), index.getLeader());
+            for (String tag : TAGS) {
+                for (char code : CODES) {
+                    NodeList nodes = (NodeList) XmlUtils.getXPathForMarc(tag, code)
+                            .evaluate(marc, XPathConstants.NODESET);
+                    List<String> values = new ArrayList<>();
+                    for (int i = 0; i < nodes.getLength(); i++)
+                        values.add(nodes.item(i).getTextContent());
+                    assertEquals(values, index.getSubfields(tag, code), "seed " + seed + ", " + tag + code);
+                }
+            }
+        }
+    }
+
+    private static String title(String fields) throws Exception {
+        String marc = fields
+                .replaceAll("<f t=\"(\\d+)\" c=\"(\\w)\">", "<marc:datafield tag=\"$1\"><marc:subfield code=\"$2\">")
+                .replace("</f>", "</marc:subfield></marc:datafield>");
+        return new MARCDatafieldIndex(MARCFixtures.parse(
+                "<marc:record xmlns:marc=\"http://www.loc.gov/MARC21/slim\">" + marc + "</marc:record>")).getTitle();
+    }
+}
@@ -0,0 +1,98 @@
+package org.socialhistoryservices.delivery.api;
+
+import org.w3c.dom.Node;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Generates and parses MARC records for the tests and benchmarks of the MARC extractor and the XPath expressions.
+ */
+final class MARCFixtures {
+    private static final String[] LEADER_FORMATS = {"ab", "ar", "am", "im", "do", "bm", "av", "ac", "gm", "zz"};
+    private static final String[] TITLE_FORMS = {"", "Book collection", "Serial collection", "moving image document"};
+    private static final String[] STATUSES = {"", "irsh", "open", "Restricted", "minimal", "closed"};
+    private static final String[] AUTHOR_TAGS = {"100", "110", "700", "710"};
+    private static final String[] TITLE_TAGS = {"245", "500", "600", "610", "650", "651"};
+
+    private MARCFixtures() {
+    }
+
+    /**
+     * Generates a MARC record. The seed decides which fields the record has,
+     * so that the records of different seeds cover the fallbacks of the extractor.
+     *
+     * @param seed The seed of the record.
+     * @return The marc:record element.
+     */
+    static String generate(long seed) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder()
+                .append("<marc:record xmlns:marc=\"http://www.loc.gov/MARC21/slim\">")
+                .append("<marc:leader>00000n")
+                .append(LEADER_FORMATS[random.nextInt(LEADER_FORMATS.length)])
+                .append(" a2200000 a 4500</marc:leader>");
+
+        if (random.nextInt(4) > 0)
+            datafield(sb, AUTHOR_TAGS[random.nextInt(AUTHOR_TAGS.length)], 'a', "Author " + seed);
+
+        String titleTag = TITLE_TAGS[random.nextInt(TITLE_TAGS.length)];
+        if (random.nextInt(5) > 0)
+            datafield(sb, titleTag, 'a', "Title " + seed + " /");
+        if (titleTag.equals("245") && random.nextBoolean())
+            datafield(sb, "245", 'b', "subtitle " + seed + ":");
+        datafield(sb, "245", 'k', TITLE_FORMS[random.nextInt(TITLE_FORMS.length)]);
+
+        if (random.nextBoolean())
+            datafield(sb, "260", 'c', String.valueOf(1850 + random.nextInt(170)));
+        if (random.nextBoolean())
+            datafield(sb, "300", 'a', (1 + random.nextInt(500)) + " p.");
+        if (random.nextBoolean())
+            datafield(sb, "540", 'b', "Copyright " + seed);
+        datafield(sb, "542", 'm', STATUSES[random.nextInt(STATUSES.length)]);
+
+        for (int i = random.nextInt(3); i > 0; i--)
+            datafield(sb, "655", 'a', (random.nextBoolean() ? "Posters." : "Photos"));
+
+        int holdings = random.nextInt(4);
+        for (int i = 1; i <= holdings; i++) {
+            sb.append("<marc:datafield tag=\"852\" ind1=\" \" ind2=\" \">")
+                    .append(subfield('c', "Shelf " + i))
+                    .append(subfield('j', "N " + seed + "/" + i));
+            if (random.nextBoolean())
+                sb.append(subfield('p', "3005100" + seed + i));
+            sb.append("</marc:datafield>");
+        }
+        if (holdings > 0 && random.nextBoolean())
+            datafield(sb, "866", 'a', "1970-1980,1990");
+
+        return sb.append("</marc:record>").toString();
+    }
+
+    /**
+     * Parses a MARC record.
+     *
+     * @param marc The marc:record element.
+     * @return The marc:record node.
+     * @throws Exception Thrown when the record could not be parsed.
+     */
+    static Node parse(String marc) throws Exception {
+        DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+        documentBuilderFactory.setNamespaceAware(true);
+        return documentBuilderFactory.newDocumentBuilder()
+                .parse(new ByteArrayInputStream(marc.getBytes(StandardCharsets.UTF_8)))
+                .getDocumentElement();
+    }
+
+    private static void datafield(StringBuilder sb, String tag, char code, String value) {
+        sb.append("<marc:datafield tag=\"").append(tag).append("\" ind1=\" \" ind2=\" \">")
+                .append(subfield(code, value))
+                .append("</marc:datafield>");
+    }
+
+    private static String subfield(char code, String value) {
+        return "<marc:subfield code=\"" + code + "\">" + value + "</marc:subfield>";
+    }
+}
@@ -0,0 +1,88 @@
+package org.socialhistoryservices.delivery.api;
+
+import org.junit.jupiter.api.Test;
+import org.socialhistoryservices.delivery.record.entity.ExternalHoldingInfo;
+import org.socialhistoryservices.delivery.record.entity.ExternalRecordInfo;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the MARCMetadataRecordExtractor.
+ */
+public class MARCMetadataRecordExtractorTest {
+
+    /**
+     * The record metadata is extracted from the indexed datafields.
+     */
+    @Test
+    public void extractsTheRecordMetadata() throws Exception {
+        MARCMetadataRecordExtractor extractor = new MARCMetadataRecordExtractor("10622/N1", MARCFixtures.parse(
+                "<marc:record xmlns:marc=\"http://www.loc.gov/MARC21/slim\">" +
+                "<marc:leader>00000nam a2200000 a 4500</marc:leader>" +
+                "<marc:datafield tag=\"700\"><marc:subfield code=\"a\">Second author</marc:subfield></marc:datafield>" +
+                "<marc:datafield tag=\"110\"><marc:subfield code=\"a\">First author</marc:subfield></marc:datafield>" +
+                "<marc:datafield tag=\"245\"><marc:subfield code=\"a\">The title /</marc:subfield>" +
+                "<marc:subfield code=\"b\">a subtitle:</marc:subfield></marc:datafield>" +
+                "<marc:datafield tag=\"260\"><marc:subfield code=\"c\">1968</marc:subfield></marc:datafield>" +
+                "<marc:datafield tag=\"542\"><marc:subfield code=\"m\"> Restricted </marc:subfield></marc:datafield>" +
+                "<marc:datafield tag=\"655\"><marc:subfield code=\"a\">Posters.</marc:subfield></marc:datafield>" +
+                "<marc:datafield tag=\"655\"><marc:subfield code=\"a\">posters</marc:subfield></marc:datafield>" +
+                "</marc:record>"));
+
+        ExternalRecordInfo info = extractor.getRecordMetadata();
+        assertEquals("First author", info.getAuthor());
+        // The subtitle is appended twice, as it was before the datafields were indexed
+        assertEquals("The title  a subtitle a subtitle", info.getTitle());
+        assertEquals("1968", info.getDisplayYear());
+        assertEquals(ExternalRecordInfo.MaterialType.BOOK, info.getMaterialType());
+        assertEquals(ExternalRecordInfo.PublicationStatus.RESTRICTED, info.getPublicationStatus());
+        assertEquals("posters", info.getGenres());
+        assertNull(info.getCopyright());
+        assertNull(info.getPhysicalDescription());
+    }
+
+    /**
+     * A record without any title field is an unknown record.
+     */
+    @Test
+    public void namesARecordWithoutTitleUnknown() throws Exception {
+        MARCMetadataRecordExtractor extractor = new MARCMetadataRecordExtractor("10622/N2", MARCFixtures.parse(
+                "<marc:record xmlns:marc=\"http://www.loc.gov/MARC21/slim\">" +
+                "<marc:leader>00000nzz a2200000 a 4500</marc:leader></marc:record>"));
+
+        ExternalRecordInfo info = extractor.getRecordMetadata();
+        assertEquals("Unknown Record", info.getTitle());
+        assertNull(info.getAuthor());
+        assertEquals(ExternalRecordInfo.MaterialType.OTHER, info.getMaterialType());
+        assertEquals(ExternalRecordInfo.PublicationStatus.UNKNOWN, info.getPublicationStatus());
+    }
+
+    /**
+     * The 852 and 866 fields of the holdings are paired by their position.
+     */
+    @Test
+    public void pairsTheHoldingFieldsByPosition() throws Exception {
+        MARCMetadataRecordExtractor extractor = new MARCMetadataRecordExtractor("10622/N3", MARCFixtures.parse(
+                "<marc:record xmlns:marc=\"http://www.loc.gov/MARC21/slim\">" +
+                "<marc:leader>00000nas a2200000 a 4500</marc:leader>" +
+                "<marc:datafield tag=\"852\"><marc:subfield code=\"c\">Shelf 1</marc:subfield>" +
+                "<marc:subfield code=\"j\">N 1</marc:subfield><marc:subfield code=\"p\">111</marc:subfield>" +
+                "</marc:datafield>" +
+                "<marc:datafield tag=\"852\"><marc:subfield code=\"c\">Shelf 2</marc:subfield>" +
+                "<marc:subfield code=\"j\">N 2</marc:subfield></marc:datafield>" +
+                "<marc:datafield tag=\"866\"><marc:subfield code=\"a\">1970,1971</marc:subfield></marc:datafield>" +
+                "</marc:record>"));
+
+        Map<String, ExternalHoldingInfo> holdings = extractor.getHoldingMetadata();
+        assertEquals(2, holdings.size());
+        assertEquals("Shelf 1", holdings.get("N 1").getShelvingLocation());
+        assertEquals("111", holdings.get("N 1").getBarcode());
+        assertEquals("1970, 1971", holdings.get("N 1").getSerialNumbers());
+        assertEquals("Shelf 2", holdings.get("N 2").getShelvingLocation());
+        assertNull(holdings.get("N 2").getBarcode());
+        assertNull(holdings.get("N 2").getSerialNumbers());
+        assertEquals(ExternalRecordInfo.MaterialType.SERIAL, extractor.getRecordMetadata().getMaterialType());
+    }
+}
@@ -0,0 +1,131 @@
+package org.socialhistoryservices.delivery.api;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Generates METS documents and reads them like the SharedObjectRepositoryService did before it streamed them,
+ * for the tests and benchmarks of the METS reader.
+ */
+final class METSFixtures {
+    private static final Pattern HANDLE_PID_PATTERN = Pattern.compile("^http://hdl.handle.net/10622/(.*?)\\?locatt=.*$");
+    private static final String[] GROUPS = {"archive image", "hires reference image", "reference image", "thumbnail image"};
+
+    private METSFixtures() {
+    }
+
+    /**
+     * Generates a METS document with a file in every group for every page.
+     *
+     * @param pages The number of pages.
+     * @return The METS document.
+     */
+    static byte[] generate(int pages) {
+        StringBuilder sb = new StringBuilder()
+                .append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<mets xmlns=\"http://www.loc.gov/METS/\" xmlns:xlink=\"http://www.w3.org/1999/xlink\">\n")
+                .append("<fileSec>\n");
+        for (int group = 0; group < GROUPS.length; group++) {
+            sb.append("<fileGrp USE=\"").append(GROUPS[group]).append("\">\n");
+            for (int page = 1; page <= pages; page++) {
+                sb.append("<file ID=\"g").append(group).append("p").append(page).append("\" MIMETYPE=\"image/jpeg\">")
+                        .append("<FLocat LOCTYPE=\"HANDLE\" xlink:href=\"http://hdl.handle.net/10622/")
+                        .append(String.format("%d%010d", group + 1, page)).append("?locatt=view:level")
+                        .append(group).append("\"/></file>\n");
+            }
+            sb.append("</fileGrp>\n");
+        }
+        sb.append("</fileSec>\n<structMap TYPE=\"physical\"><div>\n");
+
+        // The pages are not in document order
+        for (int i = 0; i < pages; i++) {
+            int page = (i % 2 == 0) ? i / 2 + 1 : pages - i / 2;
+            sb.append("<div TYPE=\"page\" ORDER=\"").append(page).append("\">");
+            for (int group = 0; group < GROUPS.length; group++)
+                sb.append("<fptr FILEID=\"g").append(group).append("p").append(page).append("\"/>");
+            sb.append("</div>\n");
+        }
+
+        sb.append("</div></structMap>\n</mets>\n");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the files and their PIDs from a METS document with DOM lookups,
+     * searching all files for every file pointer.
+     *
+     * @param is The METS document.
+     * @return A map with the uses and their file PIDs.
+     * @throws Exception Thrown when the METS document could not be parsed.
+     */
+    static Map<String, List<String>> readWithDOM(InputStream is) throws Exception {
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(is);
+
+        Map<String, Set<String>> fptrsPerGroup = new TreeMap<>();
+        for (Element fileGrp : getElements(document.getElementsByTagName("fileGrp"))) {
+            Set<String> fptrs = new HashSet<>();
+            for (Element file : getElements(fileGrp.getElementsByTagName("file")))
+                fptrs.add(file.getAttribute("ID"));
+            fptrsPerGroup.put(fileGrp.getAttribute("USE"), fptrs);
+        }
+
+        Map<Integer, Set<String>> fptrsOrdered = new TreeMap<>();
+        for (Element structMap : getElements(document.getElementsByTagName("structMap"))) {
+            if (structMap.getAttribute("TYPE").equals("physical")) {
+                for (Element div : getElements(structMap.getElementsByTagName("div"))) {
+                    if (div.getAttribute("TYPE").equals("page")) {
+                        Set<String> fptrs = new HashSet<>();
+                        for (Element fptr : getElements(div.getElementsByTagName("fptr")))
+                            fptrs.add(fptr.getAttribute("FILEID"));
+                        fptrsOrdered.put(Integer.parseInt(div.getAttribute("ORDER")), fptrs);
+                    }
+                }
+            }
+        }
+
+        Map<String, List<String>> filePids = new HashMap<>();
+        for (Map.Entry<String, Set<String>> group : fptrsPerGroup.entrySet()) {
+            List<String> files = new ArrayList<>();
+            for (Set<String> fptrs : fptrsOrdered.values()) {
+                for (String fptr : fptrs) {
+                    if (group.getValue().contains(fptr))
+                        files.add(getFilePid(document, fptr));
+                }
+            }
+            if (!files.isEmpty())
+                filePids.put(group.getKey(), files);
+        }
+        return filePids;
+    }
+
+    private static String getFilePid(Document document, String id) {
+        for (Element file : getElements(document.getElementsByTagName("file"))) {
+            if (file.getAttribute("ID").equals(id)) {
+                List<Element> fLocats = getElements(file.getElementsByTagName("FLocat"));
+                if (!fLocats.isEmpty()) {
+                    Matcher matcher = HANDLE_PID_PATTERN.matcher(fLocats.get(0).getAttribute("xlink:href"));
+                    if (matcher.find())
+                        return "10622/" + matcher.group(1);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static List<Element> getElements(NodeList nodeList) {
+        List<Element> elements = new ArrayList<>();
+        for (int i = 0; i < nodeList.getLength(); i++) {
+            if (nodeList.item(i) instanceof Element)
+                elements.add((Element) nodeList.item(i));
+        }
+        return elements;
+    }
+}
@@ -0,0 +1,38 @@
+package org.socialhistoryservices.delivery.api;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.socialhistoryservices.delivery.Benchmark;
+
+import java.io.ByteArrayInputStream;
+
+/**
+ * Benchmarks the streaming METS reader against the DOM lookups it replaced, on METS documents of growing size.
+ */
+@Tag(Benchmark.TAG)
+public class SharedObjectRepositoryServiceBenchmark {
+
+    /**
+     * Reading a METS document in a single streaming pass.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {50, 100, 200, 5000})
+    public void readMETSWithStAX(int pages) throws Exception {
+        byte[] mets = METSFixtures.generate(pages);
+        Benchmark.measure("Read a METS of " + pages + " pages with StAX", Math.max(5, 20000 / pages),
+                i -> SharedObjectRepositoryService.getFilesMETSFromStream(new ByteArrayInputStream(mets)));
+    }
+
+    /**
+     * Reading a METS document with the DOM lookups, which search all files for every file pointer.
+     * The time grows steeply with the number of pages, so only the smaller documents are read.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {50, 100, 200})
+    public void readMETSWithDOM(int pages) throws Exception {
+        byte[] mets = METSFixtures.generate(pages);
+        Benchmark.measure("Read a METS of " + pages + " pages with DOM lookups", Math.max(1, 200 / pages),
+                i -> METSFixtures.readWithDOM(new ByteArrayInputStream(mets)));
+    }
+}
@@ -0,0 +1,47 @@
+package org.socialhistoryservices.delivery.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the SharedObjectRepositoryService.
+ */
+public class SharedObjectRepositoryServiceTest {
+
+    /**
+     * The file PIDs of every group are ordered by the pages of the physical structure map.
+     */
+    @Test
+    public void readsTheFilePidsPerGroupInPageOrder() throws Exception {
+        Map<String, List<String>> expected = new HashMap<>();
+        expected.put("archive image", Arrays.asList("10622/30051000000002", "10622/30051000000001"));
+        expected.put("reference image", Arrays.asList("10622/30051000000004", "10622/30051000000003"));
+
+        try (InputStream is = getClass().getResourceAsStream("mets.xml")) {
+            assertEquals(expected, SharedObjectRepositoryService.getFilesMETSFromStream(is));
+        }
+        try (InputStream is = getClass().getResourceAsStream("mets.xml")) {
+            assertEquals(expected, METSFixtures.readWithDOM(is));
+        }
+    }
+
+    /**
+     * A large METS document is read the same as with the DOM lookups the streaming reader replaced.
+     */
+    @Test
+    public void readsALargeMETSLikeTheDOMLookups() throws Exception {
+        byte[] mets = METSFixtures.generate(100);
+
+        Map<String, List<String>> filePids =
+                SharedObjectRepositoryService.getFilesMETSFromStream(new ByteArrayInputStream(mets));
+        assertEquals(4, filePids.size());
+        assertEquals(100, filePids.get("thumbnail image").size());
+        assertEquals("10622/40000000001", filePids.get("thumbnail image").get(0));
+        assertEquals(METSFixtures.readWithDOM(new ByteArrayInputStream(mets)), filePids);
+    }
+}
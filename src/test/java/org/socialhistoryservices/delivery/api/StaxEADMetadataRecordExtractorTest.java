@@ -0,0 +1,89 @@
+package org.socialhistoryservices.delivery.api;
+
+import org.junit.jupiter.api.Test;
+import org.socialhistoryservices.delivery.record.entity.ExternalHoldingInfo;
+import org.socialhistoryservices.delivery.record.entity.ExternalRecordInfo;
+import org.socialhistoryservices.delivery.record.util.Inventory;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the StaxEADMetadataRecordExtractor against the EADMetadataRecordExtractor.
+ */
+public class StaxEADMetadataRecordExtractorTest {
+    private static final String PARENT_PID = "10622/ARCH01234";
+    private static final String[] ITEMS = {null, "1", "2b", "3", "3.1", "4", "5'a", "5'b", "6", "7"};
+
+    /**
+     * Both extractors extract the same metadata for the archive and for all of its items.
+     */
+    @Test
+    public void extractsTheSameMetadataAsTheDomExtractor() throws Exception {
+        EADMetadataRecordExtractor.EAD dom = EADFixtures.parseDOM("ead.xml");
+        StaxEADMetadataRecordExtractor.EAD stax = EADFixtures.parseStAX("ead.xml");
+
+        for (String item : ITEMS) {
+            assertEquals(describe(new EADMetadataRecordExtractor(PARENT_PID, item, ".", dom, null)),
+                    describe(new StaxEADMetadataRecordExtractor(PARENT_PID, item, ".", stax, null)),
+                    "Item " + item);
+        }
+    }
+
+    /**
+     * Items and containers with an apostrophe are found like any other item or container.
+     */
+    @Test
+    public void findsItemsAndContainersWithAnApostrophe() throws Exception {
+        StaxEADMetadataRecordExtractor extractor = new StaxEADMetadataRecordExtractor(
+                PARENT_PID, "5'a", ".", EADFixtures.parseStAX("ead.xml"), null);
+
+        ExternalRecordInfo info = extractor.getRecordMetadata();
+        assertEquals("Box 'A'", info.getContainer());
+        assertEquals(ExternalRecordInfo.Restriction.RESTRICTED, info.getRestriction());
+        assertEquals(Collections.singletonList(PARENT_PID + ".5'b"),
+                getPids(extractor.getRecordExtractorsForContainerSiblings()));
+    }
+
+    /**
+     * Describes all metadata extracted by an extractor, to compare extractors.
+     */
+    static String describe(MetadataRecordExtractor extractor) {
+        ExternalRecordInfo info = extractor.getRecordMetadata();
+        StringBuilder sb = new StringBuilder()
+                .append(extractor.getPid()).append('|')
+                .append(info.getTitle()).append('|')
+                .append(info.getAuthor()).append('|')
+                .append(info.getRestriction()).append('|')
+                .append(info.getContainer()).append('|')
+                .append(info.getPhysicalDescription()).append('|');
+        describe(info.getInventory(), sb);
+
+        for (Map.Entry<String, ExternalHoldingInfo> holding : new TreeMap<>(extractor.getHoldingMetadata()).entrySet())
+            sb.append("\nholding ").append(holding.getKey()).append('=').append(holding.getValue().getBarcode());
+        sb.append("\nsiblings ").append(getPids(extractor.getRecordExtractorsForContainerSiblings()));
+
+        return sb.toString();
+    }
+
+    private static void describe(Inventory inventory, StringBuilder sb) {
+        if (inventory == null) {
+            sb.append("-");
+            return;
+        }
+
+        sb.append('{').append(inventory.getUnitId()).append(':').append(inventory.getTitle());
+        for (Inventory child : inventory.getChildren())
+            describe(child, sb);
+        sb.append('}');
+    }
+
+    static List<String> getPids(Set<MetadataRecordExtractor> extractors) {
+        List<String> pids = new ArrayList<>();
+        for (MetadataRecordExtractor extractor : extractors)
+            pids.add(extractor.getPid());
+        Collections.sort(pids);
+        return pids;
+    }
+}
@@ -0,0 +1,73 @@
+package org.socialhistoryservices.delivery.api;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.socialhistoryservices.delivery.Benchmark;
+import org.w3c.dom.Node;
+
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathFactory;
+
+/**
+ * Benchmarks the throughput of the per thread XPath expressions against
+ * a single compiled expression shared under a lock and against compiling the expression for every evaluation.
+ */
+@Tag(Benchmark.TAG)
+public class ThreadLocalXPathExpressionBenchmark {
+    private static final String EXPRESSION = "marc:datafield[@tag=245]/marc:subfield[@code=\"a\"]";
+    private static final int RECORDS = 100;
+    private static final int ITERATIONS = 20000;
+
+    /**
+     * Evaluating the expression compiled once per thread.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 8})
+    public void evaluatePerThread(int threads) throws Exception {
+        Node[] nodes = generate();
+        XPathExpression expression = XmlUtils.compile(EXPRESSION);
+        Benchmark.measureConcurrently("Evaluate per thread", threads, ITERATIONS,
+                i -> expression.evaluate(nodes[i % RECORDS]));
+    }
+
+    /**
+     * Evaluating a single compiled expression shared by all threads, which have to take turns.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 8})
+    public void evaluateSynchronized(int threads) throws Exception {
+        Node[] nodes = generate();
+        XPathExpression expression = newXPath().compile(EXPRESSION);
+        Benchmark.measureConcurrently("Evaluate synchronized", threads, ITERATIONS, i -> {
+            synchronized (expression) {
+                return expression.evaluate(nodes[i % RECORDS]);
+            }
+        });
+    }
+
+    /**
+     * Compiling the expression for every evaluation.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 8})
+    public void compileEveryEvaluation(int threads) throws Exception {
+        Node[] nodes = generate();
+        Benchmark.measureConcurrently("Compile every evaluation", threads, ITERATIONS,
+                i -> newXPath().compile(EXPRESSION).evaluate(nodes[i % RECORDS]));
+    }
+
+    private static Node[] generate() throws Exception {
+        Node[] nodes = new Node[RECORDS];
+        for (int i = 0; i < RECORDS; i++)
+            nodes[i] = MARCFixtures.parse(MARCFixtures.generate(i));
+        return nodes;
+    }
+
+    private static XPath newXPath() {
+        XPath xpath = XPathFactory.newInstance().newXPath();
+        xpath.setNamespaceContext(new IISHNamespaceContext());
+        return xpath;
+    }
+}
@@ -0,0 +1,87 @@
+package org.socialhistoryservices.delivery.api;
+
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the ThreadLocalXPathExpression.
+ */
+public class ThreadLocalXPathExpressionTest {
+
+    /**
+     * An invalid expression is reported when it is created, not when it is first evaluated.
+     */
+    @Test
+    public void reportsAnInvalidExpressionImmediately() {
+        assertThrows(XPathExpressionException.class, () -> XmlUtils.compile("marc:datafield[@tag="));
+    }
+
+    /**
+     * Expressions shared by many threads evaluate the same as when they are evaluated one by one.
+     */
+    @Test
+    public void evaluatesSharedExpressionsConcurrently() throws Exception {
+        XPathExpression title = XmlUtils.getXPathForMarc("245", 'a');
+        XPathExpression holdings = XmlUtils.getXPathForMarcTag("852");
+        XPathExpression signature = XmlUtils.getXPathForMarcSubfield('j');
+        XPathExpression count = XmlUtils.compile("count(marc:datafield)");
+
+        int records = 200;
+        List<Node> nodes = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < records; i++) {
+            Node node = MARCFixtures.parse(MARCFixtures.generate(i));
+            nodes.add(node);
+            expected.add(evaluate(node, title, holdings, signature, count));
+        }
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CyclicBarrier barrier = new CyclicBarrier(threads);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Random random = new Random(t);
+                futures.add(executor.submit(() -> {
+                    barrier.await();
+                    for (int n = 0; n < 5000; n++) {
+                        int i = random.nextInt(records);
+                        assertEquals(expected.get(i), evaluate(nodes.get(i), title, holdings, signature, count));
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futures)
+                future.get(1, TimeUnit.MINUTES);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static String evaluate(Node node, XPathExpression title, XPathExpression holdings,
+                                   XPathExpression signature, XPathExpression count)
+            throws XPathExpressionException {
+        StringBuilder sb = new StringBuilder()
+                .append(title.evaluate(node))
+                .append('|')
+                .append(count.evaluate(node, XPathConstants.NUMBER));
+
+        NodeList list = (NodeList) holdings.evaluate(node, XPathConstants.NODESET);
+        for (int i = 0; i < list.getLength(); i++)
+            sb.append('|').append(signature.evaluate(list.item(i)));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,103 @@
+package org.socialhistoryservices.delivery.job.service;
+
+import org.junit.jupiter.api.Test;
+import org.socialhistoryservices.delivery.job.dao.JobStateDAOImpl;
+import org.socialhistoryservices.delivery.job.entity.JobState;
+import org.socialhistoryservices.delivery.util.TransactionLocks;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the JobStateServiceImpl.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({JobStateServiceImpl.class, JobStateDAOImpl.class, TransactionLocks.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class JobStateServiceImplTest {
+    @Autowired
+    private JobStateService jobStates;
+
+    /**
+     * A leased job can not be started again until the run finishes, after which it resumes from the saved position.
+     */
+    @Test
+    public void resumesFromTheSavedPosition() {
+        assertNull(jobStates.getJobState("resume"));
+        assertEquals(0, jobStates.startRun("resume", 60).getPosition());
+
+        jobStates.savePosition("resume", 42);
+        assertNull(jobStates.startRun("resume", 60));
+        assertEquals(42, jobStates.getJobState("resume").getPosition());
+
+        jobStates.finishRun("resume", 84);
+        JobState jobState = jobStates.getJobState("resume");
+        assertNotNull(jobState.getRunFinished());
+        assertNull(jobState.getLeasedUntil());
+        assertEquals(84, jobStates.startRun("resume", 60).getPosition());
+    }
+
+    /**
+     * The lease of a node that failed to finish its run expires.
+     */
+    @Test
+    public void takesOverAnExpiredLease() throws Exception {
+        assertNotNull(jobStates.startRun("expired", 0));
+        Thread.sleep(10);
+        assertNotNull(jobStates.startRun("expired", 60));
+    }
+
+    /**
+     * A job that finished less than the interval ago is not due.
+     */
+    @Test
+    public void startsARunOnlyWhenDue() {
+        assertNotNull(jobStates.startRunIfDue("due", 60, 60));
+        assertNull(jobStates.startRunIfDue("due", 60, 0));
+
+        jobStates.finishRun("due", 0);
+        assertNull(jobStates.startRunIfDue("due", 60, 60));
+        assertNotNull(jobStates.startRunIfDue("due", 60, 0));
+    }
+
+    /**
+     * Of the nodes starting a run at the same time, only one leases the job.
+     */
+    @Test
+    public void leasesTheJobToASingleNode() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        try {
+            List<Future<JobState>> runs = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                runs.add(executor.submit(() -> {
+                    barrier.await();
+                    return jobStates.startRun("concurrent", 60);
+                }));
+            }
+
+            int started = 0;
+            for (Future<JobState> run : runs) {
+                if (run.get(30, TimeUnit.SECONDS) != null)
+                    started++;
+            }
+            assertEquals(1, started);
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+}
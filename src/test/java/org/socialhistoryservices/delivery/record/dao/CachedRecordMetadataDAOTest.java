@@ -0,0 +1,123 @@
+package org.socialhistoryservices.delivery.record.dao;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.socialhistoryservices.delivery.record.entity.CachedRecordMetadata;
+import org.socialhistoryservices.delivery.record.entity.CachedRecordMetadata_;
+import org.socialhistoryservices.delivery.util.TransactionLocks;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the CachedRecordMetadataDAO.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({CachedRecordMetadataDAOImpl.class, TransactionLocks.class})
+public class CachedRecordMetadataDAOTest {
+    @Autowired
+    private CachedRecordMetadataDAO cachedRecordMetadataDAO;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * A put of a PID that is already cached replaces the cached metadata.
+     */
+    @Test
+    public void putReplacesTheCachedMetadata() {
+        cachedRecordMetadataDAO.put("10622/ARCH00001", "{\"title\":\"first\"}", new Date(1000));
+        cachedRecordMetadataDAO.put("10622/ARCH00001", "{\"title\":\"second\"}", new Date(2000));
+
+        List<CachedRecordMetadata> cached = listByPid("10622/ARCH00001");
+        assertEquals(1, cached.size());
+        assertEquals("{\"title\":\"second\"}", cached.get(0).getMetadata());
+        assertEquals(2000, cached.get(0).getFetched().getTime());
+    }
+
+    /**
+     * The cached metadata of multiple PIDs is read with a single statement; unknown PIDs are left out.
+     */
+    @Test
+    public void getsMultiplePidsWithOneStatement() {
+        for (int i = 0; i < 3; i++)
+            cachedRecordMetadataDAO.put("10622/ARCH0001" + i, "{\"title\":\"" + i + "\"}", new Date());
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        Map<String, CachedRecordMetadata> cached = cachedRecordMetadataDAO.getByPids(
+                Arrays.asList("10622/ARCH00010", "10622/ARCH00011", "10622/ARCH00012", "10622/UNKNOWN"));
+        assertEquals(new HashSet<>(Arrays.asList("10622/ARCH00010", "10622/ARCH00011", "10622/ARCH00012")),
+                cached.keySet());
+        assertEquals("{\"title\":\"1\"}", cached.get("10622/ARCH00011").getMetadata());
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        assertTrue(cachedRecordMetadataDAO.getByPids(Collections.emptyList()).isEmpty());
+    }
+
+    /**
+     * Concurrent puts of the same PID, each in its own transaction, leave a single row.
+     */
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void concurrentPutsDoNotConflict() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        try {
+            List<Future<?>> puts = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                String metadata = "{\"title\":\"" + i + "\"}";
+                puts.add(executor.submit(() -> {
+                    barrier.await();
+                    transactionTemplate.executeWithoutResult(status ->
+                            cachedRecordMetadataDAO.put("10622/ARCH00002", metadata, new Date()));
+                    return null;
+                }));
+            }
+            for (Future<?> put : puts)
+                put.get(30, TimeUnit.SECONDS);
+
+            assertEquals(1, transactionTemplate.execute(status -> listByPid("10622/ARCH00002")).size());
+        }
+        finally {
+            executor.shutdownNow();
+            transactionTemplate.executeWithoutResult(status -> cachedRecordMetadataDAO.removeByPid("10622/ARCH00002"));
+        }
+    }
+
+    private List<CachedRecordMetadata> listByPid(String pid) {
+        entityManager.clear();
+        CriteriaBuilder builder = cachedRecordMetadataDAO.getCriteriaBuilder();
+        CriteriaQuery<CachedRecordMetadata> query = builder.createQuery(CachedRecordMetadata.class);
+        Root<CachedRecordMetadata> root = query.from(CachedRecordMetadata.class);
+        query.where(builder.equal(root.get(CachedRecordMetadata_.pid), pid));
+        return entityManager.createQuery(query).getResultList();
+    }
+}
@@ -0,0 +1,248 @@
+package org.socialhistoryservices.delivery.record.service;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.socialhistoryservices.delivery.Benchmark;
+import org.socialhistoryservices.delivery.api.RecordLookupService;
+import org.socialhistoryservices.delivery.config.DeliveryProperties;
+import org.socialhistoryservices.delivery.record.dao.HoldingDAOImpl;
+import org.socialhistoryservices.delivery.record.dao.RecordDAOImpl;
+import org.socialhistoryservices.delivery.record.entity.*;
+import org.socialhistoryservices.delivery.record.entity.Record;
+import org.socialhistoryservices.delivery.util.TransactionLocks;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.validation.Validator;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmarks marking the holdings of a reservation in use against the sibling loading it replaced,
+ * on a parent with 4 boxes of 400 items each. The reservation has 20 items of one box and 1 item of another.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn test -Dgroups=benchmark -DexcludedGroups= -Dtest=HoldingStatusBenchmark
+ * </pre>
+ */
+@Tag(Benchmark.TAG)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({RecordServiceImpl.class, RecordDAOImpl.class, HoldingDAOImpl.class, DeliveryProperties.class,
+        TransactionLocks.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class HoldingStatusBenchmark {
+    private static final Logger LOGGER = LoggerFactory.getLogger(HoldingStatusBenchmark.class);
+
+    private static final String PARENT_PID = "10622/BENCH";
+    private static final int BOXES = 4;
+    private static final int ITEMS = 400;
+    private static final int ITERATIONS = 10;
+
+    @Autowired
+    private RecordService records;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private RecordLookupService lookup;
+
+    @MockBean
+    private ExternalInfoRefresher externalInfoRefresher;
+
+    @MockBean(name = "mvcValidator")
+    private Validator mvcValidator;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeAll
+    public void createArchive() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            Record parent = createRecord(PARENT_PID, null, null);
+            for (int box = 0; box < BOXES; box++) {
+                for (int item = 0; item < ITEMS; item++) {
+                    Record record = createRecord(PARENT_PID + "." + box + "." + item, parent, "Box " + box);
+                    // Some items have a second holding
+                    if (item % 50 == 0)
+                        addHolding(record, record.getPid() + "b");
+                    entityManager.persist(record);
+                }
+            }
+        });
+    }
+
+    @AfterAll
+    public void removeArchive() {
+        transactionTemplate.executeWithoutResult(status -> entityManager.remove(getRecord(PARENT_PID)));
+    }
+
+    /**
+     * Updating the holdings one by one, loading all records in the same container for every holding.
+     */
+    @Test
+    public void updateByLoadingTheSiblings() throws Exception {
+        measure("Mark a reservation in use, loading the siblings", this::updateByLoadingTheSiblings);
+    }
+
+    /**
+     * Updating the holdings with a single update per container.
+     */
+    @Test
+    public void updateTheContainers() throws Exception {
+        measure("Mark a reservation in use, updating the containers", records::updateHoldingStatus);
+    }
+
+    /**
+     * Both ways leave the same holding statuses, while updating the containers loads far fewer entities.
+     */
+    @Test
+    public void bothLeaveTheSameStatuses() {
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+
+        statistics.clear();
+        markInUse(Holding.Status.IN_USE, this::updateByLoadingTheSiblings);
+        long siblingLoads = statistics.getEntityLoadCount();
+        List<Object[]> siblingStatuses = transactionTemplate.execute(status -> countStatuses());
+
+        markInUse(Holding.Status.AVAILABLE, this::updateByLoadingTheSiblings);
+        statistics.clear();
+        markInUse(Holding.Status.IN_USE, records::updateHoldingStatus);
+        long containerLoads = statistics.getEntityLoadCount();
+        List<Object[]> containerStatuses = transactionTemplate.execute(status -> countStatuses());
+
+        markInUse(Holding.Status.AVAILABLE, records::updateHoldingStatus);
+        LOGGER.info(String.format("Entities loaded: %,d loading the siblings, %,d updating the containers",
+                siblingLoads, containerLoads));
+        assertEquals(toString(siblingStatuses), toString(containerStatuses));
+        assertTrue(containerLoads < siblingLoads,
+                containerLoads + " entities loaded, against " + siblingLoads + " when loading the siblings");
+    }
+
+    private void measure(String name, BiConsumer<List<Holding>, Holding.Status> update) throws Exception {
+        Benchmark.measure(name, ITERATIONS, i -> {
+            // Alternate the status, so every run updates all holdings of both containers
+            markInUse((i % 2 == 0) ? Holding.Status.IN_USE : Holding.Status.AVAILABLE, update);
+            return i;
+        });
+        markInUse(Holding.Status.AVAILABLE, update);
+    }
+
+    /**
+     * Gives the holdings of the reservation the given status in a transaction of its own.
+     */
+    private void markInUse(Holding.Status holdingStatus, BiConsumer<List<Holding>, Holding.Status> update) {
+        transactionTemplate.executeWithoutResult(status -> update.accept(listReservedHoldings(), holdingStatus));
+    }
+
+    /**
+     * The update that was replaced: every holding loads all other records in its container.
+     */
+    private void updateByLoadingTheSiblings(List<Holding> holdings, Holding.Status status) {
+        for (Holding holding : holdings) {
+            holding.setStatus(status);
+            for (Record sibling : listSiblings(holding.getRecord())) {
+                for (Holding siblingHolding : sibling.getHoldings())
+                    siblingHolding.setStatus(status);
+            }
+        }
+        entityManager.flush();
+    }
+
+    private List<Record> listSiblings(Record record) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Record> query = cb.createQuery(Record.class);
+        Root<Record> root = query.from(Record.class);
+        Join<Record, ExternalRecordInfo> externalInfo = root.join(Record_.externalInfo);
+        query.where(
+                cb.equal(root.get(Record_.parent), record.getParent()),
+                cb.equal(externalInfo.get(ExternalRecordInfo_.container), record.getExternalInfo().getContainer()),
+                cb.notEqual(root.get(Record_.id), record.getId())
+        );
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    private List<Holding> listReservedHoldings() {
+        List<String> pids = new ArrayList<>();
+        for (int item = 1; item <= 20; item++)
+            pids.add(PARENT_PID + ".1." + item);
+        pids.add(PARENT_PID + ".2.7");
+        return entityManager.createQuery(
+                "SELECT h FROM Holding h JOIN h.record r WHERE r.pid IN :pids ORDER BY h.id", Holding.class)
+                .setParameter("pids", pids)
+                .getResultList();
+    }
+
+    private List<Object[]> countStatuses() {
+        return entityManager.createQuery("SELECT h.status, COUNT(h) FROM Holding h JOIN h.record r " +
+                "WHERE r.pid LIKE :pids GROUP BY h.status ORDER BY h.status", Object[].class)
+                .setParameter("pids", PARENT_PID + ".%")
+                .getResultList();
+    }
+
+    private Record getRecord(String pid) {
+        return entityManager.createQuery("SELECT r FROM Record r WHERE r.pid = :pid", Record.class)
+                .setParameter("pid", pid)
+                .getSingleResult();
+    }
+
+    private Record createRecord(String pid, Record parent, String container) {
+        Record record = new Record();
+        record.setPid(pid);
+        record.setParent(parent);
+        ExternalRecordInfo externalInfo = record.getExternalInfo();
+        externalInfo.setTitle(pid);
+        externalInfo.setContainer(container);
+        externalInfo.setMaterialType(ExternalRecordInfo.MaterialType.ARCHIVE);
+        externalInfo.setPublicationStatus(ExternalRecordInfo.PublicationStatus.OPEN);
+        externalInfo.setRestriction(ExternalRecordInfo.Restriction.OPEN);
+        addHolding(record, pid);
+        if (parent == null)
+            entityManager.persist(record);
+        else
+            parent.getChildren().add(record);
+        return record;
+    }
+
+    private static void addHolding(Record record, String signature) {
+        Holding holding = new Holding();
+        holding.setSignature(signature);
+        holding.setRecord(record);
+        record.addHolding(holding);
+    }
+
+    private static String toString(List<Object[]> rows) {
+        StringBuilder sb = new StringBuilder();
+        for (Object[] row : rows)
+            sb.append(row[0]).append('=').append(row[1]).append(' ');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,120 @@
+package org.socialhistoryservices.delivery.record.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.socialhistoryservices.delivery.config.DeliveryProperties;
+import org.socialhistoryservices.delivery.job.entity.JobState;
+import org.socialhistoryservices.delivery.job.service.JobStateService;
+import org.socialhistoryservices.delivery.request.entity.StatisticsRollupDay;
+import org.socialhistoryservices.delivery.request.service.StatisticsRollupJob;
+import org.socialhistoryservices.delivery.request.service.StatisticsRollupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests the RecordRefreshJob together with the other scheduled tasks.
+ */
+@SpringJUnitConfig(RecordRefreshJobTest.Config.class)
+@TestPropertySource(properties = "delivery.statisticsRollupRefreshDelay=100")
+public class RecordRefreshJobTest {
+    // Blocks the refresh of the only expired record until the test releases it
+    private static final CountDownLatch REFRESH_STARTED = new CountDownLatch(1);
+    private static final CountDownLatch REFRESH_RELEASED = new CountDownLatch(1);
+
+    @Autowired
+    private RecordRefreshJob recordRefreshJob;
+
+    @Autowired
+    private StatisticsRollupService statisticsRollups;
+
+    @Autowired
+    private JobStateService jobStates;
+
+    @AfterEach
+    public void releaseRefresh() {
+        REFRESH_RELEASED.countDown();
+    }
+
+    /**
+     * A refresh run started by the scheduler does not keep the statistics rollups from being refreshed,
+     * and the position of the run is only saved once the refreshes of the page have finished.
+     */
+    @Test
+    public void otherScheduledTasksRunDuringARefreshRun() throws Exception {
+        assertTrue(REFRESH_STARTED.await(10, TimeUnit.SECONDS), "The refresh run did not start");
+        assertTrue(recordRefreshJob.isRunning());
+
+        clearInvocations(statisticsRollups);
+        verify(statisticsRollups, timeout(5000).atLeast(2)).listQueuedDays(StatisticsRollupDay.Type.RESERVATION);
+        assertTrue(recordRefreshJob.isRunning());
+        verify(jobStates, never()).savePosition(anyString(), anyInt());
+
+        REFRESH_RELEASED.countDown();
+        long deadline = System.currentTimeMillis() + 10000;
+        while (recordRefreshJob.isRunning() && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        assertFalse(recordRefreshJob.isRunning());
+        assertEquals(1, recordRefreshJob.getRefreshed());
+        verify(jobStates).savePosition(RecordRefreshJob.JOB_NAME, 1);
+        verify(jobStates).finishRun(RecordRefreshJob.JOB_NAME, 0);
+    }
+
+    @Configuration
+    @EnableScheduling
+    @Import({RecordRefreshJob.class, StatisticsRollupJob.class, DeliveryProperties.class, RefreshTrigger.class})
+    static class Config {
+        @Bean
+        public RecordService recordService() {
+            RecordService records = mock(RecordService.class);
+            when(records.listExpiredAfter(anyInt(), anyInt())).thenAnswer(invocation ->
+                    ((int) invocation.getArgument(0) == 0)
+                            ? Collections.singletonMap(1, "10622/N1") : Collections.emptyMap());
+            doAnswer(invocation -> {
+                REFRESH_STARTED.countDown();
+                REFRESH_RELEASED.await();
+                return null;
+            }).when(records).refreshRecordByPid(anyString());
+            return records;
+        }
+
+        @Bean
+        public JobStateService jobStateService() {
+            JobStateService jobStates = mock(JobStateService.class);
+            when(jobStates.startRun(eq(RecordRefreshJob.JOB_NAME), anyInt())).thenReturn(new JobState());
+            return jobStates;
+        }
+
+        @Bean
+        public StatisticsRollupService statisticsRollupService() {
+            return mock(StatisticsRollupService.class);
+        }
+    }
+
+    /**
+     * Starts a refresh run on the scheduler thread right after startup, like the nightly trigger.
+     */
+    static class RefreshTrigger {
+        @Autowired
+        private RecordRefreshJob recordRefreshJob;
+
+        @Scheduled(fixedDelay = Long.MAX_VALUE)
+        public void startRefresh() {
+            recordRefreshJob.refreshExpiredRecords();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package org.socialhistoryservices.delivery.record.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.socialhistoryservices.delivery.api.MetadataRecordExtractor;
+import org.socialhistoryservices.delivery.api.RecordLookupService;
+import org.socialhistoryservices.delivery.api.StaxEADMetadataRecordExtractor;
+import org.socialhistoryservices.delivery.config.DeliveryProperties;
+import org.socialhistoryservices.delivery.record.dao.HoldingDAOImpl;
+import org.socialhistoryservices.delivery.record.dao.RecordDAOImpl;
+import org.socialhistoryservices.delivery.record.entity.Record;
+import org.socialhistoryservices.delivery.util.TransactionLocks;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.validation.Validator;
+
+import javax.persistence.EntityManager;
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests the RecordServiceImpl.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({RecordServiceImpl.class, RecordDAOImpl.class, HoldingDAOImpl.class, DeliveryProperties.class,
+        TransactionLocks.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class RecordServiceImplTest {
+    private static final String PARENT_PID = "10622/ARCH01234";
+
+    @Autowired
+    private RecordService records;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private RecordLookupService lookup;
+
+    @MockBean
+    private ExternalInfoRefresher externalInfoRefresher;
+
+    @MockBean(name = "mvcValidator")
+    private Validator mvcValidator;
+
+    private StaxEADMetadataRecordExtractor.EAD ead;
+
+    @BeforeEach
+    public void parseEAD() throws Exception {
+        try (InputStream is = getClass().getResourceAsStream("/org/socialhistoryservices/delivery/api/ead.xml")) {
+            ead = StaxEADMetadataRecordExtractor.parse(is);
+        }
+
+        // The lookups are slow, like API calls, so the concurrent requests overlap
+        when(lookup.getRecordExtractorByPid(anyString())).thenAnswer(invocation -> {
+            Thread.sleep(50);
+            String pid = invocation.getArgument(0);
+            String item = pid.startsWith(PARENT_PID + ".") ? pid.substring(PARENT_PID.length() + 1) : null;
+            return new StaxEADMetadataRecordExtractor(PARENT_PID, item, ".", ead, null);
+        });
+    }
+
+    /**
+     * An item is created with its parent and its siblings in the same box container.
+     */
+    @Test
+    public void createsAnItemWithItsParentAndContainerSiblings() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        try {
+            Record record = transactionTemplate.execute(status -> getRecordByPidAndCreate(PARENT_PID + ".5'a"));
+            assertEquals(PARENT_PID, record.getParent().getPid());
+            assertEquals(Arrays.asList(PARENT_PID, PARENT_PID + ".5'a", PARENT_PID + ".5'b"),
+                    transactionTemplate.execute(status -> listPids()));
+        }
+        finally {
+            transactionTemplate.executeWithoutResult(status -> removeAll());
+        }
+    }
+
+    /**
+     * Concurrent requests for the same item, each in its own transaction, create every record only once.
+     */
+    @Test
+    public void concurrentRequestsCreateEveryRecordOnce() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        try {
+            List<Future<Integer>> requests = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                // Request the item and its siblings in the same container
+                String pid = PARENT_PID + ((i % 2 == 0) ? ".1" : ".2b");
+                requests.add(executor.submit(() -> {
+                    barrier.await();
+                    return transactionTemplate.execute(status -> getRecordByPidAndCreate(pid).getId());
+                }));
+            }
+
+            Set<Integer> ids = new HashSet<>();
+            for (Future<Integer> request : requests)
+                ids.add(request.get(1, TimeUnit.MINUTES));
+            assertEquals(2, ids.size());
+
+            List<String> pids = transactionTemplate.execute(status -> listPids());
+            assertEquals(new ArrayList<>(new TreeSet<>(pids)), pids, "Duplicate records: " + pids);
+            assertTrue(pids.containsAll(Arrays.asList(PARENT_PID, PARENT_PID + ".1", PARENT_PID + ".2b")));
+        }
+        finally {
+            executor.shutdownNow();
+            transactionTemplate.executeWithoutResult(status -> removeAll());
+        }
+    }
+
+    private Record getRecordByPidAndCreate(String pid) {
+        try {
+            return records.getRecordByPidAndCreate(pid);
+        }
+        catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private List<String> listPids() {
+        return entityManager.createQuery("SELECT r.pid FROM Record r ORDER BY r.pid", String.class).getResultList();
+    }
+
+    private void removeAll() {
+        for (Record record : entityManager.createQuery(
+                "SELECT r FROM Record r WHERE r.parent IS NOT NULL", Record.class).getResultList())
+            entityManager.remove(record);
+        entityManager.flush();
+        for (Record record : entityManager.createQuery("SELECT r FROM Record r", Record.class).getResultList())
+            entityManager.remove(record);
+    }
+}
@@ -0,0 +1,167 @@
+package org.socialhistoryservices.delivery.request.service;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.socialhistoryservices.delivery.record.entity.ExternalRecordInfo;
+import org.socialhistoryservices.delivery.record.entity.Holding;
+import org.socialhistoryservices.delivery.record.entity.Record;
+import org.socialhistoryservices.delivery.reproduction.entity.HoldingReproduction;
+import org.socialhistoryservices.delivery.reproduction.entity.Reproduction;
+import org.socialhistoryservices.delivery.reproduction.service.ReproductionSearch;
+import org.socialhistoryservices.delivery.reservation.entity.HoldingReservation;
+import org.socialhistoryservices.delivery.reservation.entity.Reservation;
+import org.socialhistoryservices.delivery.reservation.service.ReservationSearch;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaQuery;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that a page of the reservation and reproduction lists, with everything the list views show,
+ * is loaded with a fixed number of SQL statements, whatever the size of the page.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+public class ListRequestSearchTest {
+    // The list query itself and a single batch for the holdings of the parent records
+    private static final int MAX_STATEMENTS_PER_PAGE = 2;
+
+    private static final int NR_OF_REQUESTS = 30;
+
+    private static final Map<String, String[]> NO_PARAMETERS = Collections.emptyMap();
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void createRequests() {
+        for (int i = 0; i < NR_OF_REQUESTS; i++) {
+            Record parent = createRecord("10622/ARCH" + i, "Archive " + i, null);
+            Record record = createRecord("10622/ARCH" + i + ".1", "Item " + i, parent);
+
+            Reservation reservation = new Reservation();
+            reservation.setVisitorName("Visitor " + i);
+            reservation.setVisitorEmail("visitor" + i + "@example.org");
+            reservation.setDate(new Date());
+            HoldingReservation holdingReservation = new HoldingReservation();
+            holdingReservation.setReservation(reservation);
+            holdingReservation.setHolding(record.getHoldings().get(0));
+            reservation.getHoldingReservations().add(holdingReservation);
+            entityManager.persist(reservation);
+
+            Reproduction reproduction = new Reproduction();
+            reproduction.setCustomerName("Customer " + i);
+            reproduction.setCustomerEmail("customer" + i + "@example.org");
+            HoldingReproduction holdingReproduction = new HoldingReproduction();
+            holdingReproduction.setReproduction(reproduction);
+            holdingReproduction.setHolding(record.getHoldings().get(0));
+            reproduction.getHoldingReproductions().add(holdingReproduction);
+            entityManager.persist(reproduction);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    /**
+     * A page of the reservation list is loaded with the same small number of statements for any page size.
+     */
+    @Test
+    public void listsReservationsWithABoundedNumberOfStatements() {
+        for (int pageSize : new int[]{5, NR_OF_REQUESTS}) {
+            entityManager.clear();
+            statistics.clear();
+
+            CriteriaQuery<HoldingReservation> cq =
+                    new ReservationSearch(entityManager.getCriteriaBuilder(), NO_PARAMETERS).list();
+            List<HoldingReservation> page =
+                    entityManager.createQuery(cq).setFirstResult(0).setMaxResults(pageSize).getResultList();
+            assertEquals(pageSize, page.size());
+
+            for (HoldingReservation holdingReservation : page) {
+                Reservation reservation = holdingReservation.getReservation();
+                assertNotNull(reservation.getVisitorName());
+                assertNotNull(reservation.getStatus());
+                visitHolding(holdingReservation.getHolding());
+            }
+
+            assertTrue(statistics.getPrepareStatementCount() <= MAX_STATEMENTS_PER_PAGE,
+                    statistics.getPrepareStatementCount() + " statements for a page of " + pageSize);
+        }
+    }
+
+    /**
+     * A page of the reproduction list is loaded with the same small number of statements for any page size.
+     */
+    @Test
+    public void listsReproductionsWithABoundedNumberOfStatements() {
+        for (int pageSize : new int[]{5, NR_OF_REQUESTS}) {
+            entityManager.clear();
+            statistics.clear();
+
+            CriteriaQuery<HoldingReproduction> cq =
+                    new ReproductionSearch(entityManager.getCriteriaBuilder(), NO_PARAMETERS).list();
+            List<HoldingReproduction> page =
+                    entityManager.createQuery(cq).setFirstResult(0).setMaxResults(pageSize).getResultList();
+            assertEquals(pageSize, page.size());
+
+            for (HoldingReproduction holdingReproduction : page) {
+                Reproduction reproduction = holdingReproduction.getReproduction();
+                assertNotNull(reproduction.getCustomerName());
+                assertNotNull(reproduction.getStatus());
+                assertNull(holdingReproduction.getStandardOption());
+                visitHolding(holdingReproduction.getHolding());
+            }
+
+            assertTrue(statistics.getPrepareStatementCount() <= MAX_STATEMENTS_PER_PAGE,
+                    statistics.getPrepareStatementCount() + " statements for a page of " + pageSize);
+        }
+    }
+
+    /**
+     * Reads what the list views show of a holding: its record, the external info and the parent with its holdings.
+     */
+    private static void visitHolding(Holding holding) {
+        assertNotNull(holding.getSignature());
+        assertNotNull(holding.getExternalInfo().getSerialNumbers());
+        Record record = holding.getRecord();
+        assertTrue(record.getTitle().startsWith("Item"));
+        assertTrue(record.getParent().getTitle().startsWith("Archive"));
+        assertNotNull(record.getParent().getHoldings().get(0).getSignature());
+    }
+
+    private Record createRecord(String pid, String title, Record parent) {
+        Record record = new Record();
+        record.setPid(pid);
+        record.setParent(parent);
+        ExternalRecordInfo externalInfo = record.getExternalInfo();
+        externalInfo.setTitle(title);
+        externalInfo.setMaterialType(ExternalRecordInfo.MaterialType.ARCHIVE);
+        externalInfo.setPublicationStatus(ExternalRecordInfo.PublicationStatus.OPEN);
+        externalInfo.setRestriction(ExternalRecordInfo.Restriction.OPEN);
+
+        Holding holding = new Holding();
+        holding.setSignature(pid.substring(pid.indexOf('/') + 1));
+        holding.setRecord(record);
+        record.addHolding(holding);
+
+        entityManager.persist(record);
+        return record;
+    }
+}
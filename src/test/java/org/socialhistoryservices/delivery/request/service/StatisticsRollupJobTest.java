@@ -0,0 +1,151 @@
+package org.socialhistoryservices.delivery.request.service;
+
+import org.junit.jupiter.api.Test;
+import org.socialhistoryservices.delivery.job.dao.JobStateDAOImpl;
+import org.socialhistoryservices.delivery.job.service.JobStateService;
+import org.socialhistoryservices.delivery.job.service.JobStateServiceImpl;
+import org.socialhistoryservices.delivery.record.entity.ExternalRecordInfo;
+import org.socialhistoryservices.delivery.record.entity.Holding;
+import org.socialhistoryservices.delivery.record.entity.Record;
+import org.socialhistoryservices.delivery.reproduction.dao.ReproductionRollupDAOImpl;
+import org.socialhistoryservices.delivery.reproduction.entity.HoldingReproduction;
+import org.socialhistoryservices.delivery.reproduction.entity.Reproduction;
+import org.socialhistoryservices.delivery.reproduction.entity.ReproductionPaymentRollup;
+import org.socialhistoryservices.delivery.request.dao.StatisticsRollupDayDAOImpl;
+import org.socialhistoryservices.delivery.request.entity.StatisticsRollupDay;
+import org.socialhistoryservices.delivery.reservation.dao.ReservationRollupDAOImpl;
+import org.socialhistoryservices.delivery.util.TransactionLocks;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the StatisticsRollupJob, together with the StatisticsRollupServiceImpl.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({StatisticsRollupJob.class, StatisticsRollupServiceImpl.class, StatisticsRollupDayDAOImpl.class,
+        ReservationRollupDAOImpl.class, ReproductionRollupDAOImpl.class,
+        JobStateServiceImpl.class, JobStateDAOImpl.class, TransactionLocks.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class StatisticsRollupJobTest {
+    // A day of its own, as other tests may add requests to the same database
+    private static final Date PAID = java.sql.Date.valueOf("2001-02-03");
+
+    @Autowired
+    private StatisticsRollupJob statisticsRollupJob;
+
+    @Autowired
+    private StatisticsRollupService statisticsRollups;
+
+    @Autowired
+    private JobStateService jobStates;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * The day of a change is queued with the change and its rollups are recomputed once.
+     */
+    @Test
+    public void refreshesTheQueuedDays() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            Reproduction reproduction = addPaidReproduction("10622/N1");
+            statisticsRollupJob.reproductionChanged(reproduction.getDate(), reproduction.getDatePaymentAccepted());
+        });
+
+        assertTrue(statisticsRollups.listQueuedDays(StatisticsRollupDay.Type.REPRODUCTION).contains(PAID));
+        assertTrue(listPaymentRollups().isEmpty());
+
+        statisticsRollups.refreshReproductionRollups(PAID);
+        assertFalse(statisticsRollups.listQueuedDays(StatisticsRollupDay.Type.REPRODUCTION).contains(PAID));
+        List<ReproductionPaymentRollup> rollups = listPaymentRollups();
+        assertEquals(1, rollups.size());
+        assertEquals(1, rollups.get(0).getTotalItems());
+        assertEquals(0, new BigDecimal("10").compareTo(rollups.get(0).getSumTotalAmount()));
+
+        // A day that is no longer queued is not recomputed again
+        transactionTemplate.executeWithoutResult(status -> addPaidReproduction("10622/N2"));
+        statisticsRollups.refreshReproductionRollups(PAID);
+        assertEquals(1, listPaymentRollups().get(0).getTotalItems());
+    }
+
+    /**
+     * The day of a change that is rolled back is not queued.
+     */
+    @Test
+    public void doesNotQueueTheDaysOfARolledBackChange() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            statisticsRollupJob.reservationChanged(new Date(), null);
+            status.setRollbackOnly();
+        });
+        assertTrue(statisticsRollups.listQueuedDays(StatisticsRollupDay.Type.RESERVATION).isEmpty());
+    }
+
+    /**
+     * The rollups of all days are only rebuilt if the last rebuild is not recent.
+     */
+    @Test
+    public void rebuildsOnlyWhenDue() {
+        statisticsRollupJob.rebuildRollups();
+        Date rebuilt = jobStates.getJobState(StatisticsRollupJob.JOB_NAME).getRunFinished();
+        assertNotNull(rebuilt);
+
+        statisticsRollupJob.rebuildRollups();
+        assertEquals(rebuilt, jobStates.getJobState(StatisticsRollupJob.JOB_NAME).getRunFinished());
+    }
+
+    private Reproduction addPaidReproduction(String pid) {
+        Record record = new Record();
+        record.setPid(pid);
+        ExternalRecordInfo externalInfo = record.getExternalInfo();
+        externalInfo.setTitle("Title of " + pid);
+        externalInfo.setMaterialType(ExternalRecordInfo.MaterialType.BOOK);
+        externalInfo.setPublicationStatus(ExternalRecordInfo.PublicationStatus.OPEN);
+        externalInfo.setRestriction(ExternalRecordInfo.Restriction.OPEN);
+        Holding holding = new Holding();
+        holding.setSignature(pid);
+        holding.setRecord(record);
+        record.addHolding(holding);
+        entityManager.persist(record);
+
+        Reproduction reproduction = new Reproduction();
+        reproduction.setCustomerName("Customer");
+        reproduction.setCustomerEmail("customer@example.org");
+        reproduction.setStatus(Reproduction.Status.ACTIVE);
+        reproduction.setDatePaymentAccepted(PAID);
+        HoldingReproduction holdingReproduction = new HoldingReproduction();
+        holdingReproduction.setReproduction(reproduction);
+        holdingReproduction.setHolding(holding);
+        holdingReproduction.setPrice(BigDecimal.TEN);
+        holdingReproduction.setDiscount(BigDecimal.ZERO);
+        holdingReproduction.setBtwPrice(BigDecimal.ZERO);
+        holdingReproduction.setBtwPercentage(21);
+        reproduction.getHoldingReproductions().add(holdingReproduction);
+        entityManager.persist(reproduction);
+        return reproduction;
+    }
+
+    private List<ReproductionPaymentRollup> listPaymentRollups() {
+        return entityManager.createQuery("select r from ReproductionPaymentRollup r where r.day = :day",
+                ReproductionPaymentRollup.class).setParameter("day", PAID).getResultList();
+    }
+}
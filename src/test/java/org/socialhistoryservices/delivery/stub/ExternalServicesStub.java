@@ -0,0 +1,410 @@
+package org.socialhistoryservices.delivery.stub;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An embeddable stand-in for the external services: the SRW record API, the EAD documents and the SOR.
+ * The stub replays the recorded responses in the fixtures next to this class,
+ * with configurable latency and failures per service.
+ * <p>
+ * Records are looked up in the fixtures by their PID. The PIDs 10622/GEN1, 10622/GEN2, ... are generated books,
+ * so that any number of distinct records can be requested. Point the application at the stub with the
+ * properties of {@link #getProperties()}. Mollie can not be redirected and is not part of the stub.
+ */
+public class ExternalServicesStub implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExternalServicesStub.class);
+
+    private static final String API_BASE = "/solr/all/srw";
+    private static final Pattern IDENTIFIER_QUERY = Pattern.compile("dc\\.identifier = \"([^\"]+)\"");
+    private static final Pattern SIGNATURE_QUERY = Pattern.compile("marc\\.852\\$j= \"([^\"]+)\"");
+    private static final Pattern TITLE_QUERY = Pattern.compile("marc\\.245 all \"([^\"]+)\"");
+    private static final Pattern GENERATED_PID = Pattern.compile("10622/GEN(\\d+)");
+
+    /**
+     * The stubbed external services.
+     */
+    public enum Service {
+        SRW, EAD, SOR
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, String> records = new LinkedHashMap<>();
+    private final Map<Service, Fault> faults = new ConcurrentHashMap<>();
+    private final Map<Service, AtomicLong> requests = new EnumMap<>(Service.class);
+
+    /**
+     * Latency and failures to inject into the responses of a service.
+     */
+    private static final class Fault {
+        private final long minLatency;
+        private final long maxLatency;
+        private final double failureRate;
+
+        private Fault(long minLatency, long maxLatency, double failureRate) {
+            this.minLatency = minLatency;
+            this.maxLatency = maxLatency;
+            this.failureRate = failureRate;
+        }
+    }
+
+    private ExternalServicesStub(HttpServer server, ExecutorService executor) {
+        this.server = server;
+        this.executor = executor;
+        for (Service service : Service.values()) {
+            requests.put(service, new AtomicLong());
+            faults.put(service, new Fault(0, 0, 0));
+        }
+    }
+
+    /**
+     * Starts a stub on a free port of the loopback address.
+     *
+     * @return The started stub.
+     * @throws IOException Thrown when the server could not be started.
+     */
+    public static ExternalServicesStub start() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        ExecutorService executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+
+        ExternalServicesStub stub = new ExternalServicesStub(server, executor);
+        for (String pid : new String[]{"10622/N12345", "10622/ARCH01234", "10622/30051000000001"})
+            stub.records.put(pid, stub.readFixture("srw/" + toFileName(pid)));
+
+        server.createContext(API_BASE, exchange -> stub.handle(exchange, Service.SRW, stub::handleSearch));
+        server.createContext("/ead/", exchange -> stub.handle(exchange, Service.EAD, stub::handleEAD));
+        server.createContext("/sor/", exchange -> stub.handle(exchange, Service.SOR, stub::handleSOR));
+        server.start();
+
+        LOGGER.info(String.format("Started the external services stub at %s", stub.getBaseUrl()));
+        return stub;
+    }
+
+    /**
+     * Starts a stub on a free port of the loopback address, for use in a static initializer.
+     *
+     * @return The started stub.
+     */
+    public static ExternalServicesStub startUnchecked() {
+        try {
+            return start();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the address of the stub.
+     *
+     * @return The base URL, without a trailing slash.
+     */
+    public String getBaseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Returns the delivery properties that point the application at the stub.
+     *
+     * @return The properties.
+     */
+    public Map<String, String> getProperties() {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("delivery.apiProto", "http");
+        properties.put("delivery.apiDomain", "localhost");
+        properties.put("delivery.apiPort", String.valueOf(server.getAddress().getPort()));
+        properties.put("delivery.apiBase", API_BASE);
+        properties.put("delivery.sorAddress", getBaseUrl() + "/sor");
+        return properties;
+    }
+
+    /**
+     * Delays every response of the service by a random latency within the given range.
+     *
+     * @param service    The service.
+     * @param minLatency The minimum latency in milliseconds.
+     * @param maxLatency The maximum latency in milliseconds.
+     */
+    public void setLatency(Service service, long minLatency, long maxLatency) {
+        faults.compute(service, (s, fault) -> new Fault(minLatency, Math.max(minLatency, maxLatency),
+                fault.failureRate));
+    }
+
+    /**
+     * Fails the given fraction of the responses of the service with a 503 Service Unavailable.
+     *
+     * @param service     The service.
+     * @param failureRate The fraction of failing responses, from 0 (none) to 1 (all).
+     */
+    public void setFailureRate(Service service, double failureRate) {
+        faults.compute(service, (s, fault) -> new Fault(fault.minLatency, fault.maxLatency, failureRate));
+    }
+
+    /**
+     * Removes the injected latency and failures of all services.
+     */
+    public void reset() {
+        for (Service service : Service.values())
+            faults.put(service, new Fault(0, 0, 0));
+    }
+
+    /**
+     * Returns the number of requests the service received.
+     *
+     * @param service The service.
+     * @return The number of requests.
+     */
+    public long getRequests(Service service) {
+        return requests.get(service).get();
+    }
+
+    /**
+     * Stops the stub.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+
+    /**
+     * Handles a request of a service, after injecting the latency and failures of the service.
+     */
+    private void handle(HttpExchange exchange, Service service, Handler handler) throws IOException {
+        try {
+            requests.get(service).incrementAndGet();
+
+            Fault fault = faults.get(service);
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (fault.maxLatency > 0)
+                Thread.sleep(random.nextLong(fault.minLatency, fault.maxLatency + 1));
+            if (fault.failureRate > 0 && random.nextDouble() < fault.failureRate) {
+                send(exchange, 503, null, null);
+                return;
+            }
+
+            handler.handle(exchange);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (RuntimeException e) {
+            LOGGER.error("The external services stub failed to handle " + exchange.getRequestURI(), e);
+            send(exchange, 500, null, null);
+        }
+        finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Answers an SRW search by PIDs, by the signature of an archive or by title.
+     */
+    private void handleSearch(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = getParameters(exchange);
+        String query = parameters.getOrDefault("query", "");
+        int maximumRecords = Integer.parseInt(parameters.getOrDefault("maximumRecords", "10"));
+        int startRecord = Integer.parseInt(parameters.getOrDefault("startRecord", "1"));
+
+        Map<String, String> found = new LinkedHashMap<>();
+        Matcher identifier = IDENTIFIER_QUERY.matcher(query);
+        while (identifier.find()) {
+            String pid = decode(identifier.group(1));
+            String record = getRecord(pid);
+            if (record != null)
+                found.put(pid, record);
+        }
+
+        Matcher signature = SIGNATURE_QUERY.matcher(query);
+        if (signature.find()) {
+            String pid = "10622/" + decode(signature.group(1));
+            String record = getRecord(pid);
+            if (record != null)
+                found.put(pid, record);
+        }
+
+        Matcher title = TITLE_QUERY.matcher(query);
+        if (title.find()) {
+            String words = decode(title.group(1)).toLowerCase();
+            for (Map.Entry<String, String> record : records.entrySet()) {
+                if (record.getValue().toLowerCase().contains(words))
+                    found.put(record.getKey(), record.getValue());
+            }
+        }
+
+        List<Map.Entry<String, String>> page = new ArrayList<>(found.entrySet());
+        int from = Math.min(page.size(), Math.max(0, startRecord - 1));
+        page = page.subList(from, Math.min(page.size(), from + maximumRecords));
+
+        StringBuilder sb = new StringBuilder()
+                .append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<srw:searchRetrieveResponse xmlns:srw=\"http://www.loc.gov/zing/srw/\">\n")
+                .append("<srw:version>1.1</srw:version>\n")
+                .append("<srw:numberOfRecords>").append(found.size()).append("</srw:numberOfRecords>\n")
+                .append("<srw:records>\n");
+        for (Map.Entry<String, String> record : page) {
+            sb.append("<srw:record>")
+                    .append("<srw:recordSchema>info:srw/schema/1/marcxml-v1.1</srw:recordSchema>")
+                    .append("<srw:recordPacking>xml</srw:recordPacking>")
+                    .append("<srw:recordData>").append(record.getValue()).append("</srw:recordData>")
+                    .append("<srw:extraRecordData>")
+                    .append("<extraData:extraData xmlns:extraData=\"http://oclc.org/srw/extraData\">")
+                    .append("<iisg:identifier xmlns:iisg=\"http://www.iisg.nl/api/sru/\">")
+                    .append(record.getKey())
+                    .append("</iisg:identifier></extraData:extraData></srw:extraRecordData>")
+                    .append("</srw:record>\n");
+        }
+        sb.append("</srw:records>\n</srw:searchRetrieveResponse>\n");
+
+        send(exchange, 200, "text/xml; charset=utf-8", sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Serves the EAD of an archive, answering a conditional request for an unchanged EAD with a 304 Not Modified.
+     */
+    private void handleEAD(HttpExchange exchange) throws IOException {
+        String pid = exchange.getRequestURI().getPath().substring("/ead/".length());
+        byte[] ead = readResource("ead/" + toFileName(pid));
+        if (ead == null) {
+            send(exchange, 404, null, null);
+            return;
+        }
+
+        String eTag = "\"" + Arrays.hashCode(ead) + "\"";
+        exchange.getResponseHeaders().set("ETag", eTag);
+        if (eTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            send(exchange, 304, null, null);
+            return;
+        }
+        send(exchange, 200, "text/xml; charset=utf-8", ead);
+    }
+
+    /**
+     * Serves the metadata of a file in the SOR, or the METS document of a file with multiple pages.
+     */
+    private void handleSOR(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        byte[] document = null;
+        if (path.startsWith("/sor/metadata/"))
+            document = readResource("sor/" + toFileName(path.substring("/sor/metadata/".length())));
+        else if (path.startsWith("/sor/file/master/"))
+            document = readResource("mets/" + toFileName(path.substring("/sor/file/master/".length())));
+
+        if (document == null)
+            send(exchange, 404, null, null);
+        else
+            send(exchange, 200, "text/xml; charset=utf-8", document);
+    }
+
+    /**
+     * Returns the MARC record of the given PID, from the fixtures or generated.
+     *
+     * @param pid The PID.
+     * @return The marc:record element, or null if there is no record with the PID.
+     */
+    private String getRecord(String pid) {
+        String record = records.get(pid);
+        if (record != null)
+            return record;
+
+        Matcher generated = GENERATED_PID.matcher(pid);
+        if (!generated.matches())
+            return null;
+
+        String n = generated.group(1);
+        return "<marc:record xmlns:marc=\"http://www.loc.gov/MARC21/slim\">" +
+                "<marc:leader>00000nam a2200000 a 4500</marc:leader>" +
+                "<marc:datafield tag=\"100\" ind1=\"1\" ind2=\" \">" +
+                "<marc:subfield code=\"a\">Author " + n + "</marc:subfield></marc:datafield>" +
+                "<marc:datafield tag=\"245\" ind1=\"1\" ind2=\"0\">" +
+                "<marc:subfield code=\"a\">Generated book " + n + "</marc:subfield></marc:datafield>" +
+                "<marc:datafield tag=\"542\" ind1=\" \" ind2=\" \">" +
+                "<marc:subfield code=\"m\">open</marc:subfield></marc:datafield>" +
+                "<marc:datafield tag=\"852\" ind1=\" \" ind2=\" \">" +
+                "<marc:subfield code=\"c\">IISG</marc:subfield>" +
+                "<marc:subfield code=\"j\">GEN " + n + "</marc:subfield></marc:datafield>" +
+                "</marc:record>";
+    }
+
+    /**
+     * Reads a fixture, in which {{baseUrl}} is replaced by the address of the stub.
+     */
+    private String readFixture(String name) throws IOException {
+        byte[] fixture = readResource(name);
+        if (fixture == null)
+            throw new IOException("Missing fixture " + name);
+        return new String(fixture, StandardCharsets.UTF_8)
+                .replaceFirst("^<\\?xml[^>]*\\?>\\s*", "")
+                .replace("{{baseUrl}}", getBaseUrl());
+    }
+
+    private static byte[] readResource(String name) throws IOException {
+        try (InputStream is = ExternalServicesStub.class.getResourceAsStream(name)) {
+            return (is != null) ? is.readAllBytes() : null;
+        }
+    }
+
+    private static Map<String, String> getParameters(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null)
+            return parameters;
+
+        for (String parameter : query.split("&")) {
+            int idx = parameter.indexOf('=');
+            if (idx > 0)
+                parameters.put(parameter.substring(0, idx), decode(parameter.substring(idx + 1)));
+        }
+        return parameters;
+    }
+
+    private static String decode(String value) {
+        String decoded = URLDecoder.decode(value, StandardCharsets.UTF_8);
+        // The values in the query are encoded by the application before the query itself is encoded
+        return decoded.contains("%") ? URLDecoder.decode(decoded, StandardCharsets.UTF_8) : decoded;
+    }
+
+    private static String toFileName(String pid) {
+        return pid.replace('/', '-') + ".xml";
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        if (contentType != null)
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+}
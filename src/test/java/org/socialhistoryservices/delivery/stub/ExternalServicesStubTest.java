@@ -0,0 +1,97 @@
+package org.socialhistoryservices.delivery.stub;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the lookup, reservation and reproduction flows of the application against the external services stub.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class ExternalServicesStubTest {
+    private static final ExternalServicesStub STUB = ExternalServicesStub.startUnchecked();
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @DynamicPropertySource
+    static void stubProperties(DynamicPropertyRegistry registry) {
+        STUB.getProperties().forEach((key, value) -> registry.add(key, () -> value));
+        registry.add("delivery.mailEnabled", () -> "false");
+        registry.add("delivery.printEnabled", () -> "false");
+        registry.add("delivery.recordRefreshEnabled", () -> "false");
+    }
+
+    @AfterEach
+    public void resetStub() {
+        STUB.reset();
+    }
+
+    @AfterAll
+    public static void stopStub() {
+        STUB.close();
+    }
+
+    /**
+     * A book is looked up in the SRW API.
+     */
+    @Test
+    public void looksUpABook() {
+        String body = request("/record/10622%2FN12345");
+        assertTrue(body.contains("De geschiedenis van de vakbeweging"), body);
+        assertTrue(body.contains("N 12345"), body);
+    }
+
+    /**
+     * An item of an archive is looked up in the EAD of the archive.
+     */
+    @Test
+    public void looksUpAnArchivalItem() {
+        long eadRequests = STUB.getRequests(ExternalServicesStub.Service.EAD);
+        String body = request("/record/10622%2FARCH01234.3");
+        assertTrue(body.contains("Archive of the Union"), body);
+        assertTrue(STUB.getRequests(ExternalServicesStub.Service.EAD) > eadRequests);
+    }
+
+    /**
+     * The reservation and reproduction forms are shown for records of the stub.
+     */
+    @Test
+    public void showsTheCreateForms() {
+        String reservation = request("/reservation/createform/10622%2FGEN1");
+        assertTrue(reservation.contains("Generated book 1"), reservation);
+
+        String reproduction = request("/reproduction/createform/10622%2F30051000000001");
+        assertTrue(reproduction.contains("Poster of the general strike"), reproduction);
+    }
+
+    /**
+     * The stub fails all requests of a service with a failure rate of 1,
+     * after which a record that is not cached can not be found.
+     */
+    @Test
+    public void injectsFailures() {
+        STUB.setFailureRate(ExternalServicesStub.Service.SRW, 1);
+        long srwRequests = STUB.getRequests(ExternalServicesStub.Service.SRW);
+        ResponseEntity<String> response = restTemplate.getForEntity("/record/10622%2FGEN999", String.class);
+        assertNotEquals(HttpStatus.OK, response.getStatusCode());
+        assertTrue(STUB.getRequests(ExternalServicesStub.Service.SRW) > srwRequests);
+    }
+
+    private String request(String url) {
+        ResponseEntity<String> response = restTemplate.getForEntity(url, String.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode(), response.getBody());
+        return response.getBody();
+    }
+}
@@ -0,0 +1,141 @@
+package org.socialhistoryservices.delivery.stub;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.socialhistoryservices.delivery.Benchmark;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives the record lookup and the reservation and reproduction forms concurrently against the external services
+ * stub and reports the latency percentiles and the throughput. The stub adds latency to every call to the external
+ * services; most requests are for records already stored, some for records that still have to be looked up.
+ * <p>
+ * Run with:
+ * <pre>
+ * mvn test -Dgroups=benchmark -DexcludedGroups= -Dtest=LoadBenchmark
+ * </pre>
+ */
+@Tag(Benchmark.TAG)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+public class LoadBenchmark {
+    private static final ExternalServicesStub STUB = ExternalServicesStub.startUnchecked();
+
+    private static final int THREADS = 16;
+    private static final int ITERATIONS = 200;
+
+    // One in every COLD_EVERY requests is for a record that is not stored yet
+    private static final int COLD_EVERY = 10;
+    private static final int WARM_RECORDS = 50;
+
+    private final AtomicLong coldRecords = new AtomicLong(1_000);
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @DynamicPropertySource
+    static void stubProperties(DynamicPropertyRegistry registry) {
+        STUB.getProperties().forEach((key, value) -> registry.add(key, () -> value));
+        registry.add("delivery.mailEnabled", () -> "false");
+        registry.add("delivery.printEnabled", () -> "false");
+        registry.add("delivery.recordRefreshEnabled", () -> "false");
+    }
+
+    @AfterEach
+    public void resetStub() {
+        STUB.reset();
+    }
+
+    @AfterAll
+    public static void stopStub() {
+        STUB.close();
+    }
+
+    /**
+     * Looks up single records and batches of records.
+     */
+    @Test
+    public void recordLookup() throws Exception {
+        measure("GET /record/{pids}", i -> (i % 5 == 0)
+                ? "/record/" + pid(i) + "," + pid(i + 1) + "," + pid(i + 2)
+                : "/record/" + pid(i));
+    }
+
+    /**
+     * Shows the reservation form.
+     */
+    @Test
+    public void reservationCreateForm() throws Exception {
+        measure("GET /reservation/createform/{pid}", i -> "/reservation/createform/" + pid(i));
+    }
+
+    /**
+     * Shows the reproduction form.
+     */
+    @Test
+    public void reproductionCreateForm() throws Exception {
+        measure("GET /reproduction/createform/{pid}", i -> "/reproduction/createform/" + pid(i));
+    }
+
+    /**
+     * Mixes the three requests, with some of the calls to the SRW API failing.
+     */
+    @Test
+    public void mixedWithFailures() throws Exception {
+        STUB.setFailureRate(ExternalServicesStub.Service.SRW, 0.05);
+        measure("mixed, 5% SRW failures", i -> {
+            switch (i % 3) {
+                case 0:
+                    return "/record/" + pid(i);
+                case 1:
+                    return "/reservation/createform/" + pid(i);
+                default:
+                    return "/reproduction/createform/" + pid(i);
+            }
+        });
+    }
+
+    private void measure(String name, UrlFactory urls) throws Exception {
+        STUB.setLatency(ExternalServicesStub.Service.SRW, 20, 80);
+        STUB.setLatency(ExternalServicesStub.Service.EAD, 20, 80);
+        STUB.setLatency(ExternalServicesStub.Service.SOR, 20, 80);
+
+        AtomicLong errors = new AtomicLong();
+        Benchmark.Latencies latencies = Benchmark.measureLatencies(name, THREADS, ITERATIONS, i -> {
+            ResponseEntity<String> response = restTemplate.getForEntity(urls.getUrl(i), String.class);
+            if (response.getStatusCode() != HttpStatus.OK)
+                errors.incrementAndGet();
+            return response.getStatusCodeValue();
+        });
+
+        assertTrue(latencies.getP50() <= latencies.getP99());
+        // The errors are counted over both the warm up and the measured runs
+        assertTrue(errors.get() < 2L * THREADS * ITERATIONS, "All requests failed");
+    }
+
+    /**
+     * Returns the (URL encoded) PID of a generated book of the stub; most are looked up already.
+     */
+    private String pid(int i) {
+        long number = (i % COLD_EVERY == 0) ? coldRecords.getAndIncrement() : (i % WARM_RECORDS);
+        return "10622%2FGEN" + number;
+    }
+
+    @FunctionalInterface
+    private interface UrlFactory {
+        String getUrl(int i);
+    }
+}
@@ -0,0 +1,78 @@
+package org.socialhistoryservices.delivery.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the CircuitBreaker.
+ */
+public class CircuitBreakerTest {
+
+    /**
+     * The breaker opens once the failure rate reaches the threshold and rejects calls while open.
+     */
+    @Test
+    public void opensAtTheFailureRateThreshold() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test", 4, 2, 50, 60, 10, 0);
+        breaker.release(breaker.acquire(), true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.release(breaker.acquire(), false);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.isCallPermitted());
+        assertThrows(CallNotPermittedException.class, breaker::acquire);
+        assertEquals(1, breaker.getRejected());
+    }
+
+    /**
+     * A call that was let through while the breaker was closed does not decide a half open breaker.
+     */
+    @Test
+    public void onlyTheTrialCallDecidesAHalfOpenBreaker() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test", 4, 2, 50, 0, 10, 0);
+        CircuitBreaker.Permit stale = breaker.acquire();
+        open(breaker);
+
+        CircuitBreaker.Permit trial = breaker.acquire();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        breaker.release(stale, true);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertThrows(CallNotPermittedException.class, breaker::acquire);
+
+        breaker.release(trial, false);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    /**
+     * A call that was let through before the breaker opened does not count once the breaker is closed again.
+     */
+    @Test
+    public void staleCallsDoNotCountOnceClosedAgain() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker("test", 4, 2, 50, 0, 10, 0);
+        CircuitBreaker.Permit stale1 = breaker.acquire();
+        CircuitBreaker.Permit stale2 = breaker.acquire();
+        open(breaker);
+
+        breaker.release(breaker.acquire(), true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.release(stale1, false);
+        breaker.release(stale2, false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getFailureRate());
+        assertEquals(0, breaker.getActiveCalls());
+    }
+
+    /**
+     * Opens the breaker with failing calls.
+     *
+     * @param breaker The breaker to open.
+     */
+    private static void open(CircuitBreaker breaker) throws CallNotPermittedException {
+        breaker.release(breaker.acquire(), false);
+        breaker.release(breaker.acquire(), false);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+}
@@ -0,0 +1,82 @@
+package org.socialhistoryservices.delivery.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the ReferenceDataCache.
+ */
+public class ReferenceDataCacheTest {
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final Supplier<List<Integer>> loader = () -> Collections.singletonList(loads.incrementAndGet());
+
+    /**
+     * The entities are loaded once and served from memory until the cache is invalidated.
+     */
+    @Test
+    public void servesFromMemoryUntilInvalidated() {
+        ReferenceDataCache<Integer> cache = new ReferenceDataCache<>("test", 60);
+        assertEquals(Collections.singletonList(1), cache.get(loader));
+        assertEquals(Collections.singletonList(1), cache.get(loader));
+        assertTrue(cache.isCached());
+
+        cache.invalidate();
+        assertFalse(cache.isCached());
+        assertEquals(Collections.singletonList(2), cache.get(loader));
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(1, cache.getInvalidations());
+    }
+
+    /**
+     * Without an invalidation, as for a change made on another node, the entities are loaded again once expired.
+     */
+    @Test
+    public void loadsAgainOnceExpired() throws Exception {
+        ReferenceDataCache<Integer> cache = new ReferenceDataCache<>("test", 1);
+        assertEquals(Collections.singletonList(1), cache.get(loader));
+        assertEquals(Collections.singletonList(1), cache.get(loader));
+
+        Thread.sleep(1100);
+        assertFalse(cache.isCached());
+        assertEquals(Collections.singletonList(2), cache.get(loader));
+        assertEquals(Collections.singletonList(2), cache.get(loader));
+        assertEquals(0, cache.getInvalidations());
+    }
+
+    /**
+     * A transaction that invalidated the cache reads its own changes, which are not cached until it completes.
+     */
+    @Test
+    public void doesNotCacheTheEntitiesOfAnUncommittedChange() {
+        ReferenceDataCache<Integer> cache = new ReferenceDataCache<>("test", 60);
+        cache.get(loader);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.invalidate();
+            assertEquals(Collections.singletonList(2), cache.get(loader));
+            assertEquals(Collections.singletonList(3), cache.get(loader));
+            assertFalse(cache.isCached());
+
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                    TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_COMMITTED);
+        }
+        finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(Collections.singletonList(4), cache.get(loader));
+        assertEquals(Collections.singletonList(4), cache.get(loader));
+    }
+}
@@ -0,0 +1,98 @@
+package org.socialhistoryservices.delivery.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the TransactionLocks on the development database, which falls back to locks within this JVM.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(TransactionLocks.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class TransactionLocksTest {
+    @Autowired
+    private TransactionLocks transactionLocks;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * A lock is held until the transaction that took it completes; other keys are not locked.
+     */
+    @Test
+    public void holdsTheLockUntilTheTransactionCompletes() throws Exception {
+        Boolean postgreSQL = transactionTemplate().execute(status -> transactionLocks.isPostgreSQL());
+        assertEquals(Boolean.FALSE, postgreSQL);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CountDownLatch locked = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            Future<?> holder = executor.submit(() -> transactionTemplate().executeWithoutResult(status -> {
+                transactionLocks.lock("test", "a");
+                locked.countDown();
+                await(release);
+            }));
+            assertTrue(locked.await(10, TimeUnit.SECONDS));
+
+            // Another key and another namespace are free
+            assertTrue(tryLock("test", "b"));
+            assertTrue(tryLock("other", "a"));
+            assertFalse(tryLock("test", "a"));
+
+            release.countDown();
+            holder.get(10, TimeUnit.SECONDS);
+            assertTrue(tryLock("test", "a"));
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Tries to lock the given key in a transaction on another thread, which gives up after a short wait.
+     */
+    private boolean tryLock(String namespace, String key) throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> lock = executor.submit(() -> transactionTemplate().executeWithoutResult(status ->
+                    transactionLocks.lock(namespace, key)));
+            lock.get(500, TimeUnit.MILLISECONDS);
+            return true;
+        }
+        catch (TimeoutException e) {
+            return false;
+        }
+        finally {
+            // Interrupting does not stop a thread waiting for a lock, so the waiting thread gets the lock later
+            executor.shutdown();
+        }
+    }
+
+    private TransactionTemplate transactionTemplate() {
+        return new TransactionTemplate(transactionManager);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}